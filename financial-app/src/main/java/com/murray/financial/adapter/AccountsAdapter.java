@@ -2,10 +2,15 @@ package com.murray.financial.adapter;
 
 import com.murray.financial.dtos.BankAccountDTO;
 import com.murray.financial.dtos.BankAccountSearchCriteriaDTO;
+import com.murray.financial.dtos.BankAccountTotalsDTO;
+import com.murray.financial.dtos.ResultsPageDTO;
 import com.murray.financial.dtos.TransferDTO;
+import com.murray.financial.dtos.TransferExecutionResultDTO;
 import com.murray.financial.dtos.TransferSearchCriteriaDTO;
 
 import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
 
 /**
  * Adapter for the {@link com.murray.financial.service.AccountService}. The only responsibility of the Adapter is to call the Service
@@ -18,19 +23,46 @@ public interface AccountsAdapter {
      * Create a new Transfer that will transfer money from source account to
      * a destination account.
      *
-     * @param transferDTO contains the transfer details
+     * @param transferDTO    contains the transfer details
+     * @param idempotencyKey optional client key, a repeated request returns the transfer first created
      * @return TransferDTO
      */
-    TransferDTO createTransfer(TransferDTO transferDTO);
+    TransferDTO createTransfer(TransferDTO transferDTO, String idempotencyKey);
 
 
     /**
      * Executes a stored transfer which will move money from one account to another
      *
+     * @param transferId     transfer unique id
+     * @param idempotencyKey optional client key, a repeated request returns the first response
+     * @return TransferDTO
+     */
+    TransferDTO executeTransfer(Long transferId, String idempotencyKey);
+
+    /**
+     * Queues a stored transfer to be executed asynchronously
+     *
+     * @param transferId     transfer unique id
+     * @param idempotencyKey optional client key, a repeated request returns the first response
+     * @return TransferDTO with PENDING status
+     */
+    TransferDTO submitTransfer(Long transferId, String idempotencyKey);
+
+    /**
+     * Find a stored transfer, used to poll the transfer status
+     *
      * @param transferId transfer unique id
      * @return TransferDTO
      */
-    TransferDTO executeTransfer(Long transferId);
+    TransferDTO findTransfer(Long transferId);
+
+    /**
+     * Executes a list of stored transfers in batches
+     *
+     * @param transferIds transfer unique ids
+     * @return the outcome of each transfer
+     */
+    List<TransferExecutionResultDTO> executeTransfers(List<Long> transferIds);
 
     /**
      * Create a new active bank account using the {@link BankAccountDTO} details
@@ -59,20 +91,58 @@ public interface AccountsAdapter {
 
 
     /**
-     * find the bank account that match the search criteria defined in   {@link BankAccountSearchCriteriaDTO}.
+     * find a page of the bank account that match the search criteria defined in   {@link BankAccountSearchCriteriaDTO}.
      *
      * @param searchCriteriaDTO {@link BankAccountSearchCriteriaDTO}
-     * @return list of {@link BankAccountDTO}
+     * @return page of {@link BankAccountDTO}
+     */
+    ResultsPageDTO<BankAccountDTO> findAccountsBy(final BankAccountSearchCriteriaDTO searchCriteriaDTO);
+
+    /**
+     * Look up the bank accounts of many iban numbers at once, at most one search page of iban numbers
+     *
+     * @param ibanNumbers iban numbers to look up
+     * @return {@link BankAccountDTO} keyed by iban number in the requested order, the iban numbers
+     * without an account are left out
+     */
+    Map<String, BankAccountDTO> findAccountsBy(final List<String> ibanNumbers);
+
+    /**
+     * Export all the bank accounts that match the search criteria, each account is handed to
+     * the consumer as soon as it is read so the results are never held in memory.
+     *
+     * @param searchCriteriaDTO {@link BankAccountSearchCriteriaDTO}, the paging fields are ignored
+     * @param consumer          receives each {@link BankAccountDTO}
      */
-    List<BankAccountDTO> findAccountsBy(final BankAccountSearchCriteriaDTO searchCriteriaDTO);
+    void exportAccountsBy(final BankAccountSearchCriteriaDTO searchCriteriaDTO, final Consumer<BankAccountDTO> consumer);
 
 
     /**
-     * find the bank account  transfers that match the search criteria defined in
+     * find the balance totals of the bank accounts that match the search criteria, grouped
+     * by the currency and/or status.
+     *
+     * @param searchCriteriaDTO {@link BankAccountSearchCriteriaDTO}, the ordering and paging fields are ignored
+     * @param groupBy           currency and/or status, a single total of all the accounts when empty
+     * @return list of {@link BankAccountTotalsDTO} ordered by currency and status
+     */
+    List<BankAccountTotalsDTO> findAccountTotalsBy(final BankAccountSearchCriteriaDTO searchCriteriaDTO, final List<String> groupBy);
+
+
+    /**
+     * find a page of the bank account  transfers that match the search criteria defined in
      * {@link TransferSearchCriteriaDTO}.
      *
      * @param searchCriteriaDTO {@link TransferSearchCriteriaDTO}
-     * @return list of {@link TransferDTO}
+     * @return page of {@link TransferDTO}
+     */
+    ResultsPageDTO<TransferDTO> findTransfersBy(final TransferSearchCriteriaDTO searchCriteriaDTO);
+
+    /**
+     * Export all the transfers that match the search criteria, each transfer is handed to
+     * the consumer as soon as it is read so the results are never held in memory.
+     *
+     * @param searchCriteriaDTO {@link TransferSearchCriteriaDTO}, the paging fields are ignored
+     * @param consumer          receives each {@link TransferDTO}
      */
-    List<TransferDTO> findTransfersBy(final TransferSearchCriteriaDTO searchCriteriaDTO);
+    void exportTransfersBy(final TransferSearchCriteriaDTO searchCriteriaDTO, final Consumer<TransferDTO> consumer);
 }
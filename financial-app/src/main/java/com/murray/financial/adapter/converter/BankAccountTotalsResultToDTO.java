@@ -0,0 +1,34 @@
+package com.murray.financial.adapter.converter;
+
+import com.murray.financial.domain.repository.query.BankAccountTotalsResult;
+import com.murray.financial.dtos.BankAccountTotalsDTO;
+import org.springframework.core.convert.converter.Converter;
+import org.springframework.stereotype.Component;
+
+import java.util.Objects;
+
+/**
+ * Converts the BankAccountTotalsResult to it's BankAccountTotalsDTO
+ */
+@Component
+public class BankAccountTotalsResultToDTO implements Converter<BankAccountTotalsResult, BankAccountTotalsDTO> {
+
+    @Override
+    public BankAccountTotalsDTO convert(BankAccountTotalsResult result) {
+
+        BankAccountTotalsDTO dto = new BankAccountTotalsDTO();
+
+        if (Objects.nonNull(result.currency())) {
+            dto.setCurrency(result.currency().name());
+        }
+        if (Objects.nonNull(result.status())) {
+            dto.setStatus(result.status().name());
+        }
+        dto.setAccounts(result.accounts());
+        dto.setTotalBalance(result.totalBalance());
+        dto.setMinBalance(result.minBalance());
+        dto.setMaxBalance(result.maxBalance());
+
+        return dto;
+    }
+}
@@ -33,6 +33,12 @@ public class TransferDomainToDTO implements Converter<AccountTransfer, TransferD
             dto.setExecutionTime(accountTransfer.getTimeStamp());
         }
 
+        if (Objects.nonNull(accountTransfer.getStatus())) {
+            dto.setStatus(accountTransfer.getStatus().name());
+        }
+
+        dto.setFailureReason(accountTransfer.getFailureReason());
+
         return dto;
     }
 }
@@ -0,0 +1,36 @@
+package com.murray.financial.adapter.converter;
+
+import com.murray.financial.dtos.TransferExecutionResultDTO;
+import com.murray.financial.service.TransferExecutionResult;
+import org.springframework.core.convert.converter.Converter;
+import org.springframework.stereotype.Component;
+
+import java.util.Objects;
+
+/**
+ * Converts the {@link TransferExecutionResult} to a {@link TransferExecutionResultDTO}
+ */
+@Component
+public class TransferExecutionResultToDTO implements Converter<TransferExecutionResult, TransferExecutionResultDTO> {
+
+    private final TransferDomainToDTO transferDomainToDTO;
+
+    public TransferExecutionResultToDTO(TransferDomainToDTO transferDomainToDTO) {
+        this.transferDomainToDTO = transferDomainToDTO;
+    }
+
+    @Override
+    public TransferExecutionResultDTO convert(TransferExecutionResult result) {
+
+        TransferExecutionResultDTO dto = new TransferExecutionResultDTO();
+        dto.setTransferId(result.getTransferId());
+        dto.setStatus(result.isExecuted() ? "EXECUTED" : "FAILED");
+        dto.setMessage(result.getMessage());
+
+        if (Objects.nonNull(result.getTransfer())) {
+            dto.setTransfer(transferDomainToDTO.convert(result.getTransfer()));
+        }
+
+        return dto;
+    }
+}
@@ -7,20 +7,40 @@ import com.murray.financial.domain.enums.AccountCurrency;
 import com.murray.financial.domain.repository.query.*;
 import com.murray.financial.dtos.BankAccountDTO;
 import com.murray.financial.dtos.BankAccountSearchCriteriaDTO;
+import com.murray.financial.dtos.BankAccountTotalsDTO;
+import com.murray.financial.dtos.ResultsPageDTO;
 import com.murray.financial.dtos.TransferDTO;
+import com.murray.financial.dtos.TransferExecutionResultDTO;
 import com.murray.financial.dtos.TransferSearchCriteriaDTO;
+import com.murray.financial.exceptions.InvalidSearchException;
+import com.murray.financial.exceptions.NotFoundException;
 import com.murray.financial.exceptions.TransferCreationException;
 import com.murray.financial.querybuilder.*;
 import com.murray.financial.service.AccountService;
+import com.murray.financial.service.AsyncTransferExecutionService;
+import com.murray.financial.service.TransferExecutionService;
+import com.murray.financial.service.impl.OptimisticLockRetryPolicy;
 import org.springframework.core.convert.ConversionService;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.util.StringUtils;
 
 import java.math.BigDecimal;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 /**
  * {@inheritDoc}
@@ -28,13 +48,52 @@ import java.util.Optional;
 @Transactional
 public class AccountsAdapterImpl implements AccountsAdapter {
 
+    /**
+     * Fields of the {@link BankAccountDTO} which the account searches can be restricted to
+     */
+    private static final List<String> ACCOUNT_FIELDS = Arrays.asList("ibanNumber", "currency", "openedOn", "status", "balance");
+
     private final ConversionService conversionService;
 
     private final AccountService accountService;
 
-    public AccountsAdapterImpl(ConversionService conversionService, AccountService accountService) {
+    private final TransferExecutionService transferExecutionService;
+
+    private final AsyncTransferExecutionService asyncTransferExecutionService;
+
+    private final IdempotencyHandler idempotencyHandler;
+
+    private final OptimisticLockRetryPolicy retryPolicy;
+
+    private final TransactionTemplate transactionTemplate;
+
+    private final int defaultPageSize;
+
+    private final int maxPageSize;
+
+    private final int fetchSize;
+
+    /**
+     * @param defaultPageSize number of search results returned when no page size is requested
+     * @param maxPageSize     upper limit of the requested page size and of the iban numbers looked up at once
+     * @param fetchSize       rows fetched from the database at a time by the exports
+     */
+    public AccountsAdapterImpl(ConversionService conversionService, AccountService accountService,
+                               TransferExecutionService transferExecutionService,
+                               AsyncTransferExecutionService asyncTransferExecutionService,
+                               IdempotencyHandler idempotencyHandler, OptimisticLockRetryPolicy retryPolicy,
+                               PlatformTransactionManager transactionManager, int defaultPageSize, int maxPageSize,
+                               int fetchSize) {
         this.conversionService = conversionService;
         this.accountService = accountService;
+        this.transferExecutionService = transferExecutionService;
+        this.asyncTransferExecutionService = asyncTransferExecutionService;
+        this.idempotencyHandler = idempotencyHandler;
+        this.retryPolicy = retryPolicy;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.defaultPageSize = defaultPageSize;
+        this.maxPageSize = maxPageSize;
+        this.fetchSize = fetchSize;
     }
 
     /**
@@ -53,13 +112,20 @@ public class AccountsAdapterImpl implements AccountsAdapter {
 
     /**
      * {@inheritDoc}
+     * <p>
+     * Runs outside of the adapter transaction so an update which conflicts with a concurrent
+     * write is retried in a new transaction, reapplying the requested fields to the fresh account.
      */
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
     @Override
     public BankAccountDTO update(BankAccountDTO bankAccountDTO) {
 
-        BankAccount updated = accountService.updateAccount(conversionService.convert(bankAccountDTO, BankAccount.class));
+        return retryPolicy.execute(() -> transactionTemplate.execute(status -> {
+
+            BankAccount updated = accountService.updateAccount(conversionService.convert(bankAccountDTO, BankAccount.class));
 
-        return conversionService.convert(updated, BankAccountDTO.class);
+            return conversionService.convert(updated, BankAccountDTO.class);
+        }));
     }
 
     @Override
@@ -72,9 +138,112 @@ public class AccountsAdapterImpl implements AccountsAdapter {
      * {@inheritDoc}
      */
     @Override
-    public List<BankAccountDTO> findAccountsBy(BankAccountSearchCriteriaDTO dto) {
+    public ResultsPageDTO<BankAccountDTO> findAccountsBy(BankAccountSearchCriteriaDTO dto) {
+
+        Set<String> fields = accountFieldsOf(dto);
+        BankAccountSearch search = toBankAccountSearch(dto, fields);
+
+        search.setPageSize(pageSizeOf(dto.getPageSize()));
+        search.setContinuationToken(dto.getContinuationToken());
+
+        SearchPage<BankAccountResult> page = accountService.findBankAccountPageBy(search);
+
+        return new ResultsPageDTO<>(convertAccountsToDTO(page.getResults(), fields), page.getContinuationToken());
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Map<String, BankAccountDTO> findAccountsBy(List<String> ibanNumbers) {
+
+        if (Objects.isNull(ibanNumbers) || ibanNumbers.isEmpty()) {
+            throw new InvalidSearchException("At least one iban number must be looked up");
+        }
+        if (ibanNumbers.size() > maxPageSize) {
+            throw new InvalidSearchException("At most " + maxPageSize + " iban numbers can be looked up at once");
+        }
+
+        Map<String, BankAccountDTO> accounts = new LinkedHashMap<>();
+
+        accountService.findAccountsBy(ibanNumbers)
+                .forEach((ibanNumber, result) -> accounts.put(ibanNumber, conversionService.convert(result, BankAccountDTO.class)));
+
+        return accounts;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Transactional(readOnly = true)
+    @Override
+    public void exportAccountsBy(BankAccountSearchCriteriaDTO dto, Consumer<BankAccountDTO> consumer) {
+
+        Set<String> fields = accountFieldsOf(dto);
+        BankAccountSearch search = toBankAccountSearch(dto, fields);
+        search.setFetchSize(fetchSize);
+
+        try (Stream<BankAccountResult> results = accountService.streamBankAccountsBy(search)) {
+            results.map(result -> onlyFields(conversionService.convert(result, BankAccountDTO.class), fields)).forEach(consumer);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Transactional(readOnly = true)
+    @Override
+    public List<BankAccountTotalsDTO> findAccountTotalsBy(BankAccountSearchCriteriaDTO dto, List<String> groupBy) {
+
+        BankAccountTotalsSearch search = new BankAccountTotalsSearch();
+        addAccountConditions(search, dto);
+
+        if (Objects.nonNull(groupBy)) {
+            groupBy.stream().filter(name -> !StringUtils.isEmpty(name)).forEach(name -> search.groupBy(
+                    search.queryFields().stream()
+                            .filter(f -> f.getName().equalsIgnoreCase(name.trim()))
+                            .findFirst()
+                            .orElseThrow(() -> new InvalidSearchException("Account totals can not be grouped by " + name))));
+        }
+
+        return accountService.findBankAccountTotalsBy(search).stream()
+                .map(result -> conversionService.convert(result, BankAccountTotalsDTO.class))
+                .sorted(Comparator.comparing(BankAccountTotalsDTO::getCurrency, Comparator.nullsFirst(Comparator.naturalOrder()))
+                        .thenComparing(BankAccountTotalsDTO::getStatus, Comparator.nullsFirst(Comparator.naturalOrder())))
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Builds the bank account search query with the criteria conditions, ordering and the
+     * requested fields, a search which does not read the balance skips summing the transactions
+     */
+    private BankAccountSearch toBankAccountSearch(BankAccountSearchCriteriaDTO dto, Set<String> fields) {
 
         BankAccountSearch search = new BankAccountSearch();
+        addAccountConditions(search, dto);
+
+        if (!fields.isEmpty()) {
+            search.selectFields(search.queryFields().stream()
+                    .filter(f -> fields.contains(f.getName()))
+                    .collect(Collectors.toList()));
+        }
+
+        //order
+        QueryField orderByFld = search.queryFields().stream()
+                .filter(f -> f.getName().equalsIgnoreCase(dto.getOrderBy()))
+                .findFirst().orElse(null);
+
+        orderCondition(orderByFld, dto.getSortOrder()).ifPresent(
+                search::setOrderCondition
+        );
+
+        return search;
+    }
+
+    /**
+     * Adds the criteria conditions to a bank account search or totals search
+     */
+    private void addAccountConditions(SearchQuery<?, ?> search, BankAccountSearchCriteriaDTO dto) {
 
         queryCondition(dto.getCurrency(), BankAccountQueryField.CURRENCY).ifPresent(
                 search::addCondition
@@ -88,24 +257,50 @@ public class AccountsAdapterImpl implements AccountsAdapter {
                 search::addCondition
         );
 
-        //order
-        QueryField orderByFld = search.queryFields().stream()
-                .filter(f -> f.getName().equalsIgnoreCase(dto.getOrderBy()))
-                .findFirst().orElse(null);
+        inCondition(dto.getIbanNumbers(), BankAccountQueryField.IBAN_NUMBER).ifPresent(
+                search::addCondition
+        );
 
-        orderCondition(orderByFld, dto.getSortOrder()).ifPresent(
-                search::setOrderCondition
+        rangeCondition(dto.getMinBalance(), dto.getMaxBalance(), BankAccountQueryField.BALANCE).ifPresent(
+                search::addCondition
         );
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public ResultsPageDTO<TransferDTO> findTransfersBy(TransferSearchCriteriaDTO dto) {
+
+        TransferSearch search = toTransferSearch(dto);
 
+        search.setPageSize(pageSizeOf(dto.getPageSize()));
+        search.setContinuationToken(dto.getContinuationToken());
 
-        return convertAccountsToDTO(accountService.findBankAccountsBy(search));
+        SearchPage<TransferAccountResult> page = accountService.findTransferPageBy(search);
+
+        return new ResultsPageDTO<>(convertTransfersToDTO(page.getResults()), page.getContinuationToken());
     }
 
     /**
      * {@inheritDoc}
      */
+    @Transactional(readOnly = true)
     @Override
-    public List<TransferDTO> findTransfersBy(TransferSearchCriteriaDTO dto) {
+    public void exportTransfersBy(TransferSearchCriteriaDTO dto, Consumer<TransferDTO> consumer) {
+
+        TransferSearch search = toTransferSearch(dto);
+        search.setFetchSize(fetchSize);
+
+        try (Stream<TransferAccountResult> results = accountService.streamTransfersBy(search)) {
+            results.map(result -> conversionService.convert(result, TransferDTO.class)).forEach(consumer);
+        }
+    }
+
+    /**
+     * Builds the transfer search query with the criteria conditions and ordering
+     */
+    private TransferSearch toTransferSearch(TransferSearchCriteriaDTO dto) {
 
         TransferSearch search = new TransferSearch();
 
@@ -117,6 +312,10 @@ public class AccountsAdapterImpl implements AccountsAdapter {
                 search::addCondition
         );
 
+        rangeCondition(dto.getSentFrom(), dto.getSentTo(), TransferQueryField.SENT).ifPresent(
+                search::addCondition
+        );
+
         //order
         QueryField orderByFld = search.queryFields().stream()
                 .filter(f -> f.getName().equalsIgnoreCase(dto.getOrderBy()))
@@ -126,15 +325,20 @@ public class AccountsAdapterImpl implements AccountsAdapter {
                 search::setOrderCondition
         );
 
-
-        return convertTransfersToDTO(accountService.findTransfersBy(search));
+        return search;
     }
 
     /**
      * {@inheritDoc}
      */
     @Override
-    public TransferDTO createTransfer(TransferDTO transferDTO) {
+    public TransferDTO createTransfer(TransferDTO transferDTO, String idempotencyKey) {
+
+        return idempotencyHandler.execute(idempotencyKey, "createTransfer", transferDTO, TransferDTO.class,
+                () -> createTransfer(transferDTO));
+    }
+
+    private TransferDTO createTransfer(TransferDTO transferDTO) {
 
         BankAccount sourceAccount = accountService.findAccountBy(transferDTO.getSource())
                 .orElseThrow(() -> new TransferCreationException("Could not find source account for id:" + transferDTO.getSource()));
@@ -154,28 +358,70 @@ public class AccountsAdapterImpl implements AccountsAdapter {
 
     /**
      * {@inheritDoc}
+     * <p>
+     * Runs outside of the adapter transaction so the account locks are held until the
+     * transfer is committed.
+     */
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    @Override
+    public TransferDTO executeTransfer(Long transferId, String idempotencyKey) {
+
+        return idempotencyHandler.execute(idempotencyKey, "executeTransfer", transferId, TransferDTO.class,
+                () -> conversionService.convert(transferExecutionService.executeTransfer(transferId), TransferDTO.class));
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Runs outside of the adapter transaction so the PENDING status is committed before
+     * the transfer is picked up by a worker.
      */
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
     @Override
-    public TransferDTO executeTransfer(Long transferId) {
+    public TransferDTO submitTransfer(Long transferId, String idempotencyKey) {
 
+        return idempotencyHandler.execute(idempotencyKey, "executeTransfer", transferId, TransferDTO.class,
+                () -> conversionService.convert(asyncTransferExecutionService.submit(transferId), TransferDTO.class));
+    }
 
-        AccountTransfer transfer = accountService.executeTransfer(transferId);
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public TransferDTO findTransfer(Long transferId) {
+
+        AccountTransfer transfer = accountService.findTransferById(transferId)
+                .orElseThrow(() -> new NotFoundException("Could not find transfer", String.valueOf(transferId)));
 
         return conversionService.convert(transfer, TransferDTO.class);
     }
 
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Runs outside of the adapter transaction so that each batch is committed on its own.
+     */
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    @Override
+    public List<TransferExecutionResultDTO> executeTransfers(List<Long> transferIds) {
+
+        return transferExecutionService.executeTransfers(transferIds).stream()
+                .map(result -> conversionService.convert(result, TransferExecutionResultDTO.class))
+                .collect(Collectors.toList());
+    }
+
     /**
      * Convert the {@link BankAccountResult} into their corresponding {@link BankAccountDTO}
      *
      * @param bankAccountResults
      * @return list of  {@link BankAccountDTO}
      */
-    private List<BankAccountDTO> convertAccountsToDTO(List<BankAccountResult> bankAccountResults) {
+    private List<BankAccountDTO> convertAccountsToDTO(List<BankAccountResult> bankAccountResults, Set<String> fields) {
 
         List<BankAccountDTO> dtos = new ArrayList<>();
         bankAccountResults.forEach(
                 result -> {
-                    dtos.add(conversionService.convert(result, BankAccountDTO.class));
+                    dtos.add(onlyFields(conversionService.convert(result, BankAccountDTO.class), fields));
                 }
         );
 
@@ -183,6 +429,51 @@ public class AccountsAdapterImpl implements AccountsAdapter {
 
     }
 
+    /**
+     * The requested {@link BankAccountDTO} fields, empty when all the fields are requested
+     */
+    private Set<String> accountFieldsOf(BankAccountSearchCriteriaDTO dto) {
+
+        Set<String> fields = new HashSet<>();
+
+        if (Objects.nonNull(dto.getFields())) {
+            dto.getFields().stream().filter(name -> !StringUtils.isEmpty(name)).forEach(name -> fields.add(
+                    ACCOUNT_FIELDS.stream()
+                            .filter(f -> f.equalsIgnoreCase(name.trim()))
+                            .findFirst()
+                            .orElseThrow(() -> new InvalidSearchException("Accounts have no field " + name))));
+        }
+
+        return fields;
+    }
+
+    /**
+     * Clears the fields which were not requested, so they are left out of the response
+     */
+    private BankAccountDTO onlyFields(BankAccountDTO dto, Set<String> fields) {
+
+        if (fields.isEmpty()) {
+            return dto;
+        }
+        if (!fields.contains("ibanNumber")) {
+            dto.setIbanNumber(null);
+        }
+        if (!fields.contains("currency")) {
+            dto.setCurrency(null);
+        }
+        if (!fields.contains("openedOn")) {
+            dto.setOpenedOn(null);
+        }
+        if (!fields.contains("status")) {
+            dto.setStatus(null);
+        }
+        if (!fields.contains("balance")) {
+            dto.setBalance(null);
+        }
+
+        return dto;
+    }
+
 
     /**
      * Convert the {@link TransferAccountResult} into their corresponding {@link TransferDTO}
@@ -205,6 +496,19 @@ public class AccountsAdapterImpl implements AccountsAdapter {
     }
 
 
+    /**
+     * The requested page size limited to the maximum page size, or the default page size
+     * when none is requested
+     */
+    private Integer pageSizeOf(final Integer requestedPageSize) {
+
+        if (Objects.isNull(requestedPageSize)) {
+            return defaultPageSize;
+        }
+
+        return Math.min(requestedPageSize, maxPageSize);
+    }
+
     /**
      * Build the query ordering condition
      */
@@ -265,5 +569,53 @@ public class AccountsAdapterImpl implements AccountsAdapter {
 
     }
 
+    /**
+     * Converts the dto values into an IN {@link QueryCondition}, blank values are ignored
+     *
+     * @param searchValues values
+     * @param queryField   {@link QueryField}
+     */
+    private Optional<QueryCondition> inCondition(final List<String> searchValues, final QueryField queryField) {
+
+        if (Objects.isNull(searchValues)) {
+            return Optional.empty();
+        }
+
+        List<String> values = searchValues.stream()
+                .filter(value -> !StringUtils.isEmpty(value))
+                .distinct()
+                .collect(Collectors.toList());
+
+        if (values.isEmpty()) {
+            return Optional.empty();
+        }
+
+        return Optional.of(new QueryCondition(queryField, Operator.IN, values));
+    }
+
+    /**
+     * Converts the dto range bounds into a BETWEEN {@link QueryCondition}, or into a
+     * greater or lower than condition when only one of the bounds is set
+     *
+     * @param from       lowest value
+     * @param to         highest value
+     * @param queryField {@link QueryField}
+     */
+    private <T extends Comparable<? super T>> Optional<QueryCondition> rangeCondition(final T from, final T to,
+                                                                                     final QueryField queryField) {
+
+        if (Objects.nonNull(from) && Objects.nonNull(to)) {
+            return Optional.of(new QueryCondition(queryField, Operator.BETWEEN, new Range<>(from, to)));
+        }
+
+        if (Objects.nonNull(from)) {
+            return Optional.of(new QueryCondition(queryField, Operator.GREATER_OR_EQUAL, from));
+        }
+
+        if (Objects.nonNull(to)) {
+            return Optional.of(new QueryCondition(queryField, Operator.LOWER_OR_EQUAL, to));
+        }
 
+        return Optional.empty();
+    }
 }
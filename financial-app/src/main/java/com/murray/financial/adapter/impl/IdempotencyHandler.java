@@ -0,0 +1,146 @@
+package com.murray.financial.adapter.impl;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.murray.financial.domain.entity.IdempotencyRecord;
+import com.murray.financial.exceptions.IdempotencyKeyException;
+import com.murray.financial.service.IdempotencyStore;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.util.DigestUtils;
+import org.springframework.util.StringUtils;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Optional;
+import java.util.function.Supplier;
+
+/**
+ * Executes the adapter operations sent with an idempotency key at most once, a repeated
+ * request with the same key is answered with the stored response without executing the
+ * operation again.
+ */
+public class IdempotencyHandler {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(IdempotencyHandler.class);
+
+    private final IdempotencyStore idempotencyStore;
+    private final ObjectMapper objectMapper;
+
+    public IdempotencyHandler(IdempotencyStore idempotencyStore, ObjectMapper objectMapper) {
+        this.idempotencyStore = idempotencyStore;
+        this.objectMapper = objectMapper;
+    }
+
+    /**
+     * Runs the operation unless the key was already used, in which case the stored response is returned.
+     * The key is reserved before the operation runs and its response is stored once the surrounding
+     * transaction, if any, is committed. A failed operation releases the key.
+     *
+     * @param key          client idempotency key, when empty the operation is always executed
+     * @param operation    operation name, a key can only be used with one operation and request
+     * @param request      request the key is sent with
+     * @param responseType response class
+     * @param action       the operation
+     * @throws IdempotencyKeyException when the key was used with a different request or is in progress
+     */
+    public <T> T execute(final String key, final String operation, final Object request,
+                         final Class<T> responseType, final Supplier<T> action) {
+
+        if (StringUtils.isEmpty(key)) {
+            return action.get();
+        }
+
+        String fingerprint = fingerprintOf(operation, request);
+
+        Optional<IdempotencyRecord> stored = idempotencyStore.reserve(key, fingerprint);
+        if (stored.isPresent()) {
+            return replay(stored.get(), fingerprint, responseType);
+        }
+
+        try {
+            T response = action.get();
+            String body = write(response);
+
+            if (TransactionSynchronizationManager.isSynchronizationActive()) {
+
+                TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+                    @Override
+                    public void afterCompletion(int status) {
+                        if (status == STATUS_COMMITTED) {
+                            complete(key, body);
+                        } else {
+                            release(key);
+                        }
+                    }
+                });
+
+            } else {
+                complete(key, body);
+            }
+
+            return response;
+
+        } catch (RuntimeException | Error e) {
+            release(key);
+            throw e;
+        }
+    }
+
+    /**
+     * The operation is already committed, a failure to store its response must not be returned
+     * to the client, the key stays pending until its reservation expires
+     */
+    private void complete(final String key, final String body) {
+
+        try {
+            idempotencyStore.complete(key, body);
+        } catch (RuntimeException e) {
+            LOGGER.error("could not store the response of idempotency key:{}", key, e);
+        }
+    }
+
+    private void release(final String key) {
+
+        try {
+            idempotencyStore.release(key);
+        } catch (RuntimeException e) {
+            LOGGER.error("could not release idempotency key:{}, it is held until its reservation expires", key, e);
+        }
+    }
+
+    private <T> T replay(final IdempotencyRecord record, final String fingerprint, final Class<T> responseType) {
+
+        if (!record.getFingerprint().equals(fingerprint)) {
+            throw new IdempotencyKeyException("Idempotency key already used with a different request");
+        }
+
+        if (record.isPending()) {
+            throw new IdempotencyKeyException("A request with the same idempotency key is in progress");
+        }
+
+        LOGGER.debug("replaying stored response of idempotency key:{}", record.getKey());
+
+        try {
+            return objectMapper.readValue(record.getResponse(), responseType);
+        } catch (IOException e) {
+            throw new IllegalStateException("Could not read stored response of idempotency key:" + record.getKey(), e);
+        }
+    }
+
+    private String write(final Object response) {
+
+        try {
+            return objectMapper.writeValueAsString(response);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Could not store response", e);
+        }
+    }
+
+    private String fingerprintOf(final String operation, final Object request) {
+
+        return operation + ":" + DigestUtils.md5DigestAsHex(write(request).getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -8,6 +8,7 @@ import com.murray.financial.service.AccountService;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.transaction.PlatformTransactionManager;
 
 @Configuration
 public class CsvImporterConfig {
@@ -25,26 +26,32 @@ public class CsvImporterConfig {
      * @param inputRootDirectory root input directory where the csv file are found,
      */
     @Bean
-    public CSVImporterService csvImporterService(@Value("${importer.root.directory}") String inputRootDirectory) {
+    public CSVImporterService csvImporterService(@Value("${importer.root.directory}") String inputRootDirectory,
+                                                 CSVAccountsFileImporter accountsFileImporter,
+                                                 CSVTransfersFileImporter transfersFileImporter) {
 
-        return new CSVImporterServiceImpl(inputRootDirectory, accountsFileImporter(), transfersFileImporter());
+        return new CSVImporterServiceImpl(inputRootDirectory, accountsFileImporter, transfersFileImporter);
     }
 
     /**
      * Account csv file importer
      */
     @Bean
-    public CSVAccountsFileImporter accountsFileImporter() {
+    public CSVAccountsFileImporter accountsFileImporter(PlatformTransactionManager transactionManager,
+                                                        @Value("${importer.batch.size:500}") int batchSize,
+                                                        @Value("${importer.queue.capacity:4}") int queueCapacity) {
 
-        return new CSVAccountsFileImporter(accountService);
+        return new CSVAccountsFileImporter(accountService, transactionManager, batchSize, queueCapacity);
     }
 
     /**
      * Trnasfers csv file importer
      */
     @Bean
-    public CSVTransfersFileImporter transfersFileImporter() {
+    public CSVTransfersFileImporter transfersFileImporter(PlatformTransactionManager transactionManager,
+                                                          @Value("${importer.batch.size:500}") int batchSize,
+                                                          @Value("${importer.queue.capacity:4}") int queueCapacity) {
 
-        return new CSVTransfersFileImporter(accountService);
+        return new CSVTransfersFileImporter(accountService, transactionManager, batchSize, queueCapacity);
     }
 }
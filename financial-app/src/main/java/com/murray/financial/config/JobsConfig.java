@@ -1,7 +1,10 @@
 package com.murray.financial.config;
 
+import com.murray.financial.jobs.IdempotencyPurgeJob;
 import com.murray.financial.jobs.OperationalBankingJob;
-import com.murray.financial.service.AccountService;
+import com.murray.financial.service.IdempotencyStore;
+import com.murray.financial.service.JobLeaseService;
+import com.murray.financial.service.OperationalTaxService;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
@@ -14,11 +17,18 @@ import java.math.BigDecimal;
 public class JobsConfig {
 
     @Bean
-    public OperationalBankingJob operationalBankingJob(final AccountService accountService,
-                                                       @Value("${operational.banking.job.rate}") BigDecimal rate) {
+    public OperationalBankingJob operationalBankingJob(final OperationalTaxService operationalTaxService,
+                                                       final JobLeaseService jobLeaseService,
+                                                       @Value("${operational.banking.job.rate}") BigDecimal rate,
+                                                       @Value("${operational.banking.job.cron}") String cron) {
 
-        System.out.println("rate.... " + rate.toString());
-        return new OperationalBankingJob(accountService, rate);
+        return new OperationalBankingJob(operationalTaxService, jobLeaseService, rate, cron);
 
     }
+
+    @Bean
+    public IdempotencyPurgeJob idempotencyPurgeJob(final IdempotencyStore idempotencyStore) {
+
+        return new IdempotencyPurgeJob(idempotencyStore);
+    }
 }
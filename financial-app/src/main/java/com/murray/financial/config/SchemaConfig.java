@@ -0,0 +1,39 @@
+package com.murray.financial.config;
+
+import com.murray.financial.schema.IndexVerifier;
+import com.murray.financial.schema.SchemaMigrator;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.data.jpa.EntityManagerFactoryDependsOnPostProcessor;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import javax.persistence.EntityManagerFactory;
+import javax.sql.DataSource;
+
+/**
+ * Migrates the database schema before the entity manager factory is created, which then only
+ * validates the schema against the entities, and verifies the expected indexes once it is created.
+ */
+@Configuration
+public class SchemaConfig {
+
+    @Bean(initMethod = "migrate")
+    public SchemaMigrator schemaMigrator(final DataSource dataSource,
+                                         @Value("${schema.migration.location}") String location) {
+
+        return new SchemaMigrator(dataSource, location);
+    }
+
+    @Bean(initMethod = "verify")
+    public IndexVerifier indexVerifier(final DataSource dataSource, final EntityManagerFactory entityManagerFactory,
+                                       @Value("${schema.index.verification}") IndexVerifier.Mode mode) {
+
+        return new IndexVerifier(dataSource, entityManagerFactory, mode);
+    }
+
+    @Bean
+    public static EntityManagerFactoryDependsOnPostProcessor entityManagerFactoryDependsOnSchemaMigrator() {
+
+        return new EntityManagerFactoryDependsOnPostProcessor("schemaMigrator");
+    }
+}
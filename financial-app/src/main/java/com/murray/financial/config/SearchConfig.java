@@ -0,0 +1,24 @@
+package com.murray.financial.config;
+
+import com.murray.financial.querybuilder.QueryTemplateCache;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Search infrastructure used by the custom repositories, kept apart from the {@link ServiceConfig}
+ * which itself depends on the repositories.
+ */
+@Configuration
+public class SearchConfig {
+
+    /**
+     * Native query templates shared by all the account and transfer searches, exported
+     * over JMX with the hit and miss counters
+     */
+    @Bean
+    public QueryTemplateCache queryTemplateCache(@Value("${search.query.templates.max:512}") int maxTemplates) {
+
+        return new QueryTemplateCache(maxTemplates);
+    }
+}
@@ -1,16 +1,43 @@
 package com.murray.financial.config;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.murray.financial.adapter.AccountsAdapter;
 import com.murray.financial.adapter.impl.AccountsAdapterImpl;
+import com.murray.financial.adapter.impl.IdempotencyHandler;
 import com.murray.financial.domain.repository.AccountTransferJPARespository;
 import com.murray.financial.domain.repository.BackAccountJPARepository;
+import com.murray.financial.domain.repository.IdempotencyRecordJPARepository;
+import com.murray.financial.domain.repository.JobLeaseJPARepository;
+import com.murray.financial.domain.repository.TaxJobPartitionJPARepository;
+import com.murray.financial.domain.repository.TaxJobRunJPARepository;
+import com.murray.financial.service.AccountLockManager;
 import com.murray.financial.service.AccountService;
+import com.murray.financial.service.AsyncTransferExecutionService;
 import com.murray.financial.service.CurrencyConverter;
+import com.murray.financial.service.IdempotencyStore;
+import com.murray.financial.service.JobLeaseService;
+import com.murray.financial.service.OperationalTaxService;
+import com.murray.financial.service.TransferExecutionService;
 import com.murray.financial.service.impl.BankAccountServiceImpl;
+import com.murray.financial.service.impl.BatchTransferExecutionServiceImpl;
+import com.murray.financial.service.impl.DatabaseIdempotencyStoreImpl;
+import com.murray.financial.service.impl.DatabaseJobLeaseServiceImpl;
 import com.murray.financial.service.impl.InMemoryCurrencyConverterImp;
+import com.murray.financial.service.impl.InMemoryIdempotencyStoreImpl;
+import com.murray.financial.service.impl.OperationalTaxServiceImpl;
+import com.murray.financial.service.impl.OptimisticLockRetryPolicy;
+import com.murray.financial.service.impl.QueuedTransferExecutionServiceImpl;
+import com.murray.financial.service.impl.SearchResultCache;
+import com.murray.financial.service.impl.StripedAccountLockManagerImpl;
+import com.murray.financial.service.impl.TableIdBlockAllocator;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.core.convert.ConversionService;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import javax.sql.DataSource;
+import java.time.Duration;
 
 @Configuration
 public class ServiceConfig {
@@ -19,9 +46,29 @@ public class ServiceConfig {
 
     private final BackAccountJPARepository backAccountJPARepository;
 
-    public ServiceConfig(AccountTransferJPARespository accountTransferJPARespository, BackAccountJPARepository backAccountJPARepository, ConversionService conversionService) {
+    private final boolean balanceVerificationEnabled;
+
+    private final String nodeId;
+
+    private final Duration leaseDuration;
+
+    private final int searchCacheMaxEntries;
+
+    private final Duration searchCacheTimeToLive;
+
+    public ServiceConfig(AccountTransferJPARespository accountTransferJPARespository, BackAccountJPARepository backAccountJPARepository, ConversionService conversionService,
+                         @Value("${account.balance.verification.enabled:false}") boolean balanceVerificationEnabled,
+                         @Value("${node.id}") String nodeId,
+                         @Value("${job.lease.duration.seconds:300}") long leaseDurationSeconds,
+                         @Value("${search.cache.max.entries:1000}") int searchCacheMaxEntries,
+                         @Value("${search.cache.ttl.seconds:30}") long searchCacheTimeToLiveSeconds) {
         this.accountTransferJPARespository = accountTransferJPARespository;
         this.backAccountJPARepository = backAccountJPARepository;
+        this.balanceVerificationEnabled = balanceVerificationEnabled;
+        this.nodeId = nodeId;
+        this.leaseDuration = Duration.ofSeconds(leaseDurationSeconds);
+        this.searchCacheMaxEntries = searchCacheMaxEntries;
+        this.searchCacheTimeToLive = Duration.ofSeconds(searchCacheTimeToLiveSeconds);
     }
 
 
@@ -29,9 +76,42 @@ public class ServiceConfig {
      * Adapters responsible for converting the DTO to domain entities and vice-versa
      */
     @Bean
-    public AccountsAdapter accountsAdapter(ConversionService conversionService) {
+    public AccountsAdapter accountsAdapter(ConversionService conversionService, TransferExecutionService transferExecutionService,
+                                           AsyncTransferExecutionService asyncTransferExecutionService,
+                                           IdempotencyStore idempotencyStore, ObjectMapper objectMapper,
+                                           OptimisticLockRetryPolicy optimisticLockRetryPolicy,
+                                           PlatformTransactionManager transactionManager,
+                                           @Value("${search.page.size.default:500}") int defaultPageSize,
+                                           @Value("${search.page.size.max:1000}") int maxPageSize,
+                                           @Value("${search.export.fetch.size:1000}") int fetchSize) {
+
+        return new AccountsAdapterImpl(conversionService, accountService(), transferExecutionService, asyncTransferExecutionService,
+                new IdempotencyHandler(idempotencyStore, objectMapper), optimisticLockRetryPolicy, transactionManager,
+                defaultPageSize, maxPageSize, fetchSize);
+    }
+
+    /**
+     * Responses stored for the client idempotency keys, kept in memory or, when the
+     * idempotency.store property is database, in the idempotency_record table so every node sees them
+     */
+    @Bean
+    public IdempotencyStore idempotencyStore(IdempotencyRecordJPARepository idempotencyRecordJPARepository,
+                                             PlatformTransactionManager transactionManager,
+                                             @Value("${idempotency.store:memory}") String store,
+                                             @Value("${idempotency.max.entries:10000}") int maxEntries,
+                                             @Value("${idempotency.ttl.hours:24}") long timeToLiveHours,
+                                             @Value("${idempotency.pending.timeout.seconds:300}") long pendingTimeoutSeconds) {
 
-        return new AccountsAdapterImpl(conversionService, accountService());
+        Duration timeToLive = Duration.ofHours(timeToLiveHours);
+        Duration pendingTimeout = Duration.ofSeconds(pendingTimeoutSeconds);
+        InMemoryIdempotencyStoreImpl inMemoryStore = new InMemoryIdempotencyStoreImpl(maxEntries, timeToLive, pendingTimeout);
+
+        if ("database".equalsIgnoreCase(store)) {
+            return new DatabaseIdempotencyStoreImpl(idempotencyRecordJPARepository, transactionManager, timeToLive,
+                    pendingTimeout, inMemoryStore);
+        }
+
+        return inMemoryStore;
     }
 
     /**
@@ -40,7 +120,104 @@ public class ServiceConfig {
     @Bean
     public AccountService accountService() {
 
-        return new BankAccountServiceImpl(backAccountJPARepository, accountTransferJPARespository, currencyConverter());
+        return new BankAccountServiceImpl(backAccountJPARepository, accountTransferJPARespository, currencyConverter(), balanceVerificationEnabled,
+                searchResultCache());
+    }
+
+    /**
+     * Results of the account and transfer searches, invalidated by the writes of this node
+     * and exported over JMX with the hit ratio and eviction counters
+     */
+    @Bean
+    public SearchResultCache searchResultCache() {
+
+        return new SearchResultCache(searchCacheMaxEntries, searchCacheTimeToLive);
+    }
+
+    /**
+     * Operational banking tax engine which charges the accounts in chunks of account ids,
+     * committing each chunk with its partition checkpoint. Partitions are processed by a
+     * bounded worker pool when the parallelism is greater than one.
+     */
+    @Bean
+    public OperationalTaxService operationalTaxService(TaxJobRunJPARepository taxJobRunJPARepository,
+                                                       TaxJobPartitionJPARepository taxJobPartitionJPARepository,
+                                                       PlatformTransactionManager transactionManager,
+                                                       TableIdBlockAllocator idBlockAllocator,
+                                                       @Value("${operational.banking.job.chunk.size:1000}") long chunkSize,
+                                                       @Value("${operational.banking.job.parallelism:1}") int parallelism) {
+
+        return new OperationalTaxServiceImpl(backAccountJPARepository, taxJobRunJPARepository, taxJobPartitionJPARepository,
+                transactionManager, chunkSize, parallelism, nodeId, leaseDuration, idBlockAllocator, searchResultCache());
+    }
+
+    /**
+     * Reserves id blocks from the pooled id generator table for the rows inserted by native statements
+     */
+    @Bean
+    public TableIdBlockAllocator idBlockAllocator(DataSource dataSource, PlatformTransactionManager transactionManager) {
+
+        return new TableIdBlockAllocator(dataSource, transactionManager);
+    }
+
+    /**
+     * Per account locks, transfers on the same account are serialized while transfers
+     * on different accounts execute in parallel
+     */
+    @Bean
+    public AccountLockManager accountLockManager(@Value("${transfer.execution.lock.stripes:1024}") int stripes) {
+
+        return new StripedAccountLockManagerImpl(stripes);
+    }
+
+    /**
+     * Retries the transfer executions and account updates which fail with an optimistic lock
+     * conflict, exported over JMX with the conflict rate
+     */
+    @Bean
+    public OptimisticLockRetryPolicy optimisticLockRetryPolicy(@Value("${transfer.execution.retry.max.attempts:5}") int maxAttempts,
+                                                               @Value("${transfer.execution.retry.initial.backoff.ms:10}") long initialBackoff,
+                                                               @Value("${transfer.execution.retry.max.backoff.ms:200}") long maxBackoff) {
+
+        return new OptimisticLockRetryPolicy(maxAttempts, Duration.ofMillis(initialBackoff), Duration.ofMillis(maxBackoff));
+    }
+
+    /**
+     * Executes the settlement transfers in batches, each batch committed in its own transaction
+     */
+    @Bean
+    public TransferExecutionService transferExecutionService(PlatformTransactionManager transactionManager,
+                                                             AccountLockManager accountLockManager,
+                                                             OptimisticLockRetryPolicy optimisticLockRetryPolicy,
+                                                             @Value("${transfer.execution.batch.size:500}") int batchSize,
+                                                             @Value("${transfer.execution.batch.max.locked.stripes:64}") int maxLockedStripes) {
+
+        return new BatchTransferExecutionServiceImpl(accountService(), accountTransferJPARespository, transactionManager,
+                accountLockManager, optimisticLockRetryPolicy, batchSize, maxLockedStripes);
+    }
+
+    /**
+     * Bounded queue and worker pool used by the asynchronous transfer executions
+     */
+    @Bean
+    public AsyncTransferExecutionService asyncTransferExecutionService(PlatformTransactionManager transactionManager,
+                                                                       AccountLockManager accountLockManager,
+                                                                       OptimisticLockRetryPolicy optimisticLockRetryPolicy,
+                                                                       @Value("${transfer.execution.async.workers:4}") int workers,
+                                                                       @Value("${transfer.execution.async.queue.capacity:1000}") int queueCapacity,
+                                                                       @Value("${transfer.execution.async.pending.timeout.seconds:600}") long pendingTimeoutSeconds) {
+
+        return new QueuedTransferExecutionServiceImpl(accountService(), accountTransferJPARespository, transactionManager,
+                accountLockManager, optimisticLockRetryPolicy, workers, queueCapacity, Duration.ofSeconds(pendingTimeoutSeconds));
+    }
+
+    /**
+     * Database lease which allows only one node to run each scheduled job tick
+     */
+    @Bean
+    public JobLeaseService jobLeaseService(JobLeaseJPARepository jobLeaseJPARepository, PlatformTransactionManager transactionManager) {
+
+        return new DatabaseJobLeaseServiceImpl(jobLeaseJPARepository, transactionManager, nodeId, leaseDuration);
     }
 
     @Bean
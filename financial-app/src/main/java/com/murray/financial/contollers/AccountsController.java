@@ -3,15 +3,24 @@ package com.murray.financial.contollers;
 import com.murray.financial.adapter.AccountsAdapter;
 import com.murray.financial.dtos.BankAccountDTO;
 import com.murray.financial.dtos.BankAccountSearchCriteriaDTO;
+import com.murray.financial.dtos.BankAccountTotalsDTO;
+import com.murray.financial.dtos.ResultsPageDTO;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import io.swagger.annotations.*;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.util.StringUtils;
 import org.springframework.web.bind.annotation.*;
 
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 
 /**
  * Spring MVC REST Controller for the Accounts The only responsibility of the Controller is to define
@@ -27,29 +36,132 @@ import java.util.List;
 @RequestMapping("/Account")
 public class AccountsController {
 
+    static final String CONTINUATION_TOKEN = "Continuation-Token";
+
     private static final Logger LOGGER = LoggerFactory.getLogger(AccountsController.class);
 
     private final AccountsAdapter accountsAdapter;
 
-    public AccountsController(AccountsAdapter accountsAdapter) {
+    private final ObjectMapper objectMapper;
+
+    /**
+     * Writes the sparse fieldset responses, leaving out the null fields which were not requested
+     */
+    private final ObjectMapper sparseObjectMapper;
+
+    public AccountsController(AccountsAdapter accountsAdapter, ObjectMapper objectMapper) {
         this.accountsAdapter = accountsAdapter;
+        this.objectMapper = objectMapper;
+        this.sparseObjectMapper = objectMapper.copy().setSerializationInclusion(JsonInclude.Include.NON_NULL);
     }
 
     @GetMapping
     @ApiOperation(value = "search for account using defined search field and values")
     @ApiResponses(value = {
-            @ApiResponse(code = 200, message = "when successfully completed and return search results", response = BankAccountDTO.class),
+            @ApiResponse(code = 200, message = "when successfully completed and return a page of search results," +
+                    " the Continuation-Token header is set when there are more results", response = BankAccountDTO.class),
             @ApiResponse(code = 404, message = "when no results match crieria"),
             @ApiResponse(code = 400, message = "Error occurred while searching  for accounts")
     })
     @ResponseStatus(code = HttpStatus.OK)
-    public List<BankAccountDTO> readAccounts(
+    public ResponseEntity<?> readAccounts(
             @ApiParam(value = "Valid search criteria to filter for bank accounts")
                     BankAccountSearchCriteriaDTO searchCriteriaDTO
     ) {
 
         LOGGER.info("find with search accounts:{}", searchCriteriaDTO);
-        return accountsAdapter.findAccountsBy(searchCriteriaDTO);
+
+        ResultsPageDTO<BankAccountDTO> page = accountsAdapter.findAccountsBy(searchCriteriaDTO);
+
+        if (isSparse(searchCriteriaDTO)) {
+            return pageHeaders(page).body(new NonNullFieldsBody(sparseObjectMapper.writer(), page.getResults()));
+        }
+
+        return pageResponse(page);
+    }
+
+    @GetMapping(value = "/export", produces = NdjsonResponseWriter.APPLICATION_NDJSON_VALUE)
+    @ApiOperation(value = "export all the accounts matching the search criteria as newline delimited json")
+    @ApiResponses(value = {
+            @ApiResponse(code = 200, message = "each matching account is written on its own line as it is read", response = BankAccountDTO.class),
+            @ApiResponse(code = 400, message = "Error occurred while searching  for accounts")
+    })
+    public void exportAccounts(
+            @ApiParam(value = "Valid search criteria to filter for bank accounts, the paging fields are ignored")
+                    BankAccountSearchCriteriaDTO searchCriteriaDTO,
+            HttpServletResponse response) throws IOException {
+
+        LOGGER.info("export with search accounts:{}", searchCriteriaDTO);
+
+        response.setContentType(NdjsonResponseWriter.APPLICATION_NDJSON_VALUE);
+
+        try (NdjsonResponseWriter<BankAccountDTO> writer = new NdjsonResponseWriter<>(
+                isSparse(searchCriteriaDTO) ? sparseObjectMapper : objectMapper, response.getOutputStream())) {
+            accountsAdapter.exportAccountsBy(searchCriteriaDTO, writer);
+        }
+    }
+
+    @GetMapping(value = "/totals")
+    @ApiOperation(value = "count, sum, min and max of the balances of the accounts matching the search criteria")
+    @ApiResponses(value = {
+            @ApiResponse(code = 200, message = "the totals of each currency and/or status group", response = BankAccountTotalsDTO.class),
+            @ApiResponse(code = 400, message = "Error occurred while searching  for accounts")
+    })
+    @ResponseStatus(code = HttpStatus.OK)
+    public List<BankAccountTotalsDTO> readAccountTotals(
+            @ApiParam(value = "Valid search criteria to filter for bank accounts, the ordering and paging fields are ignored")
+                    BankAccountSearchCriteriaDTO searchCriteriaDTO,
+            @ApiParam(value = "group the totals by currency and/or status", allowableValues = "currency, status")
+            @RequestParam(value = "groupBy", required = false) List<String> groupBy) {
+
+        LOGGER.info("totals with search accounts:{} grouped by:{}", searchCriteriaDTO, groupBy);
+        return accountsAdapter.findAccountTotalsBy(searchCriteriaDTO, groupBy);
+    }
+
+    @PostMapping(value = "/lookup")
+    @ApiOperation(value = "look up the accounts of many iban numbers at once, keyed by iban number")
+    @ApiResponses(value = {
+            @ApiResponse(code = 200, message = "the accounts found with their balance, iban numbers without an account are left out"),
+            @ApiResponse(code = 400, message = "no iban numbers or more than the maximum page size")
+    })
+    @ResponseStatus(code = HttpStatus.OK)
+    public Map<String, BankAccountDTO> lookupAccounts(
+            @ApiParam(value = "The iban numbers to look up")
+            @RequestBody List<String> ibanNumbers) {
+
+        LOGGER.info("lookup of {} accounts", Objects.isNull(ibanNumbers) ? 0 : ibanNumbers.size());
+        return accountsAdapter.findAccountsBy(ibanNumbers);
+    }
+
+    /**
+     * Returns the page results with the next page token in the {@link #CONTINUATION_TOKEN} header
+     */
+    static <T> ResponseEntity<List<T>> pageResponse(final ResultsPageDTO<T> page) {
+
+        return pageHeaders(page).body(page.getResults());
+    }
+
+    /**
+     * Starts the response of the page with the next page token in the {@link #CONTINUATION_TOKEN} header
+     */
+    static ResponseEntity.BodyBuilder pageHeaders(final ResultsPageDTO<?> page) {
+
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+
+        if (Objects.nonNull(page.getContinuationToken())) {
+            response.header(CONTINUATION_TOKEN, page.getContinuationToken());
+        }
+
+        return response;
+    }
+
+    /**
+     * Indicates if the search only returns some of the account fields
+     */
+    private static boolean isSparse(final BankAccountSearchCriteriaDTO searchCriteriaDTO) {
+
+        return Objects.nonNull(searchCriteriaDTO.getFields())
+                && searchCriteriaDTO.getFields().stream().anyMatch(field -> !StringUtils.isEmpty(field));
     }
 
     @PostMapping
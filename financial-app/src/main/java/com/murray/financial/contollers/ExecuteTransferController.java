@@ -3,12 +3,18 @@ package com.murray.financial.contollers;
 
 import com.murray.financial.adapter.AccountsAdapter;
 import com.murray.financial.dtos.TransferDTO;
+import com.murray.financial.dtos.TransferExecutionResultDTO;
 import io.swagger.annotations.*;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
+
+import java.util.List;
 
 /**
  * Spring MVC REST Controller for the Accounts Transfers executions.
@@ -26,23 +32,73 @@ public class ExecuteTransferController {
     private static final Logger LOGGER = LoggerFactory.getLogger(ExecuteTransferController.class);
     private final AccountsAdapter accountsAdapter;
 
-    public ExecuteTransferController(AccountsAdapter accountsAdapter) {
+    /**
+     * When enabled the transfers are queued and executed by a pool of workers
+     */
+    private final boolean asyncExecution;
+
+    public ExecuteTransferController(AccountsAdapter accountsAdapter,
+                                     @Value("${transfer.execution.async.enabled:false}") boolean asyncExecution) {
         this.accountsAdapter = accountsAdapter;
+        this.asyncExecution = asyncExecution;
     }
 
     @PutMapping(value = "/{transferId}")
     @ApiOperation(value = "execute a transfer monving money from a source account to destination account")
     @ApiResponses(value = {
             @ApiResponse(code = 200, message = "Result of the each transfer executed and getStatus", response = TransferDTO.class),
-            @ApiResponse(code = 406, message = "Error occurred executing transfer")
+            @ApiResponse(code = 202, message = "Transfer queued for execution, poll the Location for its status", response = TransferDTO.class),
+            @ApiResponse(code = 406, message = "Error occurred executing transfer"),
+            @ApiResponse(code = 409, message = "Idempotency key in progress or used with a different request"),
+            @ApiResponse(code = 503, message = "Transfer execution queue is full")
     })
-    @ResponseStatus(code = HttpStatus.OK)
-    public TransferDTO executeTransfers(
+    public ResponseEntity<TransferDTO> executeTransfers(
             @ApiParam(value = "tranfer id  that should be executed")
+            @PathVariable("transferId") Long transferId,
+            @ApiParam(value = "Client key which makes retries of the same request return the first response")
+            @RequestHeader(value = TransfersController.IDEMPOTENCY_KEY, required = false) String idempotencyKey
+    ) {
+
+        LOGGER.debug("execute transferId:{} async:{}", transferId, asyncExecution);
+
+        if (!asyncExecution) {
+            return ResponseEntity.ok(accountsAdapter.executeTransfer(transferId, idempotencyKey));
+        }
+
+        return ResponseEntity.accepted()
+                .location(ServletUriComponentsBuilder.fromCurrentRequest().build().toUri())
+                .body(accountsAdapter.submitTransfer(transferId, idempotencyKey));
+    }
+
+    @GetMapping(value = "/{transferId}")
+    @ApiOperation(value = "find the transfer execution status")
+    @ApiResponses(value = {
+            @ApiResponse(code = 200, message = "Transfer with its execution status", response = TransferDTO.class),
+            @ApiResponse(code = 404, message = "Transfer not found")
+    })
+    @ResponseStatus(code = HttpStatus.OK)
+    public TransferDTO readTransferStatus(
+            @ApiParam(value = "tranfer id")
             @PathVariable("transferId") Long transferId
     ) {
 
-        LOGGER.info("execute transferId:{}", transferId);
-        return accountsAdapter.executeTransfer(transferId);
+        return accountsAdapter.findTransfer(transferId);
+    }
+
+    @PutMapping
+    @ApiOperation(value = "execute a list of transfers in batches, returning the outcome of each transfer")
+    @ApiResponses(value = {
+            @ApiResponse(code = 200, message = "Outcome of each transfer executed", response = TransferExecutionResultDTO.class,
+                    responseContainer = "List"),
+            @ApiResponse(code = 406, message = "Error occurred executing transfers")
+    })
+    @ResponseStatus(code = HttpStatus.OK)
+    public List<TransferExecutionResultDTO> executeTransfers(
+            @ApiParam(value = "tranfer ids that should be executed")
+            @RequestBody List<Long> transferIds
+    ) {
+
+        LOGGER.info("execute {} transfers", transferIds.size());
+        return accountsAdapter.executeTransfers(transferIds);
     }
 }
@@ -0,0 +1,56 @@
+package com.murray.financial.contollers;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.function.Consumer;
+
+/**
+ * Writes each value as a line of newline delimited json using a single Jackson generator,
+ * the values are written to the response as they are received instead of being collected
+ * into a list first.
+ *
+ * @param <T> the data object written on each line
+ */
+class NdjsonResponseWriter<T> implements Consumer<T>, Closeable {
+
+    static final String APPLICATION_NDJSON_VALUE = "application/x-ndjson";
+
+    private final JsonGenerator generator;
+
+    private final ObjectWriter writer;
+
+    NdjsonResponseWriter(final ObjectMapper objectMapper, final OutputStream outputStream) throws IOException {
+
+        this.generator = objectMapper.getFactory().createGenerator(outputStream);
+        this.writer = objectMapper.writer()
+                .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE)
+                .withRootValueSeparator("");
+    }
+
+    @Override
+    public void accept(T value) {
+
+        try {
+            writer.writeValue(generator, value);
+            generator.writeRaw('\n');
+
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Flushes the buffered lines, the response stream itself is closed by the container
+     */
+    @Override
+    public void close() throws IOException {
+        generator.flush();
+    }
+}
@@ -0,0 +1,36 @@
+package com.murray.financial.contollers;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.JsonSerializable;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.jsontype.TypeSerializer;
+
+import java.io.IOException;
+
+/**
+ * Response body written by its own {@link ObjectWriter}, used by the sparse fieldset responses
+ * so the fields which were not requested are left out while the other responses keep their
+ * null fields.
+ */
+class NonNullFieldsBody implements JsonSerializable {
+
+    private final ObjectWriter writer;
+
+    private final Object value;
+
+    NonNullFieldsBody(final ObjectWriter writer, final Object value) {
+        this.writer = writer;
+        this.value = value;
+    }
+
+    @Override
+    public void serialize(JsonGenerator generator, SerializerProvider serializers) throws IOException {
+        writer.writeValue(generator, value);
+    }
+
+    @Override
+    public void serializeWithType(JsonGenerator generator, SerializerProvider serializers, TypeSerializer typeSer) throws IOException {
+        serialize(generator, serializers);
+    }
+}
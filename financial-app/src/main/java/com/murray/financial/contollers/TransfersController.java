@@ -4,13 +4,17 @@ import com.murray.financial.adapter.AccountsAdapter;
 import com.murray.financial.dtos.BankAccountDTO;
 import com.murray.financial.dtos.TransferDTO;
 import com.murray.financial.dtos.TransferSearchCriteriaDTO;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import io.swagger.annotations.*;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
 import java.util.List;
 
 /**
@@ -25,45 +29,73 @@ import java.util.List;
 @RequestMapping("/Transfer")
 public class TransfersController {
 
+    static final String IDEMPOTENCY_KEY = "Idempotency-Key";
+
     private static final Logger LOGGER = LoggerFactory.getLogger(TransfersController.class);
     private final AccountsAdapter accountsAdapter;
+    private final ObjectMapper objectMapper;
 
-    public TransfersController(AccountsAdapter accountsAdapter) {
+    public TransfersController(AccountsAdapter accountsAdapter, ObjectMapper objectMapper) {
         this.accountsAdapter = accountsAdapter;
+        this.objectMapper = objectMapper;
     }
 
     @GetMapping
     @ApiOperation(value = "search for transfer using defined search field and values")
     @ApiResponses(value = {
-            @ApiResponse(code = 200, message = "when successfully completed and return search results", response = BankAccountDTO.class),
+            @ApiResponse(code = 200, message = "when successfully completed and return a page of search results," +
+                    " the Continuation-Token header is set when there are more results", response = BankAccountDTO.class),
             @ApiResponse(code = 404, message = "when no results match crieria"),
             @ApiResponse(code = 400, message = "Error occurred whilst searching for transfers")
     })
     @ResponseStatus(code = HttpStatus.OK)
-    public List<TransferDTO> readTransfer(
+    public ResponseEntity<List<TransferDTO>> readTransfer(
             @ApiParam(value = "The search criteria to filter for bank accounts")
                     TransferSearchCriteriaDTO searchCriteriaDTO
     ) {
 
         LOGGER.info("find transfers:{}", searchCriteriaDTO);
-        return accountsAdapter.findTransfersBy(searchCriteriaDTO);
+        return AccountsController.pageResponse(accountsAdapter.findTransfersBy(searchCriteriaDTO));
+    }
+
+    @GetMapping(value = "/export", produces = NdjsonResponseWriter.APPLICATION_NDJSON_VALUE)
+    @ApiOperation(value = "export all the transfers matching the search criteria as newline delimited json")
+    @ApiResponses(value = {
+            @ApiResponse(code = 200, message = "each matching transfer is written on its own line as it is read", response = TransferDTO.class),
+            @ApiResponse(code = 400, message = "Error occurred whilst searching for transfers")
+    })
+    public void exportTransfers(
+            @ApiParam(value = "The search criteria to filter for transfers, the paging fields are ignored")
+                    TransferSearchCriteriaDTO searchCriteriaDTO,
+            HttpServletResponse response) throws IOException {
+
+        LOGGER.info("export transfers:{}", searchCriteriaDTO);
+
+        response.setContentType(NdjsonResponseWriter.APPLICATION_NDJSON_VALUE);
+
+        try (NdjsonResponseWriter<TransferDTO> writer = new NdjsonResponseWriter<>(objectMapper, response.getOutputStream())) {
+            accountsAdapter.exportTransfersBy(searchCriteriaDTO, writer);
+        }
     }
 
     @PostMapping
     @ApiOperation(value = "create new transfer that can occur among to valid accounts")
     @ApiResponses(value = {
             @ApiResponse(code = 201, message = "transfer was successfully created", response = BankAccountDTO.class),
-            @ApiResponse(code = 406, message = "Error occurred creating transfer")
+            @ApiResponse(code = 406, message = "Error occurred creating transfer"),
+            @ApiResponse(code = 409, message = "Idempotency key in progress or used with a different request")
     })
     @ResponseStatus(code = HttpStatus.CREATED)
     public TransferDTO createTransfer(
             @ApiParam(value = "The transfer details to save")
-            @RequestBody TransferDTO transferDTO) {
+            @RequestBody TransferDTO transferDTO,
+            @ApiParam(value = "Client key which makes retries of the same request return the transfer first created")
+            @RequestHeader(value = IDEMPOTENCY_KEY, required = false) String idempotencyKey) {
 
 
         LOGGER.info("Create transfer:{}", transferDTO);
 
-        return accountsAdapter.createTransfer(transferDTO);
+        return accountsAdapter.createTransfer(transferDTO, idempotencyKey);
 
     }
 
@@ -1,10 +1,14 @@
 package com.murray.financial.contollers.advice;
 
 import com.murray.financial.exceptions.AccountCreationException;
+import com.murray.financial.exceptions.IdempotencyKeyException;
+import com.murray.financial.exceptions.InvalidSearchException;
 import com.murray.financial.exceptions.NotFoundException;
 import com.murray.financial.exceptions.TransferCreationException;
+import com.murray.financial.exceptions.TransferQueueFullException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.dao.OptimisticLockingFailureException;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.ControllerAdvice;
@@ -61,4 +65,44 @@ public class FinancialRestExceptionHandler {
         return new ResponseEntity<>(errorResponse, HttpStatus.NOT_ACCEPTABLE);
 
     }
+
+    @ExceptionHandler(value = {TransferQueueFullException.class})
+    protected ResponseEntity<ErrorResponse> transferQueueFull(TransferQueueFullException ex, WebRequest webRequest) {
+
+        LOGGER.warn(String.format("Transfer queue full %s Exception", ex.getClass().getSimpleName()));
+
+        ErrorResponse errorResponse = new ErrorResponse(HttpStatus.SERVICE_UNAVAILABLE.value(), ResponseErrorType.TRANSFER_ERROR, ex.getMessage());
+
+        return new ResponseEntity<>(errorResponse, HttpStatus.SERVICE_UNAVAILABLE);
+    }
+
+    @ExceptionHandler(value = {OptimisticLockingFailureException.class})
+    protected ResponseEntity<ErrorResponse> concurrentUpdate(OptimisticLockingFailureException ex, WebRequest webRequest) {
+
+        LOGGER.warn(String.format("Concurrent update %s Exception", ex.getClass().getSimpleName()));
+
+        ErrorResponse errorResponse = new ErrorResponse(HttpStatus.CONFLICT.value(), ResponseErrorType.CONCURRENT_UPDATE, ex.getMessage());
+
+        return new ResponseEntity<>(errorResponse, HttpStatus.CONFLICT);
+    }
+
+    @ExceptionHandler(value = {InvalidSearchException.class})
+    protected ResponseEntity<ErrorResponse> invalidSearch(InvalidSearchException ex, WebRequest webRequest) {
+
+        LOGGER.warn(String.format("Invalid search %s Exception", ex.getClass().getSimpleName()));
+
+        ErrorResponse errorResponse = new ErrorResponse(HttpStatus.BAD_REQUEST.value(), ResponseErrorType.SEARCH_ERROR, ex.getMessage());
+
+        return new ResponseEntity<>(errorResponse, HttpStatus.BAD_REQUEST);
+    }
+
+    @ExceptionHandler(value = {IdempotencyKeyException.class})
+    protected ResponseEntity<ErrorResponse> idempotencyKey(IdempotencyKeyException ex, WebRequest webRequest) {
+
+        LOGGER.warn(String.format("Idempotency key %s Exception", ex.getClass().getSimpleName()));
+
+        ErrorResponse errorResponse = new ErrorResponse(HttpStatus.CONFLICT.value(), ResponseErrorType.IDEMPOTENCY_ERROR, ex.getMessage());
+
+        return new ResponseEntity<>(errorResponse, HttpStatus.CONFLICT);
+    }
 }
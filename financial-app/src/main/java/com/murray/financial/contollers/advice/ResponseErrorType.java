@@ -8,5 +8,7 @@ public enum ResponseErrorType {
     NOT_ACCEPTABLE,
     ACCOUNT_ERROR,
     TRANSFER_ERROR,
-    SEARCH_ERROR
+    SEARCH_ERROR,
+    CONCURRENT_UPDATE,
+    IDEMPOTENCY_ERROR
 }
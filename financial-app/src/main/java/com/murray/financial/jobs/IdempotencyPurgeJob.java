@@ -0,0 +1,28 @@
+package com.murray.financial.jobs;
+
+import com.murray.financial.service.IdempotencyStore;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+
+/**
+ * Removes the expired idempotency keys so the stored responses do not grow without limit.
+ */
+public class IdempotencyPurgeJob {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(IdempotencyPurgeJob.class);
+
+    private final IdempotencyStore idempotencyStore;
+
+    public IdempotencyPurgeJob(IdempotencyStore idempotencyStore) {
+        this.idempotencyStore = idempotencyStore;
+    }
+
+    @Scheduled(cron = "${idempotency.purge.cron}")
+    protected void runJob() {
+
+        int purged = idempotencyStore.purgeExpired();
+
+        LOGGER.debug("purged {} expired idempotency keys", purged);
+    }
+}
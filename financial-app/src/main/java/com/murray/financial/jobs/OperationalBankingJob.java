@@ -1,44 +1,141 @@
 package com.murray.financial.jobs;
 
-import com.murray.financial.service.AccountService;
+import com.murray.financial.service.JobLeaseService;
+import com.murray.financial.service.OperationalTaxService;
+import com.murray.financial.service.TaxRunReport;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.scheduling.annotation.Scheduled;
-import org.springframework.transaction.annotation.Transactional;
+import org.springframework.scheduling.support.CronSequenceGenerator;
 
 import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.Date;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
  * ​Account​ balances are updated due to an Operational Banking Tax
- * which are configured in the application properties
+ * which are configured in the application properties. When several nodes are
+ * running, only the node that acquires the job lease starts the tick, the other
+ * nodes check for an unfinished run every join delay and help processing its
+ * partitions, so they join a run started by the tick of another node.
+ * Each run records the fire time of its tick, so a node whose tick fires late, once
+ * the lease was released by the node that completed the run, does not run it again.
  */
 public class OperationalBankingJob {
 
+    static final String JOB_NAME = "operational-banking-tax";
+
     private static final Logger LOGGER = LoggerFactory.getLogger(OperationalBankingJob.class);
 
     /**
-     * {@link AccountService} which maintains the biz logic that will be executed
+     * {@link OperationalTaxService} which maintains the biz logic that will be executed
      * to update the account's balance
      */
-    private final AccountService accountService;
+    private final OperationalTaxService operationalTaxService;
+
+    /**
+     * {@link JobLeaseService} which guarantees that only one node runs each tick
+     */
+    private final JobLeaseService jobLeaseService;
+
     /**
      * Tax rate used in the balance calculations
      */
     private final BigDecimal rate;
 
-    public OperationalBankingJob(AccountService accountService, BigDecimal rate) {
-        this.accountService = accountService;
+    /**
+     * Cron schedule of the job, used to find the fire time of the running tick
+     */
+    private final CronSequenceGenerator schedule;
+
+    /**
+     * Set while this node runs a tick, so it does not join its own run
+     */
+    private final AtomicBoolean running = new AtomicBoolean();
+
+    public OperationalBankingJob(OperationalTaxService operationalTaxService, JobLeaseService jobLeaseService, BigDecimal rate,
+                                 String cron) {
+        this.operationalTaxService = operationalTaxService;
+        this.jobLeaseService = jobLeaseService;
         this.rate = rate;
+        this.schedule = new CronSequenceGenerator(cron);
     }
 
 
-    @Transactional
     @Scheduled(cron = "${operational.banking.job.cron}")
     protected void runJob() {
 
+        LocalDateTime scheduledFor = scheduledTickOf(LocalDateTime.now());
+
+        if (!jobLeaseService.tryAcquire(JOB_NAME)) {
+
+            LOGGER.info("JOB lease owned by another node, node:{} joins the run on the next join check",
+                    jobLeaseService.getNodeId());
+            return;
+        }
+
+        running.set(true);
+
+        try {
+
+            LOGGER.info("JOB running rate:{} node:{} tick:{}", rate, jobLeaseService.getNodeId(), scheduledFor);
+            log(operationalTaxService.runTaxWith(rate, scheduledFor, () -> jobLeaseService.isHeld(JOB_NAME)));
+
+        } finally {
+            running.set(false);
+            jobLeaseService.release(JOB_NAME);
+        }
+    }
+
+    /**
+     * Helps processing the partitions of a run started by another node, once the run exists
+     */
+    @Scheduled(fixedDelayString = "${operational.banking.job.join.delay.ms:30000}",
+            initialDelayString = "${operational.banking.job.join.delay.ms:30000}")
+    protected void joinRun() {
+
+        if (running.get()) {
+            return;
+        }
+
+        TaxRunReport report = operationalTaxService.joinUnfinishedRun();
+
+        if (Objects.nonNull(report.getRunId())) {
+            log(report);
+        }
+    }
+
+    /**
+     * Finds the latest fire time of the schedule which is not after the given time, looking back
+     * twice as far each time no fire time is found
+     */
+    LocalDateTime scheduledTickOf(final LocalDateTime time) {
+
+        Date now = Date.from(time.atZone(ZoneId.systemDefault()).toInstant());
+        long lookBack = 1000L;
+
+        Date tick = schedule.next(new Date(now.getTime() - lookBack));
+
+        while (tick.after(now)) {
+            lookBack *= 2;
+            tick = schedule.next(new Date(now.getTime() - lookBack));
+        }
+
+        for (Date next = schedule.next(tick); !next.after(now); next = schedule.next(next)) {
+            tick = next;
+        }
+
+        return LocalDateTime.ofInstant(tick.toInstant(), ZoneId.systemDefault());
+    }
+
+    private void log(final TaxRunReport report) {
 
-        LOGGER.info("JOB running rate:{}", rate);
-        accountService.updateAccountBalancesWith(rate);
+        LOGGER.info("JOB completed run:{} partitions:{} chunks:{} transactions:{} accounts:{} in {} ms",
+                report.getRunId(), report.getPartitions(), report.getChunks(), report.getTransactionsInserted(),
+                report.getAccountsUpdated(), report.getDuration().toMillis());
 
     }
 }
@@ -0,0 +1,179 @@
+package com.murray.financial.schema;
+
+import com.murray.financial.exceptions.SchemaMigrationException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.Index;
+import javax.persistence.Table;
+import javax.persistence.metamodel.EntityType;
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
+
+/**
+ * Verifies on start up that the database holds the indexes declared by the entity tables, which
+ * the searches and the ledger queries rely on. An index is found when a database index starts with
+ * its columns, whatever its name, as MySQL may keep the index created along with a foreign key.
+ * <p>
+ * Depending on the mode the missing indexes stop the start up or are logged as warnings.
+ */
+public class IndexVerifier {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(IndexVerifier.class);
+
+    /**
+     * Action taken when an index is missing
+     */
+    public enum Mode {
+        FAIL, WARN
+    }
+
+    private final DataSource dataSource;
+    private final Collection<ExpectedIndex> expectedIndexes;
+    private final Mode mode;
+
+    public IndexVerifier(final DataSource dataSource, final EntityManagerFactory entityManagerFactory, final Mode mode) {
+        this(dataSource, indexesOf(entityManagerFactory), mode);
+    }
+
+    public IndexVerifier(final DataSource dataSource, final Collection<ExpectedIndex> expectedIndexes, final Mode mode) {
+        this.dataSource = dataSource;
+        this.expectedIndexes = expectedIndexes;
+        this.mode = mode;
+    }
+
+    /**
+     * Looks up the expected indexes in the database metadata
+     *
+     * @return the missing indexes, when the mode does not fail the start up
+     */
+    public List<ExpectedIndex> verify() {
+
+        List<ExpectedIndex> missing = new ArrayList<>();
+
+        try (Connection connection = dataSource.getConnection()) {
+
+            DatabaseMetaData metaData = connection.getMetaData();
+
+            for (ExpectedIndex index : expectedIndexes) {
+                if (!exists(metaData, index)) {
+                    missing.add(index);
+                }
+            }
+
+        } catch (SQLException e) {
+            throw new SchemaMigrationException("Unable to read the database indexes", e);
+        }
+
+        if (missing.isEmpty()) {
+            LOGGER.info("All {} indexes expected by the entities were found", expectedIndexes.size());
+            return missing;
+        }
+
+        String message = "Missing database indexes, add a migration creating " + missing;
+
+        if (mode == Mode.FAIL) {
+            throw new SchemaMigrationException(message);
+        }
+
+        LOGGER.warn(message);
+        return missing;
+    }
+
+    private boolean exists(final DatabaseMetaData metaData, final ExpectedIndex index) throws SQLException {
+
+        // columns of each database index of the table, by index name and column position
+        Map<String, Map<Short, String>> indexColumns = new TreeMap<>();
+
+        for (String table : Arrays.asList(index.getTable(), index.getTable().toUpperCase(Locale.ROOT))) {
+
+            try (ResultSet rs = metaData.getIndexInfo(null, null, table, false, false)) {
+                while (rs.next()) {
+                    String name = rs.getString("INDEX_NAME");
+                    String column = rs.getString("COLUMN_NAME");
+                    if (name != null && column != null) {
+                        indexColumns.computeIfAbsent(name, n -> new TreeMap<>())
+                                .put(rs.getShort("ORDINAL_POSITION"), column.toLowerCase(Locale.ROOT));
+                    }
+                }
+            }
+
+            if (!indexColumns.isEmpty()) {
+                break;
+            }
+        }
+
+        return indexColumns.values().stream()
+                .map(columns -> new ArrayList<>(columns.values()))
+                .anyMatch(columns -> columns.size() >= index.getColumns().size()
+                        && columns.subList(0, index.getColumns().size()).equals(index.getColumns()));
+    }
+
+    /**
+     * @return the indexes declared on the tables of the entities
+     */
+    static List<ExpectedIndex> indexesOf(final EntityManagerFactory entityManagerFactory) {
+
+        List<ExpectedIndex> indexes = new ArrayList<>();
+
+        for (EntityType<?> entity : entityManagerFactory.getMetamodel().getEntities()) {
+
+            Table table = entity.getJavaType().getAnnotation(Table.class);
+
+            if (table != null) {
+                for (Index index : table.indexes()) {
+                    indexes.add(new ExpectedIndex(index.name(), table.name(), Arrays.stream(index.columnList().split(","))
+                            .map(column -> column.trim().toLowerCase(Locale.ROOT))
+                            .collect(Collectors.toList())));
+                }
+            }
+        }
+
+        return indexes;
+    }
+
+    /**
+     * Index expected on the leading columns of a table
+     */
+    public static final class ExpectedIndex {
+
+        private final String name;
+        private final String table;
+        private final List<String> columns;
+
+        public ExpectedIndex(final String name, final String table, final List<String> columns) {
+            this.name = name;
+            this.table = table;
+            this.columns = columns;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public String getTable() {
+            return table;
+        }
+
+        public List<String> getColumns() {
+            return columns;
+        }
+
+        @Override
+        public String toString() {
+            return name + " on " + table + " " + columns;
+        }
+    }
+}
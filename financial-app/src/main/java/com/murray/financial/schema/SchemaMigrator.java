@@ -0,0 +1,270 @@
+package com.murray.financial.schema;
+
+import com.murray.financial.exceptions.SchemaMigrationException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.jdbc.DatabaseDriver;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.support.EncodedResource;
+import org.springframework.core.io.support.PathMatchingResourcePatternResolver;
+import org.springframework.core.io.support.ResourcePatternResolver;
+import org.springframework.jdbc.datasource.init.ScriptUtils;
+import org.springframework.util.FileCopyUtils;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.zip.CRC32;
+
+/**
+ * Applies the versioned migration scripts of the database vendor on start up, before the
+ * entity manager factory is created.
+ * <p>
+ * The scripts are found under {@code <location>/<vendor>/V<version>__<description>.sql}, where the
+ * vendor is the id of the database driver such as h2 or mysql, and are run in version order.
+ * Each applied script is recorded in the schema_version table along with its checksum, so it is
+ * never run twice and a script changed after it was applied stops the start up.
+ * <p>
+ * The nodes starting together migrate one at a time: the row of the schema_lock table is locked
+ * on a connection of its own before the applied versions are read, and released once the scripts
+ * are applied. The lock is not held by the migration connection, as the DDL statements commit its
+ * transaction. A node waiting longer than the lock timeout of the database fails to start.
+ */
+public class SchemaMigrator {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(SchemaMigrator.class);
+
+    private static final Pattern SCRIPT_NAME = Pattern.compile("V(\\d+)__(\\w+)\\.sql");
+
+    private static final String CREATE_HISTORY = "CREATE TABLE IF NOT EXISTS schema_version ("
+            + "version INTEGER NOT NULL, description VARCHAR(255) NOT NULL, script VARCHAR(255) NOT NULL, "
+            + "checksum BIGINT NOT NULL, installed_on TIMESTAMP NOT NULL, PRIMARY KEY (version))";
+
+    private static final String CREATE_LOCK = "CREATE TABLE IF NOT EXISTS schema_lock ("
+            + "id INTEGER NOT NULL, PRIMARY KEY (id))";
+
+    private static final String COUNT_LOCK = "SELECT COUNT(*) FROM schema_lock WHERE id = 1";
+
+    private static final String INSERT_LOCK = "INSERT INTO schema_lock (id) VALUES (1)";
+
+    private static final String SELECT_LOCK = "SELECT id FROM schema_lock WHERE id = 1 FOR UPDATE";
+
+    private static final String SELECT_HISTORY = "SELECT version, checksum FROM schema_version";
+
+    private static final String INSERT_HISTORY = "INSERT INTO schema_version "
+            + "(version, description, script, checksum, installed_on) VALUES (?, ?, ?, ?, ?)";
+
+    private final DataSource dataSource;
+    private final String location;
+    private final ResourcePatternResolver resourceResolver = new PathMatchingResourcePatternResolver();
+
+    public SchemaMigrator(final DataSource dataSource, final String location) {
+        this.dataSource = dataSource;
+        this.location = location;
+    }
+
+    /**
+     * Applies the scripts which are not yet recorded in the schema_version table
+     *
+     * @return the number of applied scripts
+     */
+    public int migrate() {
+
+        try (Connection lock = dataSource.getConnection(); Connection connection = dataSource.getConnection()) {
+
+            acquire(lock);
+
+            try {
+                return migrate(connection);
+            } finally {
+                release(lock);
+            }
+
+        } catch (SQLException e) {
+            throw new SchemaMigrationException("Unable to migrate the database schema", e);
+        }
+    }
+
+    /**
+     * Applies the scripts while holding the migration lock
+     */
+    private int migrate(final Connection connection) throws SQLException {
+
+        String vendor = vendorOf(connection);
+        SortedMap<Integer, Resource> scripts = scriptsOf(vendor);
+        Map<Integer, Long> applied = appliedVersions(connection);
+
+        int migrations = 0;
+
+        for (Map.Entry<Integer, Resource> script : scripts.entrySet()) {
+
+            Integer version = script.getKey();
+            Resource resource = script.getValue();
+            long checksum = checksumOf(resource);
+
+            if (applied.containsKey(version)) {
+                if (applied.get(version) != checksum) {
+                    throw new SchemaMigrationException(String.format(
+                            "Migration %s was changed after it was applied to the database", resource.getFilename()));
+                }
+                continue;
+            }
+
+            apply(connection, version, resource, checksum);
+            migrations++;
+        }
+
+        LOGGER.info("Schema of {} is at version {}, {} migrations applied", vendor,
+                scripts.isEmpty() ? 0 : scripts.lastKey(), migrations);
+
+        return migrations;
+    }
+
+    /**
+     * Locks the row of the schema_lock table in a transaction of the lock connection, waiting while
+     * another node migrates the schema. The row is created by the first node, a node losing the race
+     * to create it locks the row created by the other node.
+     */
+    private void acquire(final Connection lock) throws SQLException {
+
+        try (Statement statement = lock.createStatement()) {
+
+            statement.execute(CREATE_LOCK);
+
+            try (ResultSet rs = statement.executeQuery(COUNT_LOCK)) {
+                if (rs.next() && rs.getInt(1) == 0) {
+                    createLockRow(statement);
+                }
+            }
+        }
+
+        lock.setAutoCommit(false);
+
+        try (Statement statement = lock.createStatement(); ResultSet rs = statement.executeQuery(SELECT_LOCK)) {
+
+            if (!rs.next()) {
+                throw new SchemaMigrationException("Unable to lock the schema_lock table row");
+            }
+        }
+    }
+
+    private void createLockRow(final Statement statement) {
+
+        try {
+            statement.executeUpdate(INSERT_LOCK);
+        } catch (SQLException e) {
+            LOGGER.debug("Lock row created by another node", e);
+        }
+    }
+
+    private void release(final Connection lock) throws SQLException {
+
+        lock.rollback();
+        lock.setAutoCommit(true);
+    }
+
+    private String vendorOf(final Connection connection) throws SQLException {
+
+        DatabaseDriver driver = DatabaseDriver.fromProductName(connection.getMetaData().getDatabaseProductName());
+
+        if (driver == DatabaseDriver.UNKNOWN) {
+            throw new SchemaMigrationException("No migrations for the database "
+                    + connection.getMetaData().getDatabaseProductName());
+        }
+
+        return driver.getId();
+    }
+
+    private SortedMap<Integer, Resource> scriptsOf(final String vendor) {
+
+        SortedMap<Integer, Resource> scripts = new TreeMap<>();
+
+        try {
+            for (Resource resource : resourceResolver.getResources(location + "/" + vendor + "/*.sql")) {
+
+                Matcher name = SCRIPT_NAME.matcher(resource.getFilename());
+
+                if (!name.matches()) {
+                    throw new SchemaMigrationException("Invalid migration name " + resource.getFilename());
+                }
+
+                Resource duplicate = scripts.put(Integer.valueOf(name.group(1)), resource);
+
+                if (duplicate != null) {
+                    throw new SchemaMigrationException(String.format("Migrations %s and %s have the same version",
+                            duplicate.getFilename(), resource.getFilename()));
+                }
+            }
+        } catch (IOException e) {
+            throw new SchemaMigrationException("Unable to read the migrations of " + vendor, e);
+        }
+
+        return scripts;
+    }
+
+    private Map<Integer, Long> appliedVersions(final Connection connection) throws SQLException {
+
+        Map<Integer, Long> applied = new HashMap<>();
+
+        try (Statement statement = connection.createStatement()) {
+
+            statement.execute(CREATE_HISTORY);
+
+            try (ResultSet rs = statement.executeQuery(SELECT_HISTORY)) {
+                while (rs.next()) {
+                    applied.put(rs.getInt(1), rs.getLong(2));
+                }
+            }
+        }
+
+        return applied;
+    }
+
+    private void apply(final Connection connection, final Integer version, final Resource resource,
+                       final long checksum) throws SQLException {
+
+        LOGGER.info("Applying migration {}", resource.getFilename());
+
+        ScriptUtils.executeSqlScript(connection, new EncodedResource(resource, StandardCharsets.UTF_8));
+
+        Matcher name = SCRIPT_NAME.matcher(resource.getFilename());
+        name.matches();
+
+        try (PreparedStatement insert = connection.prepareStatement(INSERT_HISTORY)) {
+            insert.setInt(1, version);
+            insert.setString(2, name.group(2).replace('_', ' '));
+            insert.setString(3, resource.getFilename());
+            insert.setLong(4, checksum);
+            insert.setTimestamp(5, Timestamp.valueOf(LocalDateTime.now()));
+            insert.executeUpdate();
+        }
+
+        if (!connection.getAutoCommit()) {
+            connection.commit();
+        }
+    }
+
+    private long checksumOf(final Resource resource) {
+
+        try {
+            CRC32 crc = new CRC32();
+            crc.update(FileCopyUtils.copyToByteArray(resource.getInputStream()));
+            return crc.getValue();
+        } catch (IOException e) {
+            throw new SchemaMigrationException("Unable to read the migration " + resource.getFilename(), e);
+        }
+    }
+}
@@ -0,0 +1,99 @@
+-- Baseline schema of the entities, the secondary indexes are created by the following migrations
+
+create table account_transfer (
+    id bigint not null,
+    amount decimal(19,2) not null,
+    description varchar(255) not null,
+    failure_reason varchar(255),
+    status varchar(255),
+    timestamp timestamp,
+    version bigint not null,
+    destination_account_id bigint not null,
+    source_account_id bigint not null,
+    primary key (id)
+);
+
+create table bank_account (
+    id bigint not null,
+    balance decimal(19,2) not null,
+    currency varchar(255) not null,
+    iban_number varchar(255) not null,
+    last_tax_job_run_id bigint,
+    open_on date,
+    status varchar(255) not null,
+    version bigint not null,
+    primary key (id)
+);
+
+create table bank_account_transaction (
+    id bigint not null,
+    amount decimal(19,2) not null,
+    created_on timestamp,
+    description varchar(255) not null,
+    type varchar(255) not null,
+    bank_account_id bigint,
+    primary key (id)
+);
+
+create table id_generator (
+    sequence_name varchar(255) not null,
+    next_val bigint,
+    primary key (sequence_name)
+);
+
+create table idempotency_record (
+    idempotency_key varchar(255) not null,
+    created_on timestamp not null,
+    expires_on timestamp not null,
+    fingerprint varchar(255) not null,
+    response clob not null,
+    primary key (idempotency_key)
+);
+
+create table job_lease (
+    job_name varchar(255) not null,
+    acquired_on timestamp not null,
+    expires_on timestamp not null,
+    heartbeat_on timestamp not null,
+    owner varchar(255) not null,
+    primary key (job_name)
+);
+
+create table tax_job_partition (
+    id bigint generated by default as identity,
+    accounts_updated bigint not null,
+    completed_on timestamp,
+    from_account_id bigint not null,
+    last_completed_id bigint not null,
+    lease_expires_on timestamp,
+    owner varchar(255),
+    status varchar(255) not null,
+    tax_job_run_id bigint not null,
+    to_account_id bigint not null,
+    transactions_inserted bigint not null,
+    primary key (id)
+);
+
+create table tax_job_run (
+    id bigint generated by default as identity,
+    accounts_updated bigint not null,
+    chunk_size bigint not null,
+    completed_on timestamp,
+    from_account_id bigint not null,
+    partitions integer not null,
+    rate decimal(19,8) not null,
+    started_on timestamp not null,
+    status varchar(255) not null,
+    to_account_id bigint not null,
+    transactions_inserted bigint not null,
+    primary key (id)
+);
+
+insert into id_generator(sequence_name, next_val) values ('bank_account',999);
+insert into id_generator(sequence_name, next_val) values ('account_transfer',999);
+insert into id_generator(sequence_name, next_val) values ('bank_account_transaction',999);
+
+alter table bank_account add constraint uk_bank_account_iban_number unique (iban_number);
+alter table account_transfer add constraint fk_account_transfer_destination foreign key (destination_account_id) references bank_account;
+alter table account_transfer add constraint fk_account_transfer_source foreign key (source_account_id) references bank_account;
+alter table bank_account_transaction add constraint fk_bank_account_transaction_account foreign key (bank_account_id) references bank_account;
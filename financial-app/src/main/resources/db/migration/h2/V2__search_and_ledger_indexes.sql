@@ -0,0 +1,15 @@
+-- Indexes of the ledger joins and of the search conditions and ordering
+
+-- transactions of an account, summed by the balance searches and the balance verification
+create index idx_bank_account_transaction_account on bank_account_transaction (bank_account_id);
+
+-- transfers of an account ordered by the time they were sent
+create index idx_account_transfer_source on account_transfer (source_account_id, timestamp);
+create index idx_account_transfer_destination on account_transfer (destination_account_id, timestamp);
+create index idx_account_transfer_timestamp on account_transfer (timestamp);
+
+-- balance conditions and ordering on the materialized balance
+create index idx_bank_account_balance on bank_account (balance);
+
+-- covering index of the balance totals grouped by currency and status
+create index idx_bank_account_totals on bank_account (currency, status, balance);
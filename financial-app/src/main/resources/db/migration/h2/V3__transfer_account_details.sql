@@ -0,0 +1,21 @@
+-- The transfers carry the IBAN number and currency of their accounts, so the transfer searches
+-- filter and sort on the transfer table without joining bank_account twice
+
+alter table account_transfer add column source_iban_number varchar(255);
+alter table account_transfer add column source_currency varchar(255);
+alter table account_transfer add column destination_iban_number varchar(255);
+alter table account_transfer add column destination_currency varchar(255);
+
+update account_transfer set
+    source_iban_number = (select a.iban_number from bank_account a where a.id = account_transfer.source_account_id),
+    source_currency = (select a.currency from bank_account a where a.id = account_transfer.source_account_id),
+    destination_iban_number = (select a.iban_number from bank_account a where a.id = account_transfer.destination_account_id),
+    destination_currency = (select a.currency from bank_account a where a.id = account_transfer.destination_account_id);
+
+alter table account_transfer alter column source_iban_number set not null;
+alter table account_transfer alter column source_currency set not null;
+alter table account_transfer alter column destination_iban_number set not null;
+alter table account_transfer alter column destination_currency set not null;
+
+create index idx_account_transfer_source_iban on account_transfer (source_iban_number, timestamp);
+create index idx_account_transfer_destination_iban on account_transfer (destination_iban_number, timestamp);
@@ -0,0 +1,4 @@
+-- Time the transfer was last queued for an asynchronous execution, a transfer left pending
+-- by a node that stopped is queued again once it has been pending longer than the timeout
+
+alter table account_transfer add column queued_on timestamp;
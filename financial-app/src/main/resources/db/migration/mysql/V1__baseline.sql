@@ -0,0 +1,99 @@
+-- Baseline schema of the entities, the secondary indexes are created by the following migrations
+
+create table account_transfer (
+    id bigint not null,
+    amount decimal(19,2) not null,
+    description varchar(255) not null,
+    failure_reason varchar(255),
+    status varchar(255),
+    timestamp datetime,
+    version bigint not null,
+    destination_account_id bigint not null,
+    source_account_id bigint not null,
+    primary key (id)
+) engine=InnoDB;
+
+create table bank_account (
+    id bigint not null,
+    balance decimal(19,2) not null,
+    currency varchar(255) not null,
+    iban_number varchar(255) not null,
+    last_tax_job_run_id bigint,
+    open_on date,
+    status varchar(255) not null,
+    version bigint not null,
+    primary key (id)
+) engine=InnoDB;
+
+create table bank_account_transaction (
+    id bigint not null,
+    amount decimal(19,2) not null,
+    created_on datetime,
+    description varchar(255) not null,
+    type varchar(255) not null,
+    bank_account_id bigint,
+    primary key (id)
+) engine=InnoDB;
+
+create table id_generator (
+    sequence_name varchar(255) not null,
+    next_val bigint,
+    primary key (sequence_name)
+) engine=InnoDB;
+
+create table idempotency_record (
+    idempotency_key varchar(255) not null,
+    created_on datetime not null,
+    expires_on datetime not null,
+    fingerprint varchar(255) not null,
+    response longtext not null,
+    primary key (idempotency_key)
+) engine=InnoDB;
+
+create table job_lease (
+    job_name varchar(255) not null,
+    acquired_on datetime not null,
+    expires_on datetime not null,
+    heartbeat_on datetime not null,
+    owner varchar(255) not null,
+    primary key (job_name)
+) engine=InnoDB;
+
+create table tax_job_partition (
+    id bigint not null auto_increment,
+    accounts_updated bigint not null,
+    completed_on datetime,
+    from_account_id bigint not null,
+    last_completed_id bigint not null,
+    lease_expires_on datetime,
+    owner varchar(255),
+    status varchar(255) not null,
+    tax_job_run_id bigint not null,
+    to_account_id bigint not null,
+    transactions_inserted bigint not null,
+    primary key (id)
+) engine=InnoDB;
+
+create table tax_job_run (
+    id bigint not null auto_increment,
+    accounts_updated bigint not null,
+    chunk_size bigint not null,
+    completed_on datetime,
+    from_account_id bigint not null,
+    partitions integer not null,
+    rate decimal(19,8) not null,
+    started_on datetime not null,
+    status varchar(255) not null,
+    to_account_id bigint not null,
+    transactions_inserted bigint not null,
+    primary key (id)
+) engine=InnoDB;
+
+insert into id_generator(sequence_name, next_val) values ('bank_account',999);
+insert into id_generator(sequence_name, next_val) values ('account_transfer',999);
+insert into id_generator(sequence_name, next_val) values ('bank_account_transaction',999);
+
+alter table bank_account add constraint uk_bank_account_iban_number unique (iban_number);
+alter table account_transfer add constraint fk_account_transfer_destination foreign key (destination_account_id) references bank_account (id);
+alter table account_transfer add constraint fk_account_transfer_source foreign key (source_account_id) references bank_account (id);
+alter table bank_account_transaction add constraint fk_bank_account_transaction_account foreign key (bank_account_id) references bank_account (id);
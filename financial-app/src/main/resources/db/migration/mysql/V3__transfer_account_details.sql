@@ -0,0 +1,25 @@
+-- The transfers carry the IBAN number and currency of their accounts, so the transfer searches
+-- filter and sort on the transfer table without joining bank_account twice
+
+alter table account_transfer
+    add column source_iban_number varchar(255),
+    add column source_currency varchar(255),
+    add column destination_iban_number varchar(255),
+    add column destination_currency varchar(255);
+
+update account_transfer tr
+    join bank_account source_account on tr.source_account_id = source_account.id
+    join bank_account dest_account on tr.destination_account_id = dest_account.id
+set tr.source_iban_number = source_account.iban_number,
+    tr.source_currency = source_account.currency,
+    tr.destination_iban_number = dest_account.iban_number,
+    tr.destination_currency = dest_account.currency;
+
+alter table account_transfer
+    modify source_iban_number varchar(255) not null,
+    modify source_currency varchar(255) not null,
+    modify destination_iban_number varchar(255) not null,
+    modify destination_currency varchar(255) not null;
+
+create index idx_account_transfer_source_iban on account_transfer (source_iban_number, timestamp);
+create index idx_account_transfer_destination_iban on account_transfer (destination_iban_number, timestamp);
@@ -0,0 +1,4 @@
+-- An idempotency key is reserved with a pending record, without a response, before the
+-- request is executed and completed with the response once the request is committed
+
+alter table idempotency_record modify response longtext null;
@@ -0,0 +1,5 @@
+-- Fire time of the scheduled tick which started the tax run, unique so a node whose tick
+-- fires after another node completed the run of the same tick does not start a new one
+
+alter table tax_job_run add column scheduled_for datetime;
+alter table tax_job_run add constraint uk_tax_job_run_scheduled_for unique (scheduled_for);
@@ -0,0 +1,5 @@
+-- Id of the account in the csv file it was imported from, the imported transfers refer to
+-- the accounts by this id as the internal id is taken from the id generator
+
+alter table bank_account add column imported_id bigint;
+alter table bank_account add constraint uk_bank_account_imported_id unique (imported_id);
@@ -0,0 +1,68 @@
+package com.murray.financial.adapter.impl;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.murray.financial.exceptions.IdempotencyKeyException;
+import com.murray.financial.service.impl.InMemoryIdempotencyStoreImpl;
+import org.junit.Test;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.Is.is;
+import static org.hamcrest.core.IsEqual.equalTo;
+
+public class IdempotencyHandlerTest {
+
+    private final InMemoryIdempotencyStoreImpl idempotencyStore =
+            new InMemoryIdempotencyStoreImpl(10, Duration.ofHours(1), Duration.ofMinutes(5));
+
+    private final IdempotencyHandler idempotencyHandler = new IdempotencyHandler(idempotencyStore, new ObjectMapper());
+
+    private final AtomicInteger executions = new AtomicInteger();
+
+    @Test
+    public void repeated_request_returns_the_stored_response() {
+
+        assertThat(idempotencyHandler.execute("key", "op", 1L, Integer.class, executions::incrementAndGet), is(equalTo(1)));
+        assertThat(idempotencyHandler.execute("key", "op", 1L, Integer.class, executions::incrementAndGet), is(equalTo(1)));
+        assertThat(executions.get(), is(equalTo(1)));
+    }
+
+    @Test(expected = IdempotencyKeyException.class)
+    public void request_with_a_reserved_key_is_not_executed() {
+
+        idempotencyHandler.execute("key", "op", 1L, Integer.class,
+                () -> idempotencyHandler.execute("key", "op", 1L, Integer.class, executions::incrementAndGet));
+    }
+
+    @Test
+    public void failed_request_releases_the_key() {
+
+        try {
+            idempotencyHandler.execute("key", "op", 1L, Integer.class, () -> {
+                throw new IllegalStateException("Transfer could not be executed");
+            });
+        } catch (IllegalStateException e) {
+
+            assertThat(idempotencyHandler.execute("key", "op", 1L, Integer.class, executions::incrementAndGet), is(equalTo(1)));
+            return;
+        }
+
+        throw new AssertionError("The failed request should be thrown");
+    }
+
+    @Test
+    public void response_is_returned_when_it_cannot_be_stored() {
+
+        IdempotencyHandler handler = new IdempotencyHandler(
+                new InMemoryIdempotencyStoreImpl(10, Duration.ofHours(1), Duration.ofMinutes(5)) {
+                    @Override
+                    public void complete(String key, String response) {
+                        throw new IllegalStateException("Store unavailable");
+                    }
+                }, new ObjectMapper());
+
+        assertThat(handler.execute("key", "op", 1L, Integer.class, executions::incrementAndGet), is(equalTo(1)));
+    }
+}
@@ -1,10 +1,12 @@
 package com.murray.financial.contollers;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.murray.financial.config.TestConfig;
 import com.murray.financial.domain.enums.AccountCurrency;
 import com.murray.financial.domain.enums.AccountStatus;
 import com.murray.financial.dtos.BankAccountDTO;
 import com.murray.financial.dtos.BankAccountSearchCriteriaDTO;
+import com.murray.financial.dtos.BankAccountTotalsDTO;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -13,8 +15,10 @@ import org.springframework.boot.test.web.client.TestRestTemplate;
 import org.springframework.context.annotation.Import;
 import org.springframework.core.ParameterizedTypeReference;
 import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpMethod;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.context.jdbc.Sql;
@@ -23,12 +27,22 @@ import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.util.UriTemplate;
 
 import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
 
 import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.AllOf.allOf;
 import static org.hamcrest.core.Is.is;
 import static org.hamcrest.core.IsEqual.equalTo;
+import static org.hamcrest.core.IsNot.not;
 import static org.hamcrest.core.IsNull.notNullValue;
+import static org.hamcrest.core.IsNull.nullValue;
+import static org.hamcrest.core.StringContains.containsString;
+import static org.hamcrest.core.StringStartsWith.startsWith;
 
 @RunWith(SpringRunner.class)
 @SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.DEFINED_PORT)
@@ -41,6 +55,9 @@ public class AccountsControllerTest extends AbstractControllerTest {
     @Autowired
     private TestRestTemplate restTemplate;
 
+    @Autowired
+    private ObjectMapper objectMapper;
+
     @Override
     TestRestTemplate restTemplate() {
         return restTemplate;
@@ -251,6 +268,176 @@ public class AccountsControllerTest extends AbstractControllerTest {
 
     }
 
+    @Test
+    public void read_accounts_page_returns_continuation_token_of_next_page() {
+
+        createTestAccount("EUR");
+        createTestAccount("EUR");
+
+        ResponseEntity<Collection<BankAccountDTO>> first =
+                restTemplate.exchange(getAccountUrl() + "?pageSize=1", HttpMethod.GET, getEntity(),
+                        new ParameterizedTypeReference<Collection<BankAccountDTO>>() {
+                        });
+
+        String continuationToken = first.getHeaders().getFirst(AccountsController.CONTINUATION_TOKEN);
+
+        assertThat(first.getStatusCode(), is(equalTo(HttpStatus.OK)));
+        assertThat(first.getBody().size(), is(equalTo(1)));
+        assertThat(continuationToken, is(notNullValue()));
+
+        ResponseEntity<Collection<BankAccountDTO>> second =
+                restTemplate.exchange(getAccountUrl() + "?pageSize=1&continuationToken=" + continuationToken, HttpMethod.GET,
+                        getEntity(), new ParameterizedTypeReference<Collection<BankAccountDTO>>() {
+                        });
+
+        assertThat(second.getStatusCode(), is(equalTo(HttpStatus.OK)));
+        assertThat(second.getBody().size(), is(equalTo(1)));
+        assertThat(second.getBody().iterator().next().getIbanNumber(),
+                is(not(equalTo(first.getBody().iterator().next().getIbanNumber()))));
+    }
+
+    @Test
+    public void read_accounts_with_invalid_continuation_token_returns_400() {
+
+        ResponseEntity<?> responseEntity =
+                restTemplate.exchange(getAccountUrl() + "?continuationToken=invalid", HttpMethod.GET, getEntity(), Object.class);
+
+        assertThat(responseEntity.getStatusCode(), is(equalTo(HttpStatus.BAD_REQUEST)));
+    }
+
+    @Test
+    public void export_accounts_writes_one_json_line_per_account() throws Exception {
+
+        BankAccountDTO eurAccount = createTestAccount("EUR");
+        createTestAccount("GBP");
+
+        HttpHeaders headers = new HttpHeaders();
+        headers.setAccept(Collections.singletonList(MediaType.parseMediaType(NdjsonResponseWriter.APPLICATION_NDJSON_VALUE)));
+
+        ResponseEntity<String> export =
+                restTemplate.exchange(getAccountUrl("export") + "?currency=EUR&orderBy=ibanNumber", HttpMethod.GET,
+                        new HttpEntity<>(headers), String.class);
+
+        ResponseEntity<Collection<BankAccountDTO>> search =
+                restTemplate.exchange(getAccountUrl() + "?currency=EUR&orderBy=ibanNumber", HttpMethod.GET, getEntity(),
+                        new ParameterizedTypeReference<Collection<BankAccountDTO>>() {
+                        });
+
+        List<BankAccountDTO> exported = new ArrayList<>();
+        for (String line : export.getBody().split("\n")) {
+            exported.add(objectMapper.readValue(line, BankAccountDTO.class));
+        }
+
+        assertThat(export.getStatusCode(), is(equalTo(HttpStatus.OK)));
+        assertThat(export.getHeaders().getContentType().toString(), startsWith(NdjsonResponseWriter.APPLICATION_NDJSON_VALUE));
+        assertThat(exported.size(), is(equalTo(search.getBody().size())));
+        assertThat(exported.stream().allMatch(dto -> dto.getCurrency().equals("EUR")), is(true));
+        assertThat(exported.stream().anyMatch(dto -> dto.getIbanNumber().equals(eurAccount.getIbanNumber())), is(true));
+    }
+
+    @Test
+    public void account_totals_grouped_by_currency_include_new_account() {
+
+        BankAccountDTO gbpAccount = createTestAccount("GBP");
+
+        ResponseEntity<List<BankAccountTotalsDTO>> responseEntity =
+                restTemplate.exchange(getAccountUrl("totals") + "?groupBy=currency&ibanNumber=" + gbpAccount.getIbanNumber(),
+                        HttpMethod.GET, getEntity(), new ParameterizedTypeReference<List<BankAccountTotalsDTO>>() {
+                        });
+
+        assertThat(responseEntity.getStatusCode(), is(equalTo(HttpStatus.OK)));
+        assertThat(responseEntity.getBody().size(), is(equalTo(1)));
+        assertThat(responseEntity.getBody().get(0).getCurrency(), is(equalTo("GBP")));
+        assertThat(responseEntity.getBody().get(0).getStatus(), is(nullValue()));
+        assertThat(responseEntity.getBody().get(0).getAccounts(), is(equalTo(1L)));
+    }
+
+    @Test
+    public void account_totals_grouped_by_iban_return_400() {
+
+        ResponseEntity<Object> responseEntity =
+                restTemplate.exchange(getAccountUrl("totals") + "?groupBy=ibanNumber", HttpMethod.GET, getEntity(), Object.class);
+
+        assertThat(responseEntity.getStatusCode(), is(equalTo(HttpStatus.BAD_REQUEST)));
+    }
+
+    @Test
+    public void read_accounts_with_fields_returns_only_requested_fields() {
+
+        BankAccountDTO account = createTestAccount("EUR");
+
+        ResponseEntity<List<BankAccountDTO>> responseEntity =
+                restTemplate.exchange(getAccountUrl() + "?fields=ibanNumber,status&ibanNumber=" + account.getIbanNumber(),
+                        HttpMethod.GET, getEntity(), new ParameterizedTypeReference<List<BankAccountDTO>>() {
+                        });
+
+        assertThat(responseEntity.getStatusCode(), is(equalTo(HttpStatus.OK)));
+        assertThat(responseEntity.getBody().size(), is(equalTo(1)));
+        assertThat(responseEntity.getBody().get(0).getIbanNumber(), is(equalTo(account.getIbanNumber())));
+        assertThat(responseEntity.getBody().get(0).getStatus(), is(equalTo("ACTIVE")));
+        assertThat(responseEntity.getBody().get(0).getBalance(), is(nullValue()));
+        assertThat(responseEntity.getBody().get(0).getCurrency(), is(nullValue()));
+    }
+
+    @Test
+    public void only_sparse_fieldset_responses_leave_out_fields() {
+
+        BankAccountDTO account = createTestAccount("EUR");
+        String url = getAccountUrl() + "?ibanNumber=" + account.getIbanNumber();
+
+        HttpHeaders ndjson = new HttpHeaders();
+        ndjson.setAccept(Collections.singletonList(MediaType.parseMediaType(NdjsonResponseWriter.APPLICATION_NDJSON_VALUE)));
+
+        String sparse = restTemplate.exchange(url + "&fields=ibanNumber", HttpMethod.GET, getEntity(), String.class).getBody();
+        String sparseExport = restTemplate.exchange(getAccountUrl("export") + "?fields=ibanNumber&ibanNumber=" + account.getIbanNumber(),
+                HttpMethod.GET, new HttpEntity<>(ndjson), String.class).getBody();
+        String full = restTemplate.exchange(url, HttpMethod.GET, getEntity(), String.class).getBody();
+
+        assertThat(sparse, containsString("\"ibanNumber\""));
+        assertThat(sparse, not(containsString("\"currency\"")));
+        assertThat(sparseExport, not(containsString("\"balance\"")));
+        assertThat(full, allOf(containsString("\"ibanNumber\""), containsString("\"currency\""), containsString("\"openedOn\""),
+                containsString("\"status\""), containsString("\"balance\"")));
+    }
+
+    @Test
+    public void read_accounts_with_unknown_field_return_400() {
+
+        ResponseEntity<Object> responseEntity =
+                restTemplate.exchange(getAccountUrl() + "?fields=ibanNumber,owner", HttpMethod.GET, getEntity(), Object.class);
+
+        assertThat(responseEntity.getStatusCode(), is(equalTo(HttpStatus.BAD_REQUEST)));
+    }
+
+    @Test
+    public void lookup_accounts_returns_accounts_keyed_by_iban_number() {
+
+        BankAccountDTO eurAccount = createTestAccount("EUR");
+        BankAccountDTO gbpAccount = createTestAccount("GBP");
+
+        ResponseEntity<Map<String, BankAccountDTO>> responseEntity =
+                restTemplate.exchange(getAccountUrl("lookup"), HttpMethod.POST,
+                        new HttpEntity<>(Arrays.asList(gbpAccount.getIbanNumber(), "NOT_EXIST", eurAccount.getIbanNumber()), httpHeaders()),
+                        new ParameterizedTypeReference<Map<String, BankAccountDTO>>() {
+                        });
+
+        assertThat(responseEntity.getStatusCode(), is(equalTo(HttpStatus.OK)));
+        assertThat(responseEntity.getBody().size(), is(equalTo(2)));
+        assertThat(responseEntity.getBody().get(gbpAccount.getIbanNumber()).getCurrency(), is(equalTo("GBP")));
+        assertThat(responseEntity.getBody().get(eurAccount.getIbanNumber()).getBalance().compareTo(BigDecimal.TEN), is(equalTo(0)));
+    }
+
+    @Test
+    public void lookup_of_more_accounts_than_page_size_return_400() {
+
+        List<String> ibanNumbers = Collections.nCopies(1001, "NOT_EXIST");
+
+        ResponseEntity<Object> responseEntity = restTemplate.exchange(getAccountUrl("lookup"), HttpMethod.POST,
+                new HttpEntity<>(ibanNumbers, httpHeaders()), Object.class);
+
+        assertThat(responseEntity.getStatusCode(), is(equalTo(HttpStatus.BAD_REQUEST)));
+    }
+
     HttpEntity<BankAccountSearchCriteriaDTO> getSearchEntity(BankAccountSearchCriteriaDTO dto) {
 
 
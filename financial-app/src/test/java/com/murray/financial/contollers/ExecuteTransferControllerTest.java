@@ -2,6 +2,7 @@ package com.murray.financial.contollers;
 
 import com.murray.financial.config.TestConfig;
 import com.murray.financial.dtos.TransferDTO;
+import com.murray.financial.dtos.TransferExecutionResultDTO;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -9,6 +10,7 @@ import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.boot.test.web.client.TestRestTemplate;
 import org.springframework.context.annotation.Import;
 import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpMethod;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
@@ -20,6 +22,8 @@ import org.springframework.web.util.UriTemplate;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.List;
 
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.core.Is.is;
@@ -72,6 +76,73 @@ public class ExecuteTransferControllerTest extends AbstractControllerTest {
 
     }
 
+    @Test
+    public void read_transfer_status_after_executing() {
+
+        TransferDTO transferDTO = createTestTransfer("EUR", BigDecimal.ONE);
+
+        HttpEntity<TransferDTO> entity = new HttpEntity<>(httpHeaders());
+        restTemplate.exchange(getExecuteTransferUrl(transferDTO.getId().toString()), HttpMethod.PUT, entity, TransferDTO.class);
+
+        ResponseEntity<TransferDTO> responseEntity =
+                restTemplate.exchange(getExecuteTransferUrl(transferDTO.getId().toString()), HttpMethod.GET, entity, TransferDTO.class);
+
+        assertThat(responseEntity.getStatusCode(), is(equalTo(HttpStatus.OK)));
+        assertThat(responseEntity.getBody().getStatus(), is(equalTo("EXECUTED")));
+    }
+
+    @Test
+    public void return_not_found_when_reading_unknown_transfer_status() {
+
+        HttpEntity<TransferDTO> entity = new HttpEntity<>(httpHeaders());
+        ResponseEntity<String> responseEntity =
+                restTemplate.exchange(getExecuteTransferUrl("111111"), HttpMethod.GET, entity, String.class);
+
+        assertThat(responseEntity.getStatusCode(), is(equalTo(HttpStatus.NOT_FOUND)));
+    }
+
+    @Test
+    public void execute_repeated_with_same_idempotency_key_returns_first_response() {
+
+        TransferDTO transferDTO = createTestTransfer("EUR", BigDecimal.ONE);
+
+        HttpHeaders headers = httpHeaders();
+        headers.set(TransfersController.IDEMPOTENCY_KEY, "execute-" + transferDTO.getId());
+        HttpEntity<TransferDTO> entity = new HttpEntity<>(headers);
+
+        ResponseEntity<TransferDTO> first =
+                restTemplate.exchange(getExecuteTransferUrl(transferDTO.getId().toString()), HttpMethod.PUT, entity, TransferDTO.class);
+        ResponseEntity<TransferDTO> retry =
+                restTemplate.exchange(getExecuteTransferUrl(transferDTO.getId().toString()), HttpMethod.PUT, entity, TransferDTO.class);
+
+        assertThat(first.getStatusCode(), is(equalTo(HttpStatus.OK)));
+        assertThat(retry.getStatusCode(), is(equalTo(HttpStatus.OK)));
+        assertThat(retry.getBody().getExecutionTime(), is(equalTo(first.getBody().getExecutionTime())));
+        assertThat(retry.getBody().getStatus(), is(equalTo("EXECUTED")));
+    }
+
+    @Test
+    public void return_outcome_of_each_transfer_executed_in_bulk() {
+
+        TransferDTO first = createTestTransfer("EUR", BigDecimal.ONE);
+        TransferDTO second = createTestTransfer("GBP", BigDecimal.ONE);
+
+        HttpEntity<List<Long>> entity = new HttpEntity<>(Arrays.asList(first.getId(), 111111L, second.getId()), httpHeaders());
+        ResponseEntity<TransferExecutionResultDTO[]> responseEntity =
+                restTemplate.exchange(getExecuteTransferUrl(), HttpMethod.PUT, entity, TransferExecutionResultDTO[].class);
+
+        assertThat(responseEntity.getStatusCode(), is(equalTo(HttpStatus.OK)));
+
+        TransferExecutionResultDTO[] results = responseEntity.getBody();
+        assertThat(results.length, is(equalTo(3)));
+        assertThat(results[0].getTransferId(), is(equalTo(first.getId())));
+        assertThat(results[0].getStatus(), is(equalTo("EXECUTED")));
+        assertThat(results[0].getTransfer().getExecutionTime(), is(notNullValue()));
+        assertThat(results[1].getTransferId(), is(equalTo(111111L)));
+        assertThat(results[1].getStatus(), is(equalTo("FAILED")));
+        assertThat(results[2].getStatus(), is(equalTo("EXECUTED")));
+    }
+
     String getExecuteTransferUrl(String transferId) {
 
         UriTemplate template = new UriTemplate("/Execute-Transfer/" + transferId);
@@ -13,6 +13,7 @@ import org.springframework.boot.test.web.client.TestRestTemplate;
 import org.springframework.context.annotation.Import;
 import org.springframework.core.ParameterizedTypeReference;
 import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpMethod;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
@@ -44,6 +45,13 @@ public class TransfersControllerTest extends AbstractControllerTest {
         return restTemplate;
     }
 
+    private HttpHeaders idempotentHeaders(String idempotencyKey) {
+
+        HttpHeaders headers = httpHeaders();
+        headers.set(TransfersController.IDEMPOTENCY_KEY, idempotencyKey);
+        return headers;
+    }
+
     @Test
     public void read_with_no_filters_return_all_transfers_200(){
 
@@ -67,6 +75,33 @@ public class TransfersControllerTest extends AbstractControllerTest {
     }
 
 
+    @Test
+    public void create_repeated_with_same_idempotency_key_returns_first_transfer() {
+
+        BankAccountDTO source = createTestAccount("EUR");
+        BankAccountDTO destination = createTestAccount("EUR");
+
+        TransferDTO dto = new TransferDTO();
+        dto.setSource(source.getIbanNumber());
+        dto.setDestination(destination.getIbanNumber());
+        dto.setDescription("Idempotent transfer");
+        dto.setAmount(BigDecimal.ONE);
+
+        HttpEntity<TransferDTO> entity = new HttpEntity<>(dto, idempotentHeaders("create-" + source.getIbanNumber()));
+
+        ResponseEntity<TransferDTO> first = restTemplate.exchange(getTransferUrl(), HttpMethod.POST, entity, TransferDTO.class);
+        ResponseEntity<TransferDTO> retry = restTemplate.exchange(getTransferUrl(), HttpMethod.POST, entity, TransferDTO.class);
+
+        assertThat(first.getStatusCode(), is(equalTo(HttpStatus.CREATED)));
+        assertThat(retry.getStatusCode(), is(equalTo(HttpStatus.CREATED)));
+        assertThat(retry.getBody().getId(), is(equalTo(first.getBody().getId())));
+
+        dto.setAmount(BigDecimal.TEN);
+        ResponseEntity<String> reused = restTemplate.exchange(getTransferUrl(), HttpMethod.POST, entity, String.class);
+
+        assertThat(reused.getStatusCode(), is(equalTo(HttpStatus.CONFLICT)));
+    }
+
     @Test
     public void create_fail_when_transfer_to_same_account_return_406(){
 
@@ -0,0 +1,100 @@
+package com.murray.financial.domain.repository;
+
+import com.murray.financial.domain.entity.BankAccount;
+import com.murray.financial.domain.entity.Transaction;
+import com.murray.financial.domain.enums.AccountCurrency;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManager;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.Is.is;
+import static org.hamcrest.core.IsEqual.equalTo;
+import static org.junit.Assume.assumeTrue;
+
+/**
+ * Measures the account and transaction insert throughput, only executed when the
+ * benchmark system property is set: mvn test -Dbenchmark=true -Dtest=InsertThroughputBenchmarkITTest
+ * The rows are committed, as batching only happens on flush, and removed afterwards.
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest
+public class InsertThroughputBenchmarkITTest {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(InsertThroughputBenchmarkITTest.class);
+
+    private static final int ACCOUNTS = 20_000;
+    private static final int FLUSH_SIZE = 500;
+
+    @Autowired
+    private BackAccountJPARepository backAccountRepository;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private final List<Long> accountIds = new ArrayList<>();
+
+    @Before
+    public void setup() {
+
+        assumeTrue(Boolean.getBoolean("benchmark"));
+    }
+
+    @After
+    public void tearDown() {
+
+        new TransactionTemplate(transactionManager).execute(status -> {
+            for (int from = 0; from < accountIds.size(); from += FLUSH_SIZE) {
+                List<Long> ids = accountIds.subList(from, Math.min(from + FLUSH_SIZE, accountIds.size()));
+                entityManager.createQuery("DELETE FROM Transaction t WHERE t.bankAccount.id IN :ids").setParameter("ids", ids).executeUpdate();
+                entityManager.createQuery("DELETE FROM BankAccount b WHERE b.id IN :ids").setParameter("ids", ids).executeUpdate();
+            }
+            return null;
+        });
+    }
+
+    @Test
+    public void insert_accounts_with_opening_transaction() {
+
+        long start = System.nanoTime();
+
+        new TransactionTemplate(transactionManager).execute(status -> {
+            for (int i = 0; i < ACCOUNTS; i++) {
+
+                BankAccount account = new BankAccount("BENCH" + System.nanoTime() + i, AccountCurrency.EUR,
+                        new Transaction(BigDecimal.TEN, "benchmark deposit"));
+                entityManager.persist(account);
+                accountIds.add(account.getId());
+
+                if ((i + 1) % FLUSH_SIZE == 0) {
+                    entityManager.flush();
+                    entityManager.clear();
+                }
+            }
+            return null;
+        });
+
+        long millis = Math.max(1L, (System.nanoTime() - start) / 1_000_000);
+
+        LOGGER.info("inserted {} accounts and {} transactions in {} ms, {} rows/s", ACCOUNTS, ACCOUNTS, millis,
+                (2L * ACCOUNTS * 1000L) / millis);
+
+        assertThat(accountIds.size(), is(equalTo(ACCOUNTS)));
+    }
+}
@@ -0,0 +1,161 @@
+package com.murray.financial.domain.repository;
+
+import com.murray.financial.domain.entity.BankAccount;
+import com.murray.financial.domain.entity.Transaction;
+import com.murray.financial.domain.enums.AccountCurrency;
+import com.murray.financial.domain.repository.Impl.BankAccountJPACustomRepositoryImpl;
+import com.murray.financial.domain.repository.query.BankAccountQueryField;
+import com.murray.financial.domain.repository.query.BankAccountSearch;
+import com.murray.financial.querybuilder.Operator;
+import com.murray.financial.querybuilder.OrderBy;
+import com.murray.financial.querybuilder.OrderCondition;
+import com.murray.financial.querybuilder.QueryCondition;
+import com.murray.financial.querybuilder.QueryTemplateCache;
+import com.murray.financial.querybuilder.Range;
+import com.murray.financial.querybuilder.SearchEngine;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManager;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Supplier;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.Is.is;
+import static org.hamcrest.core.IsEqual.equalTo;
+import static org.junit.Assume.assumeTrue;
+
+/**
+ * Compares the native sql and the criteria search engines, only executed when the benchmark
+ * system property is set: mvn test -Dbenchmark=true -Dtest=SearchEngineBenchmarkITTest
+ * Each search is warmed up and then timed for both engines, the accounts are committed and
+ * removed afterwards.
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest
+public class SearchEngineBenchmarkITTest {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(SearchEngineBenchmarkITTest.class);
+
+    private static final int ACCOUNTS = 10_000;
+    private static final int FLUSH_SIZE = 500;
+    private static final int WARM_UP = 200;
+    private static final int ITERATIONS = 1_000;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private QueryTemplateCache templateCache;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private final List<Long> accountIds = new ArrayList<>();
+
+    @Before
+    public void setup() {
+
+        assumeTrue(Boolean.getBoolean("benchmark"));
+
+        new TransactionTemplate(transactionManager).execute(status -> {
+            for (int i = 0; i < ACCOUNTS; i++) {
+
+                BankAccount account = new BankAccount("BENCH" + System.nanoTime() + i,
+                        i % 2 == 0 ? AccountCurrency.EUR : AccountCurrency.GBP,
+                        new Transaction(new BigDecimal(i % 1000), "benchmark deposit"));
+                entityManager.persist(account);
+                accountIds.add(account.getId());
+
+                if ((i + 1) % FLUSH_SIZE == 0) {
+                    entityManager.flush();
+                    entityManager.clear();
+                }
+            }
+            return null;
+        });
+    }
+
+    @After
+    public void tearDown() {
+
+        new TransactionTemplate(transactionManager).execute(status -> {
+            for (int from = 0; from < accountIds.size(); from += FLUSH_SIZE) {
+                List<Long> ids = accountIds.subList(from, Math.min(from + FLUSH_SIZE, accountIds.size()));
+                entityManager.createQuery("DELETE FROM Transaction t WHERE t.bankAccount.id IN :ids").setParameter("ids", ids).executeUpdate();
+                entityManager.createQuery("DELETE FROM BankAccount b WHERE b.id IN :ids").setParameter("ids", ids).executeUpdate();
+            }
+            return null;
+        });
+    }
+
+    @Test
+    public void balance_range_page() {
+
+        compare("balance range page", () -> {
+            BankAccountSearch search = new BankAccountSearch();
+            search.addCondition(new QueryCondition(BankAccountQueryField.CURRENCY, Operator.EQUALS, "EUR"));
+            search.addCondition(new QueryCondition(BankAccountQueryField.BALANCE, Operator.BETWEEN,
+                    new Range<>(new BigDecimal(100L), new BigDecimal(500L))));
+            search.setOrderCondition(new OrderCondition(OrderBy.DESC, BankAccountQueryField.BALANCE));
+            search.setPageSize(100);
+            return search;
+        });
+    }
+
+    @Test
+    public void iban_lookup() {
+
+        compare("iban lookup", () -> {
+            BankAccountSearch search = new BankAccountSearch();
+            search.addCondition(new QueryCondition(BankAccountQueryField.IBAN_NUMBER, Operator.EQUALS, "BENCH-NOT-FOUND"));
+            return search;
+        });
+    }
+
+    /**
+     * Times the search page with both engines, each search is built anew as the requests do
+     */
+    private void compare(final String name, final Supplier<BankAccountSearch> search) {
+
+        BankAccountJPACustomRepositoryImpl nativeEngine = new BankAccountJPACustomRepositoryImpl(entityManager, SearchEngine.NATIVE, templateCache);
+        BankAccountJPACustomRepositoryImpl criteriaEngine = new BankAccountJPACustomRepositoryImpl(entityManager, SearchEngine.CRITERIA, templateCache);
+
+        long nativeMicros = time(nativeEngine, search);
+        long criteriaMicros = time(criteriaEngine, search);
+
+        LOGGER.info("{}: native {} us/search, criteria {} us/search", name, nativeMicros, criteriaMicros);
+
+        assertThat(criteriaEngine.searchPageBy(search.get()).getResults(),
+                is(equalTo(nativeEngine.searchPageBy(search.get()).getResults())));
+    }
+
+    private long time(final BankAccountJPACustomRepositoryImpl repository, final Supplier<BankAccountSearch> search) {
+
+        return new TransactionTemplate(transactionManager).execute(status -> {
+
+            for (int i = 0; i < WARM_UP; i++) {
+                repository.searchPageBy(search.get());
+            }
+
+            long start = System.nanoTime();
+
+            for (int i = 0; i < ITERATIONS; i++) {
+                repository.searchPageBy(search.get());
+            }
+
+            return (System.nanoTime() - start) / ITERATIONS / 1_000;
+        });
+    }
+}
@@ -0,0 +1,197 @@
+package com.murray.financial.domain.repository;
+
+import com.murray.financial.domain.entity.BankAccount;
+import com.murray.financial.domain.repository.Impl.AccountTransferJPACustomRepositoryImpl;
+import com.murray.financial.domain.repository.Impl.BankAccountJPACustomRepositoryImpl;
+import com.murray.financial.domain.repository.query.BankAccountQueryField;
+import com.murray.financial.domain.repository.query.BankAccountResult;
+import com.murray.financial.domain.repository.query.BankAccountSearch;
+import com.murray.financial.domain.repository.query.BankAccountTotalsResult;
+import com.murray.financial.domain.repository.query.BankAccountTotalsSearch;
+import com.murray.financial.domain.repository.query.TransferAccountResult;
+import com.murray.financial.domain.repository.query.TransferQueryField;
+import com.murray.financial.domain.repository.query.TransferSearch;
+import com.murray.financial.exceptions.InvalidSearchException;
+import com.murray.financial.querybuilder.Operator;
+import com.murray.financial.querybuilder.OrderBy;
+import com.murray.financial.querybuilder.OrderCondition;
+import com.murray.financial.querybuilder.QueryCondition;
+import com.murray.financial.querybuilder.QueryTemplateCache;
+import com.murray.financial.querybuilder.Range;
+import com.murray.financial.querybuilder.SearchEngine;
+import com.murray.financial.querybuilder.SearchPage;
+import com.murray.financial.service.AccountService;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.jdbc.Sql;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.persistence.EntityManager;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.Is.is;
+import static org.hamcrest.core.IsEqual.equalTo;
+
+/**
+ * Runs the same searches with the native and the criteria engines, which must return the
+ * same results in the same order.
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest
+@Transactional
+@Sql("classpath:test-data.sql")
+public class SearchEngineITTest {
+
+    private static final List<String> TEST_DATA_IBANS = Arrays.asList("TESTS020903200500041045040A111",
+            "TESTS020903200500041045040A112", "TESTS020903200500041045040A113",
+            "TESTS020903200500041045040A114", "TESTS020903200500041045040A115");
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private QueryTemplateCache templateCache;
+
+    @Autowired
+    private AccountService accountService;
+
+    private BankAccountJPACustomRepositoryImpl nativeAccounts;
+    private BankAccountJPACustomRepositoryImpl criteriaAccounts;
+    private AccountTransferJPACustomRepositoryImpl nativeTransfers;
+    private AccountTransferJPACustomRepositoryImpl criteriaTransfers;
+
+    @Before
+    public void setup() {
+
+        nativeAccounts = new BankAccountJPACustomRepositoryImpl(entityManager, SearchEngine.NATIVE, templateCache);
+        criteriaAccounts = new BankAccountJPACustomRepositoryImpl(entityManager, SearchEngine.CRITERIA, templateCache);
+        nativeTransfers = new AccountTransferJPACustomRepositoryImpl(entityManager, SearchEngine.NATIVE, templateCache);
+        criteriaTransfers = new AccountTransferJPACustomRepositoryImpl(entityManager, SearchEngine.CRITERIA, templateCache);
+    }
+
+    @Test
+    public void accounts_by_currency_and_status_match() {
+
+        Supplier<BankAccountSearch> search = () -> {
+            BankAccountSearch s = testDataAccounts();
+            s.addCondition(new QueryCondition(BankAccountQueryField.CURRENCY, Operator.EQUALS, "EUR"));
+            s.addCondition(new QueryCondition(BankAccountQueryField.STATUS, Operator.NOT_EQUALS, "DISABLED"));
+            s.setOrderCondition(new OrderCondition(OrderBy.ASC, BankAccountQueryField.IBAN_NUMBER));
+            return s;
+        };
+
+        List<BankAccountResult> results = criteriaAccounts.searchBy(search.get());
+
+        assertThat(ibansOf(results), is(equalTo(ibansOf(nativeAccounts.searchBy(search.get())))));
+        assertThat(results.size(), is(equalTo(3)));
+        assertThat(results.get(0).balance().compareTo(new BigDecimal(1010L)), is(equalTo(0)));
+    }
+
+    @Test
+    public void accounts_by_balance_range_read_page_by_page_match() {
+
+        Supplier<BankAccountSearch> search = () -> {
+            BankAccountSearch s = testDataAccounts();
+            s.addCondition(new QueryCondition(BankAccountQueryField.BALANCE, Operator.BETWEEN,
+                    new Range<>(BigDecimal.ZERO, new BigDecimal(600L))));
+            s.setOrderCondition(new OrderCondition(OrderBy.DESC, BankAccountQueryField.BALANCE));
+            s.setPageSize(2);
+            return s;
+        };
+
+        List<String> nativeIbans = readAllPages(search, nativeAccounts);
+        List<String> criteriaIbans = readAllPages(search, criteriaAccounts);
+
+        assertThat(criteriaIbans, is(equalTo(nativeIbans)));
+        assertThat(criteriaIbans.size(), is(equalTo(4)));
+    }
+
+    @Test
+    public void transfers_by_source_match() {
+
+        BankAccount source = accountService.findAccountBy("TESTS020903200500041045040A111").get();
+        accountService.createAccountTransfer(source, accountService.findAccountBy("TESTS020903200500041045040A112").get(),
+                BigDecimal.TEN, "search engine test");
+        accountService.createAccountTransfer(source, accountService.findAccountBy("TESTS020903200500041045040A114").get(),
+                BigDecimal.ONE, "search engine test");
+        entityManager.flush();
+
+        Supplier<TransferSearch> search = () -> {
+            TransferSearch s = new TransferSearch();
+            s.addCondition(new QueryCondition(TransferQueryField.SOURCE, Operator.EQUALS, "TESTS020903200500041045040A111"));
+            s.setOrderCondition(new OrderCondition(OrderBy.ASC, TransferQueryField.SOURCE));
+            return s;
+        };
+
+        List<TransferAccountResult> nativeResults = nativeTransfers.searchBy(search.get());
+        List<TransferAccountResult> criteriaResults = criteriaTransfers.searchBy(search.get());
+
+        assertThat(criteriaResults.size(), is(equalTo(2)));
+        assertThat(criteriaResults.stream().map(TransferAccountResult::keysetId).collect(Collectors.toList()),
+                is(equalTo(nativeResults.stream().map(TransferAccountResult::keysetId).collect(Collectors.toList()))));
+    }
+
+    @Test(expected = InvalidSearchException.class)
+    public void criteria_search_with_unknown_currency_is_invalid() {
+
+        BankAccountSearch search = new BankAccountSearch();
+        search.addCondition(new QueryCondition(BankAccountQueryField.CURRENCY, Operator.EQUALS, "XXX"));
+
+        criteriaAccounts.searchBy(search);
+    }
+
+    @Test
+    public void search_without_criteria_mapping_is_run_natively_by_the_criteria_engine() {
+
+        Supplier<BankAccountTotalsSearch> search = () -> {
+            BankAccountTotalsSearch s = new BankAccountTotalsSearch();
+            s.groupBy(BankAccountQueryField.CURRENCY);
+            return s;
+        };
+
+        List<BankAccountTotalsResult> nativeTotals = nativeAccounts.totalsBy(search.get());
+
+        assertThat(nativeTotals.isEmpty(), is(false));
+        assertThat(criteriaAccounts.totalsBy(search.get()), is(equalTo(nativeTotals)));
+    }
+
+    private List<String> readAllPages(final Supplier<BankAccountSearch> search, final BankAccountJPACustomRepositoryImpl repository) {
+
+        List<String> ibans = new ArrayList<>();
+        String token = null;
+
+        do {
+            BankAccountSearch page = search.get();
+            page.setContinuationToken(token);
+
+            SearchPage<BankAccountResult> results = repository.searchPageBy(page);
+            ibans.addAll(ibansOf(results.getResults()));
+            token = results.getContinuationToken();
+
+        } while (token != null);
+
+        return ibans;
+    }
+
+    private BankAccountSearch testDataAccounts() {
+
+        BankAccountSearch search = new BankAccountSearch();
+        search.addCondition(new QueryCondition(BankAccountQueryField.IBAN_NUMBER, Operator.IN, TEST_DATA_IBANS));
+        return search;
+    }
+
+    private static List<String> ibansOf(final List<BankAccountResult> results) {
+
+        return results.stream().map(BankAccountResult::ibanNumber).collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,58 @@
+package com.murray.financial.importer;
+
+import com.murray.financial.domain.entity.BankAccount;
+import com.murray.financial.domain.enums.TransferStatus;
+import com.murray.financial.domain.repository.AccountTransferJPARespository;
+import com.murray.financial.domain.repository.BackAccountJPARepository;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.greaterThanOrEqualTo;
+import static org.hamcrest.core.Is.is;
+import static org.hamcrest.core.IsEqual.equalTo;
+
+
+@RunWith(SpringRunner.class)
+@SpringBootTest
+@Transactional
+public class CSVImporterServiceITTest {
+
+    @Autowired
+    private CSVImporterService csvImporterService;
+
+    @Autowired
+    private BackAccountJPARepository backAccountRepository;
+
+    @Autowired
+    private AccountTransferJPARespository accountTransferRepository;
+
+    @Test
+    public void bundled_accounts_and_transfers_are_imported() {
+
+        csvImporterService.checkAndImportFiles();
+
+        BankAccount first = backAccountRepository.findFirstByImportedIdEquals(1L);
+        BankAccount second = backAccountRepository.findFirstByImportedIdEquals(2L);
+        BankAccount third = backAccountRepository.findFirstByImportedIdEquals(3L);
+
+        assertThat(first.getId(), is(greaterThanOrEqualTo(1000L)));
+        assertThat(first.getBalance().compareTo(new BigDecimal("-100")), is(equalTo(0)));
+        assertThat(executedTransfersBetween(first, second), is(equalTo(1L)));
+        assertThat(executedTransfersBetween(second, third), is(equalTo(1L)));
+    }
+
+    private long executedTransfersBetween(final BankAccount source, final BankAccount destination) {
+
+        return accountTransferRepository.findAll().stream()
+                .filter(transfer -> transfer.getStatus() == TransferStatus.EXECUTED)
+                .filter(transfer -> transfer.getSource().equals(source) && transfer.getDestination().equals(destination))
+                .count();
+    }
+}
@@ -0,0 +1,115 @@
+package com.murray.financial.jobs;
+
+import com.murray.financial.domain.entity.BankAccount;
+import com.murray.financial.domain.repository.BackAccountJPARepository;
+import com.murray.financial.domain.repository.JobLeaseJPARepository;
+import com.murray.financial.domain.repository.TaxJobPartitionJPARepository;
+import com.murray.financial.domain.repository.TaxJobRunJPARepository;
+import com.murray.financial.service.impl.DatabaseJobLeaseServiceImpl;
+import com.murray.financial.service.impl.OperationalTaxServiceImpl;
+import com.murray.financial.service.impl.TableIdBlockAllocator;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.jdbc.Sql;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.LocalDateTime;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.Is.is;
+import static org.hamcrest.core.IsEqual.equalTo;
+
+
+@RunWith(SpringRunner.class)
+@SpringBootTest
+@Transactional
+@Sql("classpath:test-data.sql")
+public class OperationalBankingJobITTest {
+
+    private static final BigDecimal RATE = new BigDecimal("0.01");
+
+    /**
+     * Fires once a year, so both nodes run the same tick
+     */
+    private static final String CRON = "0 0 0 1 1 *";
+
+    @Autowired
+    private BackAccountJPARepository backAccountRepository;
+
+    @Autowired
+    private TaxJobRunJPARepository taxJobRunRepository;
+
+    @Autowired
+    private TaxJobPartitionJPARepository taxJobPartitionRepository;
+
+    @Autowired
+    private JobLeaseJPARepository jobLeaseRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private TableIdBlockAllocator idBlockAllocator;
+
+    private DatabaseJobLeaseServiceImpl nodeOneLease;
+
+    private DatabaseJobLeaseServiceImpl nodeTwoLease;
+
+    @Before
+    public void setup() {
+
+        nodeOneLease = new DatabaseJobLeaseServiceImpl(jobLeaseRepository, transactionManager, "node-1", Duration.ofMinutes(5));
+        nodeTwoLease = new DatabaseJobLeaseServiceImpl(jobLeaseRepository, transactionManager, "node-2", Duration.ofMinutes(5));
+    }
+
+    @After
+    public void tearDown() {
+
+        nodeOneLease.shutdown();
+        nodeTwoLease.shutdown();
+    }
+
+    @Test
+    public void tick_run_by_one_node_is_not_run_again_by_a_late_node() {
+
+        OperationalBankingJob nodeOne = jobOf("node-1", nodeOneLease);
+        OperationalBankingJob nodeTwo = jobOf("node-2", nodeTwoLease);
+
+        nodeOne.runJob();
+        nodeTwo.runJob();
+
+        LocalDateTime tick = LocalDateTime.of(LocalDateTime.now().getYear(), 1, 1, 0, 0);
+        BankAccount account = backAccountRepository.findFirstByIbanNumberEquals("TESTS020903200500041045040A111");
+
+        assertThat(jobLeaseRepository.findById(OperationalBankingJob.JOB_NAME).get().getOwner(), is(equalTo("node-2")));
+        assertThat(taxJobRunRepository.findAll().stream().filter(run -> tick.equals(run.getScheduledFor())).count(),
+                is(equalTo(1L)));
+        assertThat(account.getBalance(), is(equalTo(new BigDecimal("1020.10"))));
+        assertThat(account.getTransactions().size(), is(equalTo(3)));
+    }
+
+    @Test
+    public void scheduled_tick_is_the_latest_fire_time_not_after_the_time() {
+
+        OperationalBankingJob job = new OperationalBankingJob(null, null, RATE, "0 */15 * ? * *");
+
+        assertThat(job.scheduledTickOf(LocalDateTime.of(2019, 11, 1, 9, 15)), is(equalTo(LocalDateTime.of(2019, 11, 1, 9, 15))));
+        assertThat(job.scheduledTickOf(LocalDateTime.of(2019, 11, 1, 9, 29, 59)),
+                is(equalTo(LocalDateTime.of(2019, 11, 1, 9, 15))));
+    }
+
+    private OperationalBankingJob jobOf(final String nodeId, final DatabaseJobLeaseServiceImpl jobLeaseService) {
+
+        return new OperationalBankingJob(new OperationalTaxServiceImpl(backAccountRepository, taxJobRunRepository,
+                taxJobPartitionRepository, transactionManager, 2, 1, nodeId, Duration.ofMinutes(5), idBlockAllocator),
+                jobLeaseService, RATE, CRON);
+    }
+}
@@ -0,0 +1,129 @@
+package com.murray.financial.schema;
+
+import com.murray.financial.exceptions.SchemaMigrationException;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import javax.persistence.EntityManagerFactory;
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.Is.is;
+import static org.hamcrest.core.IsEqual.equalTo;
+import static org.hamcrest.core.IsCollectionContaining.hasItems;
+
+@RunWith(SpringRunner.class)
+@SpringBootTest
+public class SchemaMigrationITTest {
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private SchemaMigrator schemaMigrator;
+
+    @Autowired
+    private IndexVerifier indexVerifier;
+
+    @Test
+    public void migrations_are_applied_in_order_and_recorded() {
+
+        List<String> scripts = new JdbcTemplate(dataSource)
+                .queryForList("SELECT script FROM schema_version ORDER BY version", String.class);
+
+        assertThat(scripts, is(equalTo(Arrays.asList("V1__baseline.sql", "V2__search_and_ledger_indexes.sql",
+                "V3__transfer_account_details.sql", "V4__transfer_queued_on.sql",
+                "V5__idempotency_pending_record.sql", "V6__tax_job_run_scheduled_for.sql",
+                "V7__bank_account_imported_id.sql"))));
+    }
+
+    @Test
+    public void applied_migrations_are_not_run_again() {
+
+        assertThat(schemaMigrator.migrate(), is(equalTo(0)));
+    }
+
+    @Test
+    public void migration_waits_for_the_lock_held_by_another_node() throws Exception {
+
+        CompletableFuture<Integer> migration;
+
+        try (Connection lock = dataSource.getConnection()) {
+
+            lock.setAutoCommit(false);
+            lock.createStatement().executeQuery("SELECT id FROM schema_lock WHERE id = 1 FOR UPDATE").close();
+
+            migration = CompletableFuture.supplyAsync(schemaMigrator::migrate);
+            Thread.sleep(200);
+
+            assertThat(migration.isDone(), is(false));
+
+            lock.rollback();
+        }
+
+        assertThat(migration.get(5, TimeUnit.SECONDS), is(equalTo(0)));
+    }
+
+    @Test(expected = SchemaMigrationException.class)
+    public void migration_changed_after_it_was_applied_stops_the_migration() {
+
+        new SchemaMigrator(dataSource, "classpath:db/changed-migration").migrate();
+    }
+
+    @Test
+    public void indexes_declared_by_the_entities_are_found() {
+
+        List<String> declared = IndexVerifier.indexesOf(entityManagerFactory).stream()
+                .map(IndexVerifier.ExpectedIndex::getName)
+                .collect(Collectors.toList());
+
+        assertThat(declared, hasItems("idx_bank_account_totals", "idx_bank_account_transaction_account",
+                "idx_account_transfer_source", "idx_account_transfer_destination"));
+        assertThat(indexVerifier.verify().isEmpty(), is(true));
+    }
+
+    @Test(expected = SchemaMigrationException.class)
+    public void missing_index_fails_the_verification() {
+
+        new IndexVerifier(dataSource, Collections.singletonList(openedOnIndex()), IndexVerifier.Mode.FAIL).verify();
+    }
+
+    @Test
+    public void missing_index_is_reported_in_warn_mode() {
+
+        List<IndexVerifier.ExpectedIndex> missing = new IndexVerifier(dataSource,
+                Collections.singletonList(openedOnIndex()), IndexVerifier.Mode.WARN).verify();
+
+        assertThat(missing.size(), is(equalTo(1)));
+    }
+
+    @Test
+    public void index_is_found_by_its_leading_columns() {
+
+        IndexVerifier.ExpectedIndex currencyIndex = new IndexVerifier.ExpectedIndex("idx_bank_account_currency",
+                "bank_account", Collections.singletonList("currency"));
+
+        assertThat(new IndexVerifier(dataSource, Collections.singletonList(currencyIndex), IndexVerifier.Mode.FAIL)
+                .verify().isEmpty(), is(true));
+    }
+
+    private IndexVerifier.ExpectedIndex openedOnIndex() {
+
+        return new IndexVerifier.ExpectedIndex("idx_bank_account_open_on", "bank_account",
+                Collections.singletonList("open_on"));
+    }
+}
@@ -5,16 +5,21 @@ import com.murray.financial.domain.entity.BankAccount;
 import com.murray.financial.domain.entity.Transaction;
 import com.murray.financial.domain.enums.AccountCurrency;
 import com.murray.financial.domain.enums.AccountStatus;
+import com.murray.financial.domain.enums.TransferStatus;
 import com.murray.financial.domain.repository.AccountTransferJPARespository;
 import com.murray.financial.domain.repository.BackAccountJPARepository;
 import com.murray.financial.domain.repository.query.*;
 import com.murray.financial.exceptions.AccountCreationException;
 import com.murray.financial.exceptions.TransferCreationException;
 import com.murray.financial.querybuilder.Operator;
+import com.murray.financial.querybuilder.OrderBy;
 import com.murray.financial.querybuilder.OrderCondition;
 import com.murray.financial.querybuilder.QueryCondition;
+import com.murray.financial.querybuilder.Range;
+import com.murray.financial.querybuilder.SearchPage;
 import com.murray.financial.service.impl.BankAccountServiceImpl;
 import com.murray.financial.service.impl.InMemoryCurrencyConverterImp;
+import com.murray.financial.service.impl.SearchResultCache;
 import com.murray.financial.service.untils.IBANNumberUtils;
 import org.junit.Before;
 import org.junit.Test;
@@ -26,16 +31,29 @@ import org.springframework.test.context.junit4.SpringRunner;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
+import java.time.Duration;
 import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 import static com.murray.financial.utils.AccountNumber.*;
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.core.Is.is;
 import static org.hamcrest.core.IsEqual.equalTo;
+import static org.hamcrest.core.IsNot.not;
 import static org.hamcrest.core.IsNull.notNullValue;
 import static org.hamcrest.core.IsNull.nullValue;
+import static org.hamcrest.core.StringContains.containsString;
+import static org.hamcrest.number.OrderingComparison.greaterThan;
+import static org.hamcrest.number.OrderingComparison.greaterThanOrEqualTo;
+import static org.hamcrest.number.OrderingComparison.lessThanOrEqualTo;
 
 
 @RunWith(SpringRunner.class)
@@ -46,6 +64,9 @@ public class AccountServiceITTest {
 
     private static final BigDecimal DKK_77 = new BigDecimal(77L);
     private static final BigDecimal ZERO = BigDecimal.ZERO;
+    private static final List<String> TEST_DATA_IBANS = Arrays.asList("TESTS020903200500041045040A111",
+            "TESTS020903200500041045040A112", "TESTS020903200500041045040A113",
+            "TESTS020903200500041045040A114", "TESTS020903200500041045040A115");
 
     private CurrencyConverter currencyConverter = new InMemoryCurrencyConverterImp();
 
@@ -108,6 +129,44 @@ public class AccountServiceITTest {
     }
 
 
+    @Test
+    public void find_transfers_by_destination_currency_without_joining_the_accounts() {
+
+        BankAccount source = mockAccount(new BigDecimal(1000L), AccountStatus.ACTIVE, AccountCurrency.EUR);
+        BankAccount eurDestination = mockAccount(BigDecimal.ZERO, AccountStatus.ACTIVE, AccountCurrency.EUR);
+        BankAccount gbpDestination = mockAccount(BigDecimal.ZERO, AccountStatus.ACTIVE, AccountCurrency.GBP);
+        accountService.createAccountTransfer(source, eurDestination, BigDecimal.TEN, "to eur");
+        accountService.createAccountTransfer(source, gbpDestination, BigDecimal.ONE, "to gbp");
+
+        TransferSearch transferSearch = transferSearch(new OrderCondition(TransferQueryField.DESTINATION),
+                new QueryCondition(TransferQueryField.SOURCE, Operator.EQUALS, source.getIbanNumber()),
+                new QueryCondition(TransferQueryField.DESTINATION_CURRENCY, Operator.EQUALS, "GBP"));
+
+        List<TransferAccountResult> results = accountService.findTransfersBy(transferSearch);
+
+        assertThat(transferSearch.toNativeQueryWithConditions(), not(containsString("join")));
+        assertThat(results.size(), is(equalTo(1)));
+        assertThat(results.get(0).getDestIbanAccountIbanNumber(), is(equalTo(gbpDestination.getIbanNumber())));
+    }
+
+    @Test
+    public void find_accounts_of_many_iban_numbers_in_chunks() {
+
+        List<String> ibanNumbers = new ArrayList<>();
+        for (int i = 0; i < 600; i++) {
+            ibanNumbers.add("UNKNOWN" + i);
+        }
+        ibanNumbers.add(TEST_DATA_IBANS.get(2));
+        ibanNumbers.add(TEST_DATA_IBANS.get(0));
+        ibanNumbers.add(TEST_DATA_IBANS.get(0));
+
+        Map<String, BankAccountResult> accounts = accountService.findAccountsBy(ibanNumbers);
+
+        assertThat(new ArrayList<>(accounts.keySet()), is(equalTo(Arrays.asList(TEST_DATA_IBANS.get(2), TEST_DATA_IBANS.get(0)))));
+        assertThat(accounts.get(TEST_DATA_IBANS.get(0)).balance().compareTo(new BigDecimal(1010L)), is(equalTo(0)));
+        assertThat(accounts.get(TEST_DATA_IBANS.get(2)).currency(), is(equalTo(AccountCurrency.GBP)));
+    }
+
     @Test(expected = TransferCreationException.class)
     public void throw_error_when_source_account_is_not_valid() throws Exception {
 
@@ -156,6 +215,38 @@ public class AccountServiceITTest {
 
     }
 
+    @Test
+    public void verify_account_balances_after_transfer_are_consistent() {
+
+        BankAccount source = mockAccount(new BigDecimal(1000L), AccountStatus.ACTIVE, AccountCurrency.EUR);
+        BankAccount destination = mockAccount(BigDecimal.ZERO, AccountStatus.ACTIVE, AccountCurrency.EUR);
+        AccountTransfer transfer = accountService.createAccountTransfer(source, destination, BigDecimal.TEN, "Test");
+        accountService.executeTransfer(transfer.getId());
+        backAccountRepository.flush();
+
+        List<String> results = accountService.verifyAccountBalances();
+
+        assertThat(results.contains(source.getIbanNumber()), is(false));
+        assertThat(results.contains(destination.getIbanNumber()), is(false));
+        assertThat(results.contains("TESTS020903200500041045040A111"), is(false));
+    }
+
+    @Test
+    public void executing_transfer_again_does_not_post_transactions_twice() {
+
+        BankAccount source = mockAccount(new BigDecimal(1000L), AccountStatus.ACTIVE, AccountCurrency.EUR);
+        BankAccount destination = mockAccount(BigDecimal.ZERO, AccountStatus.ACTIVE, AccountCurrency.EUR);
+        AccountTransfer transfer = accountService.createAccountTransfer(source, destination, BigDecimal.TEN, "Test");
+
+        accountService.executeTransfer(transfer.getId());
+        AccountTransfer result = accountService.executeTransfer(transfer.getId());
+
+        assertThat(result.getStatus(), is(equalTo(TransferStatus.EXECUTED)));
+        assertThat(result.getSource().getBalance().longValue(), is(equalTo(990L)));
+        assertThat(result.getDestination().getBalance().longValue(), is(equalTo(10L)));
+        assertThat(result.getDestination().getTransactions().size(), is(equalTo(1)));
+    }
+
     @Test
     public void transfer_from_eur_to_pound_converts_the_rate() {
 
@@ -353,6 +444,166 @@ public class AccountServiceITTest {
     }
 
 
+    @Test
+    public void pages_through_accounts_ordered_by_balance() {
+
+        mockAccount(new BigDecimal(90L), AccountStatus.ACTIVE, AccountCurrency.EUR);
+        mockAccount(new BigDecimal(90L), AccountStatus.ACTIVE, AccountCurrency.GBP);
+
+        BankAccountSearch unpaged = new BankAccountSearch();
+        unpaged.setOrderCondition(new OrderCondition(OrderBy.ASC, BankAccountQueryField.BALANCE));
+        List<BankAccountResult> expected = accountService.findBankAccountsBy(unpaged);
+
+        List<BankAccountResult> paged = new ArrayList<>();
+        String continuationToken = null;
+
+        do {
+            BankAccountSearch search = new BankAccountSearch();
+            search.setOrderCondition(new OrderCondition(OrderBy.ASC, BankAccountQueryField.BALANCE));
+            search.setPageSize(2);
+            search.setContinuationToken(continuationToken);
+
+            SearchPage<BankAccountResult> page = accountService.findBankAccountPageBy(search);
+            assertThat(page.getResults().size(), is(lessThanOrEqualTo(2)));
+
+            paged.addAll(page.getResults());
+            continuationToken = page.getContinuationToken();
+
+        } while (Objects.nonNull(continuationToken));
+
+        assertThat(paged.size(), is(equalTo(expected.size())));
+        assertThat(new HashSet<>(paged), is(equalTo(new HashSet<>(expected))));
+
+        for (int i = 1; i < paged.size(); i++) {
+            assertThat(paged.get(i).balance().compareTo(paged.get(i - 1).balance()), is(greaterThanOrEqualTo(0)));
+        }
+    }
+
+    @Test
+    public void stream_accounts_returns_same_results_as_search() {
+
+        mockAccount(new BigDecimal(90L), AccountStatus.ACTIVE, AccountCurrency.EUR);
+
+        BankAccountSearch search = new BankAccountSearch();
+        search.setOrderCondition(new OrderCondition(OrderBy.ASC, BankAccountQueryField.BALANCE));
+        List<BankAccountResult> expected = accountService.findBankAccountsBy(search);
+
+        search.setFetchSize(2);
+
+        List<BankAccountResult> streamed;
+        try (Stream<BankAccountResult> results = accountService.streamBankAccountsBy(search)) {
+            streamed = results.collect(Collectors.toList());
+        }
+
+        assertThat(streamed, is(equalTo(expected)));
+    }
+
+    @Test
+    public void pages_through_transfers_ordered_by_id() {
+
+        BankAccount source = mockAccount(new BigDecimal(1000L), AccountStatus.ACTIVE, AccountCurrency.EUR);
+        BankAccount destination = mockAccount(BigDecimal.ZERO, AccountStatus.ACTIVE, AccountCurrency.EUR);
+
+        for (int i = 0; i < 5; i++) {
+            accountService.createAccountTransfer(source, destination, BigDecimal.TEN, "paged transfer " + i);
+        }
+
+        QueryCondition sourceCondition = new QueryCondition(TransferQueryField.SOURCE, Operator.EQUALS, source.getIbanNumber());
+
+        TransferSearch firstPage = transferSearch(null, sourceCondition);
+        firstPage.setPageSize(3);
+        SearchPage<TransferAccountResult> first = accountService.findTransferPageBy(firstPage);
+
+        TransferSearch secondPage = transferSearch(null, sourceCondition);
+        secondPage.setPageSize(3);
+        secondPage.setContinuationToken(first.getContinuationToken());
+        SearchPage<TransferAccountResult> second = accountService.findTransferPageBy(secondPage);
+
+        assertThat(first.getResults().size(), is(equalTo(3)));
+        assertThat(first.hasNext(), is(true));
+        assertThat(second.getResults().size(), is(equalTo(2)));
+        assertThat(second.hasNext(), is(false));
+        assertThat(second.getResults().get(0).getTransferId(), is(greaterThan(first.getResults().get(2).getTransferId())));
+    }
+
+
+    @Test
+    public void find_accounts_within_balance_range_and_iban_numbers() {
+
+        BankAccount low = mockAccount(new BigDecimal(5L), AccountStatus.ACTIVE, AccountCurrency.EUR);
+        BankAccount middle = mockAccount(new BigDecimal(50L), AccountStatus.ACTIVE, AccountCurrency.EUR);
+        BankAccount high = mockAccount(new BigDecimal(500L), AccountStatus.ACTIVE, AccountCurrency.EUR);
+
+        List<String> ibanNumbers = Arrays.asList(low.getIbanNumber(), middle.getIbanNumber(), high.getIbanNumber());
+
+        List<BankAccountResult> results = accountService.findBankAccountsBy(toBankAccountSearchWith(
+                new QueryCondition(BankAccountQueryField.IBAN_NUMBER, Operator.IN, ibanNumbers),
+                new QueryCondition(BankAccountQueryField.BALANCE, Operator.BETWEEN, new Range<>(new BigDecimal(10L), new BigDecimal(100L)))));
+
+        assertThat(results.size(), is(equalTo(1)));
+        assertThat(results.get(0).ibanNumber(), is(equalTo(middle.getIbanNumber())));
+
+        results = accountService.findBankAccountsBy(toBankAccountSearchWith(
+                new QueryCondition(BankAccountQueryField.IBAN_NUMBER, Operator.IN, ibanNumbers),
+                new QueryCondition(BankAccountQueryField.BALANCE, Operator.GREATER_THAN, new BigDecimal(5L))));
+
+        assertThat(results.size(), is(equalTo(2)));
+    }
+
+    @Test
+    public void find_transfers_sent_within_time_window() {
+
+        BankAccount source = mockAccount(new BigDecimal(1000L), AccountStatus.ACTIVE, AccountCurrency.EUR);
+        BankAccount destination = mockAccount(BigDecimal.ZERO, AccountStatus.ACTIVE, AccountCurrency.EUR);
+
+        LocalDateTime windowStart = LocalDateTime.of(2019, 3, 1, 0, 0);
+
+        for (int day = 0; day < 5; day++) {
+            accountService.persistTransfer(new AccountTransfer(source, destination, BigDecimal.TEN,
+                    "window transfer " + day, windowStart.minusDays(1).plusDays(day)));
+        }
+
+        QueryCondition sourceCondition = new QueryCondition(TransferQueryField.SOURCE, Operator.EQUALS, source.getIbanNumber());
+        QueryCondition sentCondition = new QueryCondition(TransferQueryField.SENT, Operator.BETWEEN,
+                new Range<>(windowStart, windowStart.plusDays(2)));
+
+        List<TransferAccountResult> results = accountService.findTransfersBy(transferSearch(null, sourceCondition, sentCondition));
+
+        assertThat(results.size(), is(equalTo(3)));
+        assertThat(results.stream().allMatch(r -> !r.getTransferSent().isBefore(windowStart)
+                && !r.getTransferSent().isAfter(windowStart.plusDays(2))), is(true));
+
+        QueryCondition sentBefore = new QueryCondition(TransferQueryField.SENT, Operator.LOWER_THAN, windowStart);
+
+        assertThat(accountService.findTransfersBy(transferSearch(null, sourceCondition, sentBefore)).size(), is(equalTo(1)));
+    }
+
+    @Test
+    public void cached_account_search_is_invalidated_by_executed_transfer() {
+
+        SearchResultCache cache = new SearchResultCache(10, Duration.ofHours(1));
+        AccountService cachedService = new BankAccountServiceImpl(backAccountRepository, accountTransferJPARespository,
+                currencyConverter, false, cache);
+
+        BankAccount source = mockAccount(new BigDecimal(100L), AccountStatus.ACTIVE, AccountCurrency.EUR);
+        BankAccount destination = mockAccount(BigDecimal.ZERO, AccountStatus.ACTIVE, AccountCurrency.EUR);
+        BankAccount other = mockAccount(BigDecimal.ZERO, AccountStatus.ACTIVE, AccountCurrency.GBP);
+
+        BankAccountSearch sourceSearch = toBankAccountSearchWith(
+                new QueryCondition(BankAccountQueryField.IBAN_NUMBER, Operator.EQUALS, source.getIbanNumber()));
+        BankAccountSearch otherSearch = toBankAccountSearchWith(
+                new QueryCondition(BankAccountQueryField.IBAN_NUMBER, Operator.EQUALS, other.getIbanNumber()));
+
+        assertThat(cachedService.findBankAccountsBy(sourceSearch).get(0).balance().longValue(), is(equalTo(100L)));
+        cachedService.findBankAccountsBy(otherSearch);
+
+        cachedService.executeTransfer(cachedService.createAccountTransfer(source, destination, BigDecimal.TEN, "cached"));
+
+        assertThat(cache.getSize(), is(equalTo(1)));
+        assertThat(cachedService.findBankAccountsBy(sourceSearch).get(0).balance().longValue(), is(equalTo(90L)));
+        assertThat(cache.getHits(), is(equalTo(0L)));
+    }
+
     private void assertResultMatchEntity(BankAccountResult result, BankAccount bankAccount) {
 
         assertThat(result.status().name(), is(equalTo(bankAccount.getStatus().name())));
@@ -389,6 +640,43 @@ public class AccountServiceITTest {
 
     }
 
+    @Test
+    public void account_totals_grouped_by_currency_and_status_are_computed_by_the_database() {
+
+        BankAccountTotalsSearch search = new BankAccountTotalsSearch();
+        search.addCondition(new QueryCondition(BankAccountQueryField.IBAN_NUMBER, Operator.IN, TEST_DATA_IBANS));
+        search.groupBy(BankAccountQueryField.CURRENCY);
+        search.groupBy(BankAccountQueryField.STATUS);
+
+        List<BankAccountTotalsResult> totals = accountService.findBankAccountTotalsBy(search);
+
+        assertThat(totals.size(), is(equalTo(3)));
+
+        BankAccountTotalsResult eurActive = totals.stream()
+                .filter(t -> t.currency() == AccountCurrency.EUR && t.status() == AccountStatus.ACTIVE)
+                .findFirst().get();
+
+        assertThat(eurActive.accounts(), is(equalTo(3L)));
+        assertThat(eurActive.totalBalance().compareTo(new BigDecimal(1010L)), is(equalTo(0)));
+        assertThat(eurActive.minBalance().compareTo(ZERO), is(equalTo(0)));
+        assertThat(eurActive.maxBalance().compareTo(new BigDecimal(1010L)), is(equalTo(0)));
+    }
+
+    @Test
+    public void account_totals_without_grouping_return_one_total_of_the_matching_accounts() {
+
+        BankAccountTotalsSearch search = new BankAccountTotalsSearch();
+        search.addCondition(new QueryCondition(BankAccountQueryField.IBAN_NUMBER, Operator.IN, TEST_DATA_IBANS));
+        search.addCondition(new QueryCondition(BankAccountQueryField.BALANCE, Operator.GREATER_THAN, ZERO));
+
+        List<BankAccountTotalsResult> totals = accountService.findBankAccountTotalsBy(search);
+
+        assertThat(totals.size(), is(equalTo(1)));
+        assertThat(totals.get(0).currency(), is(nullValue()));
+        assertThat(totals.get(0).accounts(), is(equalTo(3L)));
+        assertThat(totals.get(0).totalBalance().compareTo(new BigDecimal(1600L)), is(equalTo(0)));
+    }
+
     BankAccountSearch toBankAccountSearchWith(QueryCondition... conditions) {
 
         BankAccountSearch search = new BankAccountSearch();
@@ -0,0 +1,160 @@
+package com.murray.financial.service;
+
+import com.murray.financial.domain.entity.AccountTransfer;
+import com.murray.financial.domain.entity.BankAccount;
+import com.murray.financial.domain.entity.Transaction;
+import com.murray.financial.domain.enums.AccountCurrency;
+import com.murray.financial.domain.enums.TransferStatus;
+import com.murray.financial.domain.repository.AccountTransferJPARespository;
+import com.murray.financial.domain.repository.BackAccountJPARepository;
+import com.murray.financial.service.impl.OptimisticLockRetryPolicy;
+import com.murray.financial.service.impl.QueuedTransferExecutionServiceImpl;
+import com.murray.financial.service.untils.IBANNumberUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.Is.is;
+import static org.hamcrest.core.IsEqual.equalTo;
+import static org.hamcrest.core.IsNull.notNullValue;
+
+/**
+ * Transfers are executed by the worker threads, so the test accounts are committed
+ * instead of using the rolled back test-data.sql
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest
+public class AsyncTransferExecutionServiceITTest {
+
+    @Autowired
+    private AccountService accountService;
+
+    @Autowired
+    private BackAccountJPARepository backAccountRepository;
+
+    @Autowired
+    private AccountTransferJPARespository accountTransferJPARespository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private AccountLockManager accountLockManager;
+
+    @Autowired
+    private OptimisticLockRetryPolicy retryPolicy;
+
+    private QueuedTransferExecutionServiceImpl transferExecutionService;
+
+    private final List<Long> transferIds = new ArrayList<>();
+
+    @Before
+    public void setup() {
+
+        transferExecutionService = new QueuedTransferExecutionServiceImpl(accountService, accountTransferJPARespository,
+                transactionManager, accountLockManager, retryPolicy, 2, 10, Duration.ofMinutes(10));
+    }
+
+    @After
+    public void tearDown() {
+
+        transferExecutionService.shutdown();
+        accountTransferJPARespository.deleteAll(accountTransferJPARespository.findAllById(transferIds));
+    }
+
+    @Test
+    public void submitted_transfer_is_pending_until_executed_by_worker() throws InterruptedException {
+
+        BankAccount source = createAccount(new BigDecimal(100L));
+        BankAccount destination = createAccount(BigDecimal.ZERO);
+        AccountTransfer transfer = createTransfer(source, destination);
+
+        AccountTransfer submitted = transferExecutionService.submit(transfer.getId());
+        assertThat(submitted.getStatus(), is(equalTo(TransferStatus.PENDING)));
+
+        AccountTransfer executed = waitUntilDone(transfer.getId());
+
+        assertThat(executed.getStatus(), is(equalTo(TransferStatus.EXECUTED)));
+        assertThat(executed.getTimeStamp(), is(notNullValue()));
+        assertThat(backAccountRepository.findById(destination.getId()).get().getBalance().compareTo(BigDecimal.TEN), is(equalTo(0)));
+    }
+
+    @Test
+    public void failed_transfer_records_failure_reason() throws InterruptedException {
+
+        BankAccount source = createAccount(new BigDecimal(100L));
+        BankAccount destination = createAccount(BigDecimal.ZERO);
+        AccountTransfer transfer = createTransfer(source, destination);
+
+        accountService.deleteAccount(destination.getIbanNumber());
+
+        transferExecutionService.submit(transfer.getId());
+
+        AccountTransfer failed = waitUntilDone(transfer.getId());
+
+        assertThat(failed.getStatus(), is(equalTo(TransferStatus.FAILED)));
+        assertThat(failed.getFailureReason(), is(notNullValue()));
+    }
+
+    @Test
+    public void transfer_left_pending_by_a_stopped_node_is_queued_again() throws InterruptedException {
+
+        BankAccount source = createAccount(new BigDecimal(100L));
+        BankAccount destination = createAccount(BigDecimal.ZERO);
+        AccountTransfer transfer = createTransfer(source, destination);
+
+        transfer.setStatus(TransferStatus.PENDING);
+        transfer.setQueuedOn(LocalDateTime.now().minusMinutes(5));
+        accountTransferJPARespository.save(transfer);
+
+        AccountTransfer stillPending = transferExecutionService.submit(transfer.getId());
+        assertThat(stillPending.getStatus(), is(equalTo(TransferStatus.PENDING)));
+        assertThat(stillPending.getQueuedOn().isBefore(LocalDateTime.now().minusMinutes(4)), is(true));
+
+        transfer = accountTransferJPARespository.findById(transfer.getId()).get();
+        transfer.setQueuedOn(LocalDateTime.now().minusMinutes(11));
+        accountTransferJPARespository.save(transfer);
+
+        transferExecutionService.submit(transfer.getId());
+
+        assertThat(waitUntilDone(transfer.getId()).getStatus(), is(equalTo(TransferStatus.EXECUTED)));
+    }
+
+    private AccountTransfer createTransfer(BankAccount source, BankAccount destination) {
+
+        AccountTransfer transfer = accountTransferJPARespository.save(new AccountTransfer(source, destination, BigDecimal.TEN, "async transfer"));
+        transferIds.add(transfer.getId());
+        return transfer;
+    }
+
+    private BankAccount createAccount(BigDecimal deposit) {
+
+        return backAccountRepository.save(new BankAccount(IBANNumberUtils.createIBANNumber(AccountCurrency.EUR.randomCountryCode()),
+                AccountCurrency.EUR, new Transaction(deposit, "test deposit")));
+    }
+
+    private AccountTransfer waitUntilDone(Long transferId) throws InterruptedException {
+
+        for (int i = 0; i < 100; i++) {
+            AccountTransfer transfer = accountTransferJPARespository.findById(transferId).get();
+            if (transfer.getStatus() == TransferStatus.EXECUTED || transfer.getStatus() == TransferStatus.FAILED) {
+                return transfer;
+            }
+            Thread.sleep(50L);
+        }
+
+        return accountTransferJPARespository.findById(transferId).get();
+    }
+}
@@ -0,0 +1,67 @@
+package com.murray.financial.service;
+
+import com.murray.financial.domain.repository.IdempotencyRecordJPARepository;
+import com.murray.financial.service.impl.DatabaseIdempotencyStoreImpl;
+import com.murray.financial.service.impl.InMemoryIdempotencyStoreImpl;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.Duration;
+import java.util.UUID;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.Is.is;
+import static org.hamcrest.core.IsEqual.equalTo;
+
+/**
+ * The reservations are committed in their own transaction, so the store is not run in a
+ * rolled back test transaction and each test uses its own key
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest
+public class DatabaseIdempotencyStoreITTest {
+
+    @Autowired
+    private IdempotencyRecordJPARepository idempotencyRecordRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Test
+    public void key_is_reserved_by_one_request_across_the_nodes() {
+
+        IdempotencyStore firstNode = nodeStore();
+        IdempotencyStore secondNode = nodeStore();
+        String key = UUID.randomUUID().toString();
+
+        assertThat(firstNode.reserve(key, "op").isPresent(), is(false));
+        assertThat(secondNode.reserve(key, "op").get().isPending(), is(true));
+
+        firstNode.complete(key, "{\"id\":1}");
+
+        assertThat(secondNode.reserve(key, "op").get().getResponse(), is(equalTo("{\"id\":1}")));
+    }
+
+    @Test
+    public void released_key_can_be_reserved_again() {
+
+        IdempotencyStore firstNode = nodeStore();
+        IdempotencyStore secondNode = nodeStore();
+        String key = UUID.randomUUID().toString();
+
+        firstNode.reserve(key, "op");
+        firstNode.release(key);
+
+        assertThat(secondNode.reserve(key, "op").isPresent(), is(false));
+    }
+
+    private IdempotencyStore nodeStore() {
+
+        return new DatabaseIdempotencyStoreImpl(idempotencyRecordRepository, transactionManager, Duration.ofHours(1),
+                Duration.ofMinutes(5), new InMemoryIdempotencyStoreImpl(10, Duration.ofHours(1), Duration.ofMinutes(5)));
+    }
+}
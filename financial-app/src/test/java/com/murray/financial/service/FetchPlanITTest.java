@@ -0,0 +1,126 @@
+package com.murray.financial.service;
+
+import com.murray.financial.domain.entity.AccountTransfer;
+import com.murray.financial.domain.entity.BankAccount;
+import com.murray.financial.dtos.BankAccountDTO;
+import com.murray.financial.dtos.TransferDTO;
+import org.hibernate.Hibernate;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.core.convert.ConversionService;
+import org.springframework.test.context.jdbc.Sql;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import java.math.BigDecimal;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.Is.is;
+import static org.hamcrest.core.IsEqual.equalTo;
+
+/**
+ * Counts the SQL statements prepared by each operation so lazy loads of the transfer accounts
+ * or of the account transactions are caught as soon as they creep back in.
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest
+@Transactional
+@Sql("classpath:test-data.sql")
+public class FetchPlanITTest {
+
+    private static final String SOURCE_IBAN = "TESTS020903200500041045040A111";
+    private static final String DESTINATION_IBAN = "TESTS020903200500041045040A112";
+
+    @Autowired
+    private AccountService accountService;
+
+    @Autowired
+    private ConversionService conversionService;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private Statistics statistics;
+
+    @Before
+    public void setup() {
+
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+        statistics.setStatisticsEnabled(true);
+    }
+
+    @After
+    public void tearDown() {
+
+        statistics.setStatisticsEnabled(false);
+    }
+
+    @Test
+    public void execute_transfer_loads_transfer_and_accounts_in_one_statement() {
+
+        Long transferId = createTransfer();
+
+        AccountTransfer result = accountService.executeTransfer(transferId);
+        TransferDTO dto = conversionService.convert(result, TransferDTO.class);
+        entityManager.flush();
+
+        // select transfer with accounts, insert debit and credit, update both accounts, update transfer
+        assertThat(statistics.getPrepareStatementCount(), is(equalTo(4L)));
+        assertThat(statistics.getEntityFetchCount(), is(equalTo(0L)));
+        assertThat(statistics.getCollectionFetchCount(), is(equalTo(0L)));
+        assertThat(Hibernate.isInitialized(result.getSource().getTransactions()), is(false));
+        assertThat(dto.getSource(), is(equalTo(SOURCE_IBAN)));
+        assertThat(dto.getDestination(), is(equalTo(DESTINATION_IBAN)));
+    }
+
+    @Test
+    public void find_transfer_and_convert_runs_one_statement() {
+
+        Long transferId = createTransfer();
+
+        TransferDTO dto = conversionService.convert(accountService.findTransferById(transferId).get(), TransferDTO.class);
+
+        assertThat(statistics.getPrepareStatementCount(), is(equalTo(1L)));
+        assertThat(dto.getSource(), is(equalTo(SOURCE_IBAN)));
+        assertThat(dto.getDestination(), is(equalTo(DESTINATION_IBAN)));
+    }
+
+    @Test
+    public void find_account_and_convert_does_not_load_transactions() {
+
+        BankAccount account = accountService.findAccountBy(SOURCE_IBAN).get();
+        BankAccountDTO dto = conversionService.convert(account, BankAccountDTO.class);
+
+        assertThat(statistics.getPrepareStatementCount(), is(equalTo(1L)));
+        assertThat(statistics.getCollectionFetchCount(), is(equalTo(0L)));
+        assertThat(dto.getBalance().compareTo(new BigDecimal(1010L)), is(equalTo(0)));
+    }
+
+    /**
+     * Creates and flushes a transfer, then clears the session so the operation under test
+     * starts from an empty persistence context
+     */
+    private Long createTransfer() {
+
+        AccountTransfer transfer = accountService.createAccountTransfer(accountService.findAccountBy(SOURCE_IBAN).get(),
+                accountService.findAccountBy(DESTINATION_IBAN).get(), BigDecimal.TEN, "fetch plan test");
+
+        entityManager.flush();
+        entityManager.clear();
+        statistics.clear();
+
+        return transfer.getId();
+    }
+}
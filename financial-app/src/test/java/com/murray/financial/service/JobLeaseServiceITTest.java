@@ -0,0 +1,99 @@
+package com.murray.financial.service;
+
+import com.murray.financial.domain.repository.JobLeaseJPARepository;
+import com.murray.financial.service.impl.DatabaseJobLeaseServiceImpl;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Duration;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.Is.is;
+import static org.hamcrest.core.IsEqual.equalTo;
+
+
+@RunWith(SpringRunner.class)
+@SpringBootTest
+@Transactional
+public class JobLeaseServiceITTest {
+
+    private static final String JOB_NAME = "test-job";
+
+    @Autowired
+    private JobLeaseJPARepository jobLeaseRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private DatabaseJobLeaseServiceImpl nodeOne;
+
+    private DatabaseJobLeaseServiceImpl nodeTwo;
+
+    @Before
+    public void setup() {
+
+        nodeOne = new DatabaseJobLeaseServiceImpl(jobLeaseRepository, transactionManager, "node-1", Duration.ofMinutes(5));
+        nodeTwo = new DatabaseJobLeaseServiceImpl(jobLeaseRepository, transactionManager, "node-2", Duration.ofMinutes(5));
+    }
+
+    @After
+    public void tearDown() {
+
+        nodeOne.shutdown();
+        nodeTwo.shutdown();
+    }
+
+    @Test
+    public void only_one_node_acquires_the_lease() {
+
+        assertThat(nodeOne.tryAcquire(JOB_NAME), is(true));
+        assertThat(nodeTwo.tryAcquire(JOB_NAME), is(false));
+        assertThat(jobLeaseRepository.findById(JOB_NAME).get().getOwner(), is(equalTo("node-1")));
+    }
+
+    @Test
+    public void released_lease_is_acquired_by_another_node() {
+
+        nodeOne.tryAcquire(JOB_NAME);
+        nodeOne.release(JOB_NAME);
+
+        assertThat(nodeTwo.tryAcquire(JOB_NAME), is(true));
+        assertThat(jobLeaseRepository.findById(JOB_NAME).get().getOwner(), is(equalTo("node-2")));
+    }
+
+    @Test
+    public void expired_lease_is_acquired_by_another_node() {
+
+        DatabaseJobLeaseServiceImpl expiredNode =
+                new DatabaseJobLeaseServiceImpl(jobLeaseRepository, transactionManager, "node-3", Duration.ofSeconds(-1));
+
+        assertThat(expiredNode.tryAcquire(JOB_NAME), is(true));
+        expiredNode.shutdown();
+
+        assertThat(nodeTwo.tryAcquire(JOB_NAME), is(true));
+    }
+
+    @Test
+    public void lease_is_held_until_released_or_expired() {
+
+        DatabaseJobLeaseServiceImpl expiredNode =
+                new DatabaseJobLeaseServiceImpl(jobLeaseRepository, transactionManager, "node-3", Duration.ofSeconds(-1));
+
+        assertThat(nodeOne.tryAcquire(JOB_NAME), is(true));
+        assertThat(nodeOne.isHeld(JOB_NAME), is(true));
+
+        nodeOne.release(JOB_NAME);
+        assertThat(nodeOne.isHeld(JOB_NAME), is(false));
+
+        assertThat(expiredNode.tryAcquire(JOB_NAME), is(true));
+        assertThat(expiredNode.isHeld(JOB_NAME), is(false));
+        expiredNode.shutdown();
+    }
+}
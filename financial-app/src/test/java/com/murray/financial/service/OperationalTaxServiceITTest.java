@@ -0,0 +1,223 @@
+package com.murray.financial.service;
+
+import com.murray.financial.domain.entity.BankAccount;
+import com.murray.financial.domain.entity.IdGenerators;
+import com.murray.financial.domain.entity.TaxJobPartition;
+import com.murray.financial.domain.entity.TaxJobRun;
+import com.murray.financial.domain.enums.TaxJobRunStatus;
+import com.murray.financial.domain.repository.BackAccountJPARepository;
+import com.murray.financial.domain.repository.TaxJobPartitionJPARepository;
+import com.murray.financial.domain.repository.TaxJobRunJPARepository;
+import com.murray.financial.service.impl.OperationalTaxServiceImpl;
+import com.murray.financial.service.impl.TableIdBlockAllocator;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.jdbc.Sql;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.greaterThanOrEqualTo;
+import static org.hamcrest.core.Is.is;
+import static org.hamcrest.core.IsEqual.equalTo;
+
+
+@RunWith(SpringRunner.class)
+@SpringBootTest
+@Transactional
+@Sql("classpath:test-data.sql")
+public class OperationalTaxServiceITTest {
+
+    private static final BigDecimal RATE = new BigDecimal("0.01");
+    private static final String NODE_ID = "node-1";
+
+    @Autowired
+    private BackAccountJPARepository backAccountRepository;
+
+    @Autowired
+    private TaxJobRunJPARepository taxJobRunRepository;
+
+    @Autowired
+    private TaxJobPartitionJPARepository taxJobPartitionRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private TableIdBlockAllocator idBlockAllocator;
+
+    private OperationalTaxService operationalTaxService;
+
+    @Before
+    public void setup() {
+
+        operationalTaxService = new OperationalTaxServiceImpl(backAccountRepository, taxJobRunRepository, taxJobPartitionRepository,
+                transactionManager, 2, 1, NODE_ID, Duration.ofMinutes(5), idBlockAllocator);
+    }
+
+    @Test
+    public void tax_run_adds_tax_transaction_and_updates_balance() {
+
+        TaxRunReport report = operationalTaxService.runTaxWith(RATE);
+
+        BankAccount account = backAccountRepository.findFirstByIbanNumberEquals("TESTS020903200500041045040A111");
+
+        assertThat(account.getBalance(), is(equalTo(new BigDecimal("1020.10"))));
+        assertThat(account.getTransactions().size(), is(equalTo(3)));
+        assertThat(account.isBalanceConsistent(), is(true));
+        assertThat(report.getTransactionsInserted(), is(greaterThanOrEqualTo(3L)));
+        assertThat(report.getAccountsUpdated(), is(equalTo(report.getTransactionsInserted())));
+    }
+
+    @Test
+    public void tax_run_skips_accounts_with_zero_balance() {
+
+        operationalTaxService.runTaxWith(RATE);
+
+        BankAccount account = backAccountRepository.findFirstByIbanNumberEquals("TESTS020903200500041045040A112");
+
+        assertThat(account.getBalance().signum(), is(equalTo(0)));
+        assertThat(account.getTransactions().size(), is(equalTo(0)));
+    }
+
+    @Test
+    public void tax_run_processes_accounts_in_chunks() {
+
+        long accounts = backAccountRepository.findMaxId() - backAccountRepository.findMinId() + 1;
+
+        TaxRunReport report = operationalTaxService.runTaxWith(RATE);
+
+        assertThat(report.getChunks(), is(equalTo((int) ((accounts + 1) / 2))));
+    }
+
+    @Test
+    public void completed_tax_run_records_checkpoint() {
+
+        TaxRunReport report = operationalTaxService.runTaxWith(RATE);
+
+        TaxJobRun run = taxJobRunRepository.findById(report.getRunId()).get();
+
+        List<TaxJobPartition> partitions = taxJobPartitionRepository.findByTaxJobRunIdOrderByFromAccountId(run.getId());
+
+        assertThat(run.getStatus(), is(equalTo(TaxJobRunStatus.COMPLETED)));
+        assertThat(run.getTransactionsInserted(), is(equalTo(report.getTransactionsInserted())));
+        assertThat(partitions.size(), is(equalTo(1)));
+        assertThat(partitions.get(0).getLastCompletedId(), is(equalTo(run.getToAccountId())));
+        assertThat(report.isResumed(), is(false));
+    }
+
+    @Test
+    public void unfinished_tax_run_resumes_from_last_completed_chunk() {
+
+        TaxJobRun unfinished = taxJobRunRepository.save(
+                new TaxJobRun(RATE, backAccountRepository.findMinId(), backAccountRepository.findMaxId(), 2L));
+        TaxJobPartition partition = unfinished.createPartitions(1).get(0);
+        partition.setLastCompletedId(112L);
+        taxJobPartitionRepository.save(partition);
+
+        TaxRunReport report = operationalTaxService.runTaxWith(RATE);
+
+        assertThat(report.getRunId(), is(equalTo(unfinished.getId())));
+        assertThat(report.isResumed(), is(true));
+        assertThat(backAccountRepository.findFirstByIbanNumberEquals("TESTS020903200500041045040A111").getBalance(),
+                is(equalTo(new BigDecimal("1010.00"))));
+        assertThat(backAccountRepository.findFirstByIbanNumberEquals("TESTS020903200500041045040A113").getBalance(),
+                is(equalTo(new BigDecimal("90.90"))));
+    }
+
+    @Test
+    public void repeated_chunk_never_charges_an_account_twice() {
+
+        TaxJobRun run = taxJobRunRepository.save(new TaxJobRun(RATE, 111L, 115L, 5L));
+
+        int firstInserted = backAccountRepository.insertTaxRateTransactions(run.getId(), RATE, OperationalTaxService.OPERATIONAL_BANKING_TAX,
+                idBlockAllocator.allocate(IdGenerators.TRANSACTION, 5L), 111L, 115L);
+        backAccountRepository.updateBalancesWithTaxRate(run.getId(), RATE, 111L, 115L);
+
+        int secondInserted = backAccountRepository.insertTaxRateTransactions(run.getId(), RATE, OperationalTaxService.OPERATIONAL_BANKING_TAX,
+                idBlockAllocator.allocate(IdGenerators.TRANSACTION, 5L), 111L, 115L);
+        int secondUpdated = backAccountRepository.updateBalancesWithTaxRate(run.getId(), RATE, 111L, 115L);
+
+        assertThat(firstInserted, is(equalTo(3)));
+        assertThat(secondInserted, is(equalTo(0)));
+        assertThat(secondUpdated, is(equalTo(0)));
+        assertThat(backAccountRepository.findFirstByIbanNumberEquals("TESTS020903200500041045040A115").getBalance(),
+                is(equalTo(new BigDecimal("505.00"))));
+    }
+
+    @Test
+    public void chunk_accounts_are_locked_before_they_are_charged() {
+
+        List<Long> locked = backAccountRepository.lockAccountsBetween(112L, 114L);
+
+        assertThat(locked.size(), is(equalTo(3)));
+        assertThat(locked.stream().allMatch(id -> id >= 112L && id <= 114L), is(true));
+    }
+
+    @Test
+    public void partition_claimed_by_another_node_is_skipped() {
+
+        TaxJobRun unfinished = taxJobRunRepository.save(
+                new TaxJobRun(RATE, backAccountRepository.findMinId(), backAccountRepository.findMaxId(), 2L));
+        TaxJobPartition partition = unfinished.createPartitions(1).get(0);
+        partition.setOwner("node-2");
+        partition.setLeaseExpiresOn(LocalDateTime.now().plusMinutes(5));
+        taxJobPartitionRepository.save(partition);
+
+        TaxRunReport report = operationalTaxService.runTaxWith(RATE);
+
+        assertThat(report.getRunId(), is(equalTo(unfinished.getId())));
+        assertThat(report.getChunks(), is(equalTo(0)));
+        assertThat(taxJobRunRepository.findById(unfinished.getId()).get().getStatus(), is(equalTo(TaxJobRunStatus.RUNNING)));
+        assertThat(backAccountRepository.findFirstByIbanNumberEquals("TESTS020903200500041045040A111").getBalance(),
+                is(equalTo(new BigDecimal("1010.00"))));
+    }
+
+    @Test
+    public void partition_checkpoint_is_only_moved_by_the_lease_owner() {
+
+        TaxJobRun run = taxJobRunRepository.save(new TaxJobRun(RATE, 111L, 115L, 5L));
+        TaxJobPartition partition = run.createPartitions(1).get(0);
+        partition.setOwner("node-2");
+        partition.setLeaseExpiresOn(LocalDateTime.now().plusMinutes(5));
+        partition = taxJobPartitionRepository.save(partition);
+
+        LocalDateTime now = LocalDateTime.now();
+
+        assertThat(taxJobPartitionRepository.extendLease(partition.getId(), NODE_ID, now, now.plusMinutes(5)), is(equalTo(0)));
+        assertThat(taxJobPartitionRepository.extendLease(partition.getId(), "node-2", now, now.plusMinutes(5)), is(equalTo(1)));
+        assertThat(taxJobPartitionRepository.extendLease(partition.getId(), "node-2", now.plusMinutes(10), now.plusMinutes(15)),
+                is(equalTo(0)));
+    }
+
+    @Test
+    public void run_stops_charging_once_the_job_lease_is_lost() {
+
+        TaxRunReport report = operationalTaxService.runTaxWith(RATE, () -> false);
+
+        assertThat(report.getChunks(), is(equalTo(0)));
+        assertThat(taxJobRunRepository.findById(report.getRunId()).get().getStatus(), is(equalTo(TaxJobRunStatus.RUNNING)));
+        assertThat(backAccountRepository.findFirstByIbanNumberEquals("TESTS020903200500041045040A111").getBalance(),
+                is(equalTo(new BigDecimal("1010.00"))));
+    }
+
+    @Test
+    public void completed_run_is_never_marked_as_failed() {
+
+        TaxRunReport report = operationalTaxService.runTaxWith(RATE);
+
+        int updated = taxJobRunRepository.updateUnfinishedStatus(report.getRunId(), TaxJobRunStatus.FAILED, TaxJobRunStatus.COMPLETED);
+
+        assertThat(updated, is(equalTo(0)));
+        assertThat(taxJobRunRepository.findById(report.getRunId()).get().getStatus(), is(equalTo(TaxJobRunStatus.COMPLETED)));
+    }
+}
@@ -0,0 +1,94 @@
+package com.murray.financial.service;
+
+import com.murray.financial.domain.entity.BankAccount;
+import com.murray.financial.domain.entity.TaxJobPartition;
+import com.murray.financial.domain.entity.Transaction;
+import com.murray.financial.domain.enums.AccountCurrency;
+import com.murray.financial.domain.enums.TaxJobRunStatus;
+import com.murray.financial.domain.repository.BackAccountJPARepository;
+import com.murray.financial.domain.repository.TaxJobPartitionJPARepository;
+import com.murray.financial.domain.repository.TaxJobRunJPARepository;
+import com.murray.financial.service.impl.OperationalTaxServiceImpl;
+import com.murray.financial.service.impl.TableIdBlockAllocator;
+import com.murray.financial.service.untils.IBANNumberUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.Is.is;
+import static org.hamcrest.core.IsEqual.equalTo;
+
+/**
+ * Partitions are committed by the worker threads, so the test accounts are committed
+ * instead of using the rolled back test-data.sql
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest
+public class OperationalTaxServiceParallelITTest {
+
+    private static final BigDecimal RATE = new BigDecimal("0.01");
+
+    @Autowired
+    private BackAccountJPARepository backAccountRepository;
+
+    @Autowired
+    private TaxJobRunJPARepository taxJobRunRepository;
+
+    @Autowired
+    private TaxJobPartitionJPARepository taxJobPartitionRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private TableIdBlockAllocator idBlockAllocator;
+
+    private OperationalTaxServiceImpl operationalTaxService;
+
+    @Before
+    public void setup() {
+
+        operationalTaxService = new OperationalTaxServiceImpl(backAccountRepository, taxJobRunRepository, taxJobPartitionRepository,
+                transactionManager, 2, 3, "node-1", Duration.ofMinutes(5), idBlockAllocator);
+    }
+
+    @After
+    public void tearDown() {
+
+        operationalTaxService.shutdown();
+    }
+
+    @Test
+    public void partitions_are_charged_concurrently() {
+
+        List<String> ibanNumbers = new ArrayList<>();
+        for (int i = 0; i < 6; i++) {
+            BankAccount account = new BankAccount(IBANNumberUtils.createIBANNumber(AccountCurrency.EUR.randomCountryCode()),
+                    AccountCurrency.EUR, new Transaction(new BigDecimal(100L), "test deposit"));
+            ibanNumbers.add(backAccountRepository.save(account).getIbanNumber());
+        }
+
+        TaxRunReport report = operationalTaxService.runTaxWith(RATE);
+
+        List<TaxJobPartition> partitions = taxJobPartitionRepository.findByTaxJobRunIdOrderByFromAccountId(report.getRunId());
+
+        assertThat(report.getPartitions(), is(equalTo(3)));
+        assertThat(partitions.size(), is(equalTo(3)));
+        partitions.forEach(partition -> assertThat(partition.getStatus(), is(equalTo(TaxJobRunStatus.COMPLETED))));
+        assertThat(taxJobRunRepository.findById(report.getRunId()).get().getStatus(), is(equalTo(TaxJobRunStatus.COMPLETED)));
+
+        ibanNumbers.forEach(iban -> assertThat(backAccountRepository.findFirstByIbanNumberEquals(iban).getBalance(),
+                is(equalTo(new BigDecimal("101.00")))));
+    }
+}
@@ -0,0 +1,156 @@
+package com.murray.financial.service;
+
+import com.murray.financial.adapter.impl.AccountsAdapterImpl;
+import com.murray.financial.domain.entity.BankAccount;
+import com.murray.financial.domain.entity.Transaction;
+import com.murray.financial.domain.enums.AccountCurrency;
+import com.murray.financial.domain.enums.AccountStatus;
+import com.murray.financial.domain.repository.BackAccountJPARepository;
+import com.murray.financial.dtos.BankAccountDTO;
+import com.murray.financial.service.impl.OptimisticLockRetryPolicy;
+import com.murray.financial.service.untils.IBANNumberUtils;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.core.convert.ConversionService;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.Is.is;
+import static org.hamcrest.core.IsEqual.equalTo;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.spy;
+
+/**
+ * Version conflicts are only detected when the competing update is committed, so the
+ * test accounts are committed instead of using the rolled back test-data.sql
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest
+public class OptimisticLockRetryITTest {
+
+    @Autowired
+    private BackAccountJPARepository backAccountRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private AccountService accountService;
+
+    @Autowired
+    private ConversionService conversionService;
+
+    @Test(expected = OptimisticLockingFailureException.class)
+    public void concurrent_account_update_is_detected() {
+
+        BankAccount account = createAccount();
+
+        BankAccount stale = backAccountRepository.findById(account.getId()).get();
+
+        updateStatusInNewTransaction(account.getId(), AccountStatus.DISABLED);
+
+        stale.setStatus(AccountStatus.ACTIVE);
+        backAccountRepository.save(stale);
+    }
+
+    @Test
+    public void conflicting_transaction_is_retried_with_fresh_account() {
+
+        BankAccount account = createAccount();
+        OptimisticLockRetryPolicy retryPolicy = new OptimisticLockRetryPolicy(3, Duration.ofMillis(1), Duration.ofMillis(5));
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        AtomicInteger attempts = new AtomicInteger();
+
+        BankAccount updated = retryPolicy.execute(() -> transactionTemplate.execute(status -> {
+
+            BankAccount current = backAccountRepository.findById(account.getId()).get();
+
+            if (attempts.incrementAndGet() == 1) {
+                updateStatusInNewTransaction(account.getId(), AccountStatus.DISABLED);
+            }
+
+            current.add(new Transaction(BigDecimal.TEN, "retried deposit"));
+            return current;
+        }));
+
+        assertThat(attempts.get(), is(equalTo(2)));
+        assertThat(retryPolicy.getRetries(), is(equalTo(1L)));
+
+        BankAccount reloaded = backAccountRepository.findById(updated.getId()).get();
+        assertThat(reloaded.getStatus(), is(equalTo(AccountStatus.DISABLED)));
+        assertThat(reloaded.getBalance().compareTo(new BigDecimal(110L)), is(equalTo(0)));
+        assertThat(reloaded.getVersion(), is(equalTo(2L)));
+    }
+
+    @Test
+    public void conflicting_account_update_is_retried_with_fresh_account() {
+
+        BankAccount account = createAccount();
+        OptimisticLockRetryPolicy retryPolicy = new OptimisticLockRetryPolicy(3, Duration.ofMillis(1), Duration.ofMillis(5));
+        AccountService conflictingService = spy(accountService);
+        AtomicInteger attempts = new AtomicInteger();
+
+        doAnswer(invocation -> {
+
+            Object updated = invocation.callRealMethod();
+
+            if (attempts.incrementAndGet() == 1) {
+                depositInNewTransaction(account.getId(), BigDecimal.TEN);
+            }
+
+            return updated;
+        }).when(conflictingService).updateAccount(any(BankAccount.class));
+
+        AccountsAdapterImpl accountsAdapter = new AccountsAdapterImpl(conversionService, conflictingService, null, null,
+                null, retryPolicy, transactionManager, 500, 1000, 1000);
+
+        BankAccountDTO updated = accountsAdapter.update(new BankAccountDTO(account.getIbanNumber(), "EUR", null, "DISABLED", null));
+
+        assertThat(attempts.get(), is(equalTo(2)));
+        assertThat(retryPolicy.getRetries(), is(equalTo(1L)));
+        assertThat(updated.getStatus(), is(equalTo("DISABLED")));
+
+        BankAccount reloaded = backAccountRepository.findById(account.getId()).get();
+        assertThat(reloaded.getStatus(), is(equalTo(AccountStatus.DISABLED)));
+        assertThat(reloaded.getBalance().compareTo(new BigDecimal(110L)), is(equalTo(0)));
+    }
+
+    private BankAccount createAccount() {
+
+        return backAccountRepository.save(new BankAccount(IBANNumberUtils.createIBANNumber(AccountCurrency.EUR.randomCountryCode()),
+                AccountCurrency.EUR, new Transaction(new BigDecimal(100L), "test deposit")));
+    }
+
+    private void depositInNewTransaction(Long accountId, BigDecimal amount) {
+
+        TransactionTemplate requiresNew = new TransactionTemplate(transactionManager);
+        requiresNew.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+
+        requiresNew.execute(status -> {
+            backAccountRepository.findById(accountId).get().add(new Transaction(amount, "concurrent deposit"));
+            return null;
+        });
+    }
+
+    private void updateStatusInNewTransaction(Long accountId, AccountStatus accountStatus) {
+
+        TransactionTemplate requiresNew = new TransactionTemplate(transactionManager);
+        requiresNew.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+
+        requiresNew.execute(status -> {
+            backAccountRepository.findById(accountId).get().setStatus(accountStatus);
+            return null;
+        });
+    }
+}
@@ -0,0 +1,84 @@
+package com.murray.financial.service;
+
+import com.murray.financial.domain.entity.BankAccount;
+import com.murray.financial.domain.entity.IdGenerators;
+import com.murray.financial.domain.entity.Transaction;
+import com.murray.financial.domain.enums.AccountCurrency;
+import com.murray.financial.domain.repository.BackAccountJPARepository;
+import com.murray.financial.service.impl.TableIdBlockAllocator;
+import com.murray.financial.service.untils.IBANNumberUtils;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.Is.is;
+import static org.hamcrest.core.IsEqual.equalTo;
+
+/**
+ * The block and the Hibernate pools are reserved in their own transactions, so the
+ * transactions are committed instead of using the rolled back test-data.sql
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest
+public class TableIdBlockAllocatorITTest {
+
+    private static final long BLOCK_SIZE = 5L;
+
+    @Autowired
+    private BackAccountJPARepository backAccountRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private TableIdBlockAllocator idBlockAllocator;
+
+    @Test
+    public void block_does_not_overlap_the_ids_generated_by_hibernate() {
+
+        List<Long> hibernateIds = new ArrayList<>(saveTransactions(1));
+
+        long first = idBlockAllocator.allocate(IdGenerators.TRANSACTION, BLOCK_SIZE);
+        long last = first + BLOCK_SIZE - 1;
+
+        // uses up the rest of the pool Hibernate reserved before the block
+        hibernateIds.addAll(saveTransactions(Integer.parseInt(IdGenerators.INCREMENT_SIZE)));
+
+        assertThat(hibernateIds.stream().anyMatch(id -> id >= first && id <= last), is(false));
+        assertThat(idBlockAllocator.allocate(IdGenerators.TRANSACTION, BLOCK_SIZE) > last, is(true));
+    }
+
+    @Test
+    public void consecutive_blocks_are_adjacent() {
+
+        long first = idBlockAllocator.allocate(IdGenerators.TRANSACTION, BLOCK_SIZE);
+
+        assertThat(idBlockAllocator.allocate(IdGenerators.TRANSACTION, BLOCK_SIZE), is(equalTo(first + BLOCK_SIZE)));
+    }
+
+    private List<Long> saveTransactions(int count) {
+
+        return new TransactionTemplate(transactionManager).execute(status -> {
+
+            BankAccount account = new BankAccount(IBANNumberUtils.createIBANNumber(AccountCurrency.EUR.randomCountryCode()),
+                    AccountCurrency.EUR, new Transaction(BigDecimal.ONE, "test deposit"));
+
+            for (int i = 1; i < count; i++) {
+                account.add(new Transaction(BigDecimal.ONE, "test deposit " + i));
+            }
+
+            List<Long> ids = new ArrayList<>();
+            backAccountRepository.saveAndFlush(account).getTransactions().forEach(transaction -> ids.add(transaction.getId()));
+            return ids;
+        });
+    }
+}
@@ -0,0 +1,2 @@
+-- baseline changed after it was applied, the migrator must refuse to start
+create table changed_baseline (id bigint not null);
@@ -1,11 +1,16 @@
 package com.murray.financial.domain.entity;
 
+import com.murray.financial.domain.enums.AccountCurrency;
+import com.murray.financial.domain.enums.TransferStatus;
 import com.murray.financial.domain.repository.query.TransferAccountResult;
 import com.murray.financial.exceptions.TransferCreationException;
 import com.murray.financial.querybuilder.SearchableEntity;
 import lombok.AllArgsConstructor;
 import lombok.Data;
+import lombok.EqualsAndHashCode;
 import lombok.NoArgsConstructor;
+import org.hibernate.annotations.GenericGenerator;
+import org.hibernate.annotations.Parameter;
 
 import javax.persistence.*;
 import java.io.Serializable;
@@ -18,10 +23,21 @@ import java.util.Objects;
  * source to a destination account for a specific getAmount.
  */
 @Data
+@EqualsAndHashCode(exclude = "version")
 @AllArgsConstructor
 @NoArgsConstructor
 @Entity(name = "AccountTransfer")
-@Table(name = "account_transfer")
+@Table(name = "account_transfer", indexes = {
+        @Index(name = "idx_account_transfer_source", columnList = "source_account_id, timestamp"),
+        @Index(name = "idx_account_transfer_destination", columnList = "destination_account_id, timestamp"),
+        @Index(name = "idx_account_transfer_timestamp", columnList = "timestamp"),
+        @Index(name = "idx_account_transfer_source_iban", columnList = "source_iban_number, timestamp"),
+        @Index(name = "idx_account_transfer_destination_iban", columnList = "destination_iban_number, timestamp")
+})
+@NamedEntityGraph(name = AccountTransfer.WITH_ACCOUNTS, attributeNodes = {
+        @NamedAttributeNode("source"),
+        @NamedAttributeNode("destination")
+})
 @SqlResultSetMapping(name = TransferAccountResult.TRANSFER_ACCOUNT_RESULTS, classes = {
         @ConstructorResult(targetClass = TransferAccountResult.class,
                 columns = {
@@ -34,14 +50,35 @@ import java.util.Objects;
 })
 public class AccountTransfer implements Serializable, SearchableEntity {
 
+    /**
+     * Fetch plan loading the source and destination accounts along with the transfer
+     */
+    public static final String WITH_ACCOUNTS = "AccountTransfer.withAccounts";
+
     /**
      * Internal unique id .
      */
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.TABLE, generator = "account_transfer_id")
+    @GenericGenerator(name = "account_transfer_id", strategy = IdGenerators.STRATEGY, parameters = {
+            @Parameter(name = "table_name", value = IdGenerators.TABLE),
+            @Parameter(name = "segment_column_name", value = IdGenerators.SEGMENT_COLUMN),
+            @Parameter(name = "value_column_name", value = IdGenerators.VALUE_COLUMN),
+            @Parameter(name = "segment_value", value = IdGenerators.ACCOUNT_TRANSFER),
+            @Parameter(name = "initial_value", value = IdGenerators.INITIAL_VALUE),
+            @Parameter(name = "increment_size", value = IdGenerators.INCREMENT_SIZE),
+            @Parameter(name = "optimizer", value = IdGenerators.OPTIMIZER)
+    })
     @Column(name = "id")
     private Long id;
 
+    /**
+     * Optimistic lock version, incremented on every update
+     */
+    @Version
+    @Column(name = "version", nullable = false)
+    private Long version;
+
     /**
      * The source {@link BankAccount} where the getAmount should be debit from their
      * getBalance
@@ -57,6 +94,32 @@ public class AccountTransfer implements Serializable, SearchableEntity {
     @JoinColumn(name = "destination_account_id", nullable = false)
     private BankAccount destination;
 
+    /**
+     * IBAN number of the source account, copied from the account so the searches do not join it
+     */
+    @Column(name = "source_iban_number", nullable = false)
+    private String sourceIbanNumber;
+
+    /**
+     * Currency of the source account when the transfer was created or executed
+     */
+    @Column(name = "source_currency", nullable = false)
+    @Enumerated(EnumType.STRING)
+    private AccountCurrency sourceCurrency;
+
+    /**
+     * IBAN number of the destination account, copied from the account so the searches do not join it
+     */
+    @Column(name = "destination_iban_number", nullable = false)
+    private String destinationIbanNumber;
+
+    /**
+     * Currency of the destination account when the transfer was created or executed
+     */
+    @Column(name = "destination_currency", nullable = false)
+    @Enumerated(EnumType.STRING)
+    private AccountCurrency destinationCurrency;
+
     /**
      * The transfer getAmount which will be move from the source to the destination
      */
@@ -75,6 +138,25 @@ public class AccountTransfer implements Serializable, SearchableEntity {
     @Column(name = "description", nullable = false)
     private String description;
 
+    /**
+     * The transfer execution {@link TransferStatus}
+     */
+    @Column(name = "status")
+    @Enumerated(EnumType.STRING)
+    private TransferStatus status = TransferStatus.CREATED;
+
+    /**
+     * Reason the transfer execution failed
+     */
+    @Column(name = "failure_reason")
+    private String failureReason;
+
+    /**
+     * Time the transfer was last queued for an asynchronous execution
+     */
+    @Column(name = "queued_on")
+    private LocalDateTime queuedOn;
+
     public AccountTransfer(BankAccount source, BankAccount destination, BigDecimal amount, String description) {
 
         validAccount(source, "Source account is not active");
@@ -84,6 +166,8 @@ public class AccountTransfer implements Serializable, SearchableEntity {
         this.destination = destination;
         this.amount = amount;
         this.description = description;
+
+        copyAccountDetails();
     }
 
     public AccountTransfer(BankAccount source, BankAccount destination, BigDecimal amount, String description,
@@ -93,6 +177,18 @@ public class AccountTransfer implements Serializable, SearchableEntity {
         this.timeStamp = timeStamp;
     }
 
+    /**
+     * Copies the IBAN number and currency of the source and destination accounts into the transfer,
+     * which the transfer searches filter and sort on.
+     */
+    public void copyAccountDetails() {
+
+        this.sourceIbanNumber = source.getIbanNumber();
+        this.sourceCurrency = source.getCurrency();
+        this.destinationIbanNumber = destination.getIbanNumber();
+        this.destinationCurrency = destination.getCurrency();
+    }
+
     /**
      * Validates the transfer getAmount to ensure its a positive value and that the source
      * account has this getAmount to transfer.
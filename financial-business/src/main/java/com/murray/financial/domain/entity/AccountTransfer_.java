@@ -0,0 +1,31 @@
+package com.murray.financial.domain.entity;
+
+import com.murray.financial.domain.enums.AccountCurrency;
+import com.murray.financial.domain.enums.TransferStatus;
+
+import javax.persistence.metamodel.SingularAttribute;
+import javax.persistence.metamodel.StaticMetamodel;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * Static metamodel of the {@link AccountTransfer}, populated by the persistence provider on start up
+ * and used to build the typed criteria searches.
+ */
+@StaticMetamodel(AccountTransfer.class)
+public abstract class AccountTransfer_ {
+
+    public static volatile SingularAttribute<AccountTransfer, Long> id;
+    public static volatile SingularAttribute<AccountTransfer, Long> version;
+    public static volatile SingularAttribute<AccountTransfer, BankAccount> source;
+    public static volatile SingularAttribute<AccountTransfer, BankAccount> destination;
+    public static volatile SingularAttribute<AccountTransfer, String> sourceIbanNumber;
+    public static volatile SingularAttribute<AccountTransfer, AccountCurrency> sourceCurrency;
+    public static volatile SingularAttribute<AccountTransfer, String> destinationIbanNumber;
+    public static volatile SingularAttribute<AccountTransfer, AccountCurrency> destinationCurrency;
+    public static volatile SingularAttribute<AccountTransfer, BigDecimal> amount;
+    public static volatile SingularAttribute<AccountTransfer, LocalDateTime> timeStamp;
+    public static volatile SingularAttribute<AccountTransfer, String> description;
+    public static volatile SingularAttribute<AccountTransfer, TransferStatus> status;
+    public static volatile SingularAttribute<AccountTransfer, String> failureReason;
+}
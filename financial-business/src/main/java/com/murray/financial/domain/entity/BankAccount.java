@@ -4,16 +4,19 @@ package com.murray.financial.domain.entity;
 import com.murray.financial.domain.enums.AccountCurrency;
 import com.murray.financial.domain.enums.AccountStatus;
 import com.murray.financial.domain.repository.query.BankAccountResult;
+import com.murray.financial.domain.repository.query.BankAccountTotalsResult;
 import com.murray.financial.querybuilder.SearchableEntity;
 import lombok.*;
+import org.hibernate.annotations.GenericGenerator;
+import org.hibernate.annotations.Parameter;
 
 import javax.persistence.*;
 import java.io.Serializable;
 import java.math.BigDecimal;
 import java.time.LocalDate;
-import java.util.LinkedHashSet;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Objects;
-import java.util.Set;
 
 /**
  * Represent a entity's bank account in the financial system.
@@ -21,19 +24,36 @@ import java.util.Set;
 @Data
 @AllArgsConstructor
 @NoArgsConstructor
-@EqualsAndHashCode(exclude = "transactions")
+@EqualsAndHashCode(exclude = {"transactions", "version"})
 @ToString(exclude = "transactions")
 @Entity(name = "BankAccount")
-@Table(name = "bank_account")
-@SqlResultSetMapping(name = BankAccountResult.BANK_ACCOUNT_RESULTS, classes = {
-        @ConstructorResult(targetClass = BankAccountResult.class,
-                columns = {
-                        @ColumnResult(name = "openedOn", type = LocalDate.class)
-                        , @ColumnResult(name = "ibanNumber", type = String.class)
-                        , @ColumnResult(name = "balance", type = BigDecimal.class)
-                        , @ColumnResult(name = "currency", type = String.class)
-                        , @ColumnResult(name = "status", type = String.class)
-                })
+@Table(name = "bank_account", indexes = {
+        @Index(name = "idx_bank_account_balance", columnList = "balance"),
+        @Index(name = "idx_bank_account_totals", columnList = "currency, status, balance")
+})
+@SqlResultSetMappings({
+        @SqlResultSetMapping(name = BankAccountResult.BANK_ACCOUNT_RESULTS, classes = {
+                @ConstructorResult(targetClass = BankAccountResult.class,
+                        columns = {
+                                @ColumnResult(name = "id", type = Long.class)
+                                , @ColumnResult(name = "openedOn", type = LocalDate.class)
+                                , @ColumnResult(name = "ibanNumber", type = String.class)
+                                , @ColumnResult(name = "balance", type = BigDecimal.class)
+                                , @ColumnResult(name = "currency", type = String.class)
+                                , @ColumnResult(name = "status", type = String.class)
+                        })
+        }),
+        @SqlResultSetMapping(name = BankAccountTotalsResult.BANK_ACCOUNT_TOTALS, classes = {
+                @ConstructorResult(targetClass = BankAccountTotalsResult.class,
+                        columns = {
+                                @ColumnResult(name = "currency", type = String.class)
+                                , @ColumnResult(name = "status", type = String.class)
+                                , @ColumnResult(name = "accounts", type = Long.class)
+                                , @ColumnResult(name = "totalBalance", type = BigDecimal.class)
+                                , @ColumnResult(name = "minBalance", type = BigDecimal.class)
+                                , @ColumnResult(name = "maxBalance", type = BigDecimal.class)
+                        })
+        })
 })
 public class BankAccount implements Serializable, SearchableEntity {
 
@@ -41,10 +61,34 @@ public class BankAccount implements Serializable, SearchableEntity {
      * Internal unique id
      */
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.TABLE, generator = "bank_account_id")
+    @GenericGenerator(name = "bank_account_id", strategy = IdGenerators.STRATEGY, parameters = {
+            @Parameter(name = "table_name", value = IdGenerators.TABLE),
+            @Parameter(name = "segment_column_name", value = IdGenerators.SEGMENT_COLUMN),
+            @Parameter(name = "value_column_name", value = IdGenerators.VALUE_COLUMN),
+            @Parameter(name = "segment_value", value = IdGenerators.BANK_ACCOUNT),
+            @Parameter(name = "initial_value", value = IdGenerators.INITIAL_VALUE),
+            @Parameter(name = "increment_size", value = IdGenerators.INCREMENT_SIZE),
+            @Parameter(name = "optimizer", value = IdGenerators.OPTIMIZER)
+    })
     @Column(name = "id")
     private Long id;
 
+    /**
+     * Id of the account in the csv file it was imported from, which the imported transfers refer to,
+     * as the internal id is taken from the id generator
+     */
+    @Column(name = "imported_id", unique = true)
+    private Long importedId;
+
+    /**
+     * Optimistic lock version, incremented on every update so concurrent changes
+     * to the same account are detected instead of overwriting each other
+     */
+    @Version
+    @Column(name = "version", nullable = false)
+    private Long version;
+
     /**
      * The account unique iban number
      */
@@ -72,10 +116,26 @@ public class BankAccount implements Serializable, SearchableEntity {
     private AccountStatus status;
 
     /**
-     * List of monetary getTransactions that make the account getBalance
+     * Materialized account balance, kept in line with the transactions each time a
+     * new transaction is added so it can be read without loading the transactions.
+     */
+    @Setter(AccessLevel.NONE)
+    @Column(name = "balance", nullable = false)
+    private BigDecimal balance = BigDecimal.ZERO;
+
+    /**
+     * Id of the last {@link TaxJobRun} that charged the account, which guards against
+     * charging an account twice when a run is resumed
+     */
+    @Column(name = "last_tax_job_run_id")
+    private Long lastTaxJobRunId;
+
+    /**
+     * List of monetary getTransactions that make the account getBalance. Mapped as a bag so
+     * adding a transaction to the lazy collection is queued instead of loading all of them.
      */
     @OneToMany(mappedBy = "bankAccount", cascade = CascadeType.ALL)
-    private Set<Transaction> transactions = new LinkedHashSet<>();
+    private List<Transaction> transactions = new ArrayList<>();
 
     public BankAccount(final String ibanNumber, final AccountCurrency currency) {
         this.ibanNumber = ibanNumber;
@@ -84,8 +144,8 @@ public class BankAccount implements Serializable, SearchableEntity {
         this.status = AccountStatus.ACTIVE;
     }
 
-    public BankAccount(final Long id, final String iban, final AccountCurrency currency, final Transaction openingDeposit) {
-        this.id = id;
+    public BankAccount(final Long importedId, final String iban, final AccountCurrency currency, final Transaction openingDeposit) {
+        this.importedId = importedId;
         this.ibanNumber = iban;
         this.currency = currency;
         this.openedOn = LocalDate.now();
@@ -101,18 +161,36 @@ public class BankAccount implements Serializable, SearchableEntity {
 
 
     /**
-     * Returns the current account getBalance by summing it's transaction amounts
+     * Returns the current account getBalance from the materialized balance column
      */
-    @Transient
     public BigDecimal getBalance() {
 
+        return balance;
+    }
+
+    /**
+     * Returns the account balance by summing it's transaction amounts, this loads
+     * all the transactions and should only be used to verify the materialized balance.
+     */
+    @Transient
+    public BigDecimal calculateTransactionsBalance() {
+
         return transactions.stream()
                 .map(Transaction::getAmount)
                 .reduce(BigDecimal.ZERO, BigDecimal::add);
     }
 
     /**
-     * Adds a new account transaction
+     * Boolean that indicates if the materialized balance matches the sum of the transactions.
+     */
+    public boolean isBalanceConsistent() {
+
+        return balance.compareTo(calculateTransactionsBalance()) == 0;
+    }
+
+    /**
+     * Adds a new account transaction and updates the account balance with
+     * the transaction amount.
      *
      * @param transaction
      */
@@ -121,6 +199,7 @@ public class BankAccount implements Serializable, SearchableEntity {
         if (Objects.nonNull(transaction) && transaction.getAmount().signum() != 0) {
             transaction.setBankAccount(this);
             this.transactions.add(transaction);
+            this.balance = this.balance.add(transaction.getAmount());
         }
 
     }
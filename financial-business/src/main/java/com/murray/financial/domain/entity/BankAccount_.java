@@ -0,0 +1,28 @@
+package com.murray.financial.domain.entity;
+
+import com.murray.financial.domain.enums.AccountCurrency;
+import com.murray.financial.domain.enums.AccountStatus;
+
+import javax.persistence.metamodel.ListAttribute;
+import javax.persistence.metamodel.SingularAttribute;
+import javax.persistence.metamodel.StaticMetamodel;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+/**
+ * Static metamodel of the {@link BankAccount}, populated by the persistence provider on start up
+ * and used to build the typed criteria searches.
+ */
+@StaticMetamodel(BankAccount.class)
+public abstract class BankAccount_ {
+
+    public static volatile SingularAttribute<BankAccount, Long> id;
+    public static volatile SingularAttribute<BankAccount, Long> version;
+    public static volatile SingularAttribute<BankAccount, String> ibanNumber;
+    public static volatile SingularAttribute<BankAccount, AccountCurrency> currency;
+    public static volatile SingularAttribute<BankAccount, LocalDate> openedOn;
+    public static volatile SingularAttribute<BankAccount, AccountStatus> status;
+    public static volatile SingularAttribute<BankAccount, BigDecimal> balance;
+    public static volatile SingularAttribute<BankAccount, Long> lastTaxJobRunId;
+    public static volatile ListAttribute<BankAccount, Transaction> transactions;
+}
@@ -0,0 +1,27 @@
+package com.murray.financial.domain.entity;
+
+/**
+ * Settings shared by the pooled table id generators of the entities inserted in bulk.
+ * Each entity has its own row (segment) in the generator table, the generator reserves
+ * a block of ids per round trip so Hibernate can batch the inserts, which is not possible
+ * with identity columns. Ids start at {@link #INITIAL_VALUE} leaving the lower ids to the
+ * reference data loaded by scripts. Entities saved through Hibernate always take a generated
+ * id, so the accounts loaded by the csv importer keep their file id as the imported id.
+ */
+public final class IdGenerators {
+
+    public static final String STRATEGY = "org.hibernate.id.enhanced.TableGenerator";
+    public static final String TABLE = "id_generator";
+    public static final String SEGMENT_COLUMN = "sequence_name";
+    public static final String VALUE_COLUMN = "next_val";
+    public static final String OPTIMIZER = "pooled-lo";
+    public static final String INITIAL_VALUE = "1000";
+    public static final String INCREMENT_SIZE = "50";
+
+    public static final String BANK_ACCOUNT = "bank_account";
+    public static final String TRANSACTION = "bank_account_transaction";
+    public static final String ACCOUNT_TRANSFER = "account_transfer";
+
+    private IdGenerators() {
+    }
+}
@@ -0,0 +1,62 @@
+package com.murray.financial.domain.entity;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import javax.persistence.*;
+import java.io.Serializable;
+import java.time.LocalDateTime;
+
+/**
+ * Entity representation of the response stored for a client idempotency key, a request
+ * repeated with the same key is answered with the stored response instead of being executed again.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Entity(name = "IdempotencyRecord")
+@Table(name = "idempotency_record")
+public class IdempotencyRecord implements Serializable {
+
+    /**
+     * Idempotency key sent by the client
+     */
+    @Id
+    @Column(name = "idempotency_key")
+    private String key;
+
+    /**
+     * Identifies the operation and request the key was first used with
+     */
+    @Column(name = "fingerprint", nullable = false)
+    private String fingerprint;
+
+    /**
+     * Serialized response returned to the first request, null while the request is executed
+     */
+    @Lob
+    @Column(name = "response")
+    private String response;
+
+    @Column(name = "created_on", nullable = false)
+    private LocalDateTime createdOn;
+
+    /**
+     * Once expired the key may be used for a new request, a pending key expires after the
+     * reservation timeout
+     */
+    @Column(name = "expires_on", nullable = false)
+    private LocalDateTime expiresOn;
+
+    public boolean isExpired(final LocalDateTime now) {
+        return expiresOn.isBefore(now);
+    }
+
+    /**
+     * @return true while the request holding the key has not completed
+     */
+    public boolean isPending() {
+        return response == null;
+    }
+}
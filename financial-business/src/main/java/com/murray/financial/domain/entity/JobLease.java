@@ -0,0 +1,49 @@
+package com.murray.financial.domain.entity;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import javax.persistence.*;
+import java.io.Serializable;
+import java.time.LocalDateTime;
+
+/**
+ * Entity representation of a scheduled job lease, only the node that owns a lease
+ * which has not expired is allowed to run the job.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Entity(name = "JobLease")
+@Table(name = "job_lease")
+public class JobLease implements Serializable {
+
+    /**
+     * Unique job name
+     */
+    @Id
+    @Column(name = "job_name")
+    private String jobName;
+
+    /**
+     * Node id of the current lease owner
+     */
+    @Column(name = "owner", nullable = false)
+    private String owner;
+
+    @Column(name = "acquired_on", nullable = false)
+    private LocalDateTime acquiredOn;
+
+    /**
+     * Last time the owner extended the lease
+     */
+    @Column(name = "heartbeat_on", nullable = false)
+    private LocalDateTime heartbeatOn;
+
+    /**
+     * Once expired any other node may acquire the lease
+     */
+    @Column(name = "expires_on", nullable = false)
+    private LocalDateTime expiresOn;
+}
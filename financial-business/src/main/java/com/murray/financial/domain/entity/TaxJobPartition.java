@@ -0,0 +1,113 @@
+package com.murray.financial.domain.entity;
+
+import com.murray.financial.domain.enums.TaxJobRunStatus;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import javax.persistence.*;
+import java.io.Serializable;
+import java.time.LocalDateTime;
+
+/**
+ * Entity representation of an account id range within a {@link TaxJobRun}, which is
+ * processed chunk by chunk by a single worker and records the last account id chunk
+ * that was committed.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Entity(name = "TaxJobPartition")
+@Table(name = "tax_job_partition")
+public class TaxJobPartition implements Serializable {
+
+    /**
+     * Internal unique id .
+     */
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @Column(name = "id")
+    private Long id;
+
+    /**
+     * Id of the {@link TaxJobRun} the partition belongs to
+     */
+    @Column(name = "tax_job_run_id", nullable = false)
+    private Long taxJobRunId;
+
+    @Column(name = "status", nullable = false)
+    @Enumerated(EnumType.STRING)
+    private TaxJobRunStatus status;
+
+    @Column(name = "from_account_id", nullable = false)
+    private Long fromAccountId;
+
+    @Column(name = "to_account_id", nullable = false)
+    private Long toAccountId;
+
+    /**
+     * Last account id of the latest committed chunk
+     */
+    @Column(name = "last_completed_id", nullable = false)
+    private Long lastCompletedId;
+
+    /**
+     * Node id that claimed the partition, other nodes may only claim it once the lease expires
+     */
+    @Column(name = "owner")
+    private String owner;
+
+    @Column(name = "lease_expires_on")
+    private LocalDateTime leaseExpiresOn;
+
+    @Column(name = "transactions_inserted", nullable = false)
+    private Long transactionsInserted = 0L;
+
+    @Column(name = "accounts_updated", nullable = false)
+    private Long accountsUpdated = 0L;
+
+    @Column(name = "completed_on")
+    private LocalDateTime completedOn;
+
+    public TaxJobPartition(final Long taxJobRunId, final Long fromAccountId, final Long toAccountId) {
+        this.taxJobRunId = taxJobRunId;
+        this.fromAccountId = fromAccountId;
+        this.toAccountId = toAccountId;
+        this.lastCompletedId = fromAccountId - 1;
+        this.status = TaxJobRunStatus.RUNNING;
+    }
+
+    /**
+     * Records a committed chunk as the partition checkpoint
+     *
+     * @param toId                 last account id of the chunk
+     * @param transactionsInserted number of tax transactions inserted in the chunk
+     * @param accountsUpdated      number of account balances updated in the chunk
+     */
+    public void chunkCompleted(final Long toId, final int transactionsInserted, final int accountsUpdated) {
+        this.lastCompletedId = toId;
+        this.transactionsInserted += transactionsInserted;
+        this.accountsUpdated += accountsUpdated;
+    }
+
+    /**
+     * Marks the partition as failed and releases it so any node can resume it
+     */
+    public void failed() {
+        this.status = TaxJobRunStatus.FAILED;
+        this.owner = null;
+        this.leaseExpiresOn = null;
+    }
+
+    public void completed() {
+        this.status = TaxJobRunStatus.COMPLETED;
+        this.completedOn = LocalDateTime.now();
+    }
+
+    /**
+     * Boolean that indicates if there are still account ids pending
+     */
+    public boolean hasPendingChunks() {
+        return lastCompletedId < toAccountId;
+    }
+}
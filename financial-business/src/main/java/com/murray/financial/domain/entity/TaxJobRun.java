@@ -0,0 +1,133 @@
+package com.murray.financial.domain.entity;
+
+import com.murray.financial.domain.enums.TaxJobRunStatus;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import javax.persistence.*;
+import java.io.Serializable;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Entity representation of an operational banking tax job run, the account id range
+ * of the run is split into {@link TaxJobPartition}s which record their own checkpoint
+ * so an interrupted run can be resumed.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Entity(name = "TaxJobRun")
+@Table(name = "tax_job_run")
+public class TaxJobRun implements Serializable {
+
+    /**
+     * Internal unique id .
+     */
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @Column(name = "id")
+    private Long id;
+
+    /**
+     * Tax rate applied during the run
+     */
+    @Column(name = "rate", nullable = false, precision = 19, scale = 8)
+    private BigDecimal rate;
+
+    @Column(name = "status", nullable = false)
+    @Enumerated(EnumType.STRING)
+    private TaxJobRunStatus status;
+
+    /**
+     * First account id covered by the run
+     */
+    @Column(name = "from_account_id", nullable = false)
+    private Long fromAccountId;
+
+    /**
+     * Last account id covered by the run, accounts opened after the run started are not charged
+     */
+    @Column(name = "to_account_id", nullable = false)
+    private Long toAccountId;
+
+    /**
+     * Number of account ids processed in each chunk
+     */
+    @Column(name = "chunk_size", nullable = false)
+    private Long chunkSize;
+
+    /**
+     * Number of partitions the account id range is split into
+     */
+    @Column(name = "partitions", nullable = false)
+    private Integer partitions;
+
+    @Column(name = "transactions_inserted", nullable = false)
+    private Long transactionsInserted = 0L;
+
+    @Column(name = "accounts_updated", nullable = false)
+    private Long accountsUpdated = 0L;
+
+    /**
+     * Fire time of the scheduled tick which started the run, unique so each tick is run once
+     * across the nodes, empty for the runs which were not started by the job
+     */
+    @Column(name = "scheduled_for", unique = true)
+    private LocalDateTime scheduledFor;
+
+    @Column(name = "started_on", nullable = false)
+    private LocalDateTime startedOn;
+
+    @Column(name = "completed_on")
+    private LocalDateTime completedOn;
+
+    public TaxJobRun(final BigDecimal rate, final Long fromAccountId, final Long toAccountId, final Long chunkSize) {
+        this(rate, fromAccountId, toAccountId, chunkSize, null);
+    }
+
+    public TaxJobRun(final BigDecimal rate, final Long fromAccountId, final Long toAccountId, final Long chunkSize,
+                     final LocalDateTime scheduledFor) {
+        this.rate = rate;
+        this.scheduledFor = scheduledFor;
+        this.fromAccountId = fromAccountId;
+        this.toAccountId = toAccountId;
+        this.chunkSize = chunkSize;
+        this.partitions = 0;
+        this.status = TaxJobRunStatus.RUNNING;
+        this.startedOn = LocalDateTime.now();
+    }
+
+    /**
+     * Splits the run account id range into equally sized partitions
+     *
+     * @param parallelism maximum number of partitions
+     * @return list of {@link TaxJobPartition}
+     */
+    public List<TaxJobPartition> createPartitions(final int parallelism) {
+
+        long size = (toAccountId - fromAccountId + parallelism) / parallelism;
+        List<TaxJobPartition> result = new ArrayList<>();
+
+        for (long from = fromAccountId; from <= toAccountId; from += size) {
+            result.add(new TaxJobPartition(id, from, Math.min(from + size - 1, toAccountId)));
+        }
+
+        this.partitions = result.size();
+
+        return result;
+    }
+
+    /**
+     * Completes the run with the totals of its partitions
+     */
+    public void completed(final List<TaxJobPartition> completedPartitions) {
+        this.transactionsInserted = completedPartitions.stream().mapToLong(TaxJobPartition::getTransactionsInserted).sum();
+        this.accountsUpdated = completedPartitions.stream().mapToLong(TaxJobPartition::getAccountsUpdated).sum();
+        this.status = TaxJobRunStatus.COMPLETED;
+        this.completedOn = LocalDateTime.now();
+    }
+}
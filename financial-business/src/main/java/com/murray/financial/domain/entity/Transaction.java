@@ -2,6 +2,8 @@ package com.murray.financial.domain.entity;
 
 import com.murray.financial.domain.enums.TransactionType;
 import lombok.*;
+import org.hibernate.annotations.GenericGenerator;
+import org.hibernate.annotations.Parameter;
 
 import javax.persistence.*;
 import java.io.Serializable;
@@ -18,14 +20,23 @@ import java.time.ZonedDateTime;
 @EqualsAndHashCode(exclude="bankAccount")
 @ToString(exclude ="bankAccount" )
 @Entity(name = "Transaction")
-@Table(name = "bank_account_transaction")
+@Table(name = "bank_account_transaction", indexes = @Index(name = "idx_bank_account_transaction_account", columnList = "bank_account_id"))
 public class Transaction implements Serializable {
 
     /**
      * internal unique id
      */
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.TABLE, generator = "transaction_id")
+    @GenericGenerator(name = "transaction_id", strategy = IdGenerators.STRATEGY, parameters = {
+            @Parameter(name = "table_name", value = IdGenerators.TABLE),
+            @Parameter(name = "segment_column_name", value = IdGenerators.SEGMENT_COLUMN),
+            @Parameter(name = "value_column_name", value = IdGenerators.VALUE_COLUMN),
+            @Parameter(name = "segment_value", value = IdGenerators.TRANSACTION),
+            @Parameter(name = "initial_value", value = IdGenerators.INITIAL_VALUE),
+            @Parameter(name = "increment_size", value = IdGenerators.INCREMENT_SIZE),
+            @Parameter(name = "optimizer", value = IdGenerators.OPTIMIZER)
+    })
     @Column(name = "id")
     private Long id;
 
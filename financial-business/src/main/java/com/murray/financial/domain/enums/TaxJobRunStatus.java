@@ -0,0 +1,14 @@
+package com.murray.financial.domain.enums;
+
+/**
+ * Represents the status of an operational banking tax job run
+ */
+public enum TaxJobRunStatus {
+
+    /* Run started and has chunks pending */
+    RUNNING,
+    /* Run stopped on an error and should be resumed */
+    FAILED,
+    /* All the chunks have been processed */
+    COMPLETED
+}
@@ -0,0 +1,16 @@
+package com.murray.financial.domain.enums;
+
+/**
+ * Represents the execution status of an account transfer
+ */
+public enum TransferStatus {
+
+    /* Transfer created and not yet executed */
+    CREATED,
+    /* Transfer queued for an asynchronous execution */
+    PENDING,
+    /* Source debited and destination credited */
+    EXECUTED,
+    /* Transfer could not be executed */
+    FAILED
+}
@@ -3,8 +3,10 @@ package com.murray.financial.domain.repository;
 import com.murray.financial.domain.repository.query.BankAccountResult;
 import com.murray.financial.domain.repository.query.BankAccountSearch;
 import com.murray.financial.querybuilder.QueryCondition;
+import com.murray.financial.querybuilder.SearchPage;
 
 import java.util.List;
+import java.util.stream.Stream;
 
 /**
  * Account transfer customized fragment interface that
@@ -25,4 +27,22 @@ public interface AccountTransferJPACustomRepository<T, Q> {
      */
     List<T> searchBy(final Q searchQuery);
 
+    /**
+     * Find a single page of results, ordered by the search ordering condition and the row id.
+     * The following page is read by setting the returned continuation token on the search query.
+     *
+     * @param searchQuery search query defining the page size and continuation token
+     * @return {@link SearchPage}
+     */
+    SearchPage<T> searchPageBy(final Q searchQuery);
+
+    /**
+     * Stream all the results using a forward only cursor which fetches the search query fetch size
+     * rows at a time. The stream must be consumed within a transaction and closed.
+     *
+     * @param searchQuery search query which is used to generate the native query
+     * @return {@link Stream} of results
+     */
+    Stream<T> streamBy(final Q searchQuery);
+
 }
@@ -1,8 +1,72 @@
 package com.murray.financial.domain.repository;
 
 import com.murray.financial.domain.entity.AccountTransfer;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
 
 public interface AccountTransferJPARespository extends JpaRepository<AccountTransfer, Long>, AccountTransferJPACustomRepository {
 
+    /**
+     * Find the transfer along with its source and destination accounts in a single query
+     */
+    @EntityGraph(AccountTransfer.WITH_ACCOUNTS)
+    Optional<AccountTransfer> findWithAccountsById(final Long id);
+
+    /**
+     * Find the transfers along with their source and destination accounts in a single query
+     */
+    @Query("SELECT t FROM AccountTransfer t JOIN FETCH t.source JOIN FETCH t.destination WHERE t.id IN :ids")
+    List<AccountTransfer> findAllWithAccountsByIdIn(@Param("ids") final Collection<Long> ids);
+
+    /**
+     * Find the source and destination account ids of each transfer without loading the accounts
+     */
+    @Query("SELECT t.source.id, t.destination.id FROM AccountTransfer t WHERE t.id IN :ids")
+    List<Object[]> findAccountIdPairsByIdIn(@Param("ids") final Collection<Long> ids);
+
+    /**
+     * Find the id, source and destination account ids of each transfer without loading the accounts
+     */
+    @Query("SELECT t.id, t.source.id, t.destination.id FROM AccountTransfer t WHERE t.id IN :ids")
+    List<Object[]> findAccountIdTriplesByIdIn(@Param("ids") final Collection<Long> ids);
+
+    /**
+     * @return the source and destination account ids of each transfer, by transfer id
+     */
+    default Map<Long, Set<Long>> findAccountIdsByTransferOf(final Collection<Long> ids) {
+
+        Map<Long, Set<Long>> accountIds = new HashMap<>();
+
+        for (Object[] triple : findAccountIdTriplesByIdIn(ids)) {
+            accountIds.put((Long) triple[0], new HashSet<>(Arrays.asList((Long) triple[1], (Long) triple[2])));
+        }
+
+        return accountIds;
+    }
+
+    /**
+     * @return the distinct ids of the accounts involved in the transfers
+     */
+    default Set<Long> findAccountIdsOf(final Collection<Long> ids) {
+
+        Set<Long> accountIds = new HashSet<>();
+
+        for (Object[] pair : findAccountIdPairsByIdIn(ids)) {
+            accountIds.add((Long) pair[0]);
+            accountIds.add((Long) pair[1]);
+        }
+
+        return accountIds;
+    }
 }
@@ -1,11 +1,92 @@
 package com.murray.financial.domain.repository;
 
 import com.murray.financial.domain.entity.BankAccount;
+import com.murray.financial.domain.repository.query.BankAccountResult;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.math.BigDecimal;
+import java.util.Collection;
+import java.util.List;
 
 
 public interface BackAccountJPARepository extends JpaRepository<BankAccount, Long>, BankAccountJPACustomRepository {
 
 
     BankAccount findFirstByIbanNumberEquals(final String ibanNumber);
+
+    BankAccount findFirstByImportedIdEquals(final Long importedId);
+
+    /**
+     * Find the accounts of the IBAN numbers with their materialized balance in a single query,
+     * without loading the account entities
+     */
+    @Query("SELECT new com.murray.financial.domain.repository.query.BankAccountResult(b.id, b.openedOn, b.ibanNumber, " +
+            "b.balance, b.currency, b.status) FROM BankAccount b WHERE b.ibanNumber IN :ibanNumbers")
+    List<BankAccountResult> findResultsByIbanNumberIn(@Param("ibanNumbers") final Collection<String> ibanNumbers);
+
+    /**
+     * Find the IBAN numbers of the accounts whose materialized balance does not
+     * match the sum of their transaction amounts.
+     */
+    @Query(value = "SELECT b.iban_number FROM bank_account b " +
+            "LEFT JOIN bank_account_transaction t ON t.bank_account_id = b.id " +
+            "GROUP BY b.id, b.iban_number, b.balance " +
+            "HAVING b.balance <> COALESCE(SUM(t.amount), 0)", nativeQuery = true)
+    List<String> findIbanNumbersWithInconsistentBalance();
+
+    @Query("SELECT MIN(b.id) FROM BankAccount b")
+    Long findMinId();
+
+    @Query("SELECT MAX(b.id) FROM BankAccount b")
+    Long findMaxId();
+
+    /**
+     * Locks the accounts within the id range until the end of the transaction, so their balances
+     * can not change between {@link #insertTaxRateTransactions} and {@link #updateBalancesWithTaxRate}
+     * and both statements compute the same tax amount.
+     *
+     * @return ids of the locked accounts
+     */
+    @Query(value = "SELECT b.id FROM bank_account b WHERE b.id BETWEEN :fromId AND :toId FOR UPDATE", nativeQuery = true)
+    List<Long> lockAccountsBetween(@Param("fromId") Long fromId, @Param("toId") Long toId);
+
+    /**
+     * Inserts a tax {@link com.murray.financial.domain.entity.Transaction} for every account
+     * within the id range using a single INSERT..SELECT, the amount is the account balance
+     * multiplied by the rate and rounded to the transaction amount scale. Accounts whose tax
+     * amount would be zero, or that were already charged by the run, are skipped.
+     * Must be executed after {@link #lockAccountsBetween} and before {@link #updateBalancesWithTaxRate}
+     * as it reads the current balance.
+     * The transaction ids are taken from a block reserved from the id generator starting at
+     * firstId, which must hold at least toId - fromId + 1 ids.
+     *
+     * @return number of transactions inserted
+     */
+    @Modifying
+    @Query(value = "INSERT INTO bank_account_transaction (id, amount, created_on, description, type, bank_account_id) " +
+            "SELECT :firstId + b.id - :fromId, ROUND(b.balance * :rate, 2), CURRENT_TIMESTAMP, :description, " +
+            "CASE WHEN ROUND(b.balance * :rate, 2) > 0 THEN 'CREDIT' ELSE 'DEBIT' END, b.id " +
+            "FROM bank_account b " +
+            "WHERE b.id BETWEEN :fromId AND :toId AND ROUND(b.balance * :rate, 2) <> 0 " +
+            "AND (b.last_tax_job_run_id IS NULL OR b.last_tax_job_run_id <> :runId)", nativeQuery = true)
+    int insertTaxRateTransactions(@Param("runId") Long runId, @Param("rate") BigDecimal rate, @Param("description") String description,
+                                  @Param("firstId") Long firstId, @Param("fromId") Long fromId, @Param("toId") Long toId);
+
+    /**
+     * Adds the tax amount to the materialized balance of every account within the id range,
+     * using the same rounding as {@link #insertTaxRateTransactions}, and marks the accounts
+     * as charged by the run. The version is incremented so concurrent entity updates of
+     * the same accounts fail with an optimistic lock conflict.
+     *
+     * @return number of accounts updated
+     */
+    @Modifying(clearAutomatically = true)
+    @Query(value = "UPDATE bank_account SET balance = balance + ROUND(balance * :rate, 2), last_tax_job_run_id = :runId, " +
+            "version = version + 1 WHERE id BETWEEN :fromId AND :toId AND ROUND(balance * :rate, 2) <> 0 " +
+            "AND (last_tax_job_run_id IS NULL OR last_tax_job_run_id <> :runId)", nativeQuery = true)
+    int updateBalancesWithTaxRate(@Param("runId") Long runId, @Param("rate") BigDecimal rate,
+                                  @Param("fromId") Long fromId, @Param("toId") Long toId);
 }
@@ -0,0 +1,55 @@
+package com.murray.financial.domain.repository;
+
+import com.murray.financial.domain.entity.IdempotencyRecord;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.LocalDateTime;
+
+public interface IdempotencyRecordJPARepository extends JpaRepository<IdempotencyRecord, String> {
+
+    /**
+     * Reserves the key with a pending record, fails with a duplicate key when the key is
+     * already held by another request
+     */
+    @Modifying
+    @Query(value = "INSERT INTO idempotency_record (idempotency_key, fingerprint, created_on, expires_on) " +
+            "VALUES (:key, :fingerprint, :now, :expiresOn)", nativeQuery = true)
+    int reserve(@Param("key") String key, @Param("fingerprint") String fingerprint,
+                @Param("now") LocalDateTime now, @Param("expiresOn") LocalDateTime expiresOn);
+
+    /**
+     * Stores the response of a pending key
+     *
+     * @return 0 when the key is no longer pending
+     */
+    @Modifying
+    @Query("UPDATE IdempotencyRecord r SET r.response = :response, r.expiresOn = :expiresOn " +
+            "WHERE r.key = :key AND r.response IS NULL")
+    int complete(@Param("key") String key, @Param("response") String response, @Param("expiresOn") LocalDateTime expiresOn);
+
+    /**
+     * Removes the pending record of the key
+     */
+    @Modifying
+    @Query("DELETE FROM IdempotencyRecord r WHERE r.key = :key AND r.response IS NULL")
+    int deletePending(@Param("key") String key);
+
+    /**
+     * Removes the record of the key when it expired before the given time
+     */
+    @Modifying
+    @Query("DELETE FROM IdempotencyRecord r WHERE r.key = :key AND r.expiresOn < :now")
+    int deleteExpired(@Param("key") String key, @Param("now") LocalDateTime now);
+
+    /**
+     * Removes the records which expired before the given time
+     *
+     * @return number of records removed
+     */
+    @Modifying
+    @Query("DELETE FROM IdempotencyRecord r WHERE r.expiresOn < :now")
+    int deleteExpired(@Param("now") LocalDateTime now);
+}
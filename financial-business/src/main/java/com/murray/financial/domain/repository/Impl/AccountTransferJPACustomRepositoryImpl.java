@@ -3,39 +3,44 @@ package com.murray.financial.domain.repository.Impl;
 import com.murray.financial.domain.repository.AccountTransferJPACustomRepository;
 import com.murray.financial.domain.repository.query.TransferAccountResult;
 import com.murray.financial.domain.repository.query.TransferSearch;
+import com.murray.financial.querybuilder.QueryTemplateCache;
+import com.murray.financial.querybuilder.SearchEngine;
+import com.murray.financial.querybuilder.SearchPage;
+import org.springframework.beans.factory.annotation.Value;
 
 import javax.persistence.EntityManager;
-import javax.persistence.Query;
-import java.util.Collections;
 import java.util.List;
+import java.util.stream.Stream;
 
 public class AccountTransferJPACustomRepositoryImpl
         extends JPACustomRepositoryBase<TransferAccountResult, TransferSearch>
         implements AccountTransferJPACustomRepository<TransferAccountResult, TransferSearch> {
 
-    public AccountTransferJPACustomRepositoryImpl(EntityManager entityManager) {
-        super(entityManager);
+    /**
+     * @param searchEngine  {@link SearchEngine} which builds the search queries, native by default
+     * @param templateCache {@link QueryTemplateCache} of the native queries shared by all the searches
+     */
+    public AccountTransferJPACustomRepositoryImpl(EntityManager entityManager,
+                                                           @Value("${search.engine:NATIVE}") SearchEngine searchEngine,
+                                                           QueryTemplateCache templateCache) {
+        super(entityManager, searchEngine, templateCache);
     }
 
     @Override
     public List<TransferAccountResult> searchBy(TransferSearch searchQuery) {
-        Query query = buildNativeQueryWith(searchQuery);
 
-        System.out.println("+++++++++++++++++");
-        System.out.println(searchQuery.toNativeQueryWithConditions());
-        System.out.println("+++++++++++++++++");
-
-        searchQuery.queryConditions().forEach(
+        return resultsOf(searchQuery);
+    }
 
-                qc -> {
-                    System.out.println("****cfFirld:"+qc.getField().getSqlColumnName() + " value:"+qc.getValue());
-                    //     query.setParameter(qc.getField().getSqlColumnName(), qc.getValue())
-                }
+    @Override
+    public SearchPage<TransferAccountResult> searchPageBy(TransferSearch searchQuery) {
 
-        );
+        return pageOf(searchQuery);
+    }
 
-        searchQuery.queryConditions().forEach(qc -> query.setParameter(qc.getField().getSqlColumnName(), qc.getValue()));
+    @Override
+    public Stream<TransferAccountResult> streamBy(TransferSearch searchQuery) {
 
-        return query.getResultList();
+        return streamOf(searchQuery);
     }
 }
@@ -1,14 +1,18 @@
 package com.murray.financial.domain.repository.Impl;
 
-import com.murray.financial.domain.repository.BackAccountJPARepository;
 import com.murray.financial.domain.repository.BankAccountJPACustomRepository;
 import com.murray.financial.domain.repository.query.BankAccountResult;
 import com.murray.financial.domain.repository.query.BankAccountSearch;
-import org.omg.PortableInterceptor.SYSTEM_EXCEPTION;
+import com.murray.financial.domain.repository.query.BankAccountTotalsResult;
+import com.murray.financial.domain.repository.query.BankAccountTotalsSearch;
+import com.murray.financial.querybuilder.QueryTemplateCache;
+import com.murray.financial.querybuilder.SearchEngine;
+import com.murray.financial.querybuilder.SearchPage;
+import org.springframework.beans.factory.annotation.Value;
 
 import javax.persistence.EntityManager;
-import javax.persistence.Query;
 import java.util.List;
+import java.util.stream.Stream;
 
 /**
  * {@inheritDoc}
@@ -18,8 +22,14 @@ public class BankAccountJPACustomRepositoryImpl
         implements BankAccountJPACustomRepository<BankAccountResult, BankAccountSearch> {
 
 
-    public BankAccountJPACustomRepositoryImpl(EntityManager entityManager) {
-        super(entityManager);
+    /**
+     * @param searchEngine  {@link SearchEngine} which builds the search queries, native by default
+     * @param templateCache {@link QueryTemplateCache} of the native queries shared by all the searches
+     */
+    public BankAccountJPACustomRepositoryImpl(EntityManager entityManager,
+                                                       @Value("${search.engine:NATIVE}") SearchEngine searchEngine,
+                                                       QueryTemplateCache templateCache) {
+        super(entityManager, searchEngine, templateCache);
     }
 
     /**
@@ -28,18 +38,34 @@ public class BankAccountJPACustomRepositoryImpl
     @Override
     public List<BankAccountResult> searchBy(BankAccountSearch searchQuery) {
 
-        Query query = buildNativeQueryWith(searchQuery);
+        return resultsOf(searchQuery);
+    }
 
-        System.out.println("**************  AAAA ************************************");
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public SearchPage<BankAccountResult> searchPageBy(BankAccountSearch searchQuery) {
 
-        System.out.println("********>"+searchQuery.toNativeQueryWithConditions());
+        return pageOf(searchQuery);
+    }
 
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Stream<BankAccountResult> streamBy(BankAccountSearch searchQuery) {
 
-        System.out.println("****************** BBB ********************************");
+        return streamOf(searchQuery);
+    }
 
-        searchQuery.queryConditions().forEach(qc -> query.setParameter(qc.getField().getSqlColumnName(), qc.getValue()));
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<BankAccountTotalsResult> totalsBy(BankAccountTotalsSearch totalsSearch) {
 
-        return query.getResultList();
+        return aggregatesOf(totalsSearch);
     }
 
 
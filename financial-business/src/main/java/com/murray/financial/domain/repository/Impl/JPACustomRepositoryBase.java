@@ -1,10 +1,17 @@
 package com.murray.financial.domain.repository.Impl;
 
-import com.murray.financial.domain.repository.BankAccountJPACustomRepository;
+import com.murray.financial.querybuilder.SearchEngine;
+import com.murray.financial.querybuilder.SearchPage;
+import com.murray.financial.querybuilder.CriteriaSearch;
+import com.murray.financial.querybuilder.QueryTemplateCache;
 import com.murray.financial.querybuilder.SearchQuery;
+import com.murray.financial.querybuilder.SearchResultSet;
+import org.hibernate.jpa.QueryHints;
 
 import javax.persistence.EntityManager;
 import javax.persistence.Query;
+import java.util.List;
+import java.util.stream.Stream;
 
 /**
  * Abstract clas that defined
@@ -12,28 +19,105 @@ import javax.persistence.Query;
  * @param <R> Result getType that is resultset are mapped to
  * @param <Q> sub class of SearchQuery that contains the query conditions
  */
-abstract class JPACustomRepositoryBase<R, Q extends SearchQuery>  {
+abstract class JPACustomRepositoryBase<R extends SearchResultSet, Q extends SearchQuery<?, R>> {
 
 
     private EntityManager entityManager;
 
-    JPACustomRepositoryBase(EntityManager entityManager) {
+    private SearchEngine searchEngine;
+
+    private QueryTemplateCache templateCache;
+
+    JPACustomRepositoryBase(EntityManager entityManager, SearchEngine searchEngine, QueryTemplateCache templateCache) {
         this.entityManager = entityManager;
+        this.searchEngine = searchEngine;
+        this.templateCache = templateCache;
     }
 
     /**
-     * Builds a native query using the defined {@link com.murray.financial.querybuilder.QueryCondition}
-     * and {@link SearchQuery#nativeQuery()} instance defined in the {@link SearchQuery}.
+     * Builds the query with the {@link SearchEngine} of the repository, the searches which are
+     * not a {@link CriteriaSearch} are always run as native queries.
      *
      * @param searchQuery {@link SearchQuery}
      * @return {@link Query}
      */
-    Query buildNativeQueryWith(final SearchQuery searchQuery) {
+    Query buildQueryWith(final SearchQuery<?, ?> searchQuery) {
+
+        Query query = searchEngine == SearchEngine.CRITERIA && searchQuery instanceof CriteriaSearch
+                ? entityManager.createQuery(((CriteriaSearch<?, ?>) searchQuery).toCriteriaQuery(entityManager.getCriteriaBuilder()))
+                : buildNativeQueryWith(searchQuery);
+
+        if (searchQuery.getFetchSize() != null) {
+            query.setHint(QueryHints.HINT_FETCH_SIZE, searchQuery.getFetchSize());
+        }
 
+        return query;
+    }
 
-        return entityManager.createNativeQuery(
-                searchQuery.toNativeQueryWithConditions()
+    /**
+     * Builds a native query using the defined {@link com.murray.financial.querybuilder.QueryCondition}
+     * and {@link SearchQuery#nativeQuery()} instance defined in the {@link SearchQuery}, binding
+     * the condition values and the keyset position of the page. The query string is reused from
+     * the {@link QueryTemplateCache} when the same search shape was built before.
+     *
+     * @param searchQuery {@link SearchQuery}
+     * @return {@link Query}
+     */
+    Query buildNativeQueryWith(final SearchQuery<?, ?> searchQuery) {
+
+        Query query = entityManager.createNativeQuery(
+                searchQuery.toNativeQueryWithConditions(templateCache)
                 , searchQuery.resultSetMapping()
         );
+
+        searchQuery.queryConditions().forEach(qc -> qc.parameters().forEach(query::setParameter));
+        searchQuery.keysetParameters().forEach(query::setParameter);
+
+        return query;
+    }
+
+    /**
+     * Streams the results through a forward only cursor, the rows are mapped as they are read
+     * and none of them are kept in the persistence context.
+     */
+    @SuppressWarnings("unchecked")
+    Stream<R> streamOf(final Q searchQuery) {
+
+        return buildQueryWith(searchQuery).getResultStream();
+    }
+
+    /**
+     * Reads all the results matching the search query
+     */
+    @SuppressWarnings("unchecked")
+    List<R> resultsOf(final Q searchQuery) {
+
+        return buildQueryWith(searchQuery).getResultList();
+    }
+
+    /**
+     * Reads the aggregated rows of a search query which returns totals instead of the
+     * repository search results
+     */
+    @SuppressWarnings("unchecked")
+    <T extends SearchResultSet> List<T> aggregatesOf(final SearchQuery<?, T> searchQuery) {
+
+        return buildQueryWith(searchQuery).getResultList();
+    }
+
+    /**
+     * Reads a single page of results, one row more than the page size is read to
+     * find out if there is a following page.
+     */
+    @SuppressWarnings("unchecked")
+    SearchPage<R> pageOf(final Q searchQuery) {
+
+        Query query = buildQueryWith(searchQuery);
+
+        if (searchQuery.getPageSize() != null) {
+            query.setMaxResults(searchQuery.getPageSize() + 1);
+        }
+
+        return searchQuery.toPage(query.getResultList());
     }
 }
@@ -0,0 +1,56 @@
+package com.murray.financial.domain.repository;
+
+import com.murray.financial.domain.entity.JobLease;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.LocalDateTime;
+
+/**
+ * Lease statements are conditional updates, so only one node can own a lease at any time
+ * without relying on database specific locking.
+ */
+public interface JobLeaseJPARepository extends JpaRepository<JobLease, String> {
+
+    /**
+     * Takes over an existing lease when it has expired, including a lease released at the
+     * same instant, or is already owned by the node
+     *
+     * @return 1 when the lease was acquired
+     */
+    @Modifying
+    @Query("UPDATE JobLease l SET l.owner = :owner, l.acquiredOn = :now, l.heartbeatOn = :now, l.expiresOn = :expiresOn " +
+            "WHERE l.jobName = :jobName AND (l.owner = :owner OR l.expiresOn <= :now)")
+    int acquire(@Param("jobName") String jobName, @Param("owner") String owner,
+                @Param("now") LocalDateTime now, @Param("expiresOn") LocalDateTime expiresOn);
+
+    /**
+     * Creates the lease the first time the job runs, fails with a duplicate key
+     * when another node created it first
+     */
+    @Modifying
+    @Query(value = "INSERT INTO job_lease (job_name, owner, acquired_on, heartbeat_on, expires_on) " +
+            "VALUES (:jobName, :owner, :now, :now, :expiresOn)", nativeQuery = true)
+    int create(@Param("jobName") String jobName, @Param("owner") String owner,
+               @Param("now") LocalDateTime now, @Param("expiresOn") LocalDateTime expiresOn);
+
+    /**
+     * Extends the lease while the owner is still running the job
+     *
+     * @return 0 when the lease is no longer owned by the node
+     */
+    @Modifying
+    @Query("UPDATE JobLease l SET l.heartbeatOn = :now, l.expiresOn = :expiresOn " +
+            "WHERE l.jobName = :jobName AND l.owner = :owner")
+    int heartbeat(@Param("jobName") String jobName, @Param("owner") String owner,
+                  @Param("now") LocalDateTime now, @Param("expiresOn") LocalDateTime expiresOn);
+
+    /**
+     * Expires the lease so the next tick can be run by any node
+     */
+    @Modifying
+    @Query("UPDATE JobLease l SET l.expiresOn = :now WHERE l.jobName = :jobName AND l.owner = :owner")
+    int release(@Param("jobName") String jobName, @Param("owner") String owner, @Param("now") LocalDateTime now);
+}
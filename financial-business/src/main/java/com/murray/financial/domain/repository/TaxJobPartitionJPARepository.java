@@ -0,0 +1,47 @@
+package com.murray.financial.domain.repository;
+
+import com.murray.financial.domain.entity.TaxJobPartition;
+import com.murray.financial.domain.enums.TaxJobRunStatus;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+public interface TaxJobPartitionJPARepository extends JpaRepository<TaxJobPartition, Long> {
+
+    /**
+     * Claims a pending partition for the node when it is not owned by another node or
+     * its lease has expired, so nodes can split the partitions of a run between them.
+     *
+     * @return 1 when the partition was claimed
+     */
+    @Modifying
+    @Query("UPDATE TaxJobPartition p SET p.owner = :owner, p.leaseExpiresOn = :expiresOn " +
+            "WHERE p.id = :id AND p.status <> :completed " +
+            "AND (p.owner IS NULL OR p.owner = :owner OR p.leaseExpiresOn < :now)")
+    int claim(@Param("id") Long id, @Param("owner") String owner, @Param("now") LocalDateTime now,
+              @Param("expiresOn") LocalDateTime expiresOn, @Param("completed") TaxJobRunStatus completed);
+
+    /**
+     * Extends the lease of a partition the node still owns, executed first by every transaction
+     * that moves the partition checkpoint. The partition row stays locked until the commit, so a
+     * node claiming the partition once its lease expires waits for the chunk and then sees the
+     * extended lease.
+     *
+     * @return 0 when the lease expired or the partition is owned by another node
+     */
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("UPDATE TaxJobPartition p SET p.leaseExpiresOn = :expiresOn " +
+            "WHERE p.id = :id AND p.owner = :owner AND p.leaseExpiresOn > :now")
+    int extendLease(@Param("id") Long id, @Param("owner") String owner, @Param("now") LocalDateTime now,
+                    @Param("expiresOn") LocalDateTime expiresOn);
+
+    long countByTaxJobRunIdAndStatusNot(final Long taxJobRunId, final TaxJobRunStatus status);
+
+    List<TaxJobPartition> findByTaxJobRunIdOrderByFromAccountId(final Long taxJobRunId);
+
+    List<TaxJobPartition> findByTaxJobRunIdAndStatusNotOrderByFromAccountId(final Long taxJobRunId, final TaxJobRunStatus status);
+}
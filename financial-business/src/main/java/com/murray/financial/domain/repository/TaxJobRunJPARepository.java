@@ -0,0 +1,36 @@
+package com.murray.financial.domain.repository;
+
+import com.murray.financial.domain.entity.TaxJobRun;
+import com.murray.financial.domain.enums.TaxJobRunStatus;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+
+public interface TaxJobRunJPARepository extends JpaRepository<TaxJobRun, Long> {
+
+    /**
+     * Find the latest run within the statuses, used to find a run that should be resumed
+     */
+    TaxJobRun findFirstByStatusInOrderByIdDesc(final Collection<TaxJobRunStatus> statuses);
+
+    /**
+     * Checks if the scheduled tick already started a run, so a node whose tick fires after the
+     * run was completed by another node does not charge the accounts again
+     */
+    boolean existsByScheduledFor(final LocalDateTime scheduledFor);
+
+    /**
+     * Changes the status of a run which was not completed, without writing the rest of
+     * the run, whose totals may have been completed by another node
+     *
+     * @return 0 when the run was already completed
+     */
+    @Modifying
+    @Query("UPDATE TaxJobRun r SET r.status = :status WHERE r.id = :id AND r.status <> :completed")
+    int updateUnfinishedStatus(@Param("id") Long id, @Param("status") TaxJobRunStatus status,
+                               @Param("completed") TaxJobRunStatus completed);
+}
@@ -2,19 +2,49 @@ package com.murray.financial.domain.repository.query;
 
 import com.murray.financial.querybuilder.QueryField;
 
+import java.math.BigDecimal;
+
 /**
  * Set of {@link QueryField} that can be used to build custom query
  * for querying bank accounts.
  */
 public class BankAccountQueryField<T extends Comparable> extends QueryField {
 
-    public static final String NATIVE_QUERY = "SELECT b.open_on as openedOn, b.iban_number as ibanNumber," +
+    public static final String NATIVE_QUERY = "SELECT b.id as id, b.open_on as openedOn, b.iban_number as ibanNumber," +
             " COALESCE(sum(t.amount),0) as balance , b.currency as currency , b.status as status " +
             " FROM bank_account b left join bank_account_transaction t on t.bank_account_id = b.id";
 
+    /**
+     * Reads the materialized account balance instead of summing the transactions, so the
+     * balance conditions are plain WHERE conditions on the indexed balance column.
+     */
+    public static final String INDEXED_BALANCE_QUERY = "SELECT b.id as id, b.open_on as openedOn, b.iban_number as ibanNumber," +
+            " b.balance as balance , b.currency as currency , b.status as status " +
+            " FROM bank_account b";
+
+    /**
+     * Reads the accounts without any balance, used when the balance is neither read nor
+     * filtered or ordered on
+     */
+    public static final String NO_BALANCE_QUERY = "SELECT b.id as id, b.open_on as openedOn, b.iban_number as ibanNumber," +
+            " NULL as balance , b.currency as currency , b.status as status " +
+            " FROM bank_account b";
+
+    /**
+     * Totals of the materialized balances, the currency and status columns are formatted
+     * with either the grouped column or NULL when the totals are not grouped by them.
+     */
+    public static final String TOTALS_QUERY = "SELECT %s as currency, %s as status, COUNT(b.id) as accounts," +
+            " COALESCE(sum(b.balance),0) as totalBalance, min(b.balance) as minBalance, max(b.balance) as maxBalance " +
+            " FROM bank_account b";
+
     public static final String GROUP_BY_ACCOUNT_ID=" b.id ";
 
 
+    public static BankAccountQueryField<Long> ID =
+            new BankAccountQueryField<>("id", "id",
+                    "b.id", null);
+
     public static BankAccountQueryField<String> IBAN_NUMBER =
             new BankAccountQueryField<>("ibanNumber", "iban_number",
                     "iban_number", null);
@@ -23,6 +53,14 @@ public class BankAccountQueryField<T extends Comparable> extends QueryField {
             new BankAccountQueryField<>("balance", "balance",
                     "balance", "b.id");
 
+    /**
+     * The materialized balance column, {@link BankAccountSearch} replaces the {@link #BALANCE}
+     * conditions and ordering by this field
+     */
+    public static BankAccountQueryField<BigDecimal> INDEXED_BALANCE =
+            new BankAccountQueryField<>("balance", "balance",
+                    "b.balance", null);
+
     public static BankAccountQueryField<String> STATUS =
             new BankAccountQueryField<>("status", "status",
                     "status", null);
@@ -3,6 +3,7 @@ package com.murray.financial.domain.repository.query;
 import com.murray.financial.domain.entity.BankAccount;
 import com.murray.financial.domain.enums.AccountCurrency;
 import com.murray.financial.domain.enums.AccountStatus;
+import com.murray.financial.querybuilder.QueryField;
 import com.murray.financial.querybuilder.SearchResultSet;
 
 import java.io.Serializable;
@@ -19,6 +20,11 @@ public class BankAccountResult implements Serializable, SearchResultSet {
 
     public static final String BANK_ACCOUNT_RESULTS = "BankAccountResults";
 
+    /**
+     * Account internal unique id
+     */
+    private Long id;
+
     /**
      * Account opening date
      */
@@ -45,8 +51,9 @@ public class BankAccountResult implements Serializable, SearchResultSet {
 
     private String status;
 
-    public BankAccountResult(LocalDate openedOn, String ibanNumber, BigDecimal balance,
+    public BankAccountResult(Long id, LocalDate openedOn, String ibanNumber, BigDecimal balance,
                              String currency, String status) {
+        this.id = id;
         this.openedOn = openedOn;
         this.ibanNumber = ibanNumber;
         this.balance = balance;
@@ -54,12 +61,47 @@ public class BankAccountResult implements Serializable, SearchResultSet {
         this.status = status;
     }
 
+    /**
+     * Constructor of the criteria searches, which read the enum attributes
+     */
+    public BankAccountResult(Long id, LocalDate openedOn, String ibanNumber, BigDecimal balance,
+                             AccountCurrency currency, AccountStatus status) {
+        this(id, openedOn, ibanNumber, balance, currency.name(), status.name());
+    }
+
 
     @Override
     public String resultSetObjectName() {
         return BANK_ACCOUNT_RESULTS;
     }
 
+    @Override
+    public Long keysetId() {
+        return id;
+    }
+
+    @Override
+    public Object keysetValue(QueryField field) {
+
+        if (BankAccountQueryField.ID.equals(field)) {
+            return id;
+        }
+        if (BankAccountQueryField.IBAN_NUMBER.equals(field)) {
+            return ibanNumber;
+        }
+        if (BankAccountQueryField.BALANCE.equals(field) || BankAccountQueryField.INDEXED_BALANCE.equals(field)) {
+            return balance;
+        }
+        if (BankAccountQueryField.STATUS.equals(field)) {
+            return status;
+        }
+        if (BankAccountQueryField.CURRENCY.equals(field)) {
+            return currency;
+        }
+
+        throw new IllegalArgumentException("Bank account results can not be paged by " + field.getName());
+    }
+
 
     @Override
     public String toString() {
@@ -87,6 +129,11 @@ public class BankAccountResult implements Serializable, SearchResultSet {
     }
 
 
+    public Long id() {
+        return id;
+    }
+
+
     public LocalDate openedOn() {
         return openedOn;
     }
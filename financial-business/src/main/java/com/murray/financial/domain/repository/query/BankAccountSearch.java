@@ -1,18 +1,30 @@
 package com.murray.financial.domain.repository.query;
 
 import com.murray.financial.domain.entity.BankAccount;
+import com.murray.financial.domain.entity.BankAccount_;
+import com.murray.financial.querybuilder.CriteriaSearch;
+import com.murray.financial.querybuilder.OrderCondition;
+import com.murray.financial.querybuilder.QueryCondition;
 import com.murray.financial.querybuilder.QueryField;
 import com.murray.financial.querybuilder.SearchQuery;
 
+import javax.persistence.criteria.CompoundSelection;
+import javax.persistence.criteria.CriteriaBuilder;
+import javax.persistence.criteria.CriteriaQuery;
+import javax.persistence.criteria.Expression;
+import javax.persistence.criteria.Root;
+import java.math.BigDecimal;
 import java.util.Arrays;
 import java.util.List;
+import java.util.Objects;
 
 import static com.murray.financial.domain.repository.query.BankAccountQueryField.*;
 
 /**
  * {@inheritDoc}
  */
-public class BankAccountSearch extends SearchQuery<BankAccount, BankAccountResult> {
+public class BankAccountSearch extends SearchQuery<BankAccount, BankAccountResult>
+        implements CriteriaSearch<BankAccount, BankAccountResult> {
 
 
     public BankAccountSearch() {
@@ -40,7 +52,12 @@ public class BankAccountSearch extends SearchQuery<BankAccount, BankAccountResul
      */
     @Override
     public String nativeQuery() {
-        return NATIVE_QUERY;
+
+        if (usesIndexedBalance()) {
+            return INDEXED_BALANCE_QUERY;
+        }
+
+        return aggregatesBalance() ? NATIVE_QUERY : NO_BALANCE_QUERY;
     }
 
     /**
@@ -48,7 +65,105 @@ public class BankAccountSearch extends SearchQuery<BankAccount, BankAccountResul
      */
     @Override
     public String groupByClause() {
-        return GROUP_BY_ACCOUNT_ID;
+        return aggregatesBalance() ? GROUP_BY_ACCOUNT_ID : null;
+    }
+
+    /**
+     * Balance conditions are compared with the indexed materialized balance
+     * instead of the sum of the account transactions.
+     */
+    @Override
+    public void addCondition(final QueryCondition queryCondition) {
+
+        if (BALANCE.equals(queryCondition.getField())) {
+            super.addCondition(new QueryCondition(INDEXED_BALANCE, queryCondition.getOperator(), queryCondition.getValue()));
+            return;
+        }
+
+        super.addCondition(queryCondition);
+    }
+
+    /**
+     * Results ordered by balance are ordered by the indexed materialized balance
+     * instead of the sum of the account transactions.
+     */
+    @Override
+    public void setOrderCondition(final OrderCondition orderCondition) {
+
+        if (Objects.nonNull(orderCondition) && BALANCE.equals(orderCondition.getField())) {
+            super.setOrderCondition(new OrderCondition(orderCondition.getOrderBy(), INDEXED_BALANCE));
+            return;
+        }
+
+        super.setOrderCondition(orderCondition);
+    }
+
+    /**
+     * Indicates if the balance is read from the materialized column, which avoids joining
+     * and grouping all the account transactions
+     */
+    public boolean usesIndexedBalance() {
+
+        return queryConditions().stream().anyMatch(c -> INDEXED_BALANCE.equals(c.getField()))
+                || (Objects.nonNull(getOrderCondition()) && INDEXED_BALANCE.equals(getOrderCondition().getField()));
+    }
+
+    /**
+     * Indicates if the balance is the sum of the account transactions, which joins and groups
+     * the transactions. Searches which do not read the balance skip it.
+     */
+    public boolean aggregatesBalance() {
+
+        return !usesIndexedBalance() && isSelected(BALANCE);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public CriteriaQuery<BankAccountResult> toCriteriaQuery(final CriteriaBuilder criteriaBuilder) {
+        return criteriaQueryOf(criteriaBuilder, this);
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * The balance is read from the materialized balance, unless the balance is not selected.
+     */
+    @Override
+    public CompoundSelection<BankAccountResult> criteriaSelection(final CriteriaBuilder criteriaBuilder, final Root<BankAccount> root) {
+
+        Expression<BigDecimal> balance = usesIndexedBalance() || isSelected(BALANCE)
+                ? root.get(BankAccount_.balance) : criteriaBuilder.nullLiteral(BigDecimal.class);
+
+        return criteriaBuilder.construct(BankAccountResult.class, root.get(BankAccount_.id), root.get(BankAccount_.openedOn),
+                root.get(BankAccount_.ibanNumber), balance, root.get(BankAccount_.currency),
+                root.get(BankAccount_.status));
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Expression<?> criteriaAttribute(final QueryField field, final Root<BankAccount> root) {
+
+        if (ID.equals(field)) {
+            return root.get(BankAccount_.id);
+        }
+        if (IBAN_NUMBER.equals(field)) {
+            return root.get(BankAccount_.ibanNumber);
+        }
+        if (BALANCE.equals(field) || INDEXED_BALANCE.equals(field)) {
+            return root.get(BankAccount_.balance);
+        }
+        if (STATUS.equals(field)) {
+            return root.get(BankAccount_.status);
+        }
+        if (CURRENCY.equals(field)) {
+            return root.get(BankAccount_.currency);
+        }
+
+        throw new IllegalArgumentException("Bank accounts can not be searched by " + field.getName());
     }
 
     /**
@@ -57,7 +172,15 @@ public class BankAccountSearch extends SearchQuery<BankAccount, BankAccountResul
     @Override
     public List<QueryField> queryFields() {
 
-        return Arrays.asList(IBAN_NUMBER, BALANCE, STATUS, CURRENCY);
+        return Arrays.asList(IBAN_NUMBER, BALANCE, STATUS, CURRENCY, INDEXED_BALANCE);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public QueryField keyField() {
+        return ID;
     }
 
     /**
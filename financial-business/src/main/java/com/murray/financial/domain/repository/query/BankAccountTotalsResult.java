@@ -0,0 +1,138 @@
+package com.murray.financial.domain.repository.query;
+
+import com.murray.financial.domain.enums.AccountCurrency;
+import com.murray.financial.domain.enums.AccountStatus;
+import com.murray.financial.querybuilder.QueryField;
+import com.murray.financial.querybuilder.SearchResultSet;
+
+import java.io.Serializable;
+import java.math.BigDecimal;
+import java.util.Objects;
+
+/**
+ * Totals of the {@link com.murray.financial.domain.entity.BankAccount} balances returned from the
+ * {@link BankAccountTotalsSearch}, one for each group of currency and status.
+ */
+public class BankAccountTotalsResult implements Serializable, SearchResultSet {
+
+
+    public static final String BANK_ACCOUNT_TOTALS = "BankAccountTotals";
+
+    /**
+     * Grouped {@link AccountCurrency}, null when the totals are not grouped by currency
+     */
+    private String currency;
+
+    /**
+     * Grouped {@link AccountStatus}, null when the totals are not grouped by status
+     */
+    private String status;
+
+    /**
+     * Number of accounts in the group
+     */
+    private Long accounts;
+
+    /**
+     * Sum of the account balances
+     */
+    private BigDecimal totalBalance;
+
+    /**
+     * Lowest account balance, null when the group has no accounts
+     */
+    private BigDecimal minBalance;
+
+    /**
+     * Highest account balance, null when the group has no accounts
+     */
+    private BigDecimal maxBalance;
+
+    public BankAccountTotalsResult(String currency, String status, Long accounts, BigDecimal totalBalance,
+                                   BigDecimal minBalance, BigDecimal maxBalance) {
+        this.currency = currency;
+        this.status = status;
+        this.accounts = accounts;
+        this.totalBalance = totalBalance;
+        this.minBalance = minBalance;
+        this.maxBalance = maxBalance;
+    }
+
+
+    @Override
+    public String resultSetObjectName() {
+        return BANK_ACCOUNT_TOTALS;
+    }
+
+    /**
+     * Totals are not rows of a table and have no id
+     */
+    @Override
+    public Long keysetId() {
+        return null;
+    }
+
+    @Override
+    public Object keysetValue(QueryField field) {
+
+        throw new IllegalArgumentException("Bank account totals can not be paged by " + field.getName());
+    }
+
+    @Override
+    public String toString() {
+        return "BankAccountTotalsResult{" +
+                "currency='" + currency + '\'' +
+                ", status='" + status + '\'' +
+                ", accounts=" + accounts +
+                ", totalBalance=" + totalBalance +
+                ", minBalance=" + minBalance +
+                ", maxBalance=" + maxBalance +
+                '}';
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof BankAccountTotalsResult)) return false;
+        BankAccountTotalsResult that = (BankAccountTotalsResult) o;
+        return Objects.equals(currency, that.currency) &&
+                Objects.equals(status, that.status);
+    }
+
+    @Override
+    public int hashCode() {
+
+        return Objects.hash(currency, status);
+    }
+
+
+    public AccountCurrency currency() {
+        return Objects.isNull(currency) ? null : AccountCurrency.valueOf(currency);
+    }
+
+
+    public AccountStatus status() {
+        return Objects.isNull(status) ? null : AccountStatus.valueOf(status);
+    }
+
+
+    public Long accounts() {
+        return accounts;
+    }
+
+
+    public BigDecimal totalBalance() {
+        return totalBalance;
+    }
+
+
+    public BigDecimal minBalance() {
+        return minBalance;
+    }
+
+
+    public BigDecimal maxBalance() {
+        return maxBalance;
+    }
+
+}
@@ -0,0 +1,119 @@
+package com.murray.financial.domain.repository.query;
+
+import com.murray.financial.domain.entity.BankAccount;
+import com.murray.financial.exceptions.InvalidSearchException;
+import com.murray.financial.querybuilder.QueryCondition;
+import com.murray.financial.querybuilder.QueryField;
+import com.murray.financial.querybuilder.SearchQuery;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static com.murray.financial.domain.repository.query.BankAccountQueryField.*;
+
+/**
+ * Aggregated search which returns the count, sum, min and max of the account balances of the
+ * accounts matching the conditions, grouped by currency and/or status. The totals are computed
+ * by the database from the materialized balance, so only one row per group is returned.
+ */
+public class BankAccountTotalsSearch extends SearchQuery<BankAccount, BankAccountTotalsResult> {
+
+
+    public BankAccountTotalsSearch() {
+        super();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Class<BankAccount> getEntityClass() {
+        return BankAccount.class;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Class<BankAccountTotalsResult> getSearchResult() {
+        return BankAccountTotalsResult.class;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String nativeQuery() {
+        return String.format(TOTALS_QUERY, groupedColumn(CURRENCY), groupedColumn(STATUS));
+    }
+
+    private String groupedColumn(final QueryField field) {
+        return getGroupByFields().contains(field) ? field.getConditionClause() : "NULL";
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String groupByClause() {
+
+        if (getGroupByFields().isEmpty()) {
+            return null;
+        }
+
+        return getGroupByFields().stream().map(QueryField::getConditionClause).collect(Collectors.joining(", "));
+    }
+
+    /**
+     * Balance conditions are compared with the indexed materialized balance
+     */
+    @Override
+    public void addCondition(final QueryCondition queryCondition) {
+
+        if (BALANCE.equals(queryCondition.getField())) {
+            super.addCondition(new QueryCondition(INDEXED_BALANCE, queryCondition.getOperator(), queryCondition.getValue()));
+            return;
+        }
+
+        super.addCondition(queryCondition);
+    }
+
+    /**
+     * Totals are only grouped by currency and status
+     */
+    @Override
+    public void groupBy(final QueryField groupByField) {
+
+        if (!CURRENCY.equals(groupByField) && !STATUS.equals(groupByField)) {
+            throw new InvalidSearchException("Account totals can only be grouped by currency or status");
+        }
+
+        super.groupBy(groupByField);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<QueryField> queryFields() {
+
+        return Arrays.asList(IBAN_NUMBER, STATUS, CURRENCY, INDEXED_BALANCE);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public QueryField keyField() {
+        return ID;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String resultSetMapping() {
+        return BankAccountTotalsResult.BANK_ACCOUNT_TOTALS;
+    }
+}
@@ -1,5 +1,6 @@
 package com.murray.financial.domain.repository.query;
 
+import com.murray.financial.querybuilder.QueryField;
 import com.murray.financial.querybuilder.SearchResultSet;
 
 import java.io.Serializable;
@@ -54,6 +55,30 @@ public class TransferAccountResult implements Serializable, SearchResultSet {
         return TRANSFER_ACCOUNT_RESULTS;
     }
 
+    @Override
+    public Long keysetId() {
+        return transferId;
+    }
+
+    @Override
+    public Object keysetValue(QueryField field) {
+
+        if (TransferQueryField.ID.equals(field)) {
+            return transferId;
+        }
+        if (TransferQueryField.SOURCE.equals(field)) {
+            return srcIbanNumber;
+        }
+        if (TransferQueryField.DESTINATION.equals(field)) {
+            return destIbanNumber;
+        }
+        if (TransferQueryField.STATUS.equals(field)) {
+            return transferSent;
+        }
+
+        throw new IllegalArgumentException("Transfer results can not be paged by " + field.getName());
+    }
+
 
     public Long getTransferId() {
         return transferId;
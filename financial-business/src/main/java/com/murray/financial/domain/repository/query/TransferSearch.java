@@ -1,9 +1,16 @@
 package com.murray.financial.domain.repository.query;
 
 import com.murray.financial.domain.entity.AccountTransfer;
+import com.murray.financial.domain.entity.AccountTransfer_;
+import com.murray.financial.querybuilder.CriteriaSearch;
 import com.murray.financial.querybuilder.QueryField;
 import com.murray.financial.querybuilder.SearchQuery;
 
+import javax.persistence.criteria.CompoundSelection;
+import javax.persistence.criteria.CriteriaBuilder;
+import javax.persistence.criteria.CriteriaQuery;
+import javax.persistence.criteria.Expression;
+import javax.persistence.criteria.Root;
 import java.util.Arrays;
 import java.util.List;
 
@@ -12,7 +19,8 @@ import static com.murray.financial.domain.repository.query.TransferQueryField.*;
 /**
  * {@inheritDoc}
  */
-public class TransferSearch extends SearchQuery<AccountTransfer, TransferAccountResult> {
+public class TransferSearch extends SearchQuery<AccountTransfer, TransferAccountResult>
+        implements CriteriaSearch<AccountTransfer, TransferAccountResult> {
 
 
     public TransferSearch() {
@@ -24,7 +32,7 @@ public class TransferSearch extends SearchQuery<AccountTransfer, TransferAccount
      */
     @Override
     public List<QueryField> queryFields() {
-        return Arrays.asList(SOURCE, DESTINATION, STATUS);
+        return Arrays.asList(SOURCE, DESTINATION, SOURCE_CURRENCY, DESTINATION_CURRENCY, STATUS, SENT);
     }
 
     /**
@@ -56,7 +64,15 @@ public class TransferSearch extends SearchQuery<AccountTransfer, TransferAccount
      */
     @Override
     public String groupByClause() {
-        return GROUP_BY_TRANSFER_ID;
+        return null;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public QueryField keyField() {
+        return ID;
     }
 
     /**
@@ -66,4 +82,52 @@ public class TransferSearch extends SearchQuery<AccountTransfer, TransferAccount
     public String resultSetMapping() {
         return TransferAccountResult.TRANSFER_ACCOUNT_RESULTS;
     }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public CriteriaQuery<TransferAccountResult> toCriteriaQuery(final CriteriaBuilder criteriaBuilder) {
+        return criteriaQueryOf(criteriaBuilder, this);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public CompoundSelection<TransferAccountResult> criteriaSelection(final CriteriaBuilder criteriaBuilder,
+                                                                      final Root<AccountTransfer> root) {
+
+        return criteriaBuilder.construct(TransferAccountResult.class, root.get(AccountTransfer_.id),
+                root.get(AccountTransfer_.timeStamp), root.get(AccountTransfer_.sourceIbanNumber),
+                root.get(AccountTransfer_.destinationIbanNumber), root.get(AccountTransfer_.amount));
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Expression<?> criteriaAttribute(final QueryField field, final Root<AccountTransfer> root) {
+
+        if (ID.equals(field)) {
+            return root.get(AccountTransfer_.id);
+        }
+        if (SOURCE.equals(field)) {
+            return root.get(AccountTransfer_.sourceIbanNumber);
+        }
+        if (DESTINATION.equals(field)) {
+            return root.get(AccountTransfer_.destinationIbanNumber);
+        }
+        if (SOURCE_CURRENCY.equals(field)) {
+            return root.get(AccountTransfer_.sourceCurrency);
+        }
+        if (DESTINATION_CURRENCY.equals(field)) {
+            return root.get(AccountTransfer_.destinationCurrency);
+        }
+        if (STATUS.equals(field) || SENT.equals(field)) {
+            return root.get(AccountTransfer_.timeStamp);
+        }
+
+        throw new IllegalArgumentException("Transfers can not be searched by " + field.getName());
+    }
 }
@@ -0,0 +1,15 @@
+package com.murray.financial.exceptions;
+
+/**
+ * Thrown when a csv import file can not be read, or one of its rows can not be parsed
+ */
+public class CsvImportException extends RuntimeException {
+
+    public CsvImportException(String message) {
+        super(message);
+    }
+
+    public CsvImportException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
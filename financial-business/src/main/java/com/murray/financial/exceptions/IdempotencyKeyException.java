@@ -0,0 +1,12 @@
+package com.murray.financial.exceptions;
+
+/**
+ * Raised when an idempotency key is reused for a different request or while the
+ * first request with the same key is still in progress.
+ */
+public class IdempotencyKeyException extends RuntimeException {
+
+    public IdempotencyKeyException(String message) {
+        super(message);
+    }
+}
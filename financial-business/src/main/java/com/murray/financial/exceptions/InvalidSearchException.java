@@ -0,0 +1,15 @@
+package com.murray.financial.exceptions;
+
+/**
+ * Thrown when the search paging parameters, such as the continuation token, are not valid
+ */
+public class InvalidSearchException extends RuntimeException {
+
+    public InvalidSearchException(String message) {
+        super(message);
+    }
+
+    public InvalidSearchException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
@@ -0,0 +1,12 @@
+package com.murray.financial.exceptions;
+
+/**
+ * Thrown when a node no longer owns the job lease or tax run partition it is processing,
+ * so the work is left to the node that took the lease over
+ */
+public class LeaseLostException extends RuntimeException {
+
+    public LeaseLostException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,15 @@
+package com.murray.financial.exceptions;
+
+/**
+ * Thrown when the database schema can not be migrated, or does not hold the indexes the entities expect
+ */
+public class SchemaMigrationException extends RuntimeException {
+
+    public SchemaMigrationException(String message) {
+        super(message);
+    }
+
+    public SchemaMigrationException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
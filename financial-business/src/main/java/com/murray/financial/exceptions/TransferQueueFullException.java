@@ -0,0 +1,11 @@
+package com.murray.financial.exceptions;
+
+/**
+ * Thrown when the asynchronous transfer execution queue has reached its capacity
+ */
+public class TransferQueueFullException extends RuntimeException {
+
+    public TransferQueueFullException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
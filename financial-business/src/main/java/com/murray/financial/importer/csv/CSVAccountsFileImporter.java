@@ -8,6 +8,7 @@ import com.murray.financial.service.untils.IBANNumberUtils;
 import lombok.Data;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.transaction.PlatformTransactionManager;
 import org.supercsv.cellprocessor.ParseBigDecimal;
 import org.supercsv.cellprocessor.ParseLong;
 import org.supercsv.cellprocessor.constraint.NotNull;
@@ -28,6 +29,11 @@ public class CSVAccountsFileImporter extends CSVImporterBase<CSVAccountsFileImpo
         super(accountService);
     }
 
+    public CSVAccountsFileImporter(AccountService accountService, PlatformTransactionManager transactionManager,
+                                   int batchSize, int queueCapacity) {
+        super(accountService, transactionManager, batchSize, queueCapacity);
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -42,8 +48,9 @@ public class CSVAccountsFileImporter extends CSVImporterBase<CSVAccountsFileImpo
 
         LOGGER.info("Converting csv file :{}", csvFile.getName());
 
-        transformAndSave(convertFileToImporterObjects(csvFile, AccountRow.class));
+        long imported = importInBatches(csvFile, AccountRow.class, this::transformAndSave);
 
+        LOGGER.info("Imported {} accounts to database", imported);
 
     }
 
@@ -51,17 +58,17 @@ public class CSVAccountsFileImporter extends CSVImporterBase<CSVAccountsFileImpo
      * Transforms the {@link AccountRow} to a {@link BankAccount} entity and
      * saves.
      *
-     * @param accounts list of account rows
+     * @param accounts batch of account rows
      */
     private void transformAndSave(List<AccountRow> accounts) {
 
-        LOGGER.info("Importing  {} accounts to database", accounts.size());
+        LOGGER.debug("Importing  {} accounts to database", accounts.size());
 
         for (AccountRow importAccount : accounts) {
 
             BankAccount bankAccount = bankAccount(importAccount);
 
-            LOGGER.info("importing :{}", bankAccount);
+            LOGGER.debug("importing :{}", bankAccount);
 
             accountService.saveAccount(bankAccount);
 
@@ -70,7 +77,8 @@ public class CSVAccountsFileImporter extends CSVImporterBase<CSVAccountsFileImpo
 
     /**
      * Converts the {@link AccountRow} class into a {@link BankAccount} domain
-     * entity that can be persist to the database
+     * entity that can be persist to the database, the file account id is kept as
+     * the imported id as the internal id is generated
      *
      * @param importAccount {@link AccountRow}
      * @return {@link BankAccount}
@@ -1,9 +1,13 @@
 package com.murray.financial.importer.csv;
 
+import com.murray.financial.exceptions.CsvImportException;
 import com.murray.financial.service.AccountService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.supercsv.cellprocessor.ift.CellProcessor;
+import org.supercsv.exception.SuperCsvException;
 import org.supercsv.io.CsvBeanReader;
 import org.supercsv.io.ICsvBeanReader;
 import org.supercsv.prefs.CsvPreference;
@@ -14,21 +18,61 @@ import java.io.IOException;
 import java.net.URISyntaxException;
 import java.net.URL;
 import java.util.*;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
 
 /**
- * CSV import base class
+ * CSV import base class.
+ * <p>
+ * The files are streamed: a parser thread reads the rows into batches and hands them over a bounded
+ * queue to the importing thread, which saves each batch in its own transaction. The parser waits while
+ * the queue is full, so at most the queued batches plus the one being saved and the one being read
+ * are held in memory, whatever the file size.
  */
 public abstract class CSVImporterBase<T> {
 
     static final String ACCOUNT_FILE_NAME = "Accounts.csv";
     static final String TRANSFER_FILE_NAME = "Transfers.csv";
+    static final int DEFAULT_BATCH_SIZE = 500;
+    static final int DEFAULT_QUEUE_CAPACITY = 4;
     private static final Logger LOGGER = LoggerFactory.getLogger(CSVImporterBase.class);
 
 
     final AccountService accountService;
 
+    /**
+     * Saves each batch in its own transaction, without one the batches join the caller transaction
+     */
+    private final TransactionTemplate transactionTemplate;
+
+    /**
+     * Number of rows parsed and saved together
+     */
+    private final int batchSize;
+
+    /**
+     * Number of parsed batches waiting to be saved before the parser stops reading
+     */
+    private final int queueCapacity;
+
     public CSVImporterBase(AccountService accountService) {
+        this(accountService, null, DEFAULT_BATCH_SIZE, DEFAULT_QUEUE_CAPACITY);
+    }
+
+    public CSVImporterBase(AccountService accountService, PlatformTransactionManager transactionManager,
+                           int batchSize, int queueCapacity) {
+        if (batchSize <= 0) {
+            throw new IllegalArgumentException("Batch size must be greater than zero");
+        }
+        if (queueCapacity <= 0) {
+            throw new IllegalArgumentException("Queue capacity must be greater than zero");
+        }
         this.accountService = accountService;
+        this.transactionTemplate = Objects.isNull(transactionManager) ? null : new TransactionTemplate(transactionManager);
+        this.batchSize = batchSize;
+        this.queueCapacity = queueCapacity;
     }
 
     /**
@@ -144,22 +188,114 @@ public abstract class CSVImporterBase<T> {
     }
 
     /**
-     * Generic class that is responsible for loading the csv file and converting each  row into
-     * it specific sub class import class instance
+     * Streams the csv file rows to the batch consumer, which is called on the current thread with
+     * batches of at most the batch size while the next batches are parsed.
+     * The batches saved before a parsing or saving error stay committed.
      *
-     * @param file   {@link File} csv file that contain the inform to load
-     * @param tClass Pojo class which represents on row in the file and
-     * @return list of tClass
-     * @throws IOException
+     * @param file      {@link File} csv file that contain the inform to load
+     * @param tClass    Pojo class which represents on row in the file
+     * @param saveBatch saves a batch of rows, in its own transaction
+     * @return number of imported rows
+     * @throws CsvImportException when the file can not be read or a row can not be parsed, any other
+     *                            parser failure is rethrown as it is
      */
-    List<T> convertFileToImporterObjects(final File file, Class<T> tClass)  {
+    long importInBatches(final File file, final Class<T> tClass, final Consumer<List<T>> saveBatch) {
 
         if (!file.exists()) {
             LOGGER.warn("Skipping file {} does not exist", file.getName());
-            return Collections.emptyList();
+            return 0;
         }
 
-        List<T> accounts = new ArrayList<>();
+        BlockingQueue<List<T>> queue = new ArrayBlockingQueue<>(queueCapacity);
+        AtomicReference<Throwable> parseFailure = new AtomicReference<>();
+
+        Thread parser = new Thread(() -> parse(file, tClass, queue, parseFailure), "csv-parser-" + file.getName());
+        parser.setDaemon(true);
+        parser.start();
+
+        long rows = 0;
+
+        try {
+            List<T> batch;
+
+            // an empty batch marks the end of the file
+            while (!(batch = queue.take()).isEmpty()) {
+
+                save(batch, saveBatch);
+                rows += batch.size();
+
+                LOGGER.info("Imported {} rows of {}", rows, file.getName());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CsvImportException("Import of " + file.getName() + " was interrupted", e);
+        } finally {
+            // releases the parser waiting on a full queue when a batch could not be saved
+            parser.interrupt();
+        }
+
+        Throwable failure = parseFailure.get();
+
+        if (failure instanceof RuntimeException) {
+            throw (RuntimeException) failure;
+        }
+
+        if (failure instanceof Error) {
+            throw (Error) failure;
+        }
+
+        if (Objects.nonNull(failure)) {
+            throw new CsvImportException("Issue converting file:" + file.getName(), failure);
+        }
+
+        return rows;
+    }
+
+    /**
+     * Parses the file rows onto the queue, followed by the empty end of file batch which is queued
+     * whatever the parser failure, so the importing thread is never left waiting on the queue
+     */
+    private void parse(final File file, final Class<T> tClass, final BlockingQueue<List<T>> queue,
+                       final AtomicReference<Throwable> parseFailure) {
+
+        try {
+            readRows(file, tClass, queue::put);
+        } catch (InterruptedException e) {
+            // the import was aborted, keeps the flag so the end of file batch is not waited on
+            Thread.currentThread().interrupt();
+        } catch (Throwable e) {
+            parseFailure.set(e);
+        } finally {
+            endOfFile(file, queue);
+        }
+    }
+
+    private void endOfFile(final File file, final BlockingQueue<List<T>> queue) {
+
+        try {
+            queue.put(Collections.emptyList());
+        } catch (InterruptedException e) {
+            LOGGER.warn("Stopped parsing {}, the import was aborted", file.getName());
+        }
+    }
+
+    private void save(final List<T> batch, final Consumer<List<T>> saveBatch) {
+
+        if (Objects.isNull(transactionTemplate)) {
+            saveBatch.accept(batch);
+            return;
+        }
+
+        transactionTemplate.execute(status -> {
+            saveBatch.accept(batch);
+            return null;
+        });
+    }
+
+    /**
+     * Reads the file rows and passes them on in batches of the batch size
+     */
+    private void readRows(final File file, final Class<T> tClass, final BatchHandler<T> handler) throws InterruptedException {
 
         try (ICsvBeanReader beanReader = new CsvBeanReader(new FileReader(file.getAbsoluteFile()),
                 CsvPreference.EXCEL_NORTH_EUROPE_PREFERENCE)) {
@@ -168,15 +304,34 @@ public abstract class CSVImporterBase<T> {
 
             final CellProcessor[] processors = getProcessors();
 
+            List<T> batch = new ArrayList<>(batchSize);
+
             T t;
             while ((t = beanReader.read(tClass, headers, processors)) != null) {
-                accounts.add(t);
+
+                batch.add(t);
+
+                if (batch.size() == batchSize) {
+                    handler.accept(batch);
+                    batch = new ArrayList<>(batchSize);
+                }
+            }
+
+            if (!batch.isEmpty()) {
+                handler.accept(batch);
             }
-        }catch (IOException e){
 
-            LOGGER.error("Issue converting file:"+file.getName(),e);
+        } catch (IOException | SuperCsvException e) {
+            throw new CsvImportException("Issue converting file:" + file.getName(), e);
         }
+    }
+
+    /**
+     * Receives the parsed batches, waiting when they can not be taken yet
+     */
+    @FunctionalInterface
+    private interface BatchHandler<T> {
 
-        return accounts;
+        void accept(List<T> batch) throws InterruptedException;
     }
 }
@@ -6,6 +6,7 @@ import com.murray.financial.service.AccountService;
 import lombok.Data;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.transaction.PlatformTransactionManager;
 import org.supercsv.cellprocessor.ParseBigDecimal;
 import org.supercsv.cellprocessor.ParseLong;
 import org.supercsv.cellprocessor.constraint.NotNull;
@@ -31,6 +32,11 @@ public class CSVTransfersFileImporter extends CSVImporterBase<CSVTransfersFileIm
         super(accountService);
     }
 
+    public CSVTransfersFileImporter(AccountService accountService, PlatformTransactionManager transactionManager,
+                                    int batchSize, int queueCapacity) {
+        super(accountService, transactionManager, batchSize, queueCapacity);
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -45,21 +51,22 @@ public class CSVTransfersFileImporter extends CSVImporterBase<CSVTransfersFileIm
 
         LOGGER.info("Converting csv file :{}", csvFile.getName());
 
+        long imported = importInBatches(csvFile, TransferRow.class, this::transformAndSave);
 
-        transformAndSave(convertFileToImporterObjects(csvFile, TransferRow.class));
-
+        LOGGER.info("Imported {} transfers to database", imported);
 
     }
 
     /**
      * Converts the TransferRow into an {@link AccountTransfer} which is saved and
-     * then the transfer is executed.
-     * @param transferRows
+     * then the transfer is executed. The accounts shared by the batch transfers are
+     * only loaded once by the batch transaction.
+     * @param transferRows batch of transfer rows
      */
     private void transformAndSave(final List<TransferRow> transferRows) {
 
 
-        LOGGER.info("Import {} {} to transfers to database", transferRows.size());
+        LOGGER.debug("Import {} transfers to database", transferRows.size());
 
         for (TransferRow row : transferRows) {
 
@@ -94,13 +101,13 @@ public class CSVTransfersFileImporter extends CSVImporterBase<CSVTransfersFileIm
     }
 
     /**
-     * Find the {@link BankAccount} by internal id number
+     * Find the {@link BankAccount} by the account id of the accounts csv file
      *
      * @param id
      */
     private Optional<BankAccount> findAccountBy(final Long id) {
 
-        return accountService.findAccountById(id);
+        return accountService.findAccountByImportedId(id);
     }
 
     /**
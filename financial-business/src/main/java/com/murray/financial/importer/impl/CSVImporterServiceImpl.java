@@ -6,7 +6,6 @@ import com.murray.financial.importer.csv.CSVImporterBase;
 import com.murray.financial.importer.csv.CSVTransfersFileImporter;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.springframework.transaction.annotation.Transactional;
 
 /**
  * {@inheritDoc}
@@ -29,8 +28,10 @@ public class CSVImporterServiceImpl implements CSVImporterService {
 
     /**
      * {@inheritDoc}
+     * <p>
+     * The importers commit each batch in its own transaction, so the imports do not run
+     * in a single transaction holding every imported row.
      */
-    @Transactional
     @Override
     public void checkAndImportFiles() {
 
@@ -0,0 +1,45 @@
+package com.murray.financial.querybuilder;
+
+import javax.persistence.criteria.CompoundSelection;
+import javax.persistence.criteria.CriteriaBuilder;
+import javax.persistence.criteria.CriteriaQuery;
+import javax.persistence.criteria.Expression;
+import javax.persistence.criteria.Root;
+
+/**
+ * Implemented by the {@link SearchQuery} which map their fields to the entity attributes, so
+ * they can be run as a typed criteria query by the {@link SearchEngine#CRITERIA} engine. The
+ * other searches are always run as native queries.
+ *
+ * @param <E> the searched JPA entity
+ * @param <R> {@link SearchResultSet} the results are projected into
+ */
+public interface CriteriaSearch<E extends SearchableEntity, R extends SearchResultSet> {
+
+    /**
+     * The selection of the search result constructor arguments from the entity,
+     * joining the associations the results read.
+     *
+     * @param criteriaBuilder JPA {@link CriteriaBuilder}
+     * @param root            the searched entity
+     */
+    CompoundSelection<R> criteriaSelection(final CriteriaBuilder criteriaBuilder, final Root<E> root);
+
+    /**
+     * The entity attribute compared by the conditions on the field, and by which the results are
+     * ordered, associations are joined once and reused.
+     *
+     * @param field one of the search query fields or its key field
+     * @param root  the searched entity
+     */
+    Expression<?> criteriaAttribute(final QueryField field, final Root<E> root);
+
+    /**
+     * Builds the typed criteria query of the current conditions, ordering and paging, which
+     * returns the same results as the native query of the search.
+     *
+     * @param criteriaBuilder JPA {@link CriteriaBuilder}
+     * @return {@link CriteriaQuery} projected into the search results
+     */
+    CriteriaQuery<R> toCriteriaQuery(final CriteriaBuilder criteriaBuilder);
+}
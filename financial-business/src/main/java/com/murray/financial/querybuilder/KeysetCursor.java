@@ -0,0 +1,152 @@
+package com.murray.financial.querybuilder;
+
+import com.murray.financial.exceptions.InvalidSearchException;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.DateTimeException;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Base64;
+import java.util.Objects;
+
+/**
+ * Position of the last row returned by a page, the next page seeks past the ordering field value
+ * and the row id instead of skipping an offset, so every page costs the same as the first one.
+ * <br/>
+ * The cursor is handed to the clients as an opaque base64 continuation token.
+ */
+public class KeysetCursor {
+
+    private static final String SEPARATOR = "|";
+    private static final int TOKEN_PARTS = 5;
+
+    private static final String NULL_TYPE = "Z";
+    private static final String STRING_TYPE = "S";
+    private static final String DECIMAL_TYPE = "N";
+    private static final String LONG_TYPE = "L";
+    private static final String DATE_TYPE = "D";
+    private static final String DATE_TIME_TYPE = "T";
+
+    /**
+     * {@link QueryField} name the results are ordered by
+     */
+    private final String fieldName;
+
+    /**
+     * Direction of the ordering
+     */
+    private final OrderBy orderBy;
+
+    /**
+     * Ordering field value of the last row
+     */
+    private final Object value;
+
+    /**
+     * Unique id of the last row, breaks the ties between rows with the same field value
+     */
+    private final Long id;
+
+    public KeysetCursor(String fieldName, OrderBy orderBy, Object value, Long id) {
+        this.fieldName = Objects.requireNonNull(fieldName);
+        this.orderBy = Objects.requireNonNull(orderBy);
+        this.value = value;
+        this.id = Objects.requireNonNull(id);
+    }
+
+    public String getFieldName() {
+        return fieldName;
+    }
+
+    public OrderBy getOrderBy() {
+        return orderBy;
+    }
+
+    public Object getValue() {
+        return value;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    /**
+     * Encodes the cursor as an url safe continuation token
+     */
+    public String encode() {
+
+        String text = String.join(SEPARATOR, fieldName, orderBy.name(), id.toString(), typeOf(value),
+                Objects.isNull(value) ? "" : value.toString());
+
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(text.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Decodes a continuation token created by {@link #encode()}
+     *
+     * @param token continuation token
+     * @return {@link KeysetCursor}
+     * @throws InvalidSearchException when the token is malformed
+     */
+    public static KeysetCursor decode(final String token) {
+
+        try {
+            String text = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            String[] parts = text.split("\\" + SEPARATOR, TOKEN_PARTS);
+
+            if (parts.length != TOKEN_PARTS) {
+                throw new InvalidSearchException("Invalid continuation token");
+            }
+
+            return new KeysetCursor(parts[0], OrderBy.valueOf(parts[1]), valueOf(parts[3], parts[4]), Long.valueOf(parts[2]));
+
+        } catch (IllegalArgumentException | DateTimeException e) {
+            throw new InvalidSearchException("Invalid continuation token", e);
+        }
+    }
+
+    private static String typeOf(final Object value) {
+
+        if (Objects.isNull(value)) {
+            return NULL_TYPE;
+        }
+        if (value instanceof String) {
+            return STRING_TYPE;
+        }
+        if (value instanceof BigDecimal) {
+            return DECIMAL_TYPE;
+        }
+        if (value instanceof Long) {
+            return LONG_TYPE;
+        }
+        if (value instanceof LocalDate) {
+            return DATE_TYPE;
+        }
+        if (value instanceof LocalDateTime) {
+            return DATE_TIME_TYPE;
+        }
+
+        throw new IllegalStateException("Results can not be paged by values of type " + value.getClass().getSimpleName());
+    }
+
+    private static Object valueOf(final String type, final String value) {
+
+        switch (type) {
+            case NULL_TYPE:
+                return null;
+            case STRING_TYPE:
+                return value;
+            case DECIMAL_TYPE:
+                return new BigDecimal(value);
+            case LONG_TYPE:
+                return Long.valueOf(value);
+            case DATE_TYPE:
+                return LocalDate.parse(value);
+            case DATE_TIME_TYPE:
+                return LocalDateTime.parse(value);
+            default:
+                throw new InvalidSearchException("Invalid continuation token");
+        }
+    }
+}
@@ -1,44 +1,186 @@
 package com.murray.financial.querybuilder;
 
+import com.murray.financial.exceptions.InvalidSearchException;
+
 import javax.persistence.criteria.CriteriaBuilder;
 import javax.persistence.criteria.Expression;
 import javax.persistence.criteria.Path;
 import javax.persistence.criteria.Predicate;
+import java.math.BigDecimal;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.IntPredicate;
 
 /**
  * All the operators that can be used to compare a {@link QueryField} with a value in a {@link QueryCondition}.
+ * The native clauses always compare the bare column with the bound parameters, so the conditions
+ * stay sargable and can use the column indexes.
  */
 public enum Operator {
 
 
-    EQUALS("=") {
+    EQUALS("=", "") {
         @Override
         public final Predicate buildPredicate(final CriteriaBuilder criteriaBuilder, final Expression<Path> path,
                                               final Object value) {
             return criteriaBuilder.equal(path, value);
         }
+
+        @Override
+        public boolean mayMatch(final Object value, final Object conditionValue) {
+            return compare(value, conditionValue, c -> c == 0);
+        }
     },
-    NOT_EQUALS("!=") {
+    NOT_EQUALS("!=", "_ne") {
         @Override
         public final Predicate buildPredicate(final CriteriaBuilder criteriaBuilder, final Expression<Path> path,
                                               final Object value) {
             return criteriaBuilder.notEqual(path, value);
         }
-    };
 
-    /*
-    GREATER_THAN(">"),
-    GREATER_OR_EQUAL(">="),
-    LOWER_THAN("<"),
-    LOWER_OR_EQUAL("<="),
-    IN("in");*/
+        @Override
+        public boolean mayMatch(final Object value, final Object conditionValue) {
+            return compare(value, conditionValue, c -> c != 0);
+        }
+    },
+    GREATER_THAN(">", "_gt") {
+        @Override
+        @SuppressWarnings("unchecked")
+        public final Predicate buildPredicate(final CriteriaBuilder criteriaBuilder, final Expression<Path> path,
+                                              final Object value) {
+            return criteriaBuilder.greaterThan(comparable(path), (Comparable) value);
+        }
+
+        @Override
+        public boolean mayMatch(final Object value, final Object conditionValue) {
+            return compare(value, conditionValue, c -> c > 0);
+        }
+    },
+    GREATER_OR_EQUAL(">=", "_gte") {
+        @Override
+        @SuppressWarnings("unchecked")
+        public final Predicate buildPredicate(final CriteriaBuilder criteriaBuilder, final Expression<Path> path,
+                                              final Object value) {
+            return criteriaBuilder.greaterThanOrEqualTo(comparable(path), (Comparable) value);
+        }
+
+        @Override
+        public boolean mayMatch(final Object value, final Object conditionValue) {
+            return compare(value, conditionValue, c -> c >= 0);
+        }
+    },
+    LOWER_THAN("<", "_lt") {
+        @Override
+        @SuppressWarnings("unchecked")
+        public final Predicate buildPredicate(final CriteriaBuilder criteriaBuilder, final Expression<Path> path,
+                                              final Object value) {
+            return criteriaBuilder.lessThan(comparable(path), (Comparable) value);
+        }
+
+        @Override
+        public boolean mayMatch(final Object value, final Object conditionValue) {
+            return compare(value, conditionValue, c -> c < 0);
+        }
+    },
+    LOWER_OR_EQUAL("<=", "_lte") {
+        @Override
+        @SuppressWarnings("unchecked")
+        public final Predicate buildPredicate(final CriteriaBuilder criteriaBuilder, final Expression<Path> path,
+                                              final Object value) {
+            return criteriaBuilder.lessThanOrEqualTo(comparable(path), (Comparable) value);
+        }
+
+        @Override
+        public boolean mayMatch(final Object value, final Object conditionValue) {
+            return compare(value, conditionValue, c -> c <= 0);
+        }
+    },
+    /**
+     * Inclusive range, the value is a {@link Range}
+     */
+    BETWEEN(" BETWEEN ", "_between") {
+        @Override
+        @SuppressWarnings("unchecked")
+        public final Predicate buildPredicate(final CriteriaBuilder criteriaBuilder, final Expression<Path> path,
+                                              final Object value) {
+            Range range = (Range) value;
+            return criteriaBuilder.between(comparable(path), range.getFrom(), range.getTo());
+        }
+
+        @Override
+        public boolean mayMatch(final Object value, final Object conditionValue) {
+            Range<?> range = (Range<?>) conditionValue;
+            return compare(value, range.getFrom(), c -> c >= 0) && compare(value, range.getTo(), c -> c <= 0);
+        }
+
+        @Override
+        public String toQueryClause(final String conditionClause, final String parameterName) {
+            return conditionClause + getSymbol() + ":" + parameterName + FROM + " AND :" + parameterName + TO;
+        }
+
+        @Override
+        public Map<String, Object> parameters(final String parameterName, final Object value) {
+
+            Range<?> range = (Range<?>) value;
+
+            Map<String, Object> parameters = new HashMap<>();
+            parameters.put(parameterName + FROM, range.getFrom());
+            parameters.put(parameterName + TO, range.getTo());
+            return parameters;
+        }
+
+        @Override
+        void validate(final Object value) {
+            if (!(value instanceof Range)) {
+                throw new InvalidSearchException("BETWEEN condition value must be a range");
+            }
+        }
+    },
+    /**
+     * Any of the values, the value is a non empty {@link Collection}
+     */
+    IN(" IN ", "_in") {
+        @Override
+        public final Predicate buildPredicate(final CriteriaBuilder criteriaBuilder, final Expression<Path> path,
+                                              final Object value) {
+            return path.in((Collection<?>) value);
+        }
+
+        @Override
+        public boolean mayMatch(final Object value, final Object conditionValue) {
+            return ((Collection<?>) conditionValue).stream().anyMatch(v -> compare(value, v, c -> c == 0));
+        }
+
+        @Override
+        public String toQueryClause(final String conditionClause, final String parameterName) {
+            return conditionClause + getSymbol() + "(:" + parameterName + ")";
+        }
+
+        @Override
+        void validate(final Object value) {
+            if (!(value instanceof Collection) || ((Collection<?>) value).isEmpty()) {
+                throw new InvalidSearchException("IN condition value must be a non empty collection");
+            }
+        }
+    };
 
+    private static final String FROM = "_from";
+    private static final String TO = "_to";
 
     private String symbol;
 
+    /**
+     * Suffix of the named parameters, so conditions with different operators on the
+     * same field can be combined, such as a lower and an upper bound.
+     */
+    private String parameterSuffix;
+
 
-    Operator(String symbol) {
+    Operator(String symbol, String parameterSuffix) {
         this.symbol = symbol;
+        this.parameterSuffix = parameterSuffix;
     }
 
 
@@ -46,9 +188,78 @@ public enum Operator {
         return symbol;
     }
 
+    public String getParameterSuffix() {
+        return parameterSuffix;
+    }
+
     public abstract Predicate buildPredicate(final CriteriaBuilder criteriaBuilder, final Expression<Path> path,
                                              final Object value);
 
+    /**
+     * The native query clause comparing the column with the named parameter
+     *
+     * @param conditionClause the column, or alias, compared
+     * @param parameterName   the named parameter of the condition
+     */
+    public String toQueryClause(final String conditionClause, final String parameterName) {
+        return conditionClause + symbol + ":" + parameterName;
+    }
 
-}
+    /**
+     * The named parameters, and their values, of the clause built by {@link #toQueryClause(String, String)}
+     */
+    public Map<String, Object> parameters(final String parameterName, final Object value) {
+        return Collections.singletonMap(parameterName, value);
+    }
+
+    /**
+     * Evaluates the condition in memory against a column value, as the database would. Strings are
+     * compared ignoring case, like the default MySQL collation, and values which can not be
+     * compared are assumed to match, so a false result means the row surely does not match.
+     *
+     * @param value          the column value, a null value never matches
+     * @param conditionValue the {@link QueryCondition} value
+     */
+    public abstract boolean mayMatch(final Object value, final Object conditionValue);
+
+    /**
+     * Checks the value can be compared with the operator
+     *
+     * @throws InvalidSearchException when the value does not suit the operator
+     */
+    void validate(final Object value) {
+    }
+
+    /**
+     * Compares the column value with the condition value and tests the comparison result,
+     * see {@link #mayMatch(Object, Object)}
+     */
+    @SuppressWarnings("unchecked")
+    private static boolean compare(final Object value, final Object conditionValue, final IntPredicate test) {
+
+        if (value == null) {
+            return false;
+        }
+
+        if (value instanceof Number && conditionValue instanceof Number) {
+            return test.test(new BigDecimal(value.toString()).compareTo(new BigDecimal(conditionValue.toString())));
+        }
+
+        if (value instanceof CharSequence || value instanceof Enum) {
+            String text = value instanceof Enum ? ((Enum<?>) value).name() : value.toString();
+            return test.test(text.compareToIgnoreCase(conditionValue.toString()));
+        }
+
+        if (value instanceof Comparable && value.getClass().isInstance(conditionValue)) {
+            return test.test(((Comparable) value).compareTo(conditionValue));
+        }
+
+        return true;
+    }
 
+    @SuppressWarnings("unchecked")
+    private static Expression<Comparable> comparable(final Expression<Path> path) {
+        return (Expression<Comparable>) (Expression<?>) path;
+    }
+
+}
@@ -24,6 +24,14 @@ public class OrderCondition {
         this.orderBy = orderBy;
     }
 
+    public OrderBy getOrderBy() {
+        return orderBy;
+    }
+
+    public QueryField getField() {
+        return field;
+    }
+
     public String toNativeOrderClause(){
 
         return field.getSqlColumnName().concat(" ").concat(orderBy.getSign());
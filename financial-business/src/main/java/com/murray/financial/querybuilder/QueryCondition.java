@@ -1,5 +1,6 @@
 package com.murray.financial.querybuilder;
 
+import java.util.Map;
 import java.util.Objects;
 
 /**
@@ -39,6 +40,8 @@ public class QueryCondition {
         this.field = Objects.requireNonNull(field);
         this.operator = Objects.requireNonNull(operator);
         this.value = Objects.requireNonNull(value);
+
+        operator.validate(value);
     }
 
     @Override
@@ -64,8 +67,23 @@ public class QueryCondition {
      */
     public String toQueryClause() {
 
-        return field.getConditionClause()
-                + operator.getSymbol()
-                + ":" + field.getSqlColumnName();
+        return operator.toQueryClause(field.getConditionClause(), parameterName());
+    }
+
+    /**
+     * The named parameters of the {@link #toQueryClause()} and their values
+     */
+    public Map<String, Object> parameters() {
+
+        return operator.parameters(parameterName(), value);
+    }
+
+    /**
+     * The column name followed by the operator suffix, so a field can be compared
+     * with different operators in the same query
+     */
+    private String parameterName() {
+
+        return field.getSqlColumnName() + operator.getParameterSuffix();
     }
 }
@@ -0,0 +1,95 @@
+package com.murray.financial.querybuilder;
+
+import org.springframework.jmx.export.annotation.ManagedAttribute;
+import org.springframework.jmx.export.annotation.ManagedResource;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Cache of the native query templates built by the {@link SearchQuery}s, keyed by the search type and
+ * query shape (condition fields and operators, ordering and paging) rather than by the condition values which
+ * are bound as parameters. Repeated searches of the same shape reuse the exact same SQL string so
+ * neither the string is rebuilt nor the statement re-planned by Hibernate and the JDBC driver.
+ * <br/>
+ * The number of shapes is small, once the limit is reached new shapes are still built but no longer cached.
+ */
+@ManagedResource(objectName = "com.murray.financial:type=QueryTemplateCache",
+        description = "Native query templates of the searches")
+public class QueryTemplateCache {
+
+    private final int maxTemplates;
+
+    private final ConcurrentMap<String, String> templates = new ConcurrentHashMap<>();
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    public QueryTemplateCache(int maxTemplates) {
+        if (maxTemplates <= 0) {
+            throw new IllegalArgumentException("Max templates must be greater than zero");
+        }
+        this.maxTemplates = maxTemplates;
+    }
+
+    /**
+     * Returns the cached template of the shape or builds it.
+     *
+     * @param shape   key which identifies the query shape
+     * @param builder builds the template when it is not cached
+     * @return the native query template
+     */
+    public String templateOf(final String shape, final Supplier<String> builder) {
+
+        String template = templates.get(shape);
+
+        if (template != null) {
+            hits.incrementAndGet();
+            return template;
+        }
+
+        misses.incrementAndGet();
+        template = builder.get();
+
+        if (templates.size() < maxTemplates) {
+            templates.putIfAbsent(shape, template);
+        }
+
+        return template;
+    }
+
+    /**
+     * @return number of searches which reused a cached template
+     */
+    @ManagedAttribute(description = "Searches which reused a cached template")
+    public long getHits() {
+        return hits.get();
+    }
+
+    /**
+     * @return number of searches which had to build their template
+     */
+    @ManagedAttribute(description = "Searches which had to build their template")
+    public long getMisses() {
+        return misses.get();
+    }
+
+    /**
+     * @return ratio of the searches which reused a cached template
+     */
+    @ManagedAttribute(description = "Ratio of the searches which reused a cached template")
+    public double getHitRatio() {
+        long requests = hits.get() + misses.get();
+        return requests == 0 ? 0 : (double) hits.get() / requests;
+    }
+
+    /**
+     * @return number of cached templates
+     */
+    @ManagedAttribute(description = "Cached query shapes")
+    public int getSize() {
+        return templates.size();
+    }
+}
@@ -0,0 +1,49 @@
+package com.murray.financial.querybuilder;
+
+import com.murray.financial.exceptions.InvalidSearchException;
+
+import java.util.Objects;
+
+/**
+ * Inclusive range of values compared with the {@link Operator#BETWEEN} operator.
+ *
+ * @param <T> the compared value type
+ */
+public class Range<T extends Comparable<? super T>> {
+
+    /**
+     * Lowest value of the range
+     */
+    private final T from;
+
+    /**
+     * Highest value of the range
+     */
+    private final T to;
+
+    /**
+     * @param from lowest value of the range
+     * @param to   highest value of the range, not lower than from
+     */
+    public Range(T from, T to) {
+        this.from = Objects.requireNonNull(from);
+        this.to = Objects.requireNonNull(to);
+
+        if (from.compareTo(to) > 0) {
+            throw new InvalidSearchException("Range from value " + from + " is greater than to value " + to);
+        }
+    }
+
+    public T getFrom() {
+        return from;
+    }
+
+    public T getTo() {
+        return to;
+    }
+
+    @Override
+    public String toString() {
+        return from + " AND " + to;
+    }
+}
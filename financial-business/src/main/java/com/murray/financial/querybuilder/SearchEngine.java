@@ -0,0 +1,18 @@
+package com.murray.financial.querybuilder;
+
+/**
+ * The way the {@link SearchQuery} is turned into a database query.
+ */
+public enum SearchEngine {
+
+    /**
+     * Native SQL built from the {@link QueryField} clauses, see {@link SearchQuery#toNativeQueryWithConditions()}
+     */
+    NATIVE,
+
+    /**
+     * Typed JPA Criteria query projected into the results, see {@link CriteriaSearch#toCriteriaQuery}.
+     * Searches which are not a {@link CriteriaSearch} are still run as native queries.
+     */
+    CRITERIA
+}
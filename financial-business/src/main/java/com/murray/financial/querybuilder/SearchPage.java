@@ -0,0 +1,42 @@
+package com.murray.financial.querybuilder;
+
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * A page of search results along with the continuation token used to read the next page.
+ *
+ * @param <R> result mapping object returned with the query results
+ */
+public class SearchPage<R> {
+
+    /**
+     * Results of the page, in the search order
+     */
+    private final List<R> results;
+
+    /**
+     * Opaque token of the next page, null when this is the last page
+     */
+    private final String continuationToken;
+
+    public SearchPage(List<R> results, String continuationToken) {
+        this.results = results;
+        this.continuationToken = continuationToken;
+    }
+
+    public List<R> getResults() {
+        return results;
+    }
+
+    public String getContinuationToken() {
+        return continuationToken;
+    }
+
+    /**
+     * Indicates if there are more results after this page
+     */
+    public boolean hasNext() {
+        return Objects.nonNull(continuationToken);
+    }
+}
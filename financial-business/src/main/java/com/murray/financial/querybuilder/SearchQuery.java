@@ -1,12 +1,26 @@
 package com.murray.financial.querybuilder;
 
+import com.murray.financial.exceptions.InvalidSearchException;
 import org.springframework.util.StringUtils;
 
+import javax.persistence.criteria.CriteriaBuilder;
+import javax.persistence.criteria.CriteriaQuery;
+import javax.persistence.criteria.Expression;
+import javax.persistence.criteria.Order;
+import javax.persistence.criteria.Path;
+import javax.persistence.criteria.Predicate;
+import javax.persistence.criteria.Root;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
-import java.util.function.Predicate;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
@@ -23,16 +37,13 @@ public abstract class SearchQuery<E extends SearchableEntity, R extends SearchRe
     private static final String HAVING = " HAVING ";
     private static final String GROUP_BY = " GROUP BY ";
     private static final String ORDER_BY = " ORDER BY ";
+    private static final String AND = " AND ";
+
     /**
-     * Predicate to indicate if there are any where Query Conditions
-     */
-    private Predicate<Set<QueryCondition>> whereCondition = queryConditions ->
-            queryConditions.stream().anyMatch(qf -> !qf.getField().isAggregated());
-    /**
-     * Predicate to indicate if there are any having Query Conditions
+     * Named parameters of the keyset seek condition
      */
-    private Predicate<Set<QueryCondition>> aggregateCondition = queryConditions ->
-            queryConditions.stream().anyMatch(qf -> qf.getField().isAggregated());
+    public static final String KEYSET_VALUE = "keysetValue";
+    public static final String KEYSET_ID = "keysetId";
 
     /**
      * Ordering condition for the results.
@@ -50,10 +61,36 @@ public abstract class SearchQuery<E extends SearchableEntity, R extends SearchRe
      */
     private Set<QueryCondition> queryConditions;
 
+    /**
+     * Maximum number of results of each page, null when the results are not paged
+     */
+    private Integer pageSize;
+
+    /**
+     * Position of the last row of the previous page
+     */
+    private KeysetCursor cursor;
+
+    /**
+     * Number of rows fetched from the database in each round trip when the results are streamed
+     */
+    private Integer fetchSize;
+
+    /**
+     * Fields the rows are grouped by when the search returns aggregated totals
+     */
+    private List<QueryField> groupByFields;
+
+    /**
+     * Fields the caller reads from the results, null when all the fields are read
+     */
+    private Set<QueryField> selectedFields;
+
 
     protected SearchQuery() {
         this.conditionOperator = ConditionOperator.AND;
         this.queryConditions = new HashSet<>();
+        this.groupByFields = new ArrayList<>();
     }
 
     /**
@@ -99,31 +136,241 @@ public abstract class SearchQuery<E extends SearchableEntity, R extends SearchRe
     public abstract String groupByClause();
 
     /**
-     * Build the native query using the {@link QueryCondition} field name and values.
+     * The unique id {@link QueryField} which breaks the ties between rows with
+     * the same ordering value when the results are paged.
+     */
+    public abstract QueryField keyField();
+
+    /**
+     * Build the native query using the {@link QueryCondition} field name and values
      *
      * @return Native query String
      */
     public String toNativeQueryWithConditions() {
 
-        StringBuilder queryBuilder = new StringBuilder(nativeQuery());
+        return buildNativeQuery();
+    }
+
+    /**
+     * Build the native query using the {@link QueryCondition} field name and values, the
+     * query is only built the first time the search type and shape is searched and then
+     * read from the template cache.
+     *
+     * @param templateCache {@link QueryTemplateCache} shared by all the searches
+     * @return Native query String
+     */
+    public String toNativeQueryWithConditions(final QueryTemplateCache templateCache) {
+
+        return templateCache.templateOf(getClass().getName() + '|' + queryShape(), this::buildNativeQuery);
+    }
+
+    /**
+     * Key which identifies the native query built for the current conditions, ordering and
+     * paging, the condition values are not part of it as they are bound as parameters.
+     */
+    String queryShape() {
+
+        StringBuilder shape = new StringBuilder(conditionOperator.name());
+
+        sortedConditions(queryConditions.stream()).forEach(c ->
+                shape.append('|').append(c.getField().getName()).append(' ').append(c.getOperator().name()));
+
+        shape.append("|order:");
+        if (Objects.nonNull(orderCondition)) {
+            shape.append(orderCondition.getField().getName()).append(' ').append(orderCondition.getOrderBy().name());
+        }
+
+        if (!groupByFields.isEmpty()) {
+            shape.append("|group:");
+            groupByFields.forEach(f -> shape.append(f.getName()).append(' '));
+        }
+
+        if (Objects.nonNull(selectedFields)) {
+            shape.append("|fields:");
+            selectedFields.forEach(f -> shape.append(f.getName()).append(' '));
+        }
+
+        shape.append("|paged:").append(isPaged());
+
+        if (Objects.nonNull(cursor)) {
+            shape.append("|seek:").append(Objects.isNull(cursor.getValue()) ? "null" : "value");
+        }
+
+        return shape.toString();
+    }
+
+    /**
+     * Key which identifies the results of the search, the query shape followed by the
+     * condition values and the keyset position.
+     */
+    public String resultsKey() {
+
+        StringBuilder key = new StringBuilder(getClass().getName()).append('|').append(queryShape());
+
+        sortedConditions(queryConditions.stream()).forEach(c -> key.append('|').append(c.getValue()));
+
+        if (Objects.nonNull(pageSize)) {
+            key.append("|size:").append(pageSize);
+        }
+
+        if (Objects.nonNull(cursor)) {
+            key.append("|after:").append(cursor.getValue()).append(',').append(cursor.getId());
+        }
+
+        return key.toString();
+    }
+
+    /**
+     * Builds the typed criteria query of the current conditions, ordering and paging for a
+     * {@link CriteriaSearch}, which returns the same results as the {@link #toNativeQueryWithConditions()}.
+     * The condition values are bound as parameters and converted to the attribute types, such as the enums.
+     *
+     * @param criteriaBuilder JPA {@link CriteriaBuilder}
+     * @param mapping         the entity attributes of the search fields, normally the search itself
+     * @return {@link CriteriaQuery} projected into the search results
+     */
+    protected CriteriaQuery<R> criteriaQueryOf(final CriteriaBuilder criteriaBuilder, final CriteriaSearch<E, R> mapping) {
+
+        checkCursorOrder();
+
+        CriteriaQuery<R> query = criteriaBuilder.createQuery(getSearchResult());
+        Root<E> root = query.from(getEntityClass());
+        query.select(mapping.criteriaSelection(criteriaBuilder, root));
+
+        List<Predicate> restrictions = new ArrayList<>();
+
+        Predicate[] conditions = sortedConditions(queryConditions.stream()).stream()
+                .map(c -> criteriaPredicate(criteriaBuilder, mapping, root, c))
+                .toArray(Predicate[]::new);
+
+        if (conditions.length > 0) {
+            restrictions.add(conditionOperator == ConditionOperator.OR
+                    ? criteriaBuilder.or(conditions) : criteriaBuilder.and(conditions));
+        }
+
+        if (Objects.nonNull(cursor)) {
+            restrictions.add(keysetPredicate(criteriaBuilder, mapping, root));
+        }
+
+        query.where(restrictions.toArray(new Predicate[0]));
+
+        List<Order> orders = new ArrayList<>();
+
+        if (Objects.nonNull(orderCondition)) {
+            orders.add(criteriaOrder(criteriaBuilder, mapping.criteriaAttribute(orderCondition.getField(), root), orderCondition.getOrderBy()));
+        }
+        if (isPaged()) {
+            orders.add(criteriaOrder(criteriaBuilder, mapping.criteriaAttribute(keyField(), root), orderDirection()));
+        }
+
+        return query.orderBy(orders);
+    }
+
+    @SuppressWarnings("unchecked")
+    private Predicate criteriaPredicate(final CriteriaBuilder criteriaBuilder, final CriteriaSearch<E, R> mapping,
+                                        final Root<E> root, final QueryCondition condition) {
+
+        Expression<?> attribute = mapping.criteriaAttribute(condition.getField(), root);
+
+        return condition.getOperator().buildPredicate(criteriaBuilder, (Expression<Path>) attribute,
+                criteriaValue(condition.getValue(), attribute.getJavaType()));
+    }
+
+    /**
+     * The criteria seek condition, the same as the {@link #keysetClause()}
+     */
+    @SuppressWarnings("unchecked")
+    private Predicate keysetPredicate(final CriteriaBuilder criteriaBuilder, final CriteriaSearch<E, R> mapping,
+                                      final Root<E> root) {
+
+        Expression<Comparable> field = (Expression<Comparable>) mapping.criteriaAttribute(orderField(), root);
+        Expression<Long> key = (Expression<Long>) mapping.criteriaAttribute(keyField(), root);
+        boolean ascending = orderDirection() == OrderBy.ASC;
+
+        Predicate keyAfter = ascending
+                ? criteriaBuilder.greaterThan(key, cursor.getId()) : criteriaBuilder.lessThan(key, cursor.getId());
+
+        if (Objects.isNull(cursor.getValue())) {
+
+            Predicate nullSeek = criteriaBuilder.and(criteriaBuilder.isNull(field), keyAfter);
+            return ascending ? criteriaBuilder.or(nullSeek, criteriaBuilder.isNotNull(field)) : nullSeek;
+        }
+
+        Comparable value = (Comparable) criteriaValue(cursor.getValue(), field.getJavaType());
+
+        Predicate seek = criteriaBuilder.or(
+                ascending ? criteriaBuilder.greaterThan(field, value) : criteriaBuilder.lessThan(field, value),
+                criteriaBuilder.and(criteriaBuilder.equal(field, value), keyAfter));
 
+        return ascending ? seek : criteriaBuilder.or(seek, criteriaBuilder.isNull(field));
+    }
+
+    private static Order criteriaOrder(final CriteriaBuilder criteriaBuilder, final Expression<?> attribute, final OrderBy orderBy) {
+
+        return orderBy == OrderBy.ASC ? criteriaBuilder.asc(attribute) : criteriaBuilder.desc(attribute);
+    }
+
+    /**
+     * Converts the condition value to the attribute type, as the native queries leave the
+     * conversion to the database, such as comparing the enum columns with their names
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static Object criteriaValue(final Object value, final Class<?> type) {
+
+        if (value instanceof Collection) {
+            return ((Collection<?>) value).stream().map(v -> criteriaValue(v, type)).collect(Collectors.toList());
+        }
+
+        if (value instanceof Range) {
+            Range<?> range = (Range<?>) value;
+            return new Range((Comparable) criteriaValue(range.getFrom(), type), (Comparable) criteriaValue(range.getTo(), type));
+        }
+
+        if (type.isEnum() && value instanceof String) {
+            try {
+                return Enum.valueOf((Class<Enum>) type, ((String) value).trim().toUpperCase());
+            } catch (IllegalArgumentException e) {
+                throw new InvalidSearchException(String.format("Invalid %s search value %s", type.getSimpleName(), value), e);
+            }
+        }
+
+        if (String.class.equals(type) && !(value instanceof String)) {
+            return String.valueOf(value);
+        }
 
-        if (whereCondition.test(queryConditions)) {
+        if (BigDecimal.class.equals(type) && value instanceof Number && !(value instanceof BigDecimal)) {
+            return new BigDecimal(value.toString());
+        }
 
-            queryBuilder.append(WHERE);
-            addConditions(queryBuilder,
-                    queryConditions.stream().filter(c -> !c.getField().isAggregated()));
+        if (Long.class.equals(type) && value instanceof Number && !(value instanceof Long)) {
+            return ((Number) value).longValue();
+        }
+
+        return value;
+    }
+
+    /**
+     * Builds the native query string of the current conditions, ordering and paging
+     */
+    private String buildNativeQuery() {
+
+        StringBuilder queryBuilder = new StringBuilder(nativeQuery());
+
+        //build the where clause
+        String whereClause = conditionsClause(c -> !c.getField().isAggregated(), !orderField().isAggregated());
+
+        if (!whereClause.isEmpty()) {
+            queryBuilder.append(WHERE).append(whereClause);
         }
 
         //add grouping condition
         addGroupByConditions(queryBuilder);
 
-        //build the where clause
-        if (aggregateCondition.test(queryConditions)) {
+        //build the having clause
+        String havingClause = conditionsClause(c -> c.getField().isAggregated(), orderField().isAggregated());
 
-            queryBuilder.append(HAVING);
-            addConditions(queryBuilder,
-                    queryConditions.stream().filter(c -> c.getField().isAggregated()));
+        if (!havingClause.isEmpty()) {
+            queryBuilder.append(HAVING).append(havingClause);
         }
 
         //add ordering
@@ -134,12 +381,68 @@ public abstract class SearchQuery<E extends SearchableEntity, R extends SearchRe
     }
 
     /**
-     * Append the query ordering condition to the native query
+     * Joins the {@link QueryCondition}s matching the filter and, when reading a following page,
+     * the keyset seek condition of the ordering field
+     *
+     * @param filter      the conditions of the clause
+     * @param withKeyset  indicates if the clause holds the ordering field seek condition
+     */
+    private String conditionsClause(java.util.function.Predicate<QueryCondition> filter, boolean withKeyset) {
+
+        StringBuilder clause = new StringBuilder();
+        addConditions(clause, queryConditions.stream().filter(filter));
+
+        if (withKeyset && Objects.nonNull(cursor)) {
+
+            if (clause.length() > 0) {
+                clause.insert(0, "(").append(")").append(AND);
+            }
+            clause.append(keysetClause());
+        }
+
+        return clause.toString();
+    }
+
+    /**
+     * The seek condition which reads the rows after the cursor position, nulls are
+     * expected to be sorted before any value as both H2 and MySQL do.
+     */
+    private String keysetClause() {
+
+        String field = orderField().getConditionClause();
+        String key = keyField().getConditionClause();
+        boolean ascending = orderDirection() == OrderBy.ASC;
+        String comparator = ascending ? " > " : " < ";
+
+        if (Objects.isNull(cursor.getValue())) {
+
+            String nullSeek = "(" + field + " IS NULL AND " + key + comparator + ":" + KEYSET_ID + ")";
+            return ascending ? "(" + nullSeek + " OR " + field + " IS NOT NULL)" : nullSeek;
+        }
+
+        String seek = "(" + field + comparator + ":" + KEYSET_VALUE
+                + " OR (" + field + " = :" + KEYSET_VALUE + AND + key + comparator + ":" + KEYSET_ID + ")";
+
+        return ascending ? seek + ")" : seek + " OR " + field + " IS NULL)";
+    }
+
+    /**
+     * Append the query ordering condition to the native query, paged results are also
+     * ordered by their unique id so the page boundaries are stable
      * @param queryBuilder
      */
     private void addOrderingCondition(StringBuilder queryBuilder) {
 
-        if(Objects.nonNull(orderCondition)){
+        if (isPaged()) {
+            queryBuilder.append(ORDER_BY);
+
+            if (Objects.nonNull(orderCondition)) {
+                queryBuilder.append(orderCondition.toNativeOrderClause()).append(", ");
+            }
+
+            queryBuilder.append(keyField().getConditionClause()).append(" ").append(orderDirection().getSign());
+
+        } else if(Objects.nonNull(orderCondition)){
             queryBuilder.append(ORDER_BY)
                     .append(orderCondition.toNativeOrderClause());
         }
@@ -174,7 +477,7 @@ public abstract class SearchQuery<E extends SearchableEntity, R extends SearchRe
     private void addConditions(StringBuilder queryBuilder, Stream<QueryCondition> queryConditions) {
         int index = 0;
 
-        for (QueryCondition condition : queryConditions.collect(Collectors.toList())) {
+        for (QueryCondition condition : sortedConditions(queryConditions)) {
 
             if (index == 0) {
                 queryBuilder.append(condition.toQueryClause());
@@ -188,6 +491,189 @@ public abstract class SearchQuery<E extends SearchableEntity, R extends SearchRe
 
     }
 
+    /**
+     * Sorts the conditions by field and operator, so the same conditions always
+     * build the same query whatever order they were added in
+     */
+    private static List<QueryCondition> sortedConditions(Stream<QueryCondition> queryConditions) {
+
+        return queryConditions
+                .sorted(Comparator.comparing((QueryCondition c) -> c.getField().getName())
+                        .thenComparing(c -> c.getOperator().name()))
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * The {@link QueryField} the results are ordered by, the unique id when no order is defined
+     */
+    private QueryField orderField() {
+
+        return Objects.nonNull(orderCondition) ? orderCondition.getField() : keyField();
+    }
+
+    private OrderBy orderDirection() {
+
+        return Objects.nonNull(orderCondition) ? orderCondition.getOrderBy() : OrderBy.ASC;
+    }
+
+    /**
+     * Indicates if the results are read page by page
+     */
+    public boolean isPaged() {
+        return Objects.nonNull(pageSize) || Objects.nonNull(cursor);
+    }
+
+    public Integer getPageSize() {
+        return pageSize;
+    }
+
+    /**
+     * Limits the results to pages of the given size
+     *
+     * @param pageSize maximum number of results of each page
+     */
+    public void setPageSize(Integer pageSize) {
+
+        if (Objects.nonNull(pageSize) && pageSize <= 0) {
+            throw new InvalidSearchException("Page size must be greater than zero");
+        }
+        this.pageSize = pageSize;
+    }
+
+    public Integer getFetchSize() {
+        return fetchSize;
+    }
+
+    /**
+     * Number of rows the JDBC driver fetches in each round trip when the results are streamed
+     *
+     * @param fetchSize rows fetched at a time
+     */
+    public void setFetchSize(Integer fetchSize) {
+        this.fetchSize = fetchSize;
+    }
+
+    /**
+     * Reads the page following the one which returned the continuation token, the token
+     * must have been created with the same ordering condition.
+     *
+     * @param continuationToken token returned with the previous {@link SearchPage}
+     */
+    public void setContinuationToken(final String continuationToken) {
+
+        if (StringUtils.isEmpty(continuationToken)) {
+            this.cursor = null;
+            return;
+        }
+
+        this.cursor = KeysetCursor.decode(continuationToken);
+    }
+
+    /**
+     * Named parameters of the keyset seek condition, empty for the first page
+     */
+    public Map<String, Object> keysetParameters() {
+
+        Map<String, Object> parameters = new HashMap<>();
+
+        if (Objects.nonNull(cursor)) {
+
+            checkCursorOrder();
+
+            parameters.put(KEYSET_ID, cursor.getId());
+
+            if (Objects.nonNull(cursor.getValue())) {
+                parameters.put(KEYSET_VALUE, cursor.getValue());
+            }
+        }
+
+        return parameters;
+    }
+
+    /**
+     * Checks the continuation token was created with the same ordering condition
+     */
+    private void checkCursorOrder() {
+
+        if (Objects.nonNull(cursor)
+                && (!cursor.getFieldName().equals(orderField().getName()) || cursor.getOrderBy() != orderDirection())) {
+            throw new InvalidSearchException("Continuation token does not match the search order");
+        }
+    }
+
+    /**
+     * Builds the page from the results read with one row more than the page size, the
+     * extra row only tells there is a following page.
+     *
+     * @param results query results
+     * @return {@link SearchPage}
+     */
+    public SearchPage<R> toPage(final List<R> results) {
+
+        if (Objects.isNull(pageSize) || results.size() <= pageSize) {
+            return new SearchPage<>(results, null);
+        }
+
+        List<R> page = new ArrayList<>(results.subList(0, pageSize));
+        R last = page.get(pageSize - 1);
+
+        KeysetCursor next = new KeysetCursor(orderField().getName(), orderDirection(),
+                last.keysetValue(orderField()), last.keysetId());
+
+        return new SearchPage<>(page, next.encode());
+    }
+
+    /**
+     * Fields the aggregated rows are grouped by, in the order they were added
+     */
+    public List<QueryField> getGroupByFields() {
+        return groupByFields;
+    }
+
+    /**
+     * Groups the aggregated rows by the field, the subclass selects the grouped columns
+     * in its {@link #nativeQuery()} and {@link #groupByClause()}.
+     *
+     * @param groupByField field to group by
+     */
+    public void groupBy(final QueryField groupByField) {
+
+        if (!queryFields().contains(groupByField)) {
+            throw new InvalidSearchException("Results can not be grouped by " + groupByField.getName());
+        }
+
+        if (!groupByFields.contains(groupByField)) {
+            groupByFields.add(groupByField);
+        }
+    }
+
+    /**
+     * Restricts the results to the fields the caller reads, the subclass may then select a
+     * cheaper query shape in its {@link #nativeQuery()} which leaves the other fields empty.
+     * An empty selection reads none of the query fields.
+     *
+     * @param fields fields read from the results
+     */
+    public void selectFields(final Collection<QueryField> fields) {
+
+        fields.stream().filter(f -> !queryFields().contains(f)).findFirst().ifPresent(f -> {
+            throw new InvalidSearchException("Results can not select " + f.getName());
+        });
+
+        this.selectedFields = new LinkedHashSet<>(fields);
+    }
+
+    /**
+     * Indicates if the field is read from the results, all the fields are read when none were selected
+     */
+    public boolean isSelected(final QueryField field) {
+        return Objects.isNull(selectedFields) || selectedFields.contains(field);
+    }
+
+    public ConditionOperator getConditionOperator() {
+        return conditionOperator;
+    }
+
     public OrderCondition getOrderCondition() {
         return orderCondition;
     }
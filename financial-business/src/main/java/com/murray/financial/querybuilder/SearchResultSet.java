@@ -8,4 +8,18 @@ public interface SearchResultSet {
      * in the {@link javax.persistence.SqlResultSetMapping}
      */
     String resultSetObjectName();
+
+    /**
+     * Unique id of the result row, used to break the ties between rows with the same
+     * ordering value when the results are paged
+     */
+    Long keysetId();
+
+    /**
+     * Value of the result row for the {@link QueryField} the results are ordered by, the next
+     * page is read from this value onwards
+     *
+     * @param field {@link QueryField} the results are ordered by
+     */
+    Object keysetValue(QueryField field);
 }
@@ -0,0 +1,38 @@
+package com.murray.financial.service;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.function.Supplier;
+
+/**
+ * Serializes the work done against the same {@link com.murray.financial.domain.entity.BankAccount}
+ * while work on different accounts runs in parallel.
+ */
+public interface AccountLockManager {
+
+    /**
+     * Acquires the locks of all the accounts, always in the same order so two callers
+     * locking the same accounts can not deadlock, runs the action and releases the locks.
+     * The action should open and commit its own transaction so the changes are visible
+     * before the next caller reads the accounts.
+     *
+     * @param accountIds {@link com.murray.financial.domain.entity.BankAccount} unique ids
+     * @param action     work executed while holding the locks
+     * @return the action result
+     */
+    <T> T executeLocked(final Collection<Long> accountIds, final Supplier<T> action);
+
+    /**
+     * Number of locks held while running an action against the accounts, accounts sharing a
+     * lock stripe are counted once
+     *
+     * @param accountIds {@link com.murray.financial.domain.entity.BankAccount} unique ids
+     * @return the number of distinct lock stripes of the accounts
+     */
+    int stripeCountOf(final Collection<Long> accountIds);
+
+    /**
+     * @return the contention statistics of each lock stripe
+     */
+    List<LockStripeStatistics> getStripeStatistics();
+}
@@ -5,14 +5,20 @@ import com.murray.financial.domain.entity.BankAccount;
 import com.murray.financial.domain.enums.AccountCurrency;
 import com.murray.financial.domain.repository.query.BankAccountResult;
 import com.murray.financial.domain.repository.query.BankAccountSearch;
+import com.murray.financial.domain.repository.query.BankAccountTotalsResult;
+import com.murray.financial.domain.repository.query.BankAccountTotalsSearch;
 import com.murray.financial.domain.repository.query.TransferAccountResult;
 import com.murray.financial.domain.repository.query.TransferSearch;
 import com.murray.financial.exceptions.AccountCreationException;
 import com.murray.financial.querybuilder.QueryCondition;
+import com.murray.financial.querybuilder.SearchPage;
 
 import java.math.BigDecimal;
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 /**
  * Account service layer handles the creation of accounts and it's different
@@ -53,6 +59,25 @@ public interface AccountService {
     Optional<BankAccount> findAccountBy(final String ibanNumber);
 
 
+    /**
+     * Find {@link BankAccount} by the id it had in the csv file it was imported from
+     *
+     * @param importedId Long account id of the csv file
+     * @return {@link BankAccount}
+     */
+    Optional<BankAccount> findAccountByImportedId(final Long importedId);
+
+
+    /**
+     * Find the {@link BankAccountResult}s of many unique iban numbers, resolved in chunks
+     * of IN queries which also read the account balances.
+     *
+     * @param ibanNumbers iban numbers to look up, duplicates are looked up once
+     * @return {@link BankAccountResult} keyed by iban number in the requested order, the iban
+     * numbers without an account are left out
+     */
+    Map<String, BankAccountResult> findAccountsBy(final Collection<String> ibanNumbers);
+
     /**
      * Updates the {@link BankAccount} status and currency
      *
@@ -78,21 +103,40 @@ public interface AccountService {
     void deleteAccount(final String ibanNumber);
 
     /**
-     * Account​ balances are updated due to an Operational Banking Tax
+     * Find {@link BankAccountResult}s using the specific {@link QueryCondition}s ,
+     * and OrderBy condition
      *
-     * @param taxRate
+     * @param searchQuery {@link BankAccountSearch} which is used to generate the native query
+     * @return list of {@link BankAccountResult}
      */
-    void updateAccountBalancesWith(final BigDecimal taxRate);
+    List<BankAccountResult> findBankAccountsBy(final BankAccountSearch searchQuery);
 
+    /**
+     * Find a page of {@link BankAccountResult}s, the search query page size and continuation
+     * token define which page is read
+     *
+     * @param searchQuery {@link BankAccountSearch} which is used to generate the native query
+     * @return {@link SearchPage} of {@link BankAccountResult}
+     */
+    SearchPage<BankAccountResult> findBankAccountPageBy(final BankAccountSearch searchQuery);
 
     /**
-     * Find {@link BankAccountResult}s using the specific {@link QueryCondition}s ,
-     * and OrderBy condition
+     * Stream all the {@link BankAccountResult}s matching the search query, reading the search query
+     * fetch size rows at a time. The stream must be consumed within a transaction and closed.
      *
      * @param searchQuery {@link BankAccountSearch} which is used to generate the native query
-     * @return list of {@link BankAccountResult}
+     * @return {@link Stream} of {@link BankAccountResult}
      */
-    List<BankAccountResult> findBankAccountsBy(final BankAccountSearch searchQuery);
+    Stream<BankAccountResult> streamBankAccountsBy(final BankAccountSearch searchQuery);
+
+    /**
+     * Find the count, sum, min and max of the balances of the accounts matching the search
+     * conditions, computed by the database for each group of the search
+     *
+     * @param totalsSearch {@link BankAccountTotalsSearch} which is used to generate the native query
+     * @return list of {@link BankAccountTotalsResult}, one for each group
+     */
+    List<BankAccountTotalsResult> findBankAccountTotalsBy(final BankAccountTotalsSearch totalsSearch);
 
 
     /**
@@ -116,6 +160,14 @@ public interface AccountService {
     AccountTransfer createAccountTransfer(BankAccount source, BankAccount destination,
                                           BigDecimal amount, String description);
 
+    /**
+     * Find {@link AccountTransfer} by internal id number, loaded along with its accounts.
+     *
+     * @param id Long
+     * @return {@link AccountTransfer}
+     */
+    Optional<AccountTransfer> findTransferById(final Long id);
+
     /**
      * Find {@link TransferAccountResult} based on the {@link TransferSearch} query fields
      * and conditions
@@ -125,6 +177,24 @@ public interface AccountService {
      */
     List<TransferAccountResult> findTransfersBy(final TransferSearch transferSearch);
 
+    /**
+     * Find a page of {@link TransferAccountResult}s, the search query page size and continuation
+     * token define which page is read
+     *
+     * @param transferSearch {@link TransferSearch} which is used to generate the native query
+     * @return {@link SearchPage} of {@link TransferAccountResult}
+     */
+    SearchPage<TransferAccountResult> findTransferPageBy(final TransferSearch transferSearch);
+
+    /**
+     * Stream all the {@link TransferAccountResult}s matching the search query, reading the search query
+     * fetch size rows at a time. The stream must be consumed within a transaction and closed.
+     *
+     * @param transferSearch {@link TransferSearch} which is used to generate the native query
+     * @return {@link Stream} of {@link TransferAccountResult}
+     */
+    Stream<TransferAccountResult> streamTransfersBy(final TransferSearch transferSearch);
+
     /**
      * finds the {@link AccountTransfer} corresponding to the internal id , validates
      * to ensure that the accounts are still active then debits the source account and
@@ -132,9 +202,32 @@ public interface AccountService {
      * If a ​Transfer​ is done between two different currencies, the specific currency is defined
      * by the destination ​Account​ and the exchange rate is got from:
      * o https://api.exchangeratesapi.io/latest?base=<baseCode>&symbols=<currencyCode> (p.e. https://api.exchangeratesapi.io/latest?base=GBP&symbols=EUR​)
+     * <p>
+     * A transfer already executed is returned as it is, so executing it again does not post
+     * the debit and credit transactions a second time.
+     * <p>
+     * No concurrency control is applied here, concurrent executions must go through
+     * {@link TransferExecutionService} which holds the account locks for the whole transaction.
      *
      * @param id {@link AccountTransfer} unique id
      * @return {@link AccountTransfer}
      */
     AccountTransfer executeTransfer(final Long id);
+
+    /**
+     * Executes an already loaded {@link AccountTransfer}, debiting the source account and
+     * crediting the destination account as described in {@link #executeTransfer(Long)}.
+     *
+     * @param transfer {@link AccountTransfer} loaded with its accounts
+     * @return {@link AccountTransfer}
+     */
+    AccountTransfer executeTransfer(final AccountTransfer transfer);
+
+    /**
+     * Compares the materialized balance of every {@link BankAccount} with the sum of
+     * its transactions.
+     *
+     * @return list of iban numbers whose stored balance is inconsistent
+     */
+    List<String> verifyAccountBalances();
 }
@@ -0,0 +1,24 @@
+package com.murray.financial.service;
+
+import com.murray.financial.domain.entity.AccountTransfer;
+import com.murray.financial.exceptions.TransferQueueFullException;
+
+/**
+ * Queues transfers to be executed by a bounded pool of workers, so the caller does not wait
+ * for the transfer to be executed. The progress is reported by the transfer
+ * {@link com.murray.financial.domain.enums.TransferStatus}.
+ */
+public interface AsyncTransferExecutionService {
+
+    /**
+     * Marks the transfer as PENDING and queues it for execution, a transfer that is
+     * already pending or executed is not queued again. As the queue is not persisted, a
+     * transfer pending for longer than the pending timeout, left by a node that stopped,
+     * is queued again.
+     *
+     * @param transferId {@link AccountTransfer} unique id
+     * @return {@link AccountTransfer} with PENDING status, or EXECUTED when it was already executed
+     * @throws TransferQueueFullException when the queue has reached its capacity
+     */
+    AccountTransfer submit(final Long transferId) throws TransferQueueFullException;
+}
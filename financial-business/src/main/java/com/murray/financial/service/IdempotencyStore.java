@@ -0,0 +1,51 @@
+package com.murray.financial.service;
+
+import com.murray.financial.domain.entity.IdempotencyRecord;
+
+import java.util.Optional;
+
+/**
+ * Stores the responses returned for client idempotency keys until they expire, a key is
+ * reserved before the request is executed and completed with the response.
+ */
+public interface IdempotencyStore {
+
+    /**
+     * @param key client idempotency key
+     * @return the stored record when the key was used before and has not expired
+     */
+    Optional<IdempotencyRecord> find(final String key);
+
+    /**
+     * Reserves the key for a request by storing a pending record, so a concurrent request with
+     * the same key, on this or another node, is not executed. A pending record expires after the
+     * reservation timeout so the key is not held forever by a request which never completes.
+     *
+     * @param key         client idempotency key
+     * @param fingerprint identifies the operation and request
+     * @return the record already holding the key, empty when the key was reserved for this request
+     */
+    Optional<IdempotencyRecord> reserve(final String key, final String fingerprint);
+
+    /**
+     * Stores the response of the request holding the pending key until the key expires
+     *
+     * @param key      client idempotency key
+     * @param response serialized response
+     */
+    void complete(final String key, final String response);
+
+    /**
+     * Removes the pending record of a request which failed, so the key can be used again
+     *
+     * @param key client idempotency key
+     */
+    void release(final String key);
+
+    /**
+     * Removes the expired records
+     *
+     * @return number of records removed
+     */
+    int purgeExpired();
+}
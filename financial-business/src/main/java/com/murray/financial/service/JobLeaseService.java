@@ -0,0 +1,38 @@
+package com.murray.financial.service;
+
+/**
+ * Cluster wide lease which guarantees that a scheduled job tick is only run by
+ * one of the application nodes.
+ */
+public interface JobLeaseService {
+
+    /**
+     * Tries to acquire the job lease for this node, once acquired the lease is extended
+     * periodically until it is released.
+     *
+     * @param jobName unique job name
+     * @return true when this node owns the lease
+     */
+    boolean tryAcquire(final String jobName);
+
+    /**
+     * Releases the job lease so any node can acquire it on the next tick
+     *
+     * @param jobName unique job name
+     */
+    void release(final String jobName);
+
+    /**
+     * Checks if this node still holds the job lease, a lease is no longer held once released,
+     * taken over by another node or expired without being extended
+     *
+     * @param jobName unique job name
+     * @return true while the lease is held by this node
+     */
+    boolean isHeld(final String jobName);
+
+    /**
+     * Unique id of this node
+     */
+    String getNodeId();
+}
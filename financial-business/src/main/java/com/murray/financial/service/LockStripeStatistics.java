@@ -0,0 +1,39 @@
+package com.murray.financial.service;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.ToString;
+
+/**
+ * Contention statistics of a single {@link AccountLockManager} lock stripe
+ */
+@Getter
+@ToString
+@AllArgsConstructor
+public class LockStripeStatistics {
+
+    /**
+     * Stripe index
+     */
+    private final int stripe;
+
+    /**
+     * Number of times the stripe was acquired
+     */
+    private final long acquisitions;
+
+    /**
+     * Number of acquisitions which had to wait for another thread to release the stripe
+     */
+    private final long contentions;
+
+    /**
+     * Total time in milliseconds spent waiting for the stripe
+     */
+    private final long waitTimeMillis;
+
+    /**
+     * Threads currently waiting for the stripe
+     */
+    private final int waitingThreads;
+}
@@ -0,0 +1,60 @@
+package com.murray.financial.service;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Operational Banking Tax engine which charges every account with a tax transaction
+ * calculated from its current balance, using set-based statements per chunk of accounts
+ * instead of loading each account into the persistence context.
+ */
+public interface OperationalTaxService {
+
+    /**
+     * Description used for each of the tax transactions inserted
+     */
+    String OPERATIONAL_BANKING_TAX = "Operational Banking Tax";
+
+    /**
+     * Runs the tax over all the accounts, chunk by chunk based on the account id range.
+     * Each chunk is committed separately along with the run checkpoint, so when a previous
+     * run did not complete it is resumed from its last completed chunk instead of starting
+     * a new one.
+     *
+     * @param taxRate rate which the calculation is performed
+     * @return {@link TaxRunReport} with the row counts and duration of the run
+     */
+    TaxRunReport runTaxWith(final BigDecimal taxRate);
+
+    /**
+     * Runs the tax as {@link #runTaxWith(BigDecimal)} while the node holds the job lease, the
+     * lease is checked before each chunk and once lost the node stops charging, leaving the
+     * unfinished partitions to the node that took the lease over.
+     *
+     * @param taxRate   rate which the calculation is performed
+     * @param leaseHeld checks if the node still holds the job lease
+     * @return {@link TaxRunReport} with the row counts and duration of the run
+     */
+    TaxRunReport runTaxWith(final BigDecimal taxRate, final BooleanSupplier leaseHeld);
+
+    /**
+     * Runs the tax as {@link #runTaxWith(BigDecimal, BooleanSupplier)} for a scheduled tick. The
+     * new run records the tick fire time, and no run is started when the tick already has one, so a
+     * node whose tick fires after another node completed the run does not charge the accounts again.
+     *
+     * @param taxRate      rate which the calculation is performed
+     * @param scheduledFor fire time of the scheduled tick
+     * @param leaseHeld    checks if the node still holds the job lease
+     * @return {@link TaxRunReport}, without run id when the tick was already run
+     */
+    TaxRunReport runTaxWith(final BigDecimal taxRate, final LocalDateTime scheduledFor, final BooleanSupplier leaseHeld);
+
+    /**
+     * Processes the partitions of an unfinished run which are not claimed by another node,
+     * without starting a new run. Used by the nodes that do not own the job lease.
+     *
+     * @return {@link TaxRunReport}, without run id when there is no unfinished run
+     */
+    TaxRunReport joinUnfinishedRun();
+}
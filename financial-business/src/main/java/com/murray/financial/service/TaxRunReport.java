@@ -0,0 +1,79 @@
+package com.murray.financial.service;
+
+import lombok.Getter;
+import lombok.ToString;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+
+/**
+ * Summary of an Operational Banking Tax run returned by the {@link OperationalTaxService}
+ */
+@Getter
+@ToString
+public class TaxRunReport {
+
+    /**
+     * Id of the {@link com.murray.financial.domain.entity.TaxJobRun} checkpoint
+     */
+    private final Long runId;
+
+    /**
+     * Tax rate applied
+     */
+    private final BigDecimal rate;
+
+    /**
+     * Boolean that indicates the run resumed an interrupted run
+     */
+    private final boolean resumed;
+
+    /**
+     * Number of partitions processed by this execution
+     */
+    private int partitions;
+
+    /**
+     * Number of account id chunks processed by this execution
+     */
+    private int chunks;
+
+    /**
+     * Number of tax transactions inserted
+     */
+    private long transactionsInserted;
+
+    /**
+     * Number of account balances updated
+     */
+    private long accountsUpdated;
+
+    /**
+     * Time taken to complete the run
+     */
+    private Duration duration = Duration.ZERO;
+
+    public TaxRunReport(final Long runId, final BigDecimal rate, final boolean resumed) {
+        this.runId = runId;
+        this.rate = rate;
+        this.resumed = resumed;
+    }
+
+    /**
+     * Adds the row counts of a processed chunk, partitions run concurrently so
+     * the counters are updated while holding the report lock.
+     */
+    public synchronized void addChunk(final int transactionsInserted, final int accountsUpdated) {
+        this.chunks++;
+        this.transactionsInserted += transactionsInserted;
+        this.accountsUpdated += accountsUpdated;
+    }
+
+    public synchronized void partitionCompleted() {
+        this.partitions++;
+    }
+
+    public void completedIn(final Duration duration) {
+        this.duration = duration;
+    }
+}
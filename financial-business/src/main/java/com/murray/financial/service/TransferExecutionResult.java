@@ -0,0 +1,43 @@
+package com.murray.financial.service;
+
+import com.murray.financial.domain.entity.AccountTransfer;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.ToString;
+
+/**
+ * Outcome of executing a single transfer within a batch
+ */
+@Getter
+@ToString
+@AllArgsConstructor
+public class TransferExecutionResult {
+
+    /**
+     * Transfer unique id
+     */
+    private final Long transferId;
+
+    /**
+     * Boolean that indicates the transfer was executed
+     */
+    private final boolean executed;
+
+    /**
+     * Reason the transfer was not executed
+     */
+    private final String message;
+
+    /**
+     * The executed {@link AccountTransfer}, null when not executed
+     */
+    private final AccountTransfer transfer;
+
+    public static TransferExecutionResult executed(final AccountTransfer transfer) {
+        return new TransferExecutionResult(transfer.getId(), true, null, transfer);
+    }
+
+    public static TransferExecutionResult failed(final Long transferId, final String message) {
+        return new TransferExecutionResult(transferId, false, message, null);
+    }
+}
@@ -0,0 +1,32 @@
+package com.murray.financial.service;
+
+import com.murray.financial.domain.entity.AccountTransfer;
+
+import java.util.List;
+
+/**
+ * Executes stored transfers holding the {@link AccountLockManager} locks of their accounts,
+ * used by the transfer endpoint and the end of day settlement.
+ */
+public interface TransferExecutionService {
+
+    /**
+     * Executes a single transfer in its own transaction while holding the locks of its
+     * source and destination accounts.
+     *
+     * @param transferId {@link AccountTransfer} unique id
+     * @return the executed {@link AccountTransfer}
+     */
+    AccountTransfer executeTransfer(final Long transferId);
+
+    /**
+     * Executes the transfers in batches, each batch loads its transfers and accounts with a single
+     * query and is committed in its own transaction while holding the locks of all the batch
+     * accounts. A transfer that can not be executed does not
+     * stop the rest of the batch.
+     *
+     * @param transferIds {@link com.murray.financial.domain.entity.AccountTransfer} unique ids
+     * @return the outcome of each transfer in the same order as the ids
+     */
+    List<TransferExecutionResult> executeTransfers(final List<Long> transferIds);
+}
@@ -5,29 +5,42 @@ import com.murray.financial.domain.entity.BankAccount;
 import com.murray.financial.domain.entity.Transaction;
 import com.murray.financial.domain.enums.AccountCurrency;
 import com.murray.financial.domain.enums.AccountStatus;
+import com.murray.financial.domain.enums.TransferStatus;
 import com.murray.financial.domain.repository.AccountTransferJPARespository;
 import com.murray.financial.domain.repository.BackAccountJPARepository;
+import com.murray.financial.domain.repository.query.BankAccountQueryField;
 import com.murray.financial.domain.repository.query.BankAccountResult;
 import com.murray.financial.domain.repository.query.BankAccountSearch;
+import com.murray.financial.domain.repository.query.BankAccountTotalsResult;
+import com.murray.financial.domain.repository.query.BankAccountTotalsSearch;
 import com.murray.financial.domain.repository.query.TransferAccountResult;
+import com.murray.financial.domain.repository.query.TransferQueryField;
 import com.murray.financial.domain.repository.query.TransferSearch;
 import com.murray.financial.exceptions.AccountCreationException;
 import com.murray.financial.exceptions.NotFoundException;
 import com.murray.financial.exceptions.TransferCreationException;
+import com.murray.financial.querybuilder.QueryField;
+import com.murray.financial.querybuilder.SearchPage;
 import com.murray.financial.service.AccountService;
 import com.murray.financial.service.CurrencyConverter;
 import com.murray.financial.service.untils.IBANNumberUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.dao.DataIntegrityViolationException;
-import org.springframework.transaction.annotation.Transactional;
 import org.springframework.util.StringUtils;
 
 import java.math.BigDecimal;
+import java.time.Duration;
 import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 /**
  * {@inheritDoc}
@@ -37,14 +50,33 @@ public class BankAccountServiceImpl implements AccountService {
     private static final Logger LOGGER = LoggerFactory.getLogger(BankAccountServiceImpl.class);
     private static final String OPENING_DEPOSIT = "Opening deposit";
 
+    /**
+     * Number of iban numbers resolved by each IN query of the bulk account lookup
+     */
+    static final int IBAN_LOOKUP_CHUNK_SIZE = 500;
+
     private final BackAccountJPARepository backAccountRepository;
     private final AccountTransferJPARespository accountTransferJPARespository;
     private final CurrencyConverter currencyConverter;
+    private final boolean verifyBalances;
+    private final SearchResultCache searchResultCache;
 
     public BankAccountServiceImpl(BackAccountJPARepository backAccountRepository, AccountTransferJPARespository accountTransferJPARespository, CurrencyConverter currencyConverter) {
+        this(backAccountRepository, accountTransferJPARespository, currencyConverter, false, new SearchResultCache(0, Duration.ZERO));
+    }
+
+    /**
+     * @param verifyBalances    when enabled every write compares the materialized account balance
+     *                          with the sum of its transactions and logs any mismatch
+     * @param searchResultCache results of the account and transfer searches, invalidated by the writes
+     */
+    public BankAccountServiceImpl(BackAccountJPARepository backAccountRepository, AccountTransferJPARespository accountTransferJPARespository,
+                                  CurrencyConverter currencyConverter, boolean verifyBalances, SearchResultCache searchResultCache) {
         this.backAccountRepository = backAccountRepository;
         this.accountTransferJPARespository = accountTransferJPARespository;
         this.currencyConverter = currencyConverter;
+        this.verifyBalances = verifyBalances;
+        this.searchResultCache = searchResultCache;
     }
 
     /**
@@ -55,7 +87,7 @@ public class BankAccountServiceImpl implements AccountService {
 
         try {
 
-            return accountTransferJPARespository.save(new AccountTransfer(source, destination, amount, description));
+            return transferChanged(accountTransferJPARespository.save(new AccountTransfer(source, destination, amount, description)));
 
         } catch (IllegalArgumentException e) {
             throw new TransferCreationException(e);
@@ -69,9 +101,23 @@ public class BankAccountServiceImpl implements AccountService {
     @Override
     public AccountTransfer executeTransfer(final Long id) {
 
-        AccountTransfer transfer = accountTransferJPARespository.findById(id)
+        AccountTransfer transfer = accountTransferJPARespository.findWithAccountsById(id)
                 .orElseThrow(() -> new TransferCreationException("No transfer found for id:" + id));
 
+        return executeTransfer(transfer);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public AccountTransfer executeTransfer(final AccountTransfer transfer) {
+
+        if (transfer.getStatus() == TransferStatus.EXECUTED) {
+            LOGGER.debug("transfer:{} already executed, ledger not changed", transfer.getId());
+            return transfer;
+        }
+
         if (!transfer.getSource().isActive() || !transfer.getDestination().isActive()) {
             throw new TransferCreationException("One or both transfer accounts are not active");
         }
@@ -79,13 +125,13 @@ public class BankAccountServiceImpl implements AccountService {
 
         BigDecimal debitAmount = transfer.getAmount();
 
-        LOGGER.info("Debit source account {} of {} {}", transfer.getSource().getId(), debitAmount, transfer.getSource().getCurrency());
+        LOGGER.debug("Debit source account {} of {} {}", transfer.getSource().getId(), debitAmount, transfer.getSource().getCurrency());
         Transaction debit = createTransaction(debitAmount.negate(), transfer.getDescription());
         transfer.getSource().add(debit);
 
         BigDecimal creditAmount = currencyConverter.convertAmountTo(debitAmount, transfer.getDestination().getCurrency(), transfer.getSource().getCurrency());
 
-        LOGGER.info("Credit destination account {} of {} {}", transfer.getDestination().getId(), creditAmount, transfer.getDestination().getCurrency());
+        LOGGER.debug("Credit destination account {} of {} {}", transfer.getDestination().getId(), creditAmount, transfer.getDestination().getCurrency());
         Transaction credit = createTransaction(creditAmount, transfer.getDescription());
         transfer.getDestination().add(credit);
 
@@ -93,7 +139,17 @@ public class BankAccountServiceImpl implements AccountService {
             transfer.setTimeStamp(LocalDateTime.now());
         }
 
-        return accountTransferJPARespository.save(transfer);
+        transfer.setStatus(TransferStatus.EXECUTED);
+        transfer.setFailureReason(null);
+        transfer.copyAccountDetails();
+
+        verifyBalanceOf(transfer.getSource());
+        verifyBalanceOf(transfer.getDestination());
+
+        accountChanged(transfer.getSource());
+        accountChanged(transfer.getDestination());
+
+        return transferChanged(accountTransferJPARespository.save(transfer));
     }
 
 
@@ -103,7 +159,7 @@ public class BankAccountServiceImpl implements AccountService {
     @Override
     public AccountTransfer persistTransfer(AccountTransfer accountTransfer) {
 
-        return accountTransferJPARespository.save(accountTransfer);
+        return transferChanged(accountTransferJPARespository.save(accountTransfer));
     }
 
     /**
@@ -118,11 +174,12 @@ public class BankAccountServiceImpl implements AccountService {
             LOGGER.debug("Creating account with {} and {}", ibanNumber, currency);
             String cleanIbanNumber = validateIbanNumber(ibanNumber, currency);
 
+            // flushed straight away, as the pooled ids defer the insert, so integrity errors are reported here
             BankAccount bankAccount =
-                    backAccountRepository.save(new BankAccount(cleanIbanNumber,
+                    backAccountRepository.saveAndFlush(new BankAccount(cleanIbanNumber,
                             currency, createTransaction(openingDeposit, OPENING_DEPOSIT)));
 
-            return bankAccount;
+            return accountChanged(bankAccount);
 
         } catch (DataIntegrityViolationException dataEx) {
             throw new AccountCreationException("Data Integrity exception", dataEx);
@@ -187,7 +244,69 @@ public class BankAccountServiceImpl implements AccountService {
      */
     @Override
     public BankAccount saveAccount(BankAccount bankAccount) {
-        return backAccountRepository.save(bankAccount);
+        verifyBalanceOf(bankAccount);
+        return accountChanged(backAccountRepository.save(bankAccount));
+    }
+
+    /**
+     * Invalidates the cached account searches which hold the account or that its
+     * new values may match, and all the account totals
+     */
+    private BankAccount accountChanged(final BankAccount account) {
+
+        Map<QueryField, Object> values = new HashMap<>();
+        values.put(BankAccountQueryField.IBAN_NUMBER, account.getIbanNumber());
+        values.put(BankAccountQueryField.BALANCE, account.getBalance());
+        values.put(BankAccountQueryField.INDEXED_BALANCE, account.getBalance());
+        values.put(BankAccountQueryField.STATUS, account.getStatus());
+        values.put(BankAccountQueryField.CURRENCY, account.getCurrency());
+
+        searchResultCache.invalidateRow(BankAccountSearch.class, account.getId(), values);
+        searchResultCache.invalidateSearches(BankAccountTotalsSearch.class);
+
+        return account;
+    }
+
+    /**
+     * Invalidates the cached transfer searches which hold the transfer or that its
+     * new values may match
+     */
+    private AccountTransfer transferChanged(final AccountTransfer transfer) {
+
+        Map<QueryField, Object> values = new HashMap<>();
+        values.put(TransferQueryField.SOURCE, transfer.getSourceIbanNumber());
+        values.put(TransferQueryField.DESTINATION, transfer.getDestinationIbanNumber());
+        values.put(TransferQueryField.SOURCE_CURRENCY, transfer.getSourceCurrency());
+        values.put(TransferQueryField.DESTINATION_CURRENCY, transfer.getDestinationCurrency());
+        values.put(TransferQueryField.STATUS, transfer.getTimeStamp());
+        values.put(TransferQueryField.SENT, transfer.getTimeStamp());
+
+        searchResultCache.invalidateRow(TransferSearch.class, transfer.getId(), values);
+
+        return transfer;
+    }
+
+    /**
+     * When the verification mode is enabled, checks that the materialized balance
+     * still matches the account transactions. Note this initializes the lazy transactions.
+     *
+     * @param account {@link BankAccount}
+     */
+    private void verifyBalanceOf(final BankAccount account) {
+
+        if (verifyBalances && !account.isBalanceConsistent()) {
+            LOGGER.error("account :{} balance:{} does not match transactions total:{}",
+                    account.getIbanNumber(), account.getBalance(), account.calculateTransactionsBalance());
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Optional<BankAccount> findAccountByImportedId(Long importedId) {
+
+        return Optional.ofNullable(backAccountRepository.findFirstByImportedIdEquals(importedId));
     }
 
     /**
@@ -206,6 +325,36 @@ public class BankAccountServiceImpl implements AccountService {
 
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Map<String, BankAccountResult> findAccountsBy(final Collection<String> ibanNumbers) {
+
+        List<String> distinctIbanNumbers = ibanNumbers.stream()
+                .filter(ibanNumber -> !StringUtils.isEmpty(ibanNumber))
+                .distinct()
+                .collect(Collectors.toList());
+
+        Map<String, BankAccountResult> found = new HashMap<>();
+
+        for (int from = 0; from < distinctIbanNumbers.size(); from += IBAN_LOOKUP_CHUNK_SIZE) {
+
+            List<String> chunk = distinctIbanNumbers.subList(from, Math.min(from + IBAN_LOOKUP_CHUNK_SIZE, distinctIbanNumbers.size()));
+
+            backAccountRepository.findResultsByIbanNumberIn(chunk)
+                    .forEach(result -> found.put(result.ibanNumber(), result));
+        }
+
+        Map<String, BankAccountResult> results = new LinkedHashMap<>();
+
+        distinctIbanNumbers.stream()
+                .filter(found::containsKey)
+                .forEach(ibanNumber -> results.put(ibanNumber, found.get(ibanNumber)));
+
+        return results;
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -226,7 +375,7 @@ public class BankAccountServiceImpl implements AccountService {
 
 
 
-        return backAccountRepository.save(original);
+        return accountChanged(backAccountRepository.save(original));
     }
 
     /**
@@ -253,46 +402,35 @@ public class BankAccountServiceImpl implements AccountService {
     @Override
     public List<BankAccountResult> findBankAccountsBy(final BankAccountSearch searchQuery) {
 
-        return backAccountRepository.searchBy(searchQuery);
+        return searchResultCache.resultsOf(searchQuery, () -> backAccountRepository.searchBy(searchQuery));
 
     }
 
     /**
      * {@inheritDoc}
      */
-    @Transactional
     @Override
-    public void updateAccountBalancesWith(BigDecimal taxRate) {
-
-        LOGGER.info("updating account balances with tax rate:{}", taxRate);
-
-        backAccountRepository.findAll()
-                .forEach(ac -> addTaxRateTransactionTo(ac, taxRate));
-
+    public SearchPage<BankAccountResult> findBankAccountPageBy(final BankAccountSearch searchQuery) {
 
+        return searchResultCache.pageOf(searchQuery, () -> backAccountRepository.searchPageBy(searchQuery));
     }
 
     /**
-     * Calculates the operation tax rate from the account balance and then
-     * adds a new transaction to the account
-     *
-     * @param account {@link BankAccount}
-     * @param taxRate rate which the calculation is performed
+     * {@inheritDoc}
      */
-    private void addTaxRateTransactionTo(final BankAccount account, final BigDecimal taxRate) {
-
-        BigDecimal balance = account.getBalance();
-        BigDecimal newTransaction = account.getBalance().multiply(taxRate);
+    @Override
+    public Stream<BankAccountResult> streamBankAccountsBy(final BankAccountSearch searchQuery) {
 
-        LOGGER.info("account :{} balance:{} newTransaction:{}  ",
-                account.getIbanNumber(),
-                balance, newTransaction);
-        Transaction rateTransaction =
-                new Transaction(newTransaction, "Operational Banking Tax");
+        return backAccountRepository.streamBy(searchQuery);
+    }
 
-        account.add(rateTransaction);
-        saveAccount(account);
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<BankAccountTotalsResult> findBankAccountTotalsBy(final BankAccountTotalsSearch totalsSearch) {
 
+        return searchResultCache.resultsOf(totalsSearch, () -> backAccountRepository.totalsBy(totalsSearch));
     }
 
     /**
@@ -309,13 +447,54 @@ public class BankAccountServiceImpl implements AccountService {
 
         account.setStatus(AccountStatus.DELETED);
 
-        backAccountRepository.save(account);
+        accountChanged(backAccountRepository.save(account));
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Optional<AccountTransfer> findTransferById(Long id) {
+        return accountTransferJPARespository.findWithAccountsById(id);
+    }
 
+    /**
+     * {@inheritDoc}
+     */
     @Override
     public List<TransferAccountResult> findTransfersBy(TransferSearch transferSearch) {
 
-        return accountTransferJPARespository.searchBy(transferSearch);
+        return searchResultCache.resultsOf(transferSearch, () -> accountTransferJPARespository.searchBy(transferSearch));
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public SearchPage<TransferAccountResult> findTransferPageBy(TransferSearch transferSearch) {
+
+        return searchResultCache.pageOf(transferSearch, () -> accountTransferJPARespository.searchPageBy(transferSearch));
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Stream<TransferAccountResult> streamTransfersBy(TransferSearch transferSearch) {
+
+        return accountTransferJPARespository.streamBy(transferSearch);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<String> verifyAccountBalances() {
+
+        List<String> inconsistent = backAccountRepository.findIbanNumbersWithInconsistentBalance();
+
+        inconsistent.forEach(iban -> LOGGER.error("account :{} balance does not match its transactions", iban));
+
+        return inconsistent;
     }
 }
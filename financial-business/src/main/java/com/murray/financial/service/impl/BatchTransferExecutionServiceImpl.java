@@ -0,0 +1,211 @@
+package com.murray.financial.service.impl;
+
+import com.murray.financial.domain.entity.AccountTransfer;
+import com.murray.financial.domain.repository.AccountTransferJPARespository;
+import com.murray.financial.exceptions.TransferCreationException;
+import com.murray.financial.service.AccountLockManager;
+import com.murray.financial.service.AccountService;
+import com.murray.financial.service.TransferExecutionResult;
+import com.murray.financial.service.TransferExecutionService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * {@inheritDoc}
+ */
+public class BatchTransferExecutionServiceImpl implements TransferExecutionService {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(BatchTransferExecutionServiceImpl.class);
+
+    private final AccountService accountService;
+    private final AccountTransferJPARespository accountTransferJPARespository;
+    private final TransactionTemplate transactionTemplate;
+    private final AccountLockManager accountLockManager;
+    private final OptimisticLockRetryPolicy retryPolicy;
+
+    /**
+     * Number of transfers executed and committed in each transaction
+     */
+    private final int batchSize;
+
+    /**
+     * Maximum number of account lock stripes held by a transaction, a batch whose accounts need
+     * more stripes is split so the transfers of other accounts keep running in parallel
+     */
+    private final int maxLockedStripes;
+
+    public BatchTransferExecutionServiceImpl(AccountService accountService, AccountTransferJPARespository accountTransferJPARespository,
+                                             PlatformTransactionManager transactionManager, AccountLockManager accountLockManager,
+                                             OptimisticLockRetryPolicy retryPolicy, int batchSize, int maxLockedStripes) {
+        if (batchSize <= 0) {
+            throw new IllegalArgumentException("Batch size must be greater than zero");
+        }
+        if (maxLockedStripes < 2) {
+            throw new IllegalArgumentException("Max locked stripes must hold the two accounts of a transfer");
+        }
+        this.accountService = accountService;
+        this.accountTransferJPARespository = accountTransferJPARespository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.accountLockManager = accountLockManager;
+        this.retryPolicy = retryPolicy;
+        this.batchSize = batchSize;
+        this.maxLockedStripes = maxLockedStripes;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public AccountTransfer executeTransfer(final Long transferId) {
+
+        return retryPolicy.execute(() -> accountLockManager.executeLocked(accountIdsOf(Collections.singletonList(transferId)),
+                () -> transactionTemplate.execute(status -> accountService.executeTransfer(transferId))));
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<TransferExecutionResult> executeTransfers(final List<Long> transferIds) {
+
+        List<Long> ids = new ArrayList<>(new LinkedHashSet<>(transferIds));
+        Map<Long, TransferExecutionResult> results = new LinkedHashMap<>();
+
+        long start = System.nanoTime();
+
+        for (int from = 0; from < ids.size(); from += batchSize) {
+
+            for (LockGroup group : lockGroupsOf(ids.subList(from, Math.min(from + batchSize, ids.size())))) {
+
+                List<Long> batch = group.transferIds;
+
+                try {
+                    retryPolicy.execute(() -> accountLockManager.executeLocked(group.accountIds, () -> transactionTemplate.execute(status -> {
+                        List<TransferExecutionResult> batchResults = executeBatch(batch);
+                        accountTransferJPARespository.flush();
+                        return batchResults;
+                    }))).forEach(result -> results.put(result.getTransferId(), result));
+
+                } catch (RuntimeException e) {
+
+                    LOGGER.warn("Batch of {} transfers failed, executing them one by one", batch.size(), e);
+                    batch.forEach(id -> results.put(id, executeOnItsOwn(id)));
+                }
+            }
+        }
+
+        LOGGER.info("Executed {} transfers in {} ms", ids.size(), (System.nanoTime() - start) / 1_000_000);
+
+        return transferIds.stream().map(results::get).collect(Collectors.toList());
+    }
+
+    /**
+     * Loads the batch transfers with their accounts and executes each of them
+     */
+    private List<TransferExecutionResult> executeBatch(final List<Long> batch) {
+
+        Map<Long, AccountTransfer> transfers = accountTransferJPARespository.findAllWithAccountsByIdIn(batch).stream()
+                .collect(Collectors.toMap(AccountTransfer::getId, Function.identity()));
+
+        List<TransferExecutionResult> batchResults = new ArrayList<>();
+
+        for (Long id : batch) {
+
+            AccountTransfer transfer = transfers.get(id);
+
+            if (Objects.isNull(transfer)) {
+                batchResults.add(TransferExecutionResult.failed(id, "No transfer found for id:" + id));
+                continue;
+            }
+
+            try {
+                batchResults.add(TransferExecutionResult.executed(accountService.executeTransfer(transfer)));
+            } catch (TransferCreationException e) {
+                batchResults.add(TransferExecutionResult.failed(id, e.getMessage()));
+            }
+        }
+
+        return batchResults;
+    }
+
+    /**
+     * Executes a single transfer in its own transaction, used when a batch could not be committed
+     */
+    private TransferExecutionResult executeOnItsOwn(final Long id) {
+
+        try {
+            List<Long> single = Collections.singletonList(id);
+            return retryPolicy.execute(() -> accountLockManager.executeLocked(accountIdsOf(single),
+                    () -> transactionTemplate.execute(status -> executeBatch(single).get(0))));
+        } catch (RuntimeException e) {
+            return TransferExecutionResult.failed(id, e.getMessage());
+        }
+    }
+
+    /**
+     * Splits the batch into groups of transfers executed in their own transaction, each group
+     * holding at most the max locked stripes. The account ids are read before the transactions
+     * start so the accounts are only loaded once their locks are held.
+     */
+    private List<LockGroup> lockGroupsOf(final List<Long> batch) {
+
+        Map<Long, Set<Long>> accountIdsByTransfer = accountTransferJPARespository.findAccountIdsByTransferOf(batch);
+
+        List<LockGroup> groups = new ArrayList<>();
+        LockGroup group = new LockGroup();
+
+        for (Long id : batch) {
+
+            Set<Long> accountIds = accountIdsByTransfer.getOrDefault(id, Collections.emptySet());
+            Set<Long> grown = new HashSet<>(group.accountIds);
+            grown.addAll(accountIds);
+
+            if (!group.transferIds.isEmpty() && accountLockManager.stripeCountOf(grown) > maxLockedStripes) {
+                groups.add(group);
+                group = new LockGroup();
+                grown = new HashSet<>(accountIds);
+            }
+
+            group.transferIds.add(id);
+            group.accountIds = grown;
+        }
+
+        if (!group.transferIds.isEmpty()) {
+            groups.add(group);
+        }
+
+        return groups;
+    }
+
+    /**
+     * Account ids of the transfers, read before the transaction starts so the accounts are
+     * only loaded once their locks are held
+     */
+    private Set<Long> accountIdsOf(final List<Long> transferIds) {
+
+        return accountTransferJPARespository.findAccountIdsOf(transferIds);
+    }
+
+    /**
+     * Transfers executed in the same transaction along with the accounts locked by it
+     */
+    private static final class LockGroup {
+
+        private final List<Long> transferIds = new ArrayList<>();
+        private Set<Long> accountIds = new HashSet<>();
+    }
+}
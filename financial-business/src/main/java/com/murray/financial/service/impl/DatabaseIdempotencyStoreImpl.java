@@ -0,0 +1,132 @@
+package com.murray.financial.service.impl;
+
+import com.murray.financial.domain.entity.IdempotencyRecord;
+import com.murray.financial.domain.repository.IdempotencyRecordJPARepository;
+import com.murray.financial.exceptions.IdempotencyKeyException;
+import com.murray.financial.service.IdempotencyStore;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Optional;
+
+/**
+ * {@inheritDoc}
+ * <p>
+ * Stores the records in the idempotency_record table so a retry reaching another node is
+ * also answered with the stored response. A key is reserved by inserting its pending record,
+ * the primary key lets only one request on any node hold the key. The completed records are
+ * cached in memory once read.
+ */
+public class DatabaseIdempotencyStoreImpl implements IdempotencyStore {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(DatabaseIdempotencyStoreImpl.class);
+
+    private final IdempotencyRecordJPARepository idempotencyRecordRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final Duration timeToLive;
+    private final Duration pendingTimeout;
+    private final InMemoryIdempotencyStoreImpl cache;
+
+    public DatabaseIdempotencyStoreImpl(IdempotencyRecordJPARepository idempotencyRecordRepository,
+                                        PlatformTransactionManager transactionManager, Duration timeToLive,
+                                        Duration pendingTimeout, InMemoryIdempotencyStoreImpl cache) {
+        this.idempotencyRecordRepository = idempotencyRecordRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.timeToLive = timeToLive;
+        this.pendingTimeout = pendingTimeout;
+        this.cache = cache;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Optional<IdempotencyRecord> find(final String key) {
+
+        Optional<IdempotencyRecord> cached = cache.find(key);
+        if (cached.isPresent()) {
+            return cached;
+        }
+
+        Optional<IdempotencyRecord> stored = transactionTemplate.execute(status -> idempotencyRecordRepository.findById(key))
+                .filter(record -> !record.isExpired(LocalDateTime.now()));
+
+        stored.filter(record -> !record.isPending()).ifPresent(cache::cache);
+
+        return stored;
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Reserved in its own transaction so the pending record is seen by the other nodes
+     * while the request is executed.
+     */
+    @Override
+    public Optional<IdempotencyRecord> reserve(final String key, final String fingerprint) {
+
+        Optional<IdempotencyRecord> existing = find(key);
+        if (existing.isPresent()) {
+            return existing;
+        }
+
+        LocalDateTime now = LocalDateTime.now();
+
+        try {
+            transactionTemplate.execute(status -> {
+                idempotencyRecordRepository.deleteExpired(key, now);
+                return idempotencyRecordRepository.reserve(key, fingerprint, now, now.plus(pendingTimeout));
+            });
+
+            return Optional.empty();
+
+        } catch (DataIntegrityViolationException e) {
+
+            LOGGER.debug("idempotency key:{} already reserved by another request", key);
+
+            return Optional.of(find(key).orElseThrow(
+                    () -> new IdempotencyKeyException("A request with the same idempotency key is in progress")));
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void complete(final String key, final String response) {
+
+        LocalDateTime now = LocalDateTime.now();
+
+        int completed = transactionTemplate.execute(status -> idempotencyRecordRepository.complete(key, response, now.plus(timeToLive)));
+
+        if (completed == 0) {
+            LOGGER.warn("idempotency key:{} was no longer pending, the response is not stored", key);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void release(final String key) {
+
+        transactionTemplate.execute(status -> idempotencyRecordRepository.deletePending(key));
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int purgeExpired() {
+
+        cache.purgeExpired();
+        return transactionTemplate.execute(status -> idempotencyRecordRepository.deleteExpired(LocalDateTime.now()));
+    }
+}
@@ -0,0 +1,177 @@
+package com.murray.financial.service.impl;
+
+import com.murray.financial.domain.repository.JobLeaseJPARepository;
+import com.murray.financial.service.JobLeaseService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@inheritDoc}
+ * <p>
+ * The lease is stored in the job_lease table, nodes compare the lease expiry against their
+ * own clock so the node clocks are expected to be kept in sync.
+ */
+public class DatabaseJobLeaseServiceImpl implements JobLeaseService {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(DatabaseJobLeaseServiceImpl.class);
+
+    private final JobLeaseJPARepository jobLeaseRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final String nodeId;
+    private final Duration leaseDuration;
+
+    /**
+     * Extends the acquired leases every third of the lease duration
+     */
+    private final ScheduledExecutorService heartbeatExecutor;
+    private final Map<String, ScheduledFuture<?>> heartbeats = new ConcurrentHashMap<>();
+
+    /**
+     * Expiry of the held leases, as last written by this node
+     */
+    private final Map<String, LocalDateTime> expiries = new ConcurrentHashMap<>();
+
+    public DatabaseJobLeaseServiceImpl(JobLeaseJPARepository jobLeaseRepository, PlatformTransactionManager transactionManager,
+                                       String nodeId, Duration leaseDuration) {
+        this.jobLeaseRepository = jobLeaseRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.nodeId = nodeId;
+        this.leaseDuration = leaseDuration;
+        this.heartbeatExecutor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "job-lease-heartbeat");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean tryAcquire(final String jobName) {
+
+        LocalDateTime now = LocalDateTime.now();
+        LocalDateTime expiresOn = now.plus(leaseDuration);
+
+        boolean acquired = transactionTemplate.execute(status -> jobLeaseRepository.acquire(jobName, nodeId, now, expiresOn)) == 1;
+
+        if (!acquired && !jobLeaseRepository.existsById(jobName)) {
+            acquired = create(jobName, now, expiresOn);
+        }
+
+        if (acquired) {
+            LOGGER.debug("Node:{} acquired lease:{} until {}", nodeId, jobName, expiresOn);
+            expiries.put(jobName, expiresOn);
+            startHeartbeat(jobName);
+        }
+
+        return acquired;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void release(final String jobName) {
+
+        stopHeartbeat(jobName);
+
+        transactionTemplate.execute(status -> jobLeaseRepository.release(jobName, nodeId, LocalDateTime.now()));
+        LOGGER.debug("Node:{} released lease:{}", nodeId, jobName);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean isHeld(final String jobName) {
+
+        LocalDateTime expiresOn = expiries.get(jobName);
+
+        return Objects.nonNull(expiresOn) && expiresOn.isAfter(LocalDateTime.now());
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String getNodeId() {
+        return nodeId;
+    }
+
+    /**
+     * Stops the heartbeats, invoked by the container when the bean is destroyed
+     */
+    public void shutdown() {
+        heartbeatExecutor.shutdownNow();
+    }
+
+    private boolean create(final String jobName, final LocalDateTime now, final LocalDateTime expiresOn) {
+
+        try {
+            return transactionTemplate.execute(status -> jobLeaseRepository.create(jobName, nodeId, now, expiresOn)) == 1;
+        } catch (DataIntegrityViolationException e) {
+            LOGGER.debug("Lease:{} was created by another node", jobName);
+            return false;
+        }
+    }
+
+    private void startHeartbeat(final String jobName) {
+
+        long period = Math.max(leaseDuration.toMillis() / 3, 1);
+
+        ScheduledFuture<?> previous = heartbeats.put(jobName, heartbeatExecutor.scheduleAtFixedRate(
+                () -> heartbeat(jobName), period, period, TimeUnit.MILLISECONDS));
+
+        if (Objects.nonNull(previous)) {
+            previous.cancel(false);
+        }
+    }
+
+    private void stopHeartbeat(final String jobName) {
+
+        expiries.remove(jobName);
+
+        ScheduledFuture<?> heartbeat = heartbeats.remove(jobName);
+        if (Objects.nonNull(heartbeat)) {
+            heartbeat.cancel(false);
+        }
+    }
+
+    /**
+     * Extends the lease, once another node owns it the heartbeat stops and the lease is no
+     * longer held. When the lease can not be extended it is held until its last expiry.
+     */
+    private void heartbeat(final String jobName) {
+
+        try {
+            LocalDateTime now = LocalDateTime.now();
+            LocalDateTime expiresOn = now.plus(leaseDuration);
+            int updated = transactionTemplate.execute(status -> jobLeaseRepository.heartbeat(jobName, nodeId, now, expiresOn));
+
+            if (updated == 0) {
+                LOGGER.error("Node:{} lost lease:{}", nodeId, jobName);
+                stopHeartbeat(jobName);
+                return;
+            }
+
+            expiries.replace(jobName, expiresOn);
+
+        } catch (RuntimeException e) {
+            LOGGER.error("Node:{} could not extend lease:{}", nodeId, jobName, e);
+        }
+    }
+}
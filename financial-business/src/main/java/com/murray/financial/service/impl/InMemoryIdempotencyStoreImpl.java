@@ -0,0 +1,119 @@
+package com.murray.financial.service.impl;
+
+import com.murray.financial.domain.entity.IdempotencyRecord;
+import com.murray.financial.service.IdempotencyStore;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * {@inheritDoc}
+ * <p>
+ * Keeps the records in memory, bounded to a maximum number of keys with the least
+ * recently used key evicted first. The records are only visible to the node that stored them.
+ */
+public class InMemoryIdempotencyStoreImpl implements IdempotencyStore {
+
+    private final Duration timeToLive;
+    private final Duration pendingTimeout;
+    private final Map<String, IdempotencyRecord> records;
+
+    public InMemoryIdempotencyStoreImpl(final int maxEntries, final Duration timeToLive, final Duration pendingTimeout) {
+        if (maxEntries <= 0) {
+            throw new IllegalArgumentException("Max entries must be greater than zero");
+        }
+        this.timeToLive = timeToLive;
+        this.pendingTimeout = pendingTimeout;
+        this.records = new LinkedHashMap<String, IdempotencyRecord>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, IdempotencyRecord> eldest) {
+                return size() > maxEntries;
+            }
+        };
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public synchronized Optional<IdempotencyRecord> find(final String key) {
+
+        IdempotencyRecord record = records.get(key);
+
+        if (record != null && record.isExpired(LocalDateTime.now())) {
+            records.remove(key);
+            return Optional.empty();
+        }
+
+        return Optional.ofNullable(record);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public synchronized Optional<IdempotencyRecord> reserve(final String key, final String fingerprint) {
+
+        Optional<IdempotencyRecord> existing = find(key);
+        if (existing.isPresent()) {
+            return existing;
+        }
+
+        LocalDateTime now = LocalDateTime.now();
+        records.put(key, new IdempotencyRecord(key, fingerprint, null, now, now.plus(pendingTimeout)));
+
+        return Optional.empty();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public synchronized void complete(final String key, final String response) {
+
+        IdempotencyRecord pending = records.get(key);
+
+        if (pending != null && pending.isPending()) {
+            records.put(key, new IdempotencyRecord(key, pending.getFingerprint(), response, pending.getCreatedOn(),
+                    LocalDateTime.now().plus(timeToLive)));
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public synchronized void release(final String key) {
+
+        IdempotencyRecord pending = records.get(key);
+
+        if (pending != null && pending.isPending()) {
+            records.remove(key);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public synchronized int purgeExpired() {
+
+        LocalDateTime now = LocalDateTime.now();
+        int size = records.size();
+
+        records.values().removeIf(record -> record.isExpired(now));
+
+        return size - records.size();
+    }
+
+    /**
+     * Keeps a completed record already loaded from another store
+     */
+    synchronized void cache(final IdempotencyRecord record) {
+
+        records.putIfAbsent(record.getKey(), record);
+    }
+}
@@ -0,0 +1,462 @@
+package com.murray.financial.service.impl;
+
+import com.murray.financial.domain.entity.IdGenerators;
+import com.murray.financial.domain.entity.TaxJobPartition;
+import com.murray.financial.domain.entity.TaxJobRun;
+import com.murray.financial.domain.enums.TaxJobRunStatus;
+import com.murray.financial.domain.repository.BackAccountJPARepository;
+import com.murray.financial.domain.repository.TaxJobPartitionJPARepository;
+import com.murray.financial.domain.repository.TaxJobRunJPARepository;
+import com.murray.financial.domain.repository.query.BankAccountQueryField;
+import com.murray.financial.domain.repository.query.BankAccountSearch;
+import com.murray.financial.domain.repository.query.BankAccountTotalsSearch;
+import com.murray.financial.exceptions.LeaseLostException;
+import com.murray.financial.exceptions.NotFoundException;
+import com.murray.financial.service.OperationalTaxService;
+import com.murray.financial.service.TaxRunReport;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+import java.util.function.Consumer;
+
+/**
+ * {@inheritDoc}
+ */
+public class OperationalTaxServiceImpl implements OperationalTaxService {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(OperationalTaxServiceImpl.class);
+
+    private final BackAccountJPARepository backAccountRepository;
+    private final TaxJobRunJPARepository taxJobRunRepository;
+    private final TaxJobPartitionJPARepository taxJobPartitionRepository;
+
+    /**
+     * Each chunk and its checkpoint are committed in their own transaction, when
+     * executed by a worker the transaction is bound to the worker thread so each
+     * worker uses its own EntityManager.
+     */
+    private final TransactionTemplate transactionTemplate;
+
+    /**
+     * Number of account ids covered by each set-based statement
+     */
+    private final long chunkSize;
+
+    /**
+     * Number of partitions processed concurrently, one processes the run in the calling thread
+     */
+    private final int parallelism;
+
+    /**
+     * Bounded worker pool used when the parallelism is greater than one
+     */
+    private final ExecutorService executorService;
+
+    /**
+     * Node id used to claim partitions, so several nodes can split the partitions of a run
+     */
+    private final String nodeId;
+
+    /**
+     * Time a claimed partition is reserved for the node, extended on every committed chunk
+     */
+    private final Duration partitionLease;
+
+    /**
+     * Reserves the ids of the tax transactions inserted by each chunk
+     */
+    private final TableIdBlockAllocator idBlockAllocator;
+
+    /**
+     * Account searches invalidated by the balance updates of each chunk
+     */
+    private final SearchResultCache searchResultCache;
+
+    public OperationalTaxServiceImpl(BackAccountJPARepository backAccountRepository, TaxJobRunJPARepository taxJobRunRepository,
+                                     TaxJobPartitionJPARepository taxJobPartitionRepository,
+                                     PlatformTransactionManager transactionManager, long chunkSize, int parallelism,
+                                     String nodeId, Duration partitionLease, TableIdBlockAllocator idBlockAllocator) {
+        this(backAccountRepository, taxJobRunRepository, taxJobPartitionRepository, transactionManager, chunkSize, parallelism,
+                nodeId, partitionLease, idBlockAllocator, new SearchResultCache(0, Duration.ZERO));
+    }
+
+    public OperationalTaxServiceImpl(BackAccountJPARepository backAccountRepository, TaxJobRunJPARepository taxJobRunRepository,
+                                     TaxJobPartitionJPARepository taxJobPartitionRepository,
+                                     PlatformTransactionManager transactionManager, long chunkSize, int parallelism,
+                                     String nodeId, Duration partitionLease, TableIdBlockAllocator idBlockAllocator,
+                                     SearchResultCache searchResultCache) {
+        if (chunkSize <= 0) {
+            throw new IllegalArgumentException("Chunk size must be greater than zero");
+        }
+        if (parallelism <= 0) {
+            throw new IllegalArgumentException("Parallelism must be greater than zero");
+        }
+        this.backAccountRepository = backAccountRepository;
+        this.taxJobRunRepository = taxJobRunRepository;
+        this.taxJobPartitionRepository = taxJobPartitionRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.chunkSize = chunkSize;
+        this.parallelism = parallelism;
+        this.executorService = parallelism > 1 ? Executors.newFixedThreadPool(parallelism, workerThreadFactory()) : null;
+        this.nodeId = nodeId;
+        this.partitionLease = partitionLease;
+        this.idBlockAllocator = idBlockAllocator;
+        this.searchResultCache = searchResultCache;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public TaxRunReport runTaxWith(final BigDecimal taxRate) {
+
+        return runTaxWith(taxRate, () -> true);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public TaxRunReport runTaxWith(final BigDecimal taxRate, final BooleanSupplier leaseHeld) {
+
+        return runTaxWith(taxRate, null, leaseHeld);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public TaxRunReport runTaxWith(final BigDecimal taxRate, final LocalDateTime scheduledFor, final BooleanSupplier leaseHeld) {
+
+        long start = System.nanoTime();
+
+        TaxJobRun unfinished = taxJobRunRepository.findFirstByStatusInOrderByIdDesc(
+                Arrays.asList(TaxJobRunStatus.RUNNING, TaxJobRunStatus.FAILED));
+
+        if (Objects.isNull(unfinished) && Objects.nonNull(scheduledFor) && taxJobRunRepository.existsByScheduledFor(scheduledFor)) {
+            LOGGER.info("Tax run of the tick scheduled for {} was already run", scheduledFor);
+            return new TaxRunReport(null, taxRate, false);
+        }
+
+        TaxJobRun run;
+
+        try {
+            run = Objects.nonNull(unfinished) ? unfinished : startRunWith(taxRate, scheduledFor);
+        } catch (DataIntegrityViolationException e) {
+            LOGGER.info("Tax run of the tick scheduled for {} was started by another node", scheduledFor);
+            return new TaxRunReport(null, taxRate, false);
+        }
+
+        if (Objects.isNull(run)) {
+            LOGGER.info("No accounts found for the operational banking tax");
+            return new TaxRunReport(null, taxRate, false);
+        }
+
+        if (Objects.nonNull(unfinished)) {
+            LOGGER.warn("Resuming tax run:{} rate:{}", run.getId(), run.getRate());
+        }
+
+        return process(run, Objects.nonNull(unfinished), start, leaseHeld);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public TaxRunReport joinUnfinishedRun() {
+
+        long start = System.nanoTime();
+
+        TaxJobRun unfinished = taxJobRunRepository.findFirstByStatusInOrderByIdDesc(
+                Arrays.asList(TaxJobRunStatus.RUNNING, TaxJobRunStatus.FAILED));
+
+        if (Objects.isNull(unfinished)) {
+            return new TaxRunReport(null, null, false);
+        }
+
+        LOGGER.info("Node:{} joining tax run:{}", nodeId, unfinished.getId());
+
+        return process(unfinished, true, start, () -> true);
+    }
+
+    /**
+     * Processes the partitions of the run that can be claimed by this node, the run is
+     * completed once all its partitions are completed, by this or any other node.
+     */
+    private TaxRunReport process(TaxJobRun run, final boolean resumed, final long start, final BooleanSupplier leaseHeld) {
+
+        TaxRunReport report = new TaxRunReport(run.getId(), run.getRate(), resumed);
+
+        List<TaxJobPartition> pending =
+                taxJobPartitionRepository.findByTaxJobRunIdAndStatusNotOrderByFromAccountId(run.getId(), TaxJobRunStatus.COMPLETED);
+
+        try {
+
+            processPartitions(run, pending, report, leaseHeld);
+
+            if (taxJobPartitionRepository.countByTaxJobRunIdAndStatusNot(run.getId(), TaxJobRunStatus.COMPLETED) == 0) {
+
+                run.completed(taxJobPartitionRepository.findByTaxJobRunIdOrderByFromAccountId(run.getId()));
+                run = taxJobRunRepository.save(run);
+
+            } else if (!leaseHeld.getAsBoolean()) {
+                LOGGER.warn("Node:{} lost the job lease, tax run:{} left to the new lease owner", nodeId, run.getId());
+            } else {
+                LOGGER.info("Tax run:{} has partitions claimed by other nodes", run.getId());
+            }
+
+        } catch (RuntimeException e) {
+
+            LOGGER.error("Tax run:{} failed", run.getId(), e);
+            final Long runId = run.getId();
+            transactionTemplate.execute(status -> taxJobRunRepository.updateUnfinishedStatus(runId, TaxJobRunStatus.FAILED,
+                    TaxJobRunStatus.COMPLETED));
+            throw e;
+        }
+
+        report.completedIn(Duration.ofNanos(System.nanoTime() - start));
+
+        LOGGER.info("Operational banking tax run processed {}", report);
+
+        return report;
+    }
+
+    /**
+     * Stops the worker pool, invoked by the container when the bean is destroyed
+     */
+    public void shutdown() {
+        if (Objects.nonNull(executorService)) {
+            executorService.shutdown();
+        }
+    }
+
+    /**
+     * Creates a new run covering the current account id range along with its partitions
+     */
+    private TaxJobRun startRunWith(final BigDecimal taxRate, final LocalDateTime scheduledFor) {
+
+        Long minId = backAccountRepository.findMinId();
+        Long maxId = backAccountRepository.findMaxId();
+
+        if (Objects.isNull(minId)) {
+            return null;
+        }
+
+        return transactionTemplate.execute(status -> {
+
+            TaxJobRun run = taxJobRunRepository.save(new TaxJobRun(taxRate, minId, maxId, chunkSize, scheduledFor));
+            taxJobPartitionRepository.saveAll(run.createPartitions(parallelism));
+
+            return taxJobRunRepository.save(run);
+        });
+    }
+
+    /**
+     * Processes the partitions in the calling thread or hands them over to the worker pool,
+     * waiting for all of them to finish before reporting the first failure found.
+     */
+    private void processPartitions(final TaxJobRun run, final List<TaxJobPartition> partitions, final TaxRunReport report,
+                                   final BooleanSupplier leaseHeld) {
+
+        if (Objects.isNull(executorService)) {
+            partitions.forEach(partition -> processPartition(run, partition, report, leaseHeld));
+            return;
+        }
+
+        List<Future<?>> futures = new ArrayList<>();
+        partitions.forEach(partition -> futures.add(executorService.submit(
+                () -> processPartition(run, partition, report, leaseHeld))));
+
+        RuntimeException failure = null;
+
+        for (Future<?> future : futures) {
+            try {
+                future.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                failure = new IllegalStateException("Interrupted waiting for tax run partitions", e);
+            } catch (ExecutionException e) {
+                if (Objects.isNull(failure)) {
+                    failure = e.getCause() instanceof RuntimeException ? (RuntimeException) e.getCause()
+                            : new IllegalStateException(e.getCause());
+                }
+            }
+        }
+
+        if (Objects.nonNull(failure)) {
+            throw failure;
+        }
+    }
+
+    /**
+     * Claims the partition for this node and processes it chunk by chunk, marking it as failed
+     * when a chunk can not be committed. Partitions claimed by other nodes are skipped, and the
+     * processing stops once the node loses the job or partition lease.
+     */
+    private void processPartition(final TaxJobRun run, final TaxJobPartition partition, final TaxRunReport report,
+                                  final BooleanSupplier leaseHeld) {
+
+        long start = System.nanoTime();
+        LocalDateTime now = LocalDateTime.now();
+
+        int claimed = transactionTemplate.execute(status -> taxJobPartitionRepository.claim(partition.getId(), nodeId, now,
+                now.plus(partitionLease), TaxJobRunStatus.COMPLETED));
+
+        if (claimed == 0) {
+            LOGGER.debug("Tax run:{} partition [{}-{}] claimed by another node", run.getId(),
+                    partition.getFromAccountId(), partition.getToAccountId());
+            return;
+        }
+
+        // reload as another node may have moved the checkpoint before its lease expired
+        TaxJobPartition current = taxJobPartitionRepository.findById(partition.getId())
+                .orElseThrow(() -> new NotFoundException("Could not find tax run partition", partition.getId().toString()));
+
+        try {
+
+            while (current.hasPendingChunks()) {
+
+                if (!leaseHeld.getAsBoolean()) {
+                    throw new LeaseLostException("Node " + nodeId + " no longer holds the job lease of tax run " + run.getId());
+                }
+
+                current = processNextChunkOf(run, current, report);
+            }
+
+            current = saveOwned(current, TaxJobPartition::completed);
+            report.partitionCompleted();
+
+        } catch (LeaseLostException e) {
+
+            LOGGER.warn("Tax run:{} partition [{}-{}] lease lost after account id:{}, left to its new owner", run.getId(),
+                    current.getFromAccountId(), current.getToAccountId(), current.getLastCompletedId());
+            return;
+
+        } catch (RuntimeException e) {
+
+            LOGGER.error("Tax run:{} partition [{}-{}] failed after account id:{}", run.getId(),
+                    current.getFromAccountId(), current.getToAccountId(), current.getLastCompletedId(), e);
+            releaseFailed(current);
+            throw e;
+        }
+
+        LOGGER.info("Tax run:{} partition [{}-{}] transactions:{} accounts:{} completed in {} ms", run.getId(),
+                current.getFromAccountId(), current.getToAccountId(), current.getTransactionsInserted(),
+                current.getAccountsUpdated(), Duration.ofNanos(System.nanoTime() - start).toMillis());
+    }
+
+    /**
+     * Charges the next chunk of account ids and moves the partition checkpoint forward within
+     * the same transaction, so either both are committed or neither are. The partition lease is
+     * extended first, so the chunk is rolled back when another node took the partition over, and
+     * the chunk accounts are locked, so a transfer can not change a balance between the tax statements.
+     */
+    private TaxJobPartition processNextChunkOf(final TaxJobRun run, final TaxJobPartition partition, final TaxRunReport report) {
+
+        long fromId = partition.getLastCompletedId() + 1;
+        long toId = Math.min(fromId + run.getChunkSize() - 1, partition.getToAccountId());
+
+        int[] rows = new int[2];
+        long firstId = idBlockAllocator.allocate(IdGenerators.TRANSACTION, toId - fromId + 1);
+
+        TaxJobPartition checkpoint = transactionTemplate.execute(status -> {
+
+            extendOwnedLease(partition);
+            backAccountRepository.lockAccountsBetween(fromId, toId);
+
+            int inserted = backAccountRepository.insertTaxRateTransactions(run.getId(), run.getRate(), OPERATIONAL_BANKING_TAX,
+                    firstId, fromId, toId);
+            int updated = backAccountRepository.updateBalancesWithTaxRate(run.getId(), run.getRate(), fromId, toId);
+            rows[0] = inserted;
+            rows[1] = updated;
+
+            searchResultCache.invalidateRows(BankAccountSearch.class, id -> id >= fromId && id <= toId,
+                    Arrays.asList(BankAccountQueryField.BALANCE, BankAccountQueryField.INDEXED_BALANCE));
+            searchResultCache.invalidateSearches(BankAccountTotalsSearch.class);
+
+            TaxJobPartition managed = taxJobPartitionRepository.findById(partition.getId())
+                    .orElseThrow(() -> new NotFoundException("Could not find tax run partition", partition.getId().toString()));
+            managed.chunkCompleted(toId, inserted, updated);
+
+            LOGGER.debug("tax run:{} chunk [{}-{}] transactions:{} accounts:{}", run.getId(), fromId, toId, inserted, updated);
+
+            return managed;
+        });
+
+        report.addChunk(rows[0], rows[1]);
+
+        return checkpoint;
+    }
+
+    /**
+     * Applies the change to the partition in a transaction which is rolled back when the node
+     * no longer owns the partition
+     */
+    private TaxJobPartition saveOwned(final TaxJobPartition partition, final Consumer<TaxJobPartition> change) {
+
+        return transactionTemplate.execute(status -> {
+
+            extendOwnedLease(partition);
+
+            TaxJobPartition managed = taxJobPartitionRepository.findById(partition.getId())
+                    .orElseThrow(() -> new NotFoundException("Could not find tax run partition", partition.getId().toString()));
+            change.accept(managed);
+
+            return managed;
+        });
+    }
+
+    /**
+     * Marks the partition as failed so any node can resume it, unless it was already taken over
+     */
+    private void releaseFailed(final TaxJobPartition partition) {
+
+        try {
+            saveOwned(partition, TaxJobPartition::failed);
+        } catch (LeaseLostException e) {
+            LOGGER.warn("Tax run partition:{} was taken over by another node", partition.getId());
+        }
+    }
+
+    /**
+     * Extends the partition lease within the current transaction
+     *
+     * @throws LeaseLostException when the lease expired or another node owns the partition
+     */
+    private void extendOwnedLease(final TaxJobPartition partition) {
+
+        LocalDateTime now = LocalDateTime.now();
+
+        if (taxJobPartitionRepository.extendLease(partition.getId(), nodeId, now, now.plus(partitionLease)) == 0) {
+            throw new LeaseLostException("Tax run partition " + partition.getId() + " is no longer owned by node " + nodeId);
+        }
+    }
+
+    private static ThreadFactory workerThreadFactory() {
+
+        AtomicInteger counter = new AtomicInteger();
+
+        return runnable -> {
+            Thread thread = new Thread(runnable, "tax-partition-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+}
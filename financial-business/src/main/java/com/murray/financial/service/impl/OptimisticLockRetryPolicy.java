@@ -0,0 +1,129 @@
+package com.murray.financial.service.impl;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.jmx.export.annotation.ManagedAttribute;
+import org.springframework.jmx.export.annotation.ManagedResource;
+
+import java.time.Duration;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Retries a unit of work, normally a whole transaction, when it fails with an optimistic
+ * lock conflict. Each retry waits a random time between zero and an exponentially growing
+ * backoff (full jitter) so conflicting callers do not retry in lock step.
+ */
+@ManagedResource(objectName = "com.murray.financial:type=OptimisticLockRetryPolicy",
+        description = "Retries of the optimistic lock conflicts")
+public class OptimisticLockRetryPolicy {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(OptimisticLockRetryPolicy.class);
+
+    private final int maxAttempts;
+    private final long initialBackoffMillis;
+    private final long maxBackoffMillis;
+
+    private final AtomicLong executions = new AtomicLong();
+    private final AtomicLong conflicts = new AtomicLong();
+    private final AtomicLong retries = new AtomicLong();
+    private final AtomicLong exhausted = new AtomicLong();
+
+    public OptimisticLockRetryPolicy(int maxAttempts, Duration initialBackoff, Duration maxBackoff) {
+        if (maxAttempts <= 0) {
+            throw new IllegalArgumentException("Max attempts must be greater than zero");
+        }
+        this.maxAttempts = maxAttempts;
+        this.initialBackoffMillis = initialBackoff.toMillis();
+        this.maxBackoffMillis = maxBackoff.toMillis();
+    }
+
+    /**
+     * Runs the action, retrying it while it fails with an {@link OptimisticLockingFailureException}
+     * and the attempts are not exhausted, in which case the last conflict is thrown.
+     *
+     * @param action work to execute, must start its own transaction
+     * @return the action result
+     */
+    public <T> T execute(final Supplier<T> action) {
+
+        executions.incrementAndGet();
+
+        for (int attempt = 1; ; attempt++) {
+
+            try {
+                return action.get();
+
+            } catch (OptimisticLockingFailureException e) {
+
+                conflicts.incrementAndGet();
+
+                if (attempt >= maxAttempts) {
+                    exhausted.incrementAndGet();
+                    LOGGER.warn("optimistic lock conflict not resolved after {} attempts", attempt);
+                    throw e;
+                }
+
+                retries.incrementAndGet();
+                LOGGER.debug("optimistic lock conflict on attempt {}, retrying", attempt);
+                backoff(attempt);
+            }
+        }
+    }
+
+    /**
+     * @return number of actions executed through the policy
+     */
+    @ManagedAttribute(description = "Actions executed through the policy")
+    public long getExecutions() {
+        return executions.get();
+    }
+
+    /**
+     * @return number of attempts which failed with a version conflict
+     */
+    @ManagedAttribute(description = "Attempts which failed with a version conflict")
+    public long getConflicts() {
+        return conflicts.get();
+    }
+
+    /**
+     * @return number of attempts retried after a conflict
+     */
+    @ManagedAttribute(description = "Attempts retried after a conflict")
+    public long getRetries() {
+        return retries.get();
+    }
+
+    /**
+     * @return number of actions which still conflicted after the last attempt
+     */
+    @ManagedAttribute(description = "Actions which still conflicted after the last attempt")
+    public long getExhausted() {
+        return exhausted.get();
+    }
+
+    /**
+     * @return conflicts per executed action
+     */
+    @ManagedAttribute(description = "Conflicts per executed action")
+    public double getConflictRate() {
+
+        long total = executions.get();
+        return total == 0 ? 0d : (double) conflicts.get() / total;
+    }
+
+    private void backoff(final int attempt) {
+
+        long ceiling = Math.min(maxBackoffMillis, initialBackoffMillis << Math.min(attempt - 1, 20));
+
+        try {
+            Thread.sleep(ThreadLocalRandom.current().nextLong(ceiling + 1));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting to retry", e);
+        }
+    }
+}
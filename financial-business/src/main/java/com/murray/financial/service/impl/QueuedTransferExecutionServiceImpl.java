@@ -0,0 +1,174 @@
+package com.murray.financial.service.impl;
+
+import com.murray.financial.domain.entity.AccountTransfer;
+import com.murray.financial.domain.enums.TransferStatus;
+import com.murray.financial.domain.repository.AccountTransferJPARespository;
+import com.murray.financial.exceptions.TransferCreationException;
+import com.murray.financial.exceptions.TransferQueueFullException;
+import com.murray.financial.service.AccountLockManager;
+import com.murray.financial.service.AccountService;
+import com.murray.financial.service.AsyncTransferExecutionService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Collections;
+import java.util.Objects;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * {@inheritDoc}
+ */
+public class QueuedTransferExecutionServiceImpl implements AsyncTransferExecutionService {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(QueuedTransferExecutionServiceImpl.class);
+
+    private final AccountService accountService;
+    private final AccountTransferJPARespository accountTransferJPARespository;
+    private final TransactionTemplate transactionTemplate;
+    private final AccountLockManager accountLockManager;
+    private final OptimisticLockRetryPolicy retryPolicy;
+
+    /**
+     * Bounded worker pool with a bounded queue, the worker threads are only started
+     * once the first transfer is submitted
+     */
+    private final ThreadPoolExecutor executor;
+
+    /**
+     * The queue is only kept in memory, a transfer pending for longer than the timeout was
+     * left by a node that stopped and can be queued again
+     */
+    private final Duration pendingTimeout;
+
+    public QueuedTransferExecutionServiceImpl(AccountService accountService, AccountTransferJPARespository accountTransferJPARespository,
+                                              PlatformTransactionManager transactionManager, AccountLockManager accountLockManager,
+                                              OptimisticLockRetryPolicy retryPolicy, int workers, int queueCapacity,
+                                              Duration pendingTimeout) {
+        this.accountService = accountService;
+        this.pendingTimeout = pendingTimeout;
+        this.accountTransferJPARespository = accountTransferJPARespository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.accountLockManager = accountLockManager;
+        this.retryPolicy = retryPolicy;
+
+        AtomicInteger counter = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(workers, workers, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), runnable -> {
+            Thread thread = new Thread(runnable, "transfer-execution-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public AccountTransfer submit(final Long transferId) {
+
+        AccountTransfer transfer = transactionTemplate.execute(status -> {
+
+            AccountTransfer pending = findWithAccounts(transferId);
+            LocalDateTime now = LocalDateTime.now();
+
+            if (pending.getStatus() == TransferStatus.EXECUTED
+                    || (pending.getStatus() == TransferStatus.PENDING && !isStale(pending, now))) {
+                return null;
+            }
+
+            if (pending.getStatus() == TransferStatus.PENDING) {
+                LOGGER.warn("transfer:{} pending since {} is queued again", transferId, pending.getQueuedOn());
+            }
+
+            pending.setStatus(TransferStatus.PENDING);
+            pending.setFailureReason(null);
+            pending.setQueuedOn(now);
+            return pending;
+        });
+
+        if (Objects.isNull(transfer)) {
+            LOGGER.debug("transfer:{} is already pending or executed", transferId);
+            return transactionTemplate.execute(status -> findWithAccounts(transferId));
+        }
+
+        try {
+            executor.execute(() -> execute(transferId));
+        } catch (RejectedExecutionException e) {
+
+            updateStatus(transferId, TransferStatus.CREATED, null);
+            throw new TransferQueueFullException("Transfer execution queue is full, retry later", e);
+        }
+
+        return transfer;
+    }
+
+    /**
+     * A pending transfer queued before the timeout, or before the queue time was recorded,
+     * is no longer held by any queue
+     */
+    private boolean isStale(final AccountTransfer transfer, final LocalDateTime now) {
+
+        return Objects.isNull(transfer.getQueuedOn()) || transfer.getQueuedOn().plus(pendingTimeout).isBefore(now);
+    }
+
+    /**
+     * Number of transfers waiting for a worker
+     */
+    public int getQueueSize() {
+        return executor.getQueue().size();
+    }
+
+    /**
+     * Stops the workers once the queued transfers are executed, invoked by the container
+     * when the bean is destroyed
+     */
+    public void shutdown() {
+        executor.shutdown();
+    }
+
+    /**
+     * Executes the transfer in the worker thread holding the locks of its accounts, recording the failure reason when
+     * the transfer can not be executed
+     */
+    private void execute(final Long transferId) {
+
+        try {
+            retryPolicy.execute(() -> accountLockManager.executeLocked(
+                    accountTransferJPARespository.findAccountIdsOf(Collections.singletonList(transferId)),
+                    () -> transactionTemplate.execute(status -> accountService.executeTransfer(findWithAccounts(transferId)))));
+
+        } catch (RuntimeException e) {
+
+            LOGGER.warn("transfer:{} execution failed:{}", transferId, e.getMessage());
+            updateStatus(transferId, TransferStatus.FAILED, e.getMessage());
+        }
+    }
+
+    /**
+     * Loads the transfer with its accounts so it can be converted once detached
+     */
+    private AccountTransfer findWithAccounts(final Long transferId) {
+
+        return accountTransferJPARespository.findWithAccountsById(transferId)
+                .orElseThrow(() -> new TransferCreationException("No transfer found for id:" + transferId));
+    }
+
+    private void updateStatus(final Long transferId, final TransferStatus transferStatus, final String reason) {
+
+        transactionTemplate.execute(status -> {
+            accountTransferJPARespository.findById(transferId).ifPresent(transfer -> {
+                transfer.setStatus(transferStatus);
+                transfer.setFailureReason(reason);
+            });
+            return null;
+        });
+    }
+}
@@ -0,0 +1,371 @@
+package com.murray.financial.service.impl;
+
+import com.murray.financial.querybuilder.ConditionOperator;
+import com.murray.financial.querybuilder.QueryCondition;
+import com.murray.financial.querybuilder.QueryField;
+import com.murray.financial.querybuilder.SearchPage;
+import com.murray.financial.querybuilder.SearchQuery;
+import com.murray.financial.querybuilder.SearchResultSet;
+import org.springframework.jmx.export.annotation.ManagedAttribute;
+import org.springframework.jmx.export.annotation.ManagedOperation;
+import org.springframework.jmx.export.annotation.ManagedResource;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+/**
+ * Cache of the search results and pages, keyed by the search type, query shape, condition values
+ * and page position.
+ * The cache is bounded to a maximum number of searches, with the least recently used search
+ * evicted first, and each search expires after the time to live.
+ * <p>
+ * Writes invalidate only the searches they affect: the searches whose results hold the changed
+ * row, and the searches whose conditions the changed row may now match. The invalidation is
+ * repeated after the write transaction commits, so a search run before the commit is not kept.
+ * A zero maximum disables the cache.
+ */
+@ManagedResource(objectName = "com.murray.financial:type=SearchResultCache",
+        description = "Account and transfer search results cache")
+public class SearchResultCache {
+
+    private final int maxEntries;
+    private final long timeToLiveNanos;
+    private final Map<String, Entry> entries;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+    private final AtomicLong expirations = new AtomicLong();
+    private final AtomicLong invalidations = new AtomicLong();
+
+    /**
+     * Incremented by every invalidation, results read while an invalidation took place
+     * may miss the write and are not cached
+     */
+    private long generation;
+
+    public SearchResultCache(final int maxEntries, final Duration timeToLive) {
+        if (maxEntries < 0) {
+            throw new IllegalArgumentException("Max entries must not be negative");
+        }
+        this.maxEntries = maxEntries;
+        this.timeToLiveNanos = timeToLive.toNanos();
+        this.entries = new LinkedHashMap<String, Entry>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                boolean evict = size() > maxEntries;
+                if (evict) {
+                    evictions.incrementAndGet();
+                }
+                return evict;
+            }
+        };
+    }
+
+    /**
+     * Returns the cached results of the search, or runs the search and caches its results.
+     *
+     * @param searchQuery the search
+     * @param search      runs the search when its results are not cached
+     * @return the unmodifiable search results
+     */
+    public <R extends SearchResultSet> List<R> resultsOf(final SearchQuery<?, R> searchQuery, final Supplier<List<R>> search) {
+
+        return cached(searchQuery, () -> Collections.unmodifiableList(new ArrayList<>(search.get())), results -> results);
+    }
+
+    /**
+     * Returns the cached page of the search, or reads the page and caches it. The page size
+     * and continuation token are part of the key, so each page is cached on its own.
+     *
+     * @param searchQuery the paged search
+     * @param search      reads the page when it is not cached
+     * @return the search page
+     */
+    public <R extends SearchResultSet> SearchPage<R> pageOf(final SearchQuery<?, R> searchQuery, final Supplier<SearchPage<R>> search) {
+
+        return cached(searchQuery, () -> {
+            SearchPage<R> page = search.get();
+            return new SearchPage<>(Collections.unmodifiableList(new ArrayList<>(page.getResults())), page.getContinuationToken());
+        }, SearchPage::getResults);
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T> T cached(final SearchQuery<?, ?> searchQuery, final Supplier<T> search,
+                         final Function<T, List<? extends SearchResultSet>> rows) {
+
+        if (maxEntries == 0) {
+            return search.get();
+        }
+
+        String key = searchQuery.resultsKey();
+        Entry cached = find(key);
+
+        if (cached != null) {
+            hits.incrementAndGet();
+            return (T) cached.value;
+        }
+
+        misses.incrementAndGet();
+        long searchGeneration = currentGeneration();
+        T value = search.get();
+
+        // the results may hold rows written by the current transaction, which could still roll back
+        if (TransactionSynchronizationManager.hasResource(this)) {
+            return value;
+        }
+
+        synchronized (this) {
+            if (generation == searchGeneration) {
+                entries.put(key, new Entry(searchQuery, value, rows.apply(value), System.nanoTime() + timeToLiveNanos));
+            }
+        }
+
+        return value;
+    }
+
+    private synchronized long currentGeneration() {
+        return generation;
+    }
+
+    private synchronized Entry find(final String key) {
+
+        Entry entry = entries.get(key);
+
+        if (entry != null && entry.isExpired(System.nanoTime())) {
+            entries.remove(key);
+            expirations.incrementAndGet();
+            return null;
+        }
+
+        return entry;
+    }
+
+    /**
+     * Invalidates the searches affected by a created or updated row: the searches of the type
+     * whose results hold the row, and those whose conditions the new row values may match.
+     * Conditions on fields without a value are assumed to match.
+     *
+     * @param searchType the type of search which returns the row
+     * @param id         the row unique id
+     * @param values     the new row values of the searchable fields
+     */
+    public void invalidateRow(final Class<? extends SearchQuery> searchType, final Long id, final Map<QueryField, Object> values) {
+
+        invalidate(entry -> entry.isOf(searchType)
+                && (entry.holds(id::equals) || entry.conditionsMatch(c -> !values.containsKey(c.getField())
+                || c.getOperator().mayMatch(values.get(c.getField()), c.getValue()))));
+    }
+
+    /**
+     * Invalidates the searches affected by a bulk update whose new values are not known: the
+     * searches of the type whose results hold any updated row, and those with a condition on
+     * one of the updated fields.
+     *
+     * @param searchType    the type of search which returns the rows
+     * @param ids           tests if a row id was updated
+     * @param changedFields the updated fields
+     */
+    public void invalidateRows(final Class<? extends SearchQuery> searchType, final Predicate<Long> ids,
+                               final Collection<QueryField> changedFields) {
+
+        invalidate(entry -> entry.isOf(searchType)
+                && (entry.holds(ids) || entry.hasConditionOn(changedFields)));
+    }
+
+    /**
+     * Invalidates all the cached searches of the type, used for the aggregated searches
+     * whose totals change with any written row.
+     *
+     * @param searchType the type of search
+     */
+    public void invalidateSearches(final Class<? extends SearchQuery> searchType) {
+
+        invalidate(entry -> entry.isOf(searchType));
+    }
+
+    /**
+     * Removes the affected searches now and again once the current transaction commits, the
+     * searches of the writing transaction are not cached until it completes
+     */
+    private void invalidate(final Predicate<Entry> affected) {
+
+        if (maxEntries == 0) {
+            return;
+        }
+
+        remove(affected);
+
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+
+            if (!TransactionSynchronizationManager.hasResource(this)) {
+                TransactionSynchronizationManager.bindResource(this, Boolean.TRUE);
+            }
+
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+                @Override
+                public void afterCommit() {
+                    remove(affected);
+                }
+
+                @Override
+                public void afterCompletion(int status) {
+                    if (TransactionSynchronizationManager.hasResource(SearchResultCache.this)) {
+                        TransactionSynchronizationManager.unbindResource(SearchResultCache.this);
+                    }
+                }
+            });
+        }
+    }
+
+    private synchronized void remove(final Predicate<Entry> affected) {
+
+        generation++;
+
+        Iterator<Entry> iterator = entries.values().iterator();
+
+        while (iterator.hasNext()) {
+            if (affected.test(iterator.next())) {
+                iterator.remove();
+                invalidations.incrementAndGet();
+            }
+        }
+    }
+
+    /**
+     * Removes all the cached searches
+     */
+    @ManagedOperation(description = "Removes all the cached searches")
+    public synchronized void clear() {
+        generation++;
+        invalidations.addAndGet(entries.size());
+        entries.clear();
+    }
+
+    /**
+     * @return number of searches answered from the cache
+     */
+    @ManagedAttribute(description = "Searches answered from the cache")
+    public long getHits() {
+        return hits.get();
+    }
+
+    /**
+     * @return number of searches run against the database and cached
+     */
+    @ManagedAttribute(description = "Searches run against the database")
+    public long getMisses() {
+        return misses.get();
+    }
+
+    /**
+     * @return ratio of the searches answered from the cache, zero before any search
+     */
+    @ManagedAttribute(description = "Ratio of the searches answered from the cache")
+    public double getHitRatio() {
+        long requests = hits.get() + misses.get();
+        return requests == 0 ? 0 : (double) hits.get() / requests;
+    }
+
+    /**
+     * @return number of searches evicted to keep the cache within its maximum size
+     */
+    @ManagedAttribute(description = "Searches evicted by the size limit")
+    public long getEvictions() {
+        return evictions.get();
+    }
+
+    /**
+     * @return number of searches removed after their time to live
+     */
+    @ManagedAttribute(description = "Searches expired by the time to live")
+    public long getExpirations() {
+        return expirations.get();
+    }
+
+    /**
+     * @return number of searches removed by writes
+     */
+    @ManagedAttribute(description = "Searches invalidated by writes")
+    public long getInvalidations() {
+        return invalidations.get();
+    }
+
+    /**
+     * @return number of cached searches
+     */
+    @ManagedAttribute(description = "Cached searches")
+    public synchronized int getSize() {
+        return entries.size();
+    }
+
+    /**
+     * Cached results along with the search conditions and the ids of the rows, which
+     * are used to find out if a write affects the results
+     */
+    private static final class Entry {
+
+        private final Class<?> searchType;
+        private final List<QueryCondition> conditions;
+        private final ConditionOperator conditionOperator;
+        private final Set<Long> ids;
+        private final Object value;
+        private final long expiresAt;
+
+        Entry(final SearchQuery<?, ?> searchQuery, final Object value, final List<? extends SearchResultSet> rows,
+              final long expiresAt) {
+            this.searchType = searchQuery.getClass();
+            this.conditions = new ArrayList<>(searchQuery.queryConditions());
+            this.conditionOperator = searchQuery.getConditionOperator();
+            this.ids = new HashSet<>();
+            this.value = value;
+            this.expiresAt = expiresAt;
+
+            rows.forEach(row -> ids.add(row.keysetId()));
+        }
+
+        boolean isExpired(final long now) {
+            return now - expiresAt >= 0;
+        }
+
+        boolean isOf(final Class<?> type) {
+            return searchType.equals(type);
+        }
+
+        boolean holds(final Predicate<Long> id) {
+            return ids.stream().anyMatch(id);
+        }
+
+        boolean hasConditionOn(final Collection<QueryField> fields) {
+            return conditions.stream().anyMatch(c -> fields.contains(c.getField()));
+        }
+
+        /**
+         * Evaluates the search conditions, combined with the search condition operator
+         */
+        boolean conditionsMatch(final Predicate<QueryCondition> matches) {
+
+            if (conditions.isEmpty()) {
+                return true;
+            }
+
+            return conditionOperator == ConditionOperator.OR
+                    ? conditions.stream().anyMatch(matches)
+                    : conditions.stream().allMatch(matches);
+        }
+    }
+}
@@ -0,0 +1,204 @@
+package com.murray.financial.service.impl;
+
+import com.murray.financial.service.AccountLockManager;
+import com.murray.financial.service.LockStripeStatistics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jmx.export.annotation.ManagedAttribute;
+import org.springframework.jmx.export.annotation.ManagedOperation;
+import org.springframework.jmx.export.annotation.ManagedResource;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.List;
+import java.util.Objects;
+import java.util.SortedSet;
+import java.util.TreeSet;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+/**
+ * {@inheritDoc}
+ * <p>
+ * Uses a fixed number of lock stripes, each account id is mapped to a stripe so the memory
+ * used does not grow with the number of accounts. Accounts sharing a stripe are serialized
+ * as well, the stripes are always acquired in ascending index order.
+ * <p>
+ * The contention statistics are exported over JMX.
+ */
+@ManagedResource(objectName = "com.murray.financial:type=AccountLockManager",
+        description = "Account lock stripes contention")
+public class StripedAccountLockManagerImpl implements AccountLockManager {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(StripedAccountLockManagerImpl.class);
+
+    private final ReentrantLock[] stripes;
+    private final AtomicLongArray acquisitions;
+    private final AtomicLongArray contentions;
+    private final AtomicLongArray waitTimeNanos;
+
+    public StripedAccountLockManagerImpl(int stripes) {
+        if (stripes <= 0) {
+            throw new IllegalArgumentException("Number of lock stripes must be greater than zero");
+        }
+        this.stripes = new ReentrantLock[stripes];
+        for (int i = 0; i < stripes; i++) {
+            this.stripes[i] = new ReentrantLock();
+        }
+        this.acquisitions = new AtomicLongArray(stripes);
+        this.contentions = new AtomicLongArray(stripes);
+        this.waitTimeNanos = new AtomicLongArray(stripes);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public <T> T executeLocked(final Collection<Long> accountIds, final Supplier<T> action) {
+
+        Deque<ReentrantLock> acquired = new ArrayDeque<>();
+
+        try {
+            for (Integer stripe : stripesOf(accountIds)) {
+                acquired.push(lock(stripe));
+            }
+
+            return action.get();
+
+        } finally {
+            while (!acquired.isEmpty()) {
+                acquired.pop().unlock();
+            }
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int stripeCountOf(final Collection<Long> accountIds) {
+
+        return stripesOf(accountIds).size();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<LockStripeStatistics> getStripeStatistics() {
+
+        List<LockStripeStatistics> statistics = new ArrayList<>(stripes.length);
+
+        for (int i = 0; i < stripes.length; i++) {
+            statistics.add(new LockStripeStatistics(i, acquisitions.get(i), contentions.get(i),
+                    TimeUnit.NANOSECONDS.toMillis(waitTimeNanos.get(i)), stripes[i].getQueueLength()));
+        }
+
+        return statistics;
+    }
+
+    /**
+     * @param limit maximum number of stripes returned
+     * @return the statistics of the stripes which had to wait the longest, most contended first
+     */
+    @ManagedOperation(description = "Statistics of the most contended lock stripes")
+    public List<String> mostContendedStripes(final int limit) {
+
+        return getStripeStatistics().stream()
+                .filter(statistics -> statistics.getContentions() > 0)
+                .sorted(Comparator.comparingLong(LockStripeStatistics::getWaitTimeMillis).reversed())
+                .limit(limit)
+                .map(LockStripeStatistics::toString)
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * @return number of lock stripes
+     */
+    @ManagedAttribute(description = "Lock stripes")
+    public int getStripes() {
+        return stripes.length;
+    }
+
+    /**
+     * @return number of times any stripe was acquired
+     */
+    @ManagedAttribute(description = "Stripe acquisitions")
+    public long getAcquisitions() {
+        return sum(acquisitions);
+    }
+
+    /**
+     * @return number of acquisitions which had to wait for another thread
+     */
+    @ManagedAttribute(description = "Stripe acquisitions which waited for another thread")
+    public long getContentions() {
+        return sum(contentions);
+    }
+
+    /**
+     * @return total time in milliseconds spent waiting for the stripes
+     */
+    @ManagedAttribute(description = "Time spent waiting for the stripes in milliseconds")
+    public long getWaitTimeMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(sum(waitTimeNanos));
+    }
+
+    private static long sum(final AtomicLongArray counters) {
+
+        long total = 0;
+        for (int i = 0; i < counters.length(); i++) {
+            total += counters.get(i);
+        }
+        return total;
+    }
+
+    /**
+     * Distinct stripes of the accounts in ascending order, the order in which they must be locked
+     */
+    private SortedSet<Integer> stripesOf(final Collection<Long> accountIds) {
+
+        SortedSet<Integer> indexes = new TreeSet<>();
+
+        accountIds.stream()
+                .filter(Objects::nonNull)
+                .forEach(id -> indexes.add(stripeOf(id)));
+
+        return indexes;
+    }
+
+    private int stripeOf(final Long accountId) {
+
+        int hash = accountId.hashCode();
+        return Math.floorMod(hash ^ (hash >>> 16), stripes.length);
+    }
+
+    /**
+     * Acquires the stripe, recording the time waited when another thread holds it
+     */
+    private ReentrantLock lock(final int stripe) {
+
+        ReentrantLock lock = stripes[stripe];
+
+        if (!lock.tryLock()) {
+
+            long start = System.nanoTime();
+            lock.lock();
+            long waited = System.nanoTime() - start;
+
+            contentions.incrementAndGet(stripe);
+            waitTimeNanos.addAndGet(stripe, waited);
+            LOGGER.debug("waited {} ms for account lock stripe:{}", TimeUnit.NANOSECONDS.toMillis(waited), stripe);
+        }
+
+        acquisitions.incrementAndGet(stripe);
+
+        return lock;
+    }
+}
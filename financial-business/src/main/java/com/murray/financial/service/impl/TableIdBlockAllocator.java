@@ -0,0 +1,74 @@
+package com.murray.financial.service.impl;
+
+import com.murray.financial.domain.entity.IdGenerators;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.util.List;
+
+/**
+ * Reserves blocks of ids from the {@link IdGenerators#TABLE} generator table for the rows
+ * inserted by set-based native statements, which bypass the Hibernate generators. The
+ * reserved block is skipped by the Hibernate pooled generators as both move the same
+ * value forward. Like Hibernate, with hibernate.id.generator.stored_last_used enabled by
+ * default, the value column holds the last id already used, so a block starts right after it.
+ */
+public class TableIdBlockAllocator {
+
+    private static final String SELECT_NEXT_VALUE = "SELECT " + IdGenerators.VALUE_COLUMN + " FROM " + IdGenerators.TABLE +
+            " WHERE " + IdGenerators.SEGMENT_COLUMN + " = ? FOR UPDATE";
+    private static final String UPDATE_NEXT_VALUE = "UPDATE " + IdGenerators.TABLE + " SET " + IdGenerators.VALUE_COLUMN + " = ?" +
+            " WHERE " + IdGenerators.SEGMENT_COLUMN + " = ?";
+    private static final String INSERT_SEGMENT = "INSERT INTO " + IdGenerators.TABLE +
+            " (" + IdGenerators.SEGMENT_COLUMN + ", " + IdGenerators.VALUE_COLUMN + ") VALUES (?, ?)";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+
+    public TableIdBlockAllocator(DataSource dataSource, PlatformTransactionManager transactionManager) {
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    }
+
+    /**
+     * Reserves a block of consecutive ids, committed in its own transaction so the generator
+     * row is only locked for the reservation.
+     *
+     * @param segment generator segment, one of the {@link IdGenerators} segment values
+     * @param size    number of ids to reserve
+     * @return the first id of the block, the block ends at the returned id plus size minus one
+     */
+    public long allocate(final String segment, final long size) {
+
+        if (size <= 0) {
+            throw new IllegalArgumentException("Block size must be greater than zero");
+        }
+
+        try {
+            return transactionTemplate.execute(status -> reserve(segment, size));
+        } catch (DataIntegrityViolationException e) {
+            // another node or generator created the segment row first
+            return transactionTemplate.execute(status -> reserve(segment, size));
+        }
+    }
+
+    private long reserve(final String segment, final long size) {
+
+        List<Long> lastUsed = jdbcTemplate.queryForList(SELECT_NEXT_VALUE, Long.class, segment);
+
+        if (lastUsed.isEmpty()) {
+            long last = Long.parseLong(IdGenerators.INITIAL_VALUE) - 1;
+            jdbcTemplate.update(INSERT_SEGMENT, segment, last + size);
+            return last + 1;
+        }
+
+        long last = lastUsed.get(0);
+        jdbcTemplate.update(UPDATE_NEXT_VALUE, last + size, segment);
+        return last + 1;
+    }
+}
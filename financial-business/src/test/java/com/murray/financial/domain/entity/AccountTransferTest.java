@@ -99,6 +99,20 @@ public class AccountTransferTest {
 
     }
 
+    @Test
+    public void new_instance_carries_iban_number_and_currency_of_accounts() {
+
+        BankAccount source = mockAccount(new BigDecimal(100L), AccountStatus.ACTIVE, AccountCurrency.EUR);
+        BankAccount destination = mockAccount(BigDecimal.ZERO, AccountStatus.ACTIVE, AccountCurrency.GBP);
+
+        AccountTransfer transfer = new AccountTransfer(source, destination, BigDecimal.TEN, "Test");
+
+        assertThat(transfer.getSourceIbanNumber(), is(equalTo(source.getIbanNumber())));
+        assertThat(transfer.getSourceCurrency(), is(equalTo(AccountCurrency.EUR)));
+        assertThat(transfer.getDestinationIbanNumber(), is(equalTo(destination.getIbanNumber())));
+        assertThat(transfer.getDestinationCurrency(), is(equalTo(AccountCurrency.GBP)));
+    }
+
     BankAccount mockAccount(BigDecimal balance,
                             AccountStatus status, AccountCurrency currency) {
 
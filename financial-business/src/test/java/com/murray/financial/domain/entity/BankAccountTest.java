@@ -84,5 +84,16 @@ public class BankAccountTest {
 
     }
 
+    @Test
+    public void materialized_balance_matches_transactions_total() {
+
+        BankAccount bankAccount = new BankAccount(AccountNumber.IBAN_NUMBER_SWISS.getNumber(),
+                AccountNumber.IBAN_NUMBER_SWISS.getAccountCurrency(), new Transaction(new BigDecimal(1000L), "Test"));
+        bankAccount.add(new Transaction(new BigDecimal(250L).negate(), "Test"));
+        bankAccount.add(new Transaction(new BigDecimal("10.50"), "Test"));
+
+        assertThat(bankAccount.getBalance(), is(equalTo(new BigDecimal("760.50"))));
+        assertThat(bankAccount.isBalanceConsistent(), is(true));
+    }
 
 }
@@ -1,19 +1,30 @@
 package com.murray.financial.domain.repository.query;
 
 import com.murray.financial.domain.entity.BankAccount;
+import com.murray.financial.exceptions.InvalidSearchException;
 import com.murray.financial.querybuilder.Operator;
+import com.murray.financial.querybuilder.OrderBy;
+import com.murray.financial.querybuilder.OrderCondition;
 import com.murray.financial.querybuilder.QueryCondition;
 import com.murray.financial.querybuilder.QueryField;
+import com.murray.financial.querybuilder.QueryTemplateCache;
+import com.murray.financial.querybuilder.Range;
+import com.murray.financial.querybuilder.SearchPage;
+import com.murray.financial.querybuilder.SearchQuery;
 import org.junit.Before;
 import org.junit.Test;
 
 import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.Collections;
 
 import static com.murray.financial.domain.repository.query.BankAccountQueryField.NATIVE_QUERY;
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.core.Is.is;
 import static org.hamcrest.core.IsEqual.equalTo;
+import static org.hamcrest.core.IsNot.not;
 import static org.hamcrest.core.IsNull.notNullValue;
+import static org.hamcrest.core.IsSame.sameInstance;
 import static org.hamcrest.core.StringContains.containsString;
 import static org.hamcrest.core.StringStartsWith.startsWith;
 
@@ -71,15 +82,76 @@ public class BankAccountSearchTest {
     }
 
     @Test
-    public void return_native_query_with_one_have_condition() {
+    public void return_native_query_with_one_indexed_balance_where_condition() {
 
         assertThat(bankAccountSearch.toNativeQueryWithConditions(), is(notNullValue()));
         bankAccountSearch.addCondition(balanceCondition);
-        assertThat(bankAccountSearch.toNativeQueryWithConditions(), startsWith(bankAccountSearch.nativeQuery()));
-        assertThat(bankAccountSearch.toNativeQueryWithConditions(), containsString("HAVING"));
-        assertThat(bankAccountSearch.toNativeQueryWithConditions(), containsString("balance=:balance"));
-        System.out.println(bankAccountSearch.toNativeQueryWithConditions());
+        assertThat(bankAccountSearch.usesIndexedBalance(), is(true));
+        assertThat(bankAccountSearch.toNativeQueryWithConditions(), startsWith(BankAccountQueryField.INDEXED_BALANCE_QUERY));
+        assertThat(bankAccountSearch.toNativeQueryWithConditions(), containsString("WHERE b.balance=:balance"));
+        assertThat(bankAccountSearch.toNativeQueryWithConditions(), not(containsString("HAVING")));
+        assertThat(bankAccountSearch.toNativeQueryWithConditions(), not(containsString("GROUP BY")));
+        assertThat(bankAccountSearch.toNativeQueryWithConditions(), not(containsString("bank_account_transaction")));
+
+    }
+
+    @Test
+    public void return_native_query_summing_transactions_when_balance_not_searched() {
+
+        bankAccountSearch.addCondition(ibanNumberCondition);
+
+        assertThat(bankAccountSearch.usesIndexedBalance(), is(false));
+        assertThat(bankAccountSearch.toNativeQueryWithConditions(), startsWith(NATIVE_QUERY));
+        assertThat(bankAccountSearch.toNativeQueryWithConditions(), containsString("GROUP BY"));
+    }
+
+    @Test
+    public void return_native_query_without_transactions_when_balance_not_selected() {
+
+        bankAccountSearch.addCondition(ibanNumberCondition);
+        bankAccountSearch.selectFields(Arrays.asList(BankAccountQueryField.IBAN_NUMBER, BankAccountQueryField.STATUS));
+
+        assertThat(bankAccountSearch.aggregatesBalance(), is(false));
+        assertThat(bankAccountSearch.toNativeQueryWithConditions(), startsWith(BankAccountQueryField.NO_BALANCE_QUERY));
+        assertThat(bankAccountSearch.toNativeQueryWithConditions(), not(containsString("GROUP BY")));
+        assertThat(bankAccountSearch.toNativeQueryWithConditions(), not(containsString("bank_account_transaction")));
+    }
+
+    @Test
+    public void return_native_query_summing_transactions_when_balance_selected() {
+
+        bankAccountSearch.addCondition(ibanNumberCondition);
+        bankAccountSearch.selectFields(Arrays.asList(BankAccountQueryField.IBAN_NUMBER, BankAccountQueryField.BALANCE));
+
+        assertThat(bankAccountSearch.aggregatesBalance(), is(true));
+        assertThat(bankAccountSearch.toNativeQueryWithConditions(), startsWith(NATIVE_QUERY));
+    }
+
+    @Test
+    public void return_indexed_balance_query_when_balance_filtered_but_not_selected() {
+
+        bankAccountSearch.addCondition(balanceCondition);
+        bankAccountSearch.selectFields(Collections.singletonList(BankAccountQueryField.IBAN_NUMBER));
+
+        assertThat(bankAccountSearch.toNativeQueryWithConditions(), startsWith(BankAccountQueryField.INDEXED_BALANCE_QUERY));
+    }
+
+    @Test
+    public void selected_fields_are_part_of_the_query_shape() {
+
+        BankAccountSearch sparseSearch = new BankAccountSearch();
+        sparseSearch.addCondition(ibanNumberCondition);
+        sparseSearch.selectFields(Collections.singletonList(BankAccountQueryField.IBAN_NUMBER));
+        bankAccountSearch.addCondition(ibanNumberCondition);
+
+        assertThat(sparseSearch.resultsKey(), is(not(equalTo(bankAccountSearch.resultsKey()))));
+        assertThat(sparseSearch.toNativeQueryWithConditions(), is(not(equalTo(bankAccountSearch.toNativeQueryWithConditions()))));
+    }
 
+    @Test(expected = InvalidSearchException.class)
+    public void throw_error_if_selected_field_not_valid_field() {
+
+        bankAccountSearch.selectFields(Collections.singletonList(TransferQueryField.SOURCE));
     }
 
     @Test(expected = IllegalArgumentException.class)
@@ -137,6 +209,93 @@ public class BankAccountSearchTest {
     }
 
 
+    @Test
+    public void paged_query_is_ordered_by_field_and_id() {
+
+        bankAccountSearch.setOrderCondition(new OrderCondition(OrderBy.ASC, BankAccountQueryField.IBAN_NUMBER));
+        bankAccountSearch.setPageSize(10);
+
+        assertThat(bankAccountSearch.toNativeQueryWithConditions(), containsString("ORDER BY iban_number asc, b.id asc"));
+        assertThat(bankAccountSearch.keysetParameters().isEmpty(), is(true));
+    }
+
+    @Test
+    public void continuation_token_adds_where_seek_condition() {
+
+        bankAccountSearch.addCondition(ibanNumberCondition);
+        bankAccountSearch.setOrderCondition(new OrderCondition(OrderBy.ASC, BankAccountQueryField.IBAN_NUMBER));
+        bankAccountSearch.setPageSize(1);
+
+        SearchPage<BankAccountResult> page = bankAccountSearch.toPage(Arrays.asList(
+                result(7L, "DK5750510001322123", BigDecimal.ONE), result(8L, "DK5750510001322145", BigDecimal.TEN)));
+
+        assertThat(page.getResults().size(), is(equalTo(1)));
+        assertThat(page.hasNext(), is(true));
+
+        bankAccountSearch.setContinuationToken(page.getContinuationToken());
+
+        assertThat(bankAccountSearch.toNativeQueryWithConditions(), containsString(
+                "WHERE (iban_number=:iban_number) AND (iban_number > :keysetValue OR (iban_number = :keysetValue AND b.id > :keysetId))"));
+        assertThat(bankAccountSearch.keysetParameters().get(SearchQuery.KEYSET_VALUE), is(equalTo("DK5750510001322123")));
+        assertThat(bankAccountSearch.keysetParameters().get(SearchQuery.KEYSET_ID), is(equalTo(7L)));
+    }
+
+    @Test
+    public void continuation_token_of_balance_adds_indexed_where_seek_condition() {
+
+        bankAccountSearch.setOrderCondition(new OrderCondition(OrderBy.DESC, BankAccountQueryField.BALANCE));
+        bankAccountSearch.setPageSize(1);
+
+        SearchPage<BankAccountResult> page = bankAccountSearch.toPage(Arrays.asList(
+                result(7L, "DK5750510001322123", BigDecimal.TEN), result(8L, "DK5750510001322145", BigDecimal.ONE)));
+
+        bankAccountSearch.setContinuationToken(page.getContinuationToken());
+
+        assertThat(bankAccountSearch.toNativeQueryWithConditions(), containsString(
+                "WHERE (b.balance < :keysetValue OR (b.balance = :keysetValue AND b.id < :keysetId) OR b.balance IS NULL)"));
+        assertThat(bankAccountSearch.toNativeQueryWithConditions(), containsString("ORDER BY balance desc, b.id desc"));
+        assertThat(bankAccountSearch.keysetParameters().get(SearchQuery.KEYSET_VALUE), is(equalTo(BigDecimal.TEN)));
+    }
+
+    @Test
+    public void last_page_has_no_continuation_token() {
+
+        bankAccountSearch.setPageSize(2);
+
+        SearchPage<BankAccountResult> page = bankAccountSearch.toPage(Arrays.asList(
+                result(7L, "DK5750510001322123", BigDecimal.TEN), result(8L, "DK5750510001322145", BigDecimal.ONE)));
+
+        assertThat(page.getResults().size(), is(equalTo(2)));
+        assertThat(page.hasNext(), is(false));
+    }
+
+    @Test(expected = InvalidSearchException.class)
+    public void throw_error_when_continuation_token_order_changed() {
+
+        bankAccountSearch.setOrderCondition(new OrderCondition(OrderBy.ASC, BankAccountQueryField.IBAN_NUMBER));
+        bankAccountSearch.setPageSize(1);
+
+        SearchPage<BankAccountResult> page = bankAccountSearch.toPage(Arrays.asList(
+                result(7L, "DK5750510001322123", BigDecimal.TEN), result(8L, "DK5750510001322145", BigDecimal.ONE)));
+
+        bankAccountSearch.setOrderCondition(new OrderCondition(OrderBy.ASC, BankAccountQueryField.BALANCE));
+        bankAccountSearch.setContinuationToken(page.getContinuationToken());
+
+        bankAccountSearch.keysetParameters();
+    }
+
+    @Test(expected = InvalidSearchException.class)
+    public void throw_error_when_continuation_token_is_malformed() {
+
+        bankAccountSearch.setContinuationToken("not-a-token");
+    }
+
+    private BankAccountResult result(Long id, String ibanNumber, BigDecimal balance) {
+
+        return new BankAccountResult(id, null, ibanNumber, balance, "EUR", "ACTIVE");
+    }
+
+
     static class TestQueryField<T extends Comparable> extends QueryField {
 
 
@@ -149,5 +308,133 @@ public class BankAccountSearchTest {
         }
     }
 
+    @Test
+    public void same_query_shape_with_other_values_reuses_cached_template() {
+
+        bankAccountSearch.addCondition(ibanNumberCondition);
+        bankAccountSearch.setOrderCondition(new OrderCondition(OrderBy.DESC, BankAccountQueryField.IBAN_NUMBER));
+        QueryTemplateCache templateCache = new QueryTemplateCache(10);
+        String first = bankAccountSearch.toNativeQueryWithConditions(templateCache);
+
+        BankAccountSearch other = new BankAccountSearch();
+        other.addCondition(ibanNumberConditionTwo);
+        other.setOrderCondition(new OrderCondition(OrderBy.DESC, BankAccountQueryField.IBAN_NUMBER));
+
+        assertThat(other.toNativeQueryWithConditions(templateCache), is(sameInstance(first)));
+        assertThat(templateCache.getHits(), is(equalTo(1L)));
+        assertThat(templateCache.getMisses(), is(equalTo(1L)));
+        assertThat(templateCache.getSize(), is(equalTo(1)));
+    }
+
+    @Test
+    public void searches_of_other_types_do_not_share_cached_templates() {
+
+        QueryTemplateCache templateCache = new QueryTemplateCache(10);
+
+        String accounts = new BankAccountSearch().toNativeQueryWithConditions(templateCache);
+        String totals = new BankAccountTotalsSearch().toNativeQueryWithConditions(templateCache);
+
+        assertThat(totals, is(not(equalTo(accounts))));
+        assertThat(templateCache.getMisses(), is(equalTo(2L)));
+    }
+
+    @Test
+    public void conditions_added_in_any_order_build_the_same_query() {
+
+        bankAccountSearch.addCondition(ibanNumberCondition);
+        bankAccountSearch.addCondition(balanceCondition);
+
+        BankAccountSearch other = new BankAccountSearch();
+        other.addCondition(balanceCondition);
+        other.addCondition(ibanNumberCondition);
+
+        assertThat(other.toNativeQueryWithConditions(), is(equalTo(bankAccountSearch.toNativeQueryWithConditions())));
+    }
+
+    @Test
+    public void other_query_shape_does_not_reuse_cached_template() {
+
+        bankAccountSearch.setOrderCondition(new OrderCondition(OrderBy.ASC, BankAccountQueryField.CURRENCY));
+        String ascending = bankAccountSearch.toNativeQueryWithConditions();
+
+        bankAccountSearch.setOrderCondition(new OrderCondition(OrderBy.DESC, BankAccountQueryField.CURRENCY));
+        String descending = bankAccountSearch.toNativeQueryWithConditions();
+
+        bankAccountSearch.setPageSize(10);
+
+        assertThat(descending, is(not(equalTo(ascending))));
+        assertThat(bankAccountSearch.toNativeQueryWithConditions(), is(not(equalTo(descending))));
+    }
 
+    @Test
+    public void return_native_query_with_in_and_between_conditions_on_bare_columns() {
+
+        bankAccountSearch.addCondition(new QueryCondition(BankAccountQueryField.IBAN_NUMBER, Operator.IN,
+                Arrays.asList("DK5750510001322123", "DK5750510001322145")));
+        bankAccountSearch.addCondition(new QueryCondition(BankAccountQueryField.BALANCE, Operator.BETWEEN,
+                new Range<>(BigDecimal.ONE, BigDecimal.TEN)));
+
+        String query = bankAccountSearch.toNativeQueryWithConditions();
+
+        assertThat(query, containsString("iban_number IN (:iban_number_in)"));
+        assertThat(query, containsString("b.balance BETWEEN :balance_between_from AND :balance_between_to"));
+    }
+
+    @Test
+    public void lower_and_upper_bound_of_same_field_use_different_parameters() {
+
+        QueryCondition lower = new QueryCondition(BankAccountQueryField.BALANCE, Operator.GREATER_OR_EQUAL, BigDecimal.ONE);
+        QueryCondition upper = new QueryCondition(BankAccountQueryField.BALANCE, Operator.LOWER_THAN, BigDecimal.TEN);
+
+        bankAccountSearch.addCondition(lower);
+        bankAccountSearch.addCondition(upper);
+
+        assertThat(bankAccountSearch.toNativeQueryWithConditions(), containsString("b.balance>=:balance_gte AND b.balance<:balance_lt"));
+        assertThat(lower.parameters().get("balance_gte"), is(equalTo(BigDecimal.ONE)));
+        assertThat(upper.parameters().get("balance_lt"), is(equalTo(BigDecimal.TEN)));
+    }
+
+    @Test(expected = InvalidSearchException.class)
+    public void throw_error_when_range_from_is_greater_than_to() {
+
+        new Range<>(BigDecimal.TEN, BigDecimal.ONE);
+    }
+
+    @Test(expected = InvalidSearchException.class)
+    public void throw_error_when_in_condition_has_no_values() {
+
+        new QueryCondition(BankAccountQueryField.IBAN_NUMBER, Operator.IN, Collections.emptyList());
+    }
+
+    @Test
+    public void return_totals_query_grouped_by_currency_with_indexed_balance_condition() {
+
+        BankAccountTotalsSearch totalsSearch = new BankAccountTotalsSearch();
+        totalsSearch.addCondition(balanceCondition);
+        totalsSearch.groupBy(BankAccountQueryField.CURRENCY);
+
+        String query = totalsSearch.toNativeQueryWithConditions();
+
+        assertThat(query, startsWith("SELECT currency as currency, NULL as status, COUNT(b.id) as accounts"));
+        assertThat(query, containsString("WHERE b.balance=:balance GROUP BY currency"));
+    }
+
+    @Test
+    public void totals_grouped_differently_do_not_share_query_template() {
+
+        BankAccountTotalsSearch byCurrency = new BankAccountTotalsSearch();
+        byCurrency.groupBy(BankAccountQueryField.CURRENCY);
+
+        BankAccountTotalsSearch byStatus = new BankAccountTotalsSearch();
+        byStatus.groupBy(BankAccountQueryField.STATUS);
+
+        assertThat(byCurrency.toNativeQueryWithConditions(), containsString("GROUP BY currency"));
+        assertThat(byStatus.toNativeQueryWithConditions(), containsString("GROUP BY status"));
+    }
+
+    @Test(expected = InvalidSearchException.class)
+    public void totals_can_not_be_grouped_by_iban_number() {
+
+        new BankAccountTotalsSearch().groupBy(BankAccountQueryField.IBAN_NUMBER);
+    }
 }
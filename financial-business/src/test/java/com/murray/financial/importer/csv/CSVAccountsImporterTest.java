@@ -6,6 +6,7 @@ import org.junit.Test;
 import org.mockito.Mock;
 
 import java.io.File;
+import java.util.ArrayList;
 import java.util.List;
 
 import static org.hamcrest.MatcherAssert.assertThat;
@@ -49,7 +50,9 @@ public class CSVAccountsImporterTest {
     public void return_three_account_to_import_from_file() throws Exception {
 
         File file = accountsImporter.findCsvFromResourceDirectory(INPUT).orElse(null);
-        List<CSVAccountsFileImporter.AccountRow> results = accountsImporter.convertFileToImporterObjects(file, CSVAccountsFileImporter.AccountRow.class);
+        List<CSVAccountsFileImporter.AccountRow> results = new ArrayList<>();
+
+        accountsImporter.importInBatches(file, CSVAccountsFileImporter.AccountRow.class, results::addAll);
 
         assertThat(results.size(), is(equalTo(3)));
     }
@@ -0,0 +1,121 @@
+package com.murray.financial.importer.csv;
+
+import com.murray.financial.exceptions.CsvImportException;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.supercsv.cellprocessor.ift.CellProcessor;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.Is.is;
+import static org.hamcrest.core.IsEqual.equalTo;
+
+public class CSVImporterBaseTest {
+
+    private static final String HEADER = "source;destination;amount;description;timestamp";
+    private static final String ROW = "1;2;100;Yesterday’s Lunch;2018/11/01 09:03:56";
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void import_all_rows_in_batches_of_at_most_the_batch_size() throws Exception {
+
+        CSVTransfersFileImporter importer = new CSVTransfersFileImporter(null, null, 10, 1);
+        List<Integer> batchSizes = new ArrayList<>();
+
+        long imported = importer.importInBatches(transfersFile(1005), CSVTransfersFileImporter.TransferRow.class,
+                batch -> batchSizes.add(batch.size()));
+
+        assertThat(imported, is(equalTo(1005L)));
+        assertThat(batchSizes.size(), is(equalTo(101)));
+        assertThat(batchSizes.stream().allMatch(size -> size <= 10), is(true));
+    }
+
+    @Test(expected = CsvImportException.class)
+    public void invalid_row_stops_the_import() throws Exception {
+
+        File file = transfersFile(20);
+
+        try (PrintWriter writer = new PrintWriter(new FileWriter(file, true))) {
+            writer.println("1;2;not an amount;Lunch;2018/11/01 09:03:56");
+        }
+
+        new CSVTransfersFileImporter(null, null, 5, 1)
+                .importInBatches(file, CSVTransfersFileImporter.TransferRow.class, batch -> { });
+    }
+
+    @Test
+    public void failed_batch_stops_the_parser_and_the_import() throws Exception {
+
+        CSVTransfersFileImporter importer = new CSVTransfersFileImporter(null, null, 10, 1);
+        AtomicInteger batches = new AtomicInteger();
+
+        try {
+            importer.importInBatches(transfersFile(1000), CSVTransfersFileImporter.TransferRow.class, batch -> {
+                if (batches.incrementAndGet() == 2) {
+                    throw new IllegalStateException("Batch could not be saved");
+                }
+            });
+        } catch (IllegalStateException e) {
+
+            assertThat(batches.get(), is(equalTo(2)));
+            return;
+        }
+
+        throw new AssertionError("The failed batch should stop the import");
+    }
+
+    @Test(timeout = 10000, expected = IllegalStateException.class)
+    public void unexpected_parser_failure_stops_the_import() throws Exception {
+
+        CSVTransfersFileImporter importer = new CSVTransfersFileImporter(null, null, 10, 1) {
+
+            @Override
+            public CellProcessor[] getProcessors() {
+                throw new IllegalStateException("Processors could not be built");
+            }
+        };
+
+        importer.importInBatches(transfersFile(20), CSVTransfersFileImporter.TransferRow.class, batch -> { });
+    }
+
+    @Test
+    public void batches_hold_every_row_of_the_file() throws Exception {
+
+        CSVTransfersFileImporter importer = new CSVTransfersFileImporter(null, null, 10, 1);
+        List<CSVTransfersFileImporter.TransferRow> rows = new ArrayList<>();
+
+        importer.importInBatches(transfersFile(25), CSVTransfersFileImporter.TransferRow.class, rows::addAll);
+
+        assertThat(rows.size(), is(equalTo(25)));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void zero_batch_size_is_rejected() {
+
+        new CSVTransfersFileImporter(null, null, 0, 1);
+    }
+
+    private File transfersFile(int rows) throws IOException {
+
+        File file = folder.newFile("Transfers.csv");
+
+        try (PrintWriter writer = new PrintWriter(file, "UTF-8")) {
+            writer.println(HEADER);
+            for (int i = 0; i < rows; i++) {
+                writer.println(ROW);
+            }
+        }
+
+        return file;
+    }
+}
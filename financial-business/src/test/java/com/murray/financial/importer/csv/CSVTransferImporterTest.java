@@ -8,6 +8,7 @@ import org.mockito.Mock;
 import java.io.File;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
 import java.util.List;
 
 import static org.hamcrest.MatcherAssert.assertThat;
@@ -63,8 +64,9 @@ public class CSVTransferImporterTest {
     public void return_three_account_to_import_from_file() throws Exception {
 
         File file = transfersFileImporter.findCsvFromResourceDirectory(INPUT).orElse(null);
-        List<CSVTransfersFileImporter.TransferRow> results = transfersFileImporter.convertFileToImporterObjects(file,
-                CSVTransfersFileImporter.TransferRow.class);
+        List<CSVTransfersFileImporter.TransferRow> results = new ArrayList<>();
+
+        transfersFileImporter.importInBatches(file, CSVTransfersFileImporter.TransferRow.class, results::addAll);
 
         assertThat(results.size(), is(equalTo(2)));
     }
@@ -0,0 +1,53 @@
+package com.murray.financial.service.impl;
+
+import com.murray.financial.domain.repository.AccountTransferJPARespository;
+import com.murray.financial.service.AccountService;
+import com.murray.financial.service.TransferExecutionResult;
+import org.junit.Test;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.function.Supplier;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.Is.is;
+import static org.hamcrest.core.IsEqual.equalTo;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class BatchTransferExecutionServiceImplTest {
+
+    private final List<Integer> lockedStripes = new ArrayList<>();
+
+    private final StripedAccountLockManagerImpl lockManager = new StripedAccountLockManagerImpl(1024) {
+        @Override
+        public <T> T executeLocked(Collection<Long> accountIds, Supplier<T> action) {
+            lockedStripes.add(stripeCountOf(accountIds));
+            return super.executeLocked(accountIds, action);
+        }
+    };
+
+    @Test
+    public void batch_is_split_to_hold_at_most_the_max_locked_stripes() {
+
+        AccountTransferJPARespository repository = mock(AccountTransferJPARespository.class);
+        when(repository.findAccountIdsByTransferOf(anyCollection())).thenCallRealMethod();
+        when(repository.findAccountIdTriplesByIdIn(anyCollection())).thenReturn(Arrays.asList(
+                new Object[]{1L, 10L, 11L}, new Object[]{2L, 20L, 21L}, new Object[]{3L, 30L, 31L},
+                new Object[]{4L, 40L, 41L}, new Object[]{5L, 50L, 51L}, new Object[]{6L, 60L, 61L}));
+
+        BatchTransferExecutionServiceImpl executionService = new BatchTransferExecutionServiceImpl(mock(AccountService.class),
+                repository, mock(PlatformTransactionManager.class), lockManager,
+                new OptimisticLockRetryPolicy(1, Duration.ZERO, Duration.ZERO), 500, 4);
+
+        List<TransferExecutionResult> results = executionService.executeTransfers(Arrays.asList(1L, 2L, 3L, 4L, 5L, 6L));
+
+        assertThat(results.size(), is(equalTo(6)));
+        assertThat(lockedStripes, is(equalTo(Arrays.asList(4, 4, 4))));
+    }
+}
@@ -0,0 +1,86 @@
+package com.murray.financial.service.impl;
+
+import org.junit.Test;
+
+import java.time.Duration;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.Is.is;
+import static org.hamcrest.core.IsEqual.equalTo;
+
+public class InMemoryIdempotencyStoreImplTest {
+
+    @Test
+    public void return_stored_response_for_key() {
+
+        InMemoryIdempotencyStoreImpl store = new InMemoryIdempotencyStoreImpl(10, Duration.ofHours(1), Duration.ofMinutes(5));
+
+        store.reserve("key", "createTransfer:abc");
+        store.complete("key", "{\"id\":1}");
+        store.complete("key", "{\"id\":2}");
+
+        assertThat(store.reserve("key", "createTransfer:def").get().getResponse(), is(equalTo("{\"id\":1}")));
+        assertThat(store.find("other").isPresent(), is(false));
+    }
+
+    @Test
+    public void pending_key_is_held_until_completed_or_released() {
+
+        InMemoryIdempotencyStoreImpl store = new InMemoryIdempotencyStoreImpl(10, Duration.ofHours(1), Duration.ofMinutes(5));
+
+        assertThat(store.reserve("key", "op").isPresent(), is(false));
+        assertThat(store.reserve("key", "op").get().isPending(), is(true));
+
+        store.release("key");
+
+        assertThat(store.reserve("key", "op").isPresent(), is(false));
+
+        store.complete("key", "1");
+        store.release("key");
+
+        assertThat(store.find("key").get().isPending(), is(false));
+    }
+
+    @Test
+    public void expired_reservation_can_be_reserved_again() {
+
+        InMemoryIdempotencyStoreImpl store = new InMemoryIdempotencyStoreImpl(10, Duration.ofHours(1), Duration.ofMillis(-1));
+
+        store.reserve("key", "op");
+
+        assertThat(store.reserve("key", "op").isPresent(), is(false));
+    }
+
+    @Test
+    public void least_recently_used_key_is_evicted_when_full() {
+
+        InMemoryIdempotencyStoreImpl store = new InMemoryIdempotencyStoreImpl(2, Duration.ofHours(1), Duration.ofMinutes(5));
+
+        save(store, "first", "1");
+        save(store, "second", "2");
+        store.find("first");
+        save(store, "third", "3");
+
+        assertThat(store.find("first").isPresent(), is(true));
+        assertThat(store.find("second").isPresent(), is(false));
+        assertThat(store.find("third").isPresent(), is(true));
+    }
+
+    @Test
+    public void expired_keys_are_not_returned() {
+
+        InMemoryIdempotencyStoreImpl store = new InMemoryIdempotencyStoreImpl(10, Duration.ofMillis(-1), Duration.ofMinutes(5));
+
+        save(store, "key", "1");
+        save(store, "other", "2");
+
+        assertThat(store.find("key").isPresent(), is(false));
+        assertThat(store.purgeExpired(), is(equalTo(1)));
+    }
+
+    private void save(InMemoryIdempotencyStoreImpl store, String key, String response) {
+
+        store.reserve(key, "op");
+        store.complete(key, response);
+    }
+}
@@ -0,0 +1,73 @@
+package com.murray.financial.service.impl;
+
+import org.junit.Test;
+import org.springframework.dao.OptimisticLockingFailureException;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.Is.is;
+import static org.hamcrest.core.IsEqual.equalTo;
+
+public class OptimisticLockRetryPolicyTest {
+
+    private final OptimisticLockRetryPolicy retryPolicy =
+            new OptimisticLockRetryPolicy(3, Duration.ofMillis(1), Duration.ofMillis(5));
+
+    @Test
+    public void retry_until_conflict_is_resolved() {
+
+        AtomicInteger attempts = new AtomicInteger();
+
+        String result = retryPolicy.execute(() -> {
+            if (attempts.incrementAndGet() < 3) {
+                throw new OptimisticLockingFailureException("version conflict");
+            }
+            return "executed";
+        });
+
+        assertThat(result, is(equalTo("executed")));
+        assertThat(retryPolicy.getExecutions(), is(equalTo(1L)));
+        assertThat(retryPolicy.getConflicts(), is(equalTo(2L)));
+        assertThat(retryPolicy.getRetries(), is(equalTo(2L)));
+        assertThat(retryPolicy.getExhausted(), is(equalTo(0L)));
+        assertThat(retryPolicy.getConflictRate(), is(equalTo(2d)));
+    }
+
+    @Test
+    public void throw_conflict_once_attempts_are_exhausted() {
+
+        AtomicInteger attempts = new AtomicInteger();
+
+        try {
+            retryPolicy.execute(() -> {
+                attempts.incrementAndGet();
+                throw new OptimisticLockingFailureException("version conflict");
+            });
+        } catch (OptimisticLockingFailureException e) {
+            assertThat(attempts.get(), is(equalTo(3)));
+            assertThat(retryPolicy.getRetries(), is(equalTo(2L)));
+            assertThat(retryPolicy.getExhausted(), is(equalTo(1L)));
+            return;
+        }
+
+        throw new AssertionError("conflict was not thrown");
+    }
+
+    @Test
+    public void other_errors_are_not_retried() {
+
+        AtomicInteger attempts = new AtomicInteger();
+
+        try {
+            retryPolicy.execute(() -> {
+                attempts.incrementAndGet();
+                throw new IllegalStateException("not a conflict");
+            });
+        } catch (IllegalStateException e) {
+            assertThat(attempts.get(), is(equalTo(1)));
+            assertThat(retryPolicy.getConflicts(), is(equalTo(0L)));
+        }
+    }
+}
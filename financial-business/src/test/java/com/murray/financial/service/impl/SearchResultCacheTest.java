@@ -0,0 +1,164 @@
+package com.murray.financial.service.impl;
+
+import com.murray.financial.domain.enums.AccountCurrency;
+import com.murray.financial.domain.repository.query.BankAccountQueryField;
+import com.murray.financial.domain.repository.query.BankAccountResult;
+import com.murray.financial.domain.repository.query.BankAccountSearch;
+import com.murray.financial.domain.repository.query.TransferSearch;
+import com.murray.financial.querybuilder.Operator;
+import com.murray.financial.querybuilder.OrderBy;
+import com.murray.financial.querybuilder.OrderCondition;
+import com.murray.financial.querybuilder.QueryCondition;
+import com.murray.financial.querybuilder.QueryField;
+import org.junit.Test;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.Is.is;
+import static org.hamcrest.core.IsEqual.equalTo;
+
+public class SearchResultCacheTest {
+
+    private static final BankAccountResult EUR_ACCOUNT = new BankAccountResult(1L, LocalDate.now(),
+            "DK5750510001322123", BigDecimal.TEN, "EUR", "ACTIVE");
+
+    private final AtomicInteger searches = new AtomicInteger();
+
+    @Test
+    public void same_search_is_read_once_and_counted_as_hit() {
+
+        SearchResultCache cache = new SearchResultCache(10, Duration.ofHours(1));
+
+        search(cache, eurAccountsByBalance());
+        List<BankAccountResult> results = search(cache, eurAccountsByBalance());
+
+        assertThat(results.size(), is(equalTo(1)));
+        assertThat(searches.get(), is(equalTo(1)));
+        assertThat(cache.getHits(), is(equalTo(1L)));
+        assertThat(cache.getMisses(), is(equalTo(1L)));
+        assertThat(cache.getHitRatio(), is(equalTo(0.5)));
+    }
+
+    @Test
+    public void write_to_account_in_results_invalidates_search() {
+
+        SearchResultCache cache = new SearchResultCache(10, Duration.ofHours(1));
+        search(cache, eurAccountsByBalance());
+
+        cache.invalidateRow(BankAccountSearch.class, EUR_ACCOUNT.keysetId(), accountValues(AccountCurrency.EUR));
+        search(cache, eurAccountsByBalance());
+
+        assertThat(searches.get(), is(equalTo(2)));
+        assertThat(cache.getInvalidations(), is(equalTo(1L)));
+    }
+
+    @Test
+    public void write_to_account_the_search_can_not_match_keeps_search() {
+
+        SearchResultCache cache = new SearchResultCache(10, Duration.ofHours(1));
+        search(cache, eurAccountsByBalance());
+
+        cache.invalidateRow(BankAccountSearch.class, 2L, accountValues(AccountCurrency.GBP));
+        cache.invalidateRow(TransferSearch.class, EUR_ACCOUNT.keysetId(), Collections.emptyMap());
+        search(cache, eurAccountsByBalance());
+
+        assertThat(searches.get(), is(equalTo(1)));
+        assertThat(cache.getInvalidations(), is(equalTo(0L)));
+    }
+
+    @Test
+    public void new_account_the_search_may_match_invalidates_search() {
+
+        SearchResultCache cache = new SearchResultCache(10, Duration.ofHours(1));
+        search(cache, eurAccountsByBalance());
+
+        cache.invalidateRow(BankAccountSearch.class, 2L, accountValues(AccountCurrency.EUR));
+
+        assertThat(cache.getSize(), is(equalTo(0)));
+    }
+
+    @Test
+    public void bulk_balance_update_invalidates_searches_on_balance() {
+
+        SearchResultCache cache = new SearchResultCache(10, Duration.ofHours(1));
+
+        BankAccountSearch richAccounts = new BankAccountSearch();
+        richAccounts.addCondition(new QueryCondition(BankAccountQueryField.BALANCE, Operator.GREATER_THAN, new BigDecimal(1000L)));
+
+        search(cache, eurAccountsByBalance());
+        cache.resultsOf(richAccounts, Collections::emptyList);
+
+        cache.invalidateRows(BankAccountSearch.class, id -> id >= 100L, Collections.singletonList(BankAccountQueryField.INDEXED_BALANCE));
+
+        assertThat(cache.getSize(), is(equalTo(1)));
+        assertThat(cache.getInvalidations(), is(equalTo(1L)));
+    }
+
+    @Test
+    public void least_recently_used_search_is_evicted_when_full() {
+
+        SearchResultCache cache = new SearchResultCache(1, Duration.ofHours(1));
+
+        search(cache, eurAccountsByBalance());
+        search(cache, new BankAccountSearch());
+
+        assertThat(cache.getSize(), is(equalTo(1)));
+        assertThat(cache.getEvictions(), is(equalTo(1L)));
+    }
+
+    @Test
+    public void expired_search_is_read_again() {
+
+        SearchResultCache cache = new SearchResultCache(10, Duration.ofMillis(-1));
+
+        search(cache, eurAccountsByBalance());
+        search(cache, eurAccountsByBalance());
+
+        assertThat(searches.get(), is(equalTo(2)));
+        assertThat(cache.getExpirations(), is(equalTo(1L)));
+    }
+
+    @Test
+    public void zero_max_entries_disables_cache() {
+
+        SearchResultCache cache = new SearchResultCache(0, Duration.ofHours(1));
+
+        search(cache, eurAccountsByBalance());
+        search(cache, eurAccountsByBalance());
+
+        assertThat(searches.get(), is(equalTo(2)));
+        assertThat(cache.getSize(), is(equalTo(0)));
+    }
+
+    private List<BankAccountResult> search(SearchResultCache cache, BankAccountSearch search) {
+
+        return cache.resultsOf(search, () -> {
+            searches.incrementAndGet();
+            return Collections.singletonList(EUR_ACCOUNT);
+        });
+    }
+
+    private BankAccountSearch eurAccountsByBalance() {
+
+        BankAccountSearch search = new BankAccountSearch();
+        search.addCondition(new QueryCondition(BankAccountQueryField.CURRENCY, Operator.EQUALS, "EUR"));
+        search.setOrderCondition(new OrderCondition(OrderBy.DESC, BankAccountQueryField.BALANCE));
+        return search;
+    }
+
+    private Map<QueryField, Object> accountValues(AccountCurrency currency) {
+
+        Map<QueryField, Object> values = new HashMap<>();
+        values.put(BankAccountQueryField.CURRENCY, currency);
+        values.put(BankAccountQueryField.INDEXED_BALANCE, BigDecimal.ONE);
+        return values;
+    }
+}
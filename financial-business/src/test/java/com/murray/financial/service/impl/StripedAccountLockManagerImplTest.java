@@ -0,0 +1,135 @@
+package com.murray.financial.service.impl;
+
+import com.murray.financial.service.LockStripeStatistics;
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.Is.is;
+import static org.hamcrest.core.IsEqual.equalTo;
+
+public class StripedAccountLockManagerImplTest {
+
+    private final StripedAccountLockManagerImpl lockManager = new StripedAccountLockManagerImpl(1024);
+
+    private final ExecutorService executor = Executors.newFixedThreadPool(2);
+
+    @After
+    public void tearDown() {
+
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void transfers_on_disjoint_accounts_run_in_parallel() throws Exception {
+
+        CountDownLatch otherExecuted = new CountDownLatch(1);
+
+        Future<Boolean> first = executor.submit(() -> lockManager.executeLocked(Arrays.asList(1L, 2L),
+                () -> await(otherExecuted)));
+        Future<?> second = executor.submit(() -> lockManager.executeLocked(Arrays.asList(3L, 4L), () -> {
+            otherExecuted.countDown();
+            return null;
+        }));
+
+        second.get(5, TimeUnit.SECONDS);
+        assertThat(first.get(5, TimeUnit.SECONDS), is(true));
+    }
+
+    @Test
+    public void transfers_on_same_account_are_serialized() throws Exception {
+
+        CountDownLatch firstEntered = new CountDownLatch(1);
+        CountDownLatch releaseFirst = new CountDownLatch(1);
+        AtomicBoolean secondExecuted = new AtomicBoolean();
+
+        Future<Boolean> first = executor.submit(() -> lockManager.executeLocked(Arrays.asList(1L, 2L), () -> {
+            firstEntered.countDown();
+            return await(releaseFirst);
+        }));
+        firstEntered.await(5, TimeUnit.SECONDS);
+
+        Future<?> second = executor.submit(() -> lockManager.executeLocked(Arrays.asList(2L, 3L), () -> {
+            secondExecuted.set(true);
+            return null;
+        }));
+
+        while (statisticsOf(2).getWaitingThreads() == 0) {
+            Thread.sleep(5L);
+        }
+        assertThat(secondExecuted.get(), is(false));
+
+        releaseFirst.countDown();
+        first.get(5, TimeUnit.SECONDS);
+        second.get(5, TimeUnit.SECONDS);
+
+        assertThat(secondExecuted.get(), is(true));
+        assertThat(statisticsOf(2).getAcquisitions(), is(equalTo(2L)));
+        assertThat(statisticsOf(2).getContentions(), is(equalTo(1L)));
+        assertThat(statisticsOf(3).getContentions(), is(equalTo(0L)));
+    }
+
+    @Test
+    public void locking_accounts_in_opposite_order_does_not_deadlock() throws Exception {
+
+        int[] counter = new int[1];
+
+        Future<?> first = executor.submit(() -> increment(counter, 1L, 2L));
+        Future<?> second = executor.submit(() -> increment(counter, 2L, 1L));
+
+        first.get(10, TimeUnit.SECONDS);
+        second.get(10, TimeUnit.SECONDS);
+
+        assertThat(counter[0], is(equalTo(2000)));
+    }
+
+    @Test
+    public void accounts_sharing_a_stripe_are_counted_once() {
+
+        StripedAccountLockManagerImpl twoStripes = new StripedAccountLockManagerImpl(2);
+
+        assertThat(twoStripes.stripeCountOf(Arrays.asList(1L, 3L, 5L)), is(equalTo(1)));
+        assertThat(twoStripes.stripeCountOf(Arrays.asList(1L, 2L, 3L)), is(equalTo(2)));
+    }
+
+    @Test
+    public void exported_counters_add_up_the_stripes() {
+
+        lockManager.executeLocked(Arrays.asList(1L, 2L), () -> null);
+        lockManager.executeLocked(Arrays.asList(2L, 3L), () -> null);
+
+        assertThat(lockManager.getAcquisitions(), is(equalTo(4L)));
+        assertThat(lockManager.getContentions(), is(equalTo(0L)));
+        assertThat(lockManager.mostContendedStripes(10).isEmpty(), is(true));
+    }
+
+    private void increment(int[] counter, Long source, Long destination) {
+
+        for (int i = 0; i < 1000; i++) {
+            lockManager.executeLocked(Arrays.asList(source, destination), () -> counter[0]++);
+        }
+    }
+
+    private LockStripeStatistics statisticsOf(int stripe) {
+
+        return lockManager.getStripeStatistics().get(stripe);
+    }
+
+    private static Boolean await(CountDownLatch latch) {
+
+        try {
+            return latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+}
@@ -10,6 +10,7 @@ import lombok.Data;
 import lombok.NoArgsConstructor;
 
 import java.math.BigDecimal;
+import java.util.List;
 
 /**
  * Bank account search criteria
@@ -30,6 +31,11 @@ public class BankAccountSearchCriteriaDTO {
             example = "ES23S020903200500041045040A111")
     private String ibanNumber;
 
+    @JsonProperty(value = "ibanNumbers")
+    @ApiModelProperty(value = "filter by any of the IBAN numbers",
+            example = "ES23S020903200500041045040A111,ES23S020903200500041045040A112")
+    private List<String> ibanNumbers;
+
     @JsonProperty(value = "currency")
     @ApiModelProperty(value = "filter by speicic currency",
             example = "EUR",
@@ -41,6 +47,14 @@ public class BankAccountSearchCriteriaDTO {
     @ApiModelProperty(value = "filter by balance", example = "100")
     private BigDecimal balance;
 
+    @JsonProperty(value = "minBalance")
+    @ApiModelProperty(value = "filter by balance greater than or equal to", example = "100")
+    private BigDecimal minBalance;
+
+    @JsonProperty(value = "maxBalance")
+    @ApiModelProperty(value = "filter by balance lower than or equal to", example = "1000")
+    private BigDecimal maxBalance;
+
 
     @JsonProperty(value = "orderBy")
     @ApiModelProperty(value = "order results by ibanNumber, currency, balance ",
@@ -54,4 +68,21 @@ public class BankAccountSearchCriteriaDTO {
             allowEmptyValue = true)
     private String sortOrder;
 
+    @JsonProperty(value = "fields")
+    @ApiModelProperty(value = "account fields returned, all when empty. The balance is only summed when requested, filtered or ordered on",
+            allowableValues = "ibanNumber, currency, openedOn, status, balance", example = "ibanNumber,status",
+            allowEmptyValue = true)
+    private List<String> fields;
+
+    @JsonProperty(value = "pageSize")
+    @ApiModelProperty(value = "maximum number of results returned, the next page token is returned in the Continuation-Token header",
+            example = "100",
+            allowEmptyValue = true)
+    private Integer pageSize;
+
+    @JsonProperty(value = "continuationToken")
+    @ApiModelProperty(value = "Continuation-Token header value returned with the previous page, the search criteria and order must not change",
+            allowEmptyValue = true)
+    private String continuationToken;
+
 }
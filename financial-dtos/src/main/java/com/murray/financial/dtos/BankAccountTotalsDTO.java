@@ -0,0 +1,48 @@
+package com.murray.financial.dtos;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import io.swagger.annotations.ApiModel;
+import io.swagger.annotations.ApiModelProperty;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+
+/**
+ * Bank account balance totals of a currency and/or status group
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+@ApiModel(value = "BankAccountTotalsDTO",
+        description = "Count, sum, min and max of the balances of the accounts in a currency and/or status group"
+)
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BankAccountTotalsDTO {
+
+    @JsonProperty(value = "currency")
+    @ApiModelProperty(value = "Grouped currency, not set when the totals are not grouped by currency", example = "EUR")
+    private String currency;
+
+    @JsonProperty(value = "status")
+    @ApiModelProperty(value = "Grouped status, not set when the totals are not grouped by status", example = "ACTIVE")
+    private String status;
+
+    @JsonProperty(value = "accounts")
+    @ApiModelProperty(value = "Number of accounts", example = "2")
+    private Long accounts;
+
+    @JsonProperty(value = "totalBalance")
+    @ApiModelProperty(value = "Sum of the account balances", example = "1010")
+    private BigDecimal totalBalance;
+
+    @JsonProperty(value = "minBalance")
+    @ApiModelProperty(value = "Lowest account balance", example = "0")
+    private BigDecimal minBalance;
+
+    @JsonProperty(value = "maxBalance")
+    @ApiModelProperty(value = "Highest account balance", example = "1010")
+    private BigDecimal maxBalance;
+}
@@ -0,0 +1,28 @@
+package com.murray.financial.dtos;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * A page of search results along with the token used to read the next page
+ *
+ * @param <T> result data object
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ResultsPageDTO<T> {
+
+    /**
+     * Results of the page
+     */
+    private List<T> results;
+
+    /**
+     * Token of the next page, null when there are no more results
+     */
+    private String continuationToken;
+}
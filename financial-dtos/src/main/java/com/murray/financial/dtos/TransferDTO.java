@@ -67,7 +67,12 @@ public class TransferDTO {
     private LocalDateTime executionTime;
 
     @JsonProperty(value = "status")
-    @ApiModelProperty(value = "Defines the status after the transfer was executed")
+    @ApiModelProperty(value = "Defines the status after the transfer was executed",
+            allowableValues = "CREATED, PENDING, EXECUTED, FAILED")
     private String status;
 
+    @JsonProperty(value = "failureReason")
+    @ApiModelProperty(value = "Reason the transfer execution failed")
+    private String failureReason;
+
 }
@@ -0,0 +1,41 @@
+package com.murray.financial.dtos;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import io.swagger.annotations.ApiModel;
+import io.swagger.annotations.ApiModelProperty;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Outcome of a transfer executed in bulk
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+@ApiModel(value = "TransferExecutionResultDTO",
+        description = "The outcome of a transfer executed in bulk"
+)
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class TransferExecutionResultDTO {
+
+    @JsonProperty(value = "transferId")
+    @ApiModelProperty(value = "Transfer unique id ",
+            example = "12121"
+    )
+    private Long transferId;
+
+    @JsonProperty(value = "status")
+    @ApiModelProperty(value = "Execution status",
+            allowableValues = "EXECUTED, FAILED")
+    private String status;
+
+    @JsonProperty(value = "message")
+    @ApiModelProperty(value = "Reason the transfer was not executed")
+    private String message;
+
+    @JsonProperty(value = "transfer")
+    @ApiModelProperty(value = "The executed transfer")
+    private TransferDTO transfer;
+}
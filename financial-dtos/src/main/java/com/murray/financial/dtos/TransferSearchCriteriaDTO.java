@@ -1,11 +1,15 @@
 package com.murray.financial.dtos;
 
+import com.fasterxml.jackson.annotation.JsonFormat;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import io.swagger.annotations.ApiModel;
 import io.swagger.annotations.ApiModelProperty;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
+import org.springframework.format.annotation.DateTimeFormat;
+
+import java.time.LocalDateTime;
 
 /**
  * Transfer search criteria
@@ -27,6 +31,18 @@ public class TransferSearchCriteriaDTO {
     @ApiModelProperty(value = "filter on destination bank account IBAN number ")
     private String destination;
 
+    @JsonProperty(value = "sentFrom")
+    @ApiModelProperty(value = "filter on transfers sent on or after the time", example = "2019/01/01 00:00:00")
+    @JsonFormat(pattern = "yyyy/MM/dd HH:mm:ss")
+    @DateTimeFormat(pattern = "yyyy/MM/dd HH:mm:ss")
+    private LocalDateTime sentFrom;
+
+    @JsonProperty(value = "sentTo")
+    @ApiModelProperty(value = "filter on transfers sent on or before the time", example = "2019/12/31 23:59:59")
+    @JsonFormat(pattern = "yyyy/MM/dd HH:mm:ss")
+    @DateTimeFormat(pattern = "yyyy/MM/dd HH:mm:ss")
+    private LocalDateTime sentTo;
+
 
     @JsonProperty(value = "orderBy")
     @ApiModelProperty(value = "order results by  source, destination ",
@@ -40,4 +56,15 @@ public class TransferSearchCriteriaDTO {
             allowEmptyValue = true)
     private String sortOrder;
 
+    @JsonProperty(value = "pageSize")
+    @ApiModelProperty(value = "maximum number of results returned, the next page token is returned in the Continuation-Token header",
+            example = "100",
+            allowEmptyValue = true)
+    private Integer pageSize;
+
+    @JsonProperty(value = "continuationToken")
+    @ApiModelProperty(value = "Continuation-Token header value returned with the previous page, the search criteria and order must not change",
+            allowEmptyValue = true)
+    private String continuationToken;
+
 }